@@ -0,0 +1,67 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.bench.BenchmarkHands.Corpus;
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.HandAnalyzer;
+
+/**
+ * Benchmarks of the analysis a bot runs every turn: the deadwood left by
+ * each discard of an 11-card hand, and the outs of a 10-card hand among all
+ * the cards it does not hold.
+ */
+@State(Scope.Thread)
+public class AnalyzerBenchmark
+{
+	private static final long ALL_CARDS = (1L << Card.NUMBER_OF_CARDS) - 1;
+
+	@Param({"RANDOM", "PATHOLOGICAL"})
+	private Corpus aCorpus;
+
+	private final HandAnalyzer aAnalyzer = new HandAnalyzer();
+	private long[] aHands;
+	private long[] aDrawn;
+	private int aNext;
+
+	/**
+	 * Makes each hand of the corpus an 11-card hand with the lowest card of the next hand it does not hold.
+	 */
+	@Setup
+	public void setUp()
+	{
+		aHands = BenchmarkHands.masks(aCorpus);
+		aDrawn = new long[aHands.length];
+		for (int i = 0; i < aHands.length; i++)
+		{
+			long next = aHands[(i + 1) % aHands.length] & ~aHands[i];
+			aDrawn[i] = aHands[i] | Long.lowestOneBit(next == 0 ? ALL_CARDS & ~aHands[i] : next);
+		}
+	}
+
+	/**
+	 * @return The lowest deadwood a discard leaves in the next 11-card hand.
+	 */
+	@Benchmark
+	public int analyze()
+	{
+		int next = aNext;
+		aNext = (aNext + 1) % aDrawn.length;
+		return aAnalyzer.analyze(aDrawn[next]);
+	}
+
+	/**
+	 * @return The outs of the next hand.
+	 */
+	@Benchmark
+	public long outs()
+	{
+		int next = aNext;
+		aNext = (aNext + 1) % aHands.length;
+		return aAnalyzer.outs(aHands[next], ALL_CARDS & ~aHands[next]);
+	}
+}
@@ -0,0 +1,108 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.Random;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+
+/**
+ * Inputs shared by the benchmarks: seeded random hands, and a corpus of
+ * known-pathological hands with many overlapping runs and groups.
+ */
+public final class BenchmarkHands
+{
+	/**
+	 * The kind of hands a benchmark runs on.
+	 */
+	public enum Corpus
+	{ RANDOM, PATHOLOGICAL }
+
+	public static final long SEED = 303L;
+	public static final int RANDOM_HANDS = 1024;
+
+	private static final int[][] PATHOLOGICAL =
+	{
+		// the two TestAutoMatch cases
+		cards("AS 2S 3S 4S 4D 4C 2H 3H 4H 2D"),
+		cards("9D TD JD QD QS QC JH QH KH JC"),
+		// three full ranks with a run through each suit
+		cards("5C 6C 7C 5D 6D 7D 5H 6H 7H 5S"),
+		// a long run crossed by two groups
+		cards("3H 4H 5H 6H 7H 8H 4C 4S 7C 7S"),
+		// overlapping runs in two suits with groups at every rank
+		cards("8C 9C TC JC 8D 9D TD JD 9S TS"),
+		// a 4-card group at each end of a run
+		cards("2C 2D 2H 2S 3S 4S 5S 5C 5D 5H"),
+	};
+
+	private static final String RANKS = "A23456789TJQK";
+	private static final String SUITS = "CDHS";
+
+	private BenchmarkHands()
+	{}
+
+	/**
+	 * @param pCorpus The kind of hands.
+	 * @return Hands of 10 cards, as masks of card indices.
+	 */
+	public static long[] masks(Corpus pCorpus)
+	{
+		if (pCorpus == Corpus.PATHOLOGICAL)
+		{
+			long[] masks = new long[PATHOLOGICAL.length];
+			for (int i = 0; i < masks.length; i++)
+			{
+				for (int card : PATHOLOGICAL[i])
+				{
+					masks[i] |= 1L << card;
+				}
+			}
+			return masks;
+		}
+		Random random = new Random(SEED);
+		long[] masks = new long[RANDOM_HANDS];
+		for (int i = 0; i < masks.length; i++)
+		{
+			while (Long.bitCount(masks[i]) < Hand.HAND_SIZE)
+			{
+				masks[i] |= 1L << random.nextInt(Card.NUMBER_OF_CARDS);
+			}
+		}
+		return masks;
+	}
+
+	/**
+	 * @param pCorpus The kind of hands.
+	 * @return New hands holding the cards of <b>masks(pCorpus)</b>.
+	 */
+	public static Hand[] hands(Corpus pCorpus)
+	{
+		long[] masks = masks(pCorpus);
+		Hand[] hands = new Hand[masks.length];
+		for (int i = 0; i < masks.length; i++)
+		{
+			hands[i] = new Hand();
+			for (long cards = masks[i]; cards != 0; cards &= cards - 1)
+			{
+				hands[i].add(Card.of(Long.numberOfTrailingZeros(cards)));
+			}
+		}
+		return hands;
+	}
+
+	/*
+	 * Parses cards written as rank then suit, e.g. "TD" for the ten of diamonds.
+	 */
+	private static int[] cards(String pCards)
+	{
+		String[] codes = pCards.split(" ");
+		int[] cards = new int[codes.length];
+		for (int i = 0; i < codes.length; i++)
+		{
+			int rank = RANKS.indexOf(codes[i].charAt(0));
+			int suit = SUITS.indexOf(codes[i].charAt(1));
+			cards[i] = Card.of(Card.Rank.values()[rank], Card.Suit.values()[suit]).index();
+		}
+		return cards;
+	}
+}
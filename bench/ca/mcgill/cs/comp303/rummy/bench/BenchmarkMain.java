@@ -0,0 +1,44 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the model benchmarks, reporting throughput, average latency and,
+ * through the GC profiler, the allocation rate of each benchmark.
+ */
+public final class BenchmarkMain
+{
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+
+	private BenchmarkMain()
+	{}
+
+	/**
+	 * @param pArgs An optional regular expression selecting the benchmarks to run.
+	 * @throws RunnerException If a benchmark fails.
+	 */
+	public static void main(String[] pArgs) throws RunnerException
+	{
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.include(pArgs.length > 0 ? pArgs[0] : BenchmarkMain.class.getPackage().getName())
+				.mode(Mode.Throughput)
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.warmupIterations(WARMUP_ITERATIONS)
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(MEASUREMENT_ITERATIONS)
+				.measurementTime(TimeValue.seconds(1))
+				.forks(1)
+				.addProfiler(GCProfiler.class);
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,108 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.model.BitCardSet;
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.Card.Rank;
+import ca.mcgill.cs.comp303.rummy.model.Card.Suit;
+import ca.mcgill.cs.comp303.rummy.model.CardSet;
+import ca.mcgill.cs.comp303.rummy.model.CardSet.SetType;
+import ca.mcgill.cs.comp303.rummy.model.ICardSet;
+import ca.mcgill.cs.comp303.rummy.model.MeldIndex;
+
+/**
+ * Benchmarks of building CardSets, and of the interned BitCardSet of a meld.
+ */
+@State(Scope.Thread)
+public class CardSetBenchmark
+{
+	private Set<Card> aRun;
+	private Set<Card> aGroup;
+	private long aRunMask;
+
+	/**
+	 * Builds the card collections the sets are made from.
+	 */
+	@Setup
+	public void setUp()
+	{
+		aRun = new HashSet<Card>();
+		for (Rank rank : new Rank[] { Rank.NINE, Rank.TEN, Rank.JACK, Rank.QUEEN })
+		{
+			aRun.add(Card.of(rank, Suit.DIAMONDS));
+		}
+		aGroup = new HashSet<Card>();
+		for (Suit suit : new Suit[] { Suit.CLUBS, Suit.HEARTS, Suit.SPADES })
+		{
+			aGroup.add(Card.of(Rank.QUEEN, suit));
+		}
+		for (Card card : aRun)
+		{
+			aRunMask |= 1L << card.index();
+		}
+	}
+
+	/**
+	 * @return A new 4-card run.
+	 */
+	@Benchmark
+	public ICardSet newRun()
+	{
+		return new CardSet(aRun, SetType.RUN);
+	}
+
+	/**
+	 * @return A new 3-card group.
+	 */
+	@Benchmark
+	public ICardSet newGroup()
+	{
+		return new CardSet(aGroup, SetType.GROUP);
+	}
+
+	/**
+	 * @return Whether the run contains one of its cards, iterating over it first.
+	 */
+	@Benchmark
+	public boolean iterateRun()
+	{
+		ICardSet run = new CardSet(aRun, SetType.RUN);
+		Card last = null;
+		for (Card card : run)
+		{
+			last = card;
+		}
+		return run.contains(last);
+	}
+
+	/**
+	 * @return The canonical set of the 4-card run, looked up by its cards.
+	 */
+	@Benchmark
+	public ICardSet meldRun()
+	{
+		return BitCardSet.meld(MeldIndex.find(aRunMask));
+	}
+
+	/**
+	 * @return Whether the canonical run contains one of its cards, iterating over it first.
+	 */
+	@Benchmark
+	public boolean iterateMeldRun()
+	{
+		ICardSet run = BitCardSet.meld(MeldIndex.find(aRunMask));
+		Card last = null;
+		for (Card card : run)
+		{
+			last = card;
+		}
+		return run.contains(last);
+	}
+}
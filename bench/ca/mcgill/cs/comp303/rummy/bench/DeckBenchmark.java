@@ -0,0 +1,83 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.Deck;
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+
+/**
+ * Benchmarks of shuffling and dealing from a Deck.
+ */
+@State(Scope.Thread)
+public class DeckBenchmark
+{
+	private static final int BATCH = 64;
+
+	private final Deck aDeck = new Deck();
+	private final Deck aCounterDeck = Deck.counterBased(303);
+	private final byte[] aDeals = new byte[BATCH * Card.NUMBER_OF_CARDS];
+	private long aNextDeal;
+
+	/**
+	 * @return The shuffled deck.
+	 */
+	@Benchmark
+	public Deck shuffle()
+	{
+		aDeck.shuffle();
+		return aDeck;
+	}
+
+	/**
+	 * Shuffles the deck then draws two hands.
+	 * @param pBlackhole Consumes the cards drawn.
+	 */
+	@Benchmark
+	public void shuffleAndDeal(Blackhole pBlackhole)
+	{
+		aDeck.shuffle();
+		for (int i = 0; i < 2 * Hand.HAND_SIZE; i++)
+		{
+			pBlackhole.consume(aDeck.draw());
+		}
+	}
+
+	/**
+	 * Shuffles the deck then draws every card.
+	 * @param pBlackhole Consumes the cards drawn.
+	 */
+	@Benchmark
+	public void shuffleAndDrawAll(Blackhole pBlackhole)
+	{
+		aDeck.shuffle();
+		while (aDeck.size() > 0)
+		{
+			pBlackhole.consume(aDeck.draw());
+		}
+	}
+
+	/**
+	 * @return The deck, shuffled as the next deal of its seed.
+	 */
+	@Benchmark
+	public Deck shuffleCounterBased()
+	{
+		aCounterDeck.shuffle();
+		return aCounterDeck;
+	}
+
+	/**
+	 * @return The next BATCH deals of a seed, written one after the other.
+	 */
+	@Benchmark
+	public byte[] deals()
+	{
+		Deck.deals(303, aNextDeal, BATCH, aDeals);
+		aNextDeal += BATCH;
+		return aDeals;
+	}
+}
@@ -0,0 +1,160 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.bench.BenchmarkHands.Corpus;
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.Card.Rank;
+import ca.mcgill.cs.comp303.rummy.model.Card.Suit;
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+import ca.mcgill.cs.comp303.rummy.model.HandException;
+
+/**
+ * Benchmarks of the Hand hot paths. Each invocation moves on to the next
+ * hand of the corpus, so that the results are not those of a single hand.
+ */
+@State(Scope.Thread)
+public class HandBenchmark
+{
+	@Param({"RANDOM", "PATHOLOGICAL"})
+	private Corpus aCorpus;
+
+	private Hand[] aHands;
+	private int aNext;
+
+	private Hand aMeldHand;
+	private HashSet<Card> aRun;
+	private Set<Card> aGroup;
+	private long aRunMask;
+
+	/**
+	 * Builds the hands of the corpus, matched once so that the queries have matched sets to skip.
+	 */
+	@Setup
+	public void setUp()
+	{
+		aHands = BenchmarkHands.hands(aCorpus);
+		for (Hand hand : aHands)
+		{
+			hand.autoMatch();
+		}
+		aRun = new HashSet<Card>();
+		aRun.add(Card.of(Rank.FOUR, Suit.HEARTS));
+		aRun.add(Card.of(Rank.FIVE, Suit.HEARTS));
+		aRun.add(Card.of(Rank.SIX, Suit.HEARTS));
+		aRun.add(Card.of(Rank.SEVEN, Suit.HEARTS));
+		aGroup = new HashSet<Card>();
+		aGroup.add(Card.of(Rank.KING, Suit.CLUBS));
+		aGroup.add(Card.of(Rank.KING, Suit.DIAMONDS));
+		aGroup.add(Card.of(Rank.KING, Suit.SPADES));
+		aMeldHand = new Hand();
+		for (Card card : aRun)
+		{
+			aMeldHand.add(card);
+			aRunMask |= 1L << card.index();
+		}
+		for (Card card : aGroup)
+		{
+			aMeldHand.add(card);
+		}
+	}
+
+	private Hand next()
+	{
+		Hand hand = aHands[aNext];
+		aNext = (aNext + 1) % aHands.length;
+		return hand;
+	}
+
+	/**
+	 * @return The deadwood of the optimal arrangement of the next hand.
+	 */
+	@Benchmark
+	public int autoMatch()
+	{
+		Hand hand = next();
+		hand.autoMatch();
+		return hand.score();
+	}
+
+	/**
+	 * @return The unmatched cards of the next hand.
+	 */
+	@Benchmark
+	public Set<Card> getUnmatchedCards()
+	{
+		return next().getUnmatchedCards();
+	}
+
+	/**
+	 * @return The score of the next hand.
+	 */
+	@Benchmark
+	public int score()
+	{
+		return next().score();
+	}
+
+	/**
+	 * Creates a run, then breaks it again by taking one of its cards out and back in.
+	 * @return The hand.
+	 */
+	@Benchmark
+	public Hand createRun()
+	{
+		aMeldHand.createRun(aRun);
+		Card card = Card.of(Rank.FOUR, Suit.HEARTS);
+		aMeldHand.remove(card);
+		aMeldHand.add(card);
+		return aMeldHand;
+	}
+
+	/**
+	 * Creates a group, then breaks it again by taking one of its cards out and back in.
+	 * @return The hand.
+	 */
+	@Benchmark
+	public Hand createGroup()
+	{
+		aMeldHand.createGroup(aGroup);
+		Card card = Card.of(Rank.KING, Suit.CLUBS);
+		aMeldHand.remove(card);
+		aMeldHand.add(card);
+		return aMeldHand;
+	}
+
+	/**
+	 * Probes the cards of a run as a group, which fails.
+	 * @return The status of the probe.
+	 */
+	@Benchmark
+	public Hand.MeldStatus probeGroup()
+	{
+		return aMeldHand.tryCreateGroup(aRunMask);
+	}
+
+	/**
+	 * Probes the cards of a run as a group with the throwing API, which fails.
+	 * @return The message of the failure.
+	 */
+	@Benchmark
+	public String probeGroupThrowing()
+	{
+		try
+		{
+			aMeldHand.createGroup(aRun);
+			return null;
+		}
+		catch (HandException e)
+		{
+			return e.getMessage();
+		}
+	}
+}
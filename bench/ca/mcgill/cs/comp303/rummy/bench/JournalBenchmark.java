@@ -0,0 +1,108 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ca.mcgill.cs.comp303.rummy.journal.JournalReader;
+import ca.mcgill.cs.comp303.rummy.journal.JournalWriter;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+
+/**
+ * Benchmarks of the hand-history journal: streaming through every record
+ * of a journal of played rounds, and seeking to a random game.
+ */
+@State(Scope.Thread)
+public class JournalBenchmark
+{
+	private static final int ROUNDS = 100000;
+	private static final long SEGMENT_BYTES = 1 << 20;
+
+	private final Random aRandom = new Random(303);
+	private Path aDirectory;
+	private JournalReader aReader;
+
+	/**
+	 * Plays rounds with random legal actions into a new journal.
+	 * @throws IOException If the journal cannot be written.
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		aDirectory = Files.createTempDirectory("journal");
+		GameEngine engine = new GameEngine(RandomSource.seeded(303));
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		JournalWriter writer = new JournalWriter(aDirectory, SEGMENT_BYTES, JournalWriter.DEFAULT_BATCH_BYTES);
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			engine.deal(round & 1);
+			for (int count = engine.legalActions(actions); count > 0; count = engine.legalActions(actions))
+			{
+				engine.apply(actions[aRandom.nextInt(count)]);
+			}
+			writer.append(engine);
+		}
+		writer.close();
+		aReader = new JournalReader(aDirectory);
+	}
+
+	/**
+	 * Deletes the journal.
+	 * @throws IOException If the journal cannot be deleted.
+	 */
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		aReader.close();
+		DirectoryStream<Path> files = Files.newDirectoryStream(aDirectory);
+		try
+		{
+			for (Path file : files)
+			{
+				Files.delete(file);
+			}
+		}
+		finally
+		{
+			files.close();
+		}
+		Files.delete(aDirectory);
+	}
+
+	/**
+	 * @return The number of gins among all the rounds of the journal.
+	 */
+	@Benchmark
+	public int scan()
+	{
+		aReader.rewind();
+		int gins = 0;
+		while (aReader.next())
+		{
+			if (aReader.isGin())
+			{
+				gins++;
+			}
+		}
+		return gins;
+	}
+
+	/**
+	 * @return The points of a random game.
+	 */
+	@Benchmark
+	public int seek()
+	{
+		aReader.seek(aRandom.nextInt(ROUNDS));
+		return aReader.getPoints();
+	}
+}
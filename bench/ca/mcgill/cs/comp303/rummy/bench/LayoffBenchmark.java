@@ -0,0 +1,66 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.mcgill.cs.comp303.rummy.bench.BenchmarkHands.Corpus;
+import ca.mcgill.cs.comp303.rummy.model.LayoffSolver;
+import ca.mcgill.cs.comp303.rummy.model.MeldIndex;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+
+/**
+ * Benchmarks of knock resolution: the layoffs of a defender holding one
+ * random hand on the melds of a knocker holding the next one.
+ */
+@State(Scope.Thread)
+public class LayoffBenchmark
+{
+	private final LayoffSolver aSolver = new LayoffSolver();
+	private long[] aRuns;
+	private long[] aGroups;
+	private long[] aDefenders;
+	private int aNext;
+
+	/**
+	 * Pairs up the random hands, dropping the cards the defender shares with the knocker.
+	 */
+	@Setup
+	public void setUp()
+	{
+		long[] masks = BenchmarkHands.masks(Corpus.RANDOM);
+		aRuns = new long[masks.length];
+		aGroups = new long[masks.length];
+		aDefenders = new long[masks.length];
+		MeldSolver solver = new MeldSolver();
+		for (int i = 0; i < masks.length; i++)
+		{
+			long knocker = masks[i];
+			solver.solve(knocker);
+			for (int j = 0; j < solver.getMatchCount(); j++)
+			{
+				if (MeldIndex.isRun(solver.getMatchId(j)))
+				{
+					aRuns[i] |= solver.getMatch(j);
+				}
+				else
+				{
+					aGroups[i] |= solver.getMatch(j);
+				}
+			}
+			aDefenders[i] = masks[(i + 1) % masks.length] & ~knocker;
+		}
+	}
+
+	/**
+	 * @return The deadwood of the next defender after laying off.
+	 */
+	@Benchmark
+	public int solve()
+	{
+		int next = aNext;
+		aNext = (aNext + 1) % aDefenders.length;
+		return aSolver.solve(aRuns[next], aGroups[next], aDefenders[next]);
+	}
+}
@@ -0,0 +1,106 @@
+package ca.mcgill.cs.comp303.rummy.bench;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.results.Aggregation;
+import ca.mcgill.cs.comp303.rummy.results.Column;
+import ca.mcgill.cs.comp303.rummy.results.ResultsQuery;
+import ca.mcgill.cs.comp303.rummy.results.ResultsStore;
+import ca.mcgill.cs.comp303.rummy.results.ResultsWriter;
+import ca.mcgill.cs.comp303.rummy.sim.GameSimulator;
+import ca.mcgill.cs.comp303.rummy.sim.GreedyStrategy;
+
+/**
+ * Benchmarks of aggregation queries over a results store of simulated
+ * rounds. Divide the time of a query by the rows of the store, printed
+ * at setup, for the time per row.
+ */
+@State(Scope.Benchmark)
+public class ResultsBenchmark
+{
+	private static final int GAMES = 20000;
+
+	private Path aDirectory;
+	private ResultsStore aStore;
+
+	/**
+	 * Simulates games into a new store.
+	 * @throws IOException If the store cannot be written.
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		aDirectory = Files.createTempDirectory("results");
+		ResultsWriter writer = new ResultsWriter(aDirectory);
+		new GameSimulator(GreedyStrategy.factory(GameEngine.KNOCK_LIMIT), GreedyStrategy.factory(0)).run(303, 0, GAMES,
+				writer);
+		writer.close();
+		aStore = new ResultsStore(aDirectory);
+		// one row per round, and every game plays at least one
+		if (aStore.getRows() < GAMES)
+		{
+			throw new IllegalStateException("Expected a row per round of " + GAMES + " games, got " + aStore.getRows());
+		}
+	}
+
+	/**
+	 * Deletes the store.
+	 * @throws IOException If the store cannot be deleted.
+	 */
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		aStore.close();
+		DirectoryStream<Path> files = Files.newDirectoryStream(aDirectory);
+		try
+		{
+			for (Path file : files)
+			{
+				Files.delete(file);
+			}
+		}
+		finally
+		{
+			files.close();
+		}
+		Files.delete(aDirectory);
+	}
+
+	/**
+	 * @return The mean deadwood of knockers by strategy.
+	 */
+	@Benchmark
+	public Aggregation deadwoodByStrategy()
+	{
+		return new ResultsQuery(Column.KNOCKER_STRATEGY, Column.KNOCKER_DEADWOOD)
+				.where(Column.KNOCKER_STRATEGY, 0, Byte.MAX_VALUE).run(aStore);
+	}
+
+	/**
+	 * @return The number of gins by number of turns.
+	 */
+	@Benchmark
+	public Aggregation ginsByTurns()
+	{
+		return new ResultsQuery(Column.TURNS, null).where(Column.KNOCK_TYPE, Column.GIN, Column.GIN).run(aStore);
+	}
+
+	/**
+	 * @return The points of the rounds of a seed absent from the store, which the statistics of every chunk exclude.
+	 */
+	@Benchmark
+	public Aggregation skipAll()
+	{
+		return new ResultsQuery(null, Column.POINTS).where(Column.SEED, 0, 0).run(aStore);
+	}
+}
@@ -0,0 +1,164 @@
+package ca.mcgill.cs.comp303.rummy.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+
+/**
+ * The layout of a journal on disk, shared by the writer and the reader.
+ * <p>
+ * A journal is a directory of segments, <code>00000000.journal</code>,
+ * <code>00000001.journal</code> and so on, each with a sparse index next to
+ * it. A segment starts with a magic number and a version, then holds
+ * records back to back, in big-endian order:
+ * <pre>
+ *  0 int    length of the record, header included
+ *  4 int    CRC-32 of the bytes after this field
+ *  8 long   game id
+ * 16 byte   dealer
+ * 17 byte   winner, or -1
+ * 18 short  points
+ * 20 byte   flags: GIN, UNDERCUT
+ * 21 short  number of actions
+ * 23 39 B   the deal: the 52 card indices, bottom first, 6 bits each
+ * 62 1 B    per action, as a GameEngine action
+ * </pre>
+ * A record whose length or checksum does not hold ends its segment: it was
+ * torn by a crash before its batch was committed. The index of a segment
+ * holds the game id and offset of every <b>INDEX_INTERVAL</b>-th record.
+ */
+final class JournalFormat
+{
+	static final int MAGIC = 0x524D594A;
+	static final short VERSION = 1;
+	static final int SEGMENT_HEADER = 8;
+
+	static final int LENGTH = 0;
+	static final int CRC = 4;
+	static final int GAME_ID = 8;
+	static final int DEALER = 16;
+	static final int WINNER = 17;
+	static final int POINTS = 18;
+	static final int FLAGS = 20;
+	static final int ACTION_COUNT = 21;
+	static final int DEAL = 23;
+	static final int CARD_BITS = 6;
+	static final int DEAL_BYTES = Card.NUMBER_OF_CARDS * CARD_BITS / Byte.SIZE;
+	static final int ACTIONS = DEAL + DEAL_BYTES;
+	static final int MAX_ACTIONS = (1 << Short.SIZE) - 1;
+	static final int MAX_RECORD = ACTIONS + MAX_ACTIONS;
+
+	static final int GIN = 1;
+	static final int UNDERCUT = 2;
+
+	static final int INDEX_INTERVAL = 64;
+	static final int INDEX_ENTRY = 12;
+
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final String INDEX_SUFFIX = ".index";
+	private static final int CARD_MASK = (1 << CARD_BITS) - 1;
+
+	private JournalFormat()
+	{}
+
+	/**
+	 * @param pDirectory The directory of a journal.
+	 * @return The segments of the journal, in order; empty if there is none.
+	 * @throws IOException If the directory cannot be listed.
+	 */
+	static List<Path> segments(Path pDirectory) throws IOException
+	{
+		List<Path> segments = new ArrayList<Path>();
+		if (!Files.isDirectory(pDirectory))
+		{
+			return segments;
+		}
+		DirectoryStream<Path> stream = Files.newDirectoryStream(pDirectory, "*" + SEGMENT_SUFFIX);
+		try
+		{
+			for (Path segment : stream)
+			{
+				segments.add(segment);
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	/**
+	 * @param pDirectory The directory of a journal.
+	 * @param pNumber The number of a segment.
+	 * @return The path of the segment.
+	 */
+	static Path segment(Path pDirectory, int pNumber)
+	{
+		return pDirectory.resolve(String.format("%08d", pNumber) + SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * @param pSegment The path of a segment.
+	 * @return The path of its index.
+	 */
+	static Path index(Path pSegment)
+	{
+		String name = pSegment.getFileName().toString();
+		return pSegment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+	}
+
+	/**
+	 * Packs the card indices of a deal, 6 bits each, most significant first.
+	 * @param pDeal The 52 card indices.
+	 * @param pBytes The array to write <b>DEAL_BYTES</b> bytes to.
+	 * @param pOffset The index of pBytes to start at.
+	 */
+	static void packDeal(byte[] pDeal, byte[] pBytes, int pOffset)
+	{
+		int bits = 0;
+		int count = 0;
+		int out = pOffset;
+		for (int i = 0; i < Card.NUMBER_OF_CARDS; i++)
+		{
+			bits = bits << CARD_BITS | pDeal[i];
+			count += CARD_BITS;
+			if (count >= Byte.SIZE)
+			{
+				count -= Byte.SIZE;
+				pBytes[out++] = (byte) (bits >>> count);
+			}
+		}
+	}
+
+	/**
+	 * Unpacks the card indices of a deal packed by <b>packDeal</b>.
+	 * @param pBuffer The buffer holding the packed deal.
+	 * @param pOffset The index of pBuffer it starts at.
+	 * @param pDeal The array to write the 52 card indices to.
+	 */
+	static void unpackDeal(ByteBuffer pBuffer, int pOffset, byte[] pDeal)
+	{
+		int bits = 0;
+		int count = 0;
+		int in = pOffset;
+		for (int i = 0; i < Card.NUMBER_OF_CARDS; i++)
+		{
+			if (count < CARD_BITS)
+			{
+				bits = bits << Byte.SIZE | (pBuffer.get(in++) & 0xFF);
+				count += Byte.SIZE;
+			}
+			count -= CARD_BITS;
+			pDeal[i] = (byte) (bits >>> count & CARD_MASK);
+		}
+	}
+}
@@ -0,0 +1,367 @@
+package ca.mcgill.cs.comp303.rummy.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+
+/**
+ * Streams through the rounds of a journal written by <b>JournalWriter</b>.
+ * Each segment is memory-mapped, and the reader is a cursor over their
+ * records: <b>next</b> moves to the next record and the getters read its
+ * fields in place, so streaming through a journal does not allocate.
+ * <b>seek</b> moves to a game by its id, from the nearest entry of the
+ * sparse index of its segment.
+ * <p>
+ * The reader sees the records committed when it was opened. Each record is
+ * checked against its checksum, and a torn record ends its segment; a
+ * segment torn before its header was written holds no record. Not
+ * threadsafe: use one reader per thread.
+ */
+public final class JournalReader implements Closeable
+{
+	private final MappedByteBuffer[] aSegments;
+	// the game id of the first record of each segment, or Long.MAX_VALUE if it has none
+	private final long[] aFirstGameIds;
+	private final long[][] aIndexGameIds;
+	private final int[][] aIndexOffsets;
+	private final CRC32 aCrc = new CRC32();
+	private int aSegment;
+	private int aPosition = JournalFormat.SEGMENT_HEADER;
+	private ByteBuffer aBuffer;
+	private int aRecord = -1;
+
+	/**
+	 * Opens the segments of a journal.
+	 * @param pDirectory The directory of the journal.
+	 * @throws IOException If a segment cannot be mapped, or starts with another header than that of a journal.
+	 */
+	public JournalReader(Path pDirectory) throws IOException
+	{
+		List<Path> segments = JournalFormat.segments(pDirectory);
+		aSegments = new MappedByteBuffer[segments.size()];
+		aFirstGameIds = new long[segments.size()];
+		aIndexGameIds = new long[segments.size()][];
+		aIndexOffsets = new int[segments.size()][];
+		for (int i = 0; i < aSegments.length; i++)
+		{
+			FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ);
+			try
+			{
+				aSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			finally
+			{
+				channel.close();
+			}
+			// a segment shorter than its header was torn by a crash as it was created, and holds no record
+			if (aSegments[i].limit() >= JournalFormat.SEGMENT_HEADER && (aSegments[i].getInt(0) != JournalFormat.MAGIC
+					|| aSegments[i].getShort(Integer.SIZE / Byte.SIZE) != JournalFormat.VERSION))
+			{
+				throw new IOException(segments.get(i) + " is not a journal segment.");
+			}
+			aFirstGameIds[i] = isRecord(aSegments[i], JournalFormat.SEGMENT_HEADER) ? aSegments[i]
+					.getLong(JournalFormat.SEGMENT_HEADER + JournalFormat.GAME_ID) : Long.MAX_VALUE;
+			readIndex(i, JournalFormat.index(segments.get(i)));
+		}
+	}
+
+	/*
+	 * Loads the entries of the index of segment pSegment that point to a
+	 * record, in case the index is ahead of a torn segment.
+	 */
+	private void readIndex(int pSegment, Path pIndex) throws IOException
+	{
+		ByteBuffer index = ByteBuffer.wrap(Files.exists(pIndex) ? Files.readAllBytes(pIndex) : new byte[0]);
+		int entries = index.limit() / JournalFormat.INDEX_ENTRY;
+		aIndexGameIds[pSegment] = new long[entries];
+		aIndexOffsets[pSegment] = new int[entries];
+		int valid = 0;
+		for (int i = 0; i < entries; i++)
+		{
+			long gameId = index.getLong();
+			int offset = index.getInt();
+			if (offset >= 0 && isRecord(aSegments[pSegment], offset)
+					&& aSegments[pSegment].getLong(offset + JournalFormat.GAME_ID) == gameId)
+			{
+				aIndexGameIds[pSegment][valid] = gameId;
+				aIndexOffsets[pSegment][valid++] = offset;
+			}
+		}
+		aIndexGameIds[pSegment] = Arrays.copyOf(aIndexGameIds[pSegment], valid);
+		aIndexOffsets[pSegment] = Arrays.copyOf(aIndexOffsets[pSegment], valid);
+	}
+
+	/*
+	 * Whether a whole record with a valid checksum starts at pOffset of pSegment.
+	 */
+	private boolean isRecord(ByteBuffer pSegment, int pOffset)
+	{
+		if (pOffset > pSegment.limit() - JournalFormat.ACTIONS)
+		{
+			return false;
+		}
+		int length = pSegment.getInt(pOffset + JournalFormat.LENGTH);
+		if (length < JournalFormat.ACTIONS || length > pSegment.limit() - pOffset
+				|| length != JournalFormat.ACTIONS + (pSegment.getShort(pOffset + JournalFormat.ACTION_COUNT) & 0xFFFF))
+		{
+			return false;
+		}
+		int limit = pSegment.limit();
+		pSegment.limit(pOffset + length);
+		pSegment.position(pOffset + JournalFormat.GAME_ID);
+		aCrc.reset();
+		aCrc.update(pSegment);
+		pSegment.limit(limit);
+		return (int) aCrc.getValue() == pSegment.getInt(pOffset + JournalFormat.CRC);
+	}
+
+	/**
+	 * Moves to the next record.
+	 * @return False if there is none, after the last record of the journal.
+	 */
+	public boolean next()
+	{
+		while (aSegment < aSegments.length)
+		{
+			ByteBuffer segment = aSegments[aSegment];
+			if (isRecord(segment, aPosition))
+			{
+				aBuffer = segment;
+				aRecord = aPosition;
+				aPosition += segment.getInt(aPosition + JournalFormat.LENGTH);
+				return true;
+			}
+			aSegment++;
+			aPosition = JournalFormat.SEGMENT_HEADER;
+		}
+		aRecord = -1;
+		return false;
+	}
+
+	/**
+	 * Moves to the record of a game: the next call to <b>next</b> then
+	 * moves to the record after it.
+	 * @param pGameId The id of the game.
+	 * @return True if the journal holds the game; otherwise the reader is on
+	 * the first record of a later game, or after the last record if there is none.
+	 */
+	public boolean seek(long pGameId)
+	{
+		if (aSegments.length == 0)
+		{
+			aRecord = -1;
+			return false;
+		}
+		int segment = 0;
+		for (int i = 0; i < aSegments.length; i++)
+		{
+			if (aFirstGameIds[i] <= pGameId)
+			{
+				segment = i;
+			}
+		}
+		int entry = Arrays.binarySearch(aIndexGameIds[segment], pGameId);
+		if (entry < 0)
+		{
+			entry = -entry - 2;
+		}
+		aSegment = segment;
+		aPosition = entry < 0 ? JournalFormat.SEGMENT_HEADER : aIndexOffsets[segment][entry];
+		while (next())
+		{
+			if (getGameId() >= pGameId)
+			{
+				return getGameId() == pGameId;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Scans the last segment that holds a record from its last index entry,
+	 * then puts the reader back on the record it was on.
+	 * @return The game id of the last record of the journal, or -1 if it has none.
+	 */
+	public long getLastGameId()
+	{
+		int segment = aSegments.length - 1;
+		while (segment >= 0 && aFirstGameIds[segment] == Long.MAX_VALUE)
+		{
+			segment--;
+		}
+		if (segment < 0)
+		{
+			return -1;
+		}
+		int savedSegment = aSegment;
+		int savedPosition = aPosition;
+		ByteBuffer savedBuffer = aBuffer;
+		int savedRecord = aRecord;
+		int last = aIndexOffsets[segment].length - 1;
+		aSegment = segment;
+		aPosition = last < 0 ? JournalFormat.SEGMENT_HEADER : aIndexOffsets[segment][last];
+		long gameId = -1;
+		while (aSegment == segment && next())
+		{
+			gameId = getGameId();
+		}
+		aSegment = savedSegment;
+		aPosition = savedPosition;
+		aBuffer = savedBuffer;
+		aRecord = savedRecord;
+		return gameId;
+	}
+
+	/**
+	 * @return The number of segments of the journal.
+	 */
+	public int getSegmentCount()
+	{
+		return aSegments.length;
+	}
+
+	/**
+	 * Moves back to before the first record of the journal.
+	 */
+	public void rewind()
+	{
+		aSegment = 0;
+		aPosition = JournalFormat.SEGMENT_HEADER;
+		aRecord = -1;
+	}
+
+	/**
+	 * @return The id of the game of the current record.
+	 */
+	public long getGameId()
+	{
+		return aBuffer.getLong(aRecord + JournalFormat.GAME_ID);
+	}
+
+	/**
+	 * @return The player who dealt the round.
+	 */
+	public int getDealer()
+	{
+		return aBuffer.get(aRecord + JournalFormat.DEALER);
+	}
+
+	/**
+	 * @return The player who won the round, or -1 if it was drawn.
+	 */
+	public int getWinner()
+	{
+		return aBuffer.get(aRecord + JournalFormat.WINNER);
+	}
+
+	/**
+	 * @return The points the winner scored.
+	 */
+	public int getPoints()
+	{
+		return aBuffer.getShort(aRecord + JournalFormat.POINTS) & 0xFFFF;
+	}
+
+	/**
+	 * @return True if the knocker went gin.
+	 */
+	public boolean isGin()
+	{
+		return (aBuffer.get(aRecord + JournalFormat.FLAGS) & JournalFormat.GIN) != 0;
+	}
+
+	/**
+	 * @return True if the defender undercut the knocker.
+	 */
+	public boolean isUndercut()
+	{
+		return (aBuffer.get(aRecord + JournalFormat.FLAGS) & JournalFormat.UNDERCUT) != 0;
+	}
+
+	/**
+	 * @return The number of actions of the round.
+	 */
+	public int getActionCount()
+	{
+		return aBuffer.getShort(aRecord + JournalFormat.ACTION_COUNT) & 0xFFFF;
+	}
+
+	/**
+	 * @param pIndex The number of an action.
+	 * @return The action, as a <b>GameEngine</b> action.
+	 * @pre pIndex >= 0 && pIndex < getActionCount()
+	 */
+	public int getAction(int pIndex)
+	{
+		return aBuffer.get(aRecord + JournalFormat.ACTIONS + pIndex) & 0xFF;
+	}
+
+	/**
+	 * @param pDeal The array to write the order of the 52 cards the round was dealt from to, bottom first.
+	 */
+	public void getDeal(byte[] pDeal)
+	{
+		JournalFormat.unpackDeal(aBuffer, aRecord + JournalFormat.DEAL, pDeal);
+	}
+
+	/**
+	 * Plays the round of the current record again on an engine.
+	 * @param pEngine The engine to replay on, left at the end of the round.
+	 * @param pDeal A scratch array of <b>Card.NUMBER_OF_CARDS</b> bytes.
+	 */
+	public void replay(GameEngine pEngine, byte[] pDeal)
+	{
+		getDeal(pDeal);
+		pEngine.deal(getDealer(), pDeal);
+		for (int i = 0; i < getActionCount(); i++)
+		{
+			pEngine.apply(getAction(i));
+		}
+	}
+
+	/**
+	 * Releases the segments. They stay mapped until the reader is garbage collected.
+	 */
+	@Override
+	public void close()
+	{
+		Arrays.fill(aSegments, null);
+		aBuffer = null;
+		aSegment = aSegments.length;
+	}
+
+	/**
+	 * Streams through a journal and prints its statistics.
+	 * @param pArgs The directory of the journal.
+	 * @throws IOException If the journal cannot be read.
+	 */
+	public static void main(String[] pArgs) throws IOException
+	{
+		JournalReader reader = new JournalReader(Paths.get(pArgs[0]));
+		long start = System.nanoTime();
+		long games = 0;
+		long gins = 0;
+		long actions = 0;
+		while (reader.next())
+		{
+			games++;
+			gins += reader.isGin() ? 1 : 0;
+			actions += reader.getActionCount();
+		}
+		long nanos = System.nanoTime() - start;
+		reader.close();
+		System.out.println(games + " games, " + gins + " gins, " + actions + " actions, read in " + nanos / 1000000
+				+ " ms (" + (nanos == 0 ? 0 : games * 1000000000L / nanos) + " games/s)");
+	}
+}
@@ -0,0 +1,241 @@
+package ca.mcgill.cs.comp303.rummy.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+
+/**
+ * Appends finished rounds to a journal, in the format of
+ * <b>JournalFormat</b>: about a hundred bytes a round, the deal and each
+ * action packed instead of the objects of the round serialized.
+ * <p>
+ * Records are gathered in a batch and written through a <b>FileChannel</b>
+ * with a single <code>force</code> once the batch is full or on
+ * <b>commit</b>: the threads appending at the same time share the cost of
+ * each commit. A record is only durable once its batch is committed; a
+ * crash loses the batch in progress, which the reader then skips. A writer
+ * opened on an existing journal starts a new segment, and numbers its games
+ * after the last one of the journal.
+ * <p>
+ * Threadsafe: appends are serialized. Appending does not allocate.
+ */
+public final class JournalWriter implements Closeable
+{
+	public static final long DEFAULT_SEGMENT_BYTES = 64 << 20;
+	public static final int DEFAULT_BATCH_BYTES = 256 << 10;
+
+	private final Path aDirectory;
+	private final long aSegmentBytes;
+	private final ByteBuffer aBatch;
+	private final ByteBuffer aIndexBatch;
+	private final byte[] aRecord = new byte[JournalFormat.MAX_RECORD];
+	private final ByteBuffer aRecordBuffer = ByteBuffer.wrap(aRecord);
+	private final byte[] aDeal = new byte[Card.NUMBER_OF_CARDS];
+	private final CRC32 aCrc = new CRC32();
+	private FileChannel aSegment;
+	private FileChannel aIndex;
+	private int aSegmentNumber;
+	private long aSegmentSize;
+	private long aSegmentRecords;
+	private long aNextGameId;
+	private long aCommits;
+
+	/**
+	 * Opens a journal with the default segment and batch sizes.
+	 * @param pDirectory The directory of the journal, created if needed.
+	 * @throws IOException If the journal cannot be opened.
+	 */
+	public JournalWriter(Path pDirectory) throws IOException
+	{
+		this(pDirectory, DEFAULT_SEGMENT_BYTES, DEFAULT_BATCH_BYTES);
+	}
+
+	/**
+	 * @param pDirectory The directory of the journal, created if needed.
+	 * @param pSegmentBytes The size past which a new segment is started.
+	 * @param pBatchBytes The size of a batch, at least that of the largest record.
+	 * @throws IOException If the journal cannot be opened.
+	 * @throws IllegalArgumentException If a segment would be too large to map or a batch too small.
+	 */
+	public JournalWriter(Path pDirectory, long pSegmentBytes, int pBatchBytes) throws IOException
+	{
+		if (pSegmentBytes > Integer.MAX_VALUE - JournalFormat.MAX_RECORD || pBatchBytes < JournalFormat.MAX_RECORD)
+		{
+			throw new IllegalArgumentException("Segments must be mappable and batches must hold any record.");
+		}
+		aDirectory = pDirectory;
+		aSegmentBytes = pSegmentBytes;
+		aBatch = ByteBuffer.allocateDirect(pBatchBytes);
+		// a batch holds at most one record every ACTIONS bytes, and one index entry every INDEX_INTERVAL records
+		aIndexBatch = ByteBuffer.allocateDirect((pBatchBytes / JournalFormat.ACTIONS / JournalFormat.INDEX_INTERVAL + 1)
+				* JournalFormat.INDEX_ENTRY);
+		Files.createDirectories(pDirectory);
+		List<Path> segments = JournalFormat.segments(pDirectory);
+		if (!segments.isEmpty())
+		{
+			JournalReader reader = new JournalReader(pDirectory);
+			try
+			{
+				aNextGameId = reader.getLastGameId() + 1;
+			}
+			finally
+			{
+				reader.close();
+			}
+			String last = segments.get(segments.size() - 1).getFileName().toString();
+			aSegmentNumber = Integer.parseInt(last.substring(0, last.indexOf('.'))) + 1;
+		}
+		openSegment();
+	}
+
+	/**
+	 * Appends a round that is over.
+	 * @param pEngine The engine the round was dealt and played on.
+	 * @return The game id of the round in the journal.
+	 * @throws IOException If a batch cannot be committed.
+	 * @pre pEngine.getPhase() == GameEngine.Phase.OVER and the round was dealt, not set up
+	 */
+	public synchronized long append(GameEngine pEngine) throws IOException
+	{
+		assert pEngine.getPhase() == GameEngine.Phase.OVER;
+		int actions = pEngine.getHistorySize();
+		assert actions <= JournalFormat.MAX_ACTIONS;
+		int length = JournalFormat.ACTIONS + actions;
+		if (aSegmentRecords > 0 && aSegmentSize + length > aSegmentBytes)
+		{
+			commit();
+			closeSegment();
+			aSegmentNumber++;
+			openSegment();
+		}
+		if (aBatch.remaining() < length)
+		{
+			commit();
+		}
+		long gameId = aNextGameId++;
+		aRecordBuffer.clear();
+		aRecordBuffer.putInt(length);
+		aRecordBuffer.putInt(0);
+		aRecordBuffer.putLong(gameId);
+		aRecordBuffer.put((byte) pEngine.getDealer());
+		aRecordBuffer.put((byte) pEngine.getWinner());
+		aRecordBuffer.putShort((short) pEngine.getPoints());
+		int flags = pEngine.isGin() ? JournalFormat.GIN : 0;
+		aRecordBuffer.put((byte) (pEngine.isUndercut() ? flags | JournalFormat.UNDERCUT : flags));
+		aRecordBuffer.putShort((short) actions);
+		pEngine.getDeal(aDeal);
+		JournalFormat.packDeal(aDeal, aRecord, JournalFormat.DEAL);
+		for (int i = 0; i < actions; i++)
+		{
+			aRecord[JournalFormat.ACTIONS + i] = (byte) pEngine.getAction(i);
+		}
+		aCrc.reset();
+		aCrc.update(aRecord, JournalFormat.GAME_ID, length - JournalFormat.GAME_ID);
+		aRecordBuffer.putInt(JournalFormat.CRC, (int) aCrc.getValue());
+		if (aSegmentRecords % JournalFormat.INDEX_INTERVAL == 0)
+		{
+			aIndexBatch.putLong(gameId);
+			aIndexBatch.putInt((int) aSegmentSize);
+		}
+		aBatch.put(aRecord, 0, length);
+		aSegmentSize += length;
+		aSegmentRecords++;
+		return gameId;
+	}
+
+	/**
+	 * Writes the batch in progress and forces it to the disk, then writes
+	 * the index entries of its records. The index is not forced: the reader
+	 * only uses it as a hint.
+	 * @throws IOException If the batch cannot be written.
+	 */
+	public synchronized void commit() throws IOException
+	{
+		if (aBatch.position() == 0)
+		{
+			return;
+		}
+		aBatch.flip();
+		while (aBatch.hasRemaining())
+		{
+			aSegment.write(aBatch);
+		}
+		aSegment.force(false);
+		aBatch.clear();
+		aIndexBatch.flip();
+		while (aIndexBatch.hasRemaining())
+		{
+			aIndex.write(aIndexBatch);
+		}
+		aIndexBatch.clear();
+		aCommits++;
+	}
+
+	/**
+	 * @return The number of batches committed.
+	 */
+	public synchronized long getCommits()
+	{
+		return aCommits;
+	}
+
+	/**
+	 * @return The game id the next round appended will get.
+	 */
+	public synchronized long getNextGameId()
+	{
+		return aNextGameId;
+	}
+
+	/**
+	 * Commits the batch in progress and closes the journal.
+	 * @throws IOException If the batch cannot be committed.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (aSegment != null)
+		{
+			commit();
+			closeSegment();
+		}
+	}
+
+	private void openSegment() throws IOException
+	{
+		Path segment = JournalFormat.segment(aDirectory, aSegmentNumber);
+		aSegment = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		aIndex = FileChannel.open(JournalFormat.index(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		// the header is forced before any record, so a crash never leaves a segment a reader rejects
+		ByteBuffer header = ByteBuffer.allocate(JournalFormat.SEGMENT_HEADER);
+		header.putInt(JournalFormat.MAGIC);
+		header.putShort(JournalFormat.VERSION);
+		header.putShort((short) 0);
+		header.flip();
+		while (header.hasRemaining())
+		{
+			aSegment.write(header);
+		}
+		aSegment.force(false);
+		aSegmentSize = JournalFormat.SEGMENT_HEADER;
+		aSegmentRecords = 0;
+	}
+
+	private void closeSegment() throws IOException
+	{
+		aSegment.close();
+		aIndex.close();
+		aSegment = null;
+		aIndex = null;
+	}
+}
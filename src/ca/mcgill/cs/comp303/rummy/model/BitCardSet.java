@@ -0,0 +1,161 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import ca.mcgill.cs.comp303.rummy.model.CardSet.SetType;
+
+/**
+ * An immutable set of Cards kept as a single 52-bit mask indexed by
+ * <code>Card.index()</code>, so that membership and size are single
+ * instructions and iterating walks the set bits in index order. The
+ * iterator holds nothing but the mask left to visit, which the JIT can keep
+ * in a register once the loop is inlined; <b>forEach</b> does not allocate
+ * at all.
+ * <p>
+ * Each legal meld of <b>MeldIndex</b> has one canonical instance, returned
+ * by <b>meld</b>, so that arranging a hand allocates no matched sets.
+ */
+public final class BitCardSet implements ICardSet
+{
+	private static final BitCardSet[] MELDS = new BitCardSet[MeldIndex.NUMBER_OF_MELDS];
+
+	static
+	{
+		for (int id = 0; id < MeldIndex.NUMBER_OF_MELDS; id++)
+		{
+			MELDS[id] = new BitCardSet(MeldIndex.mask(id), MeldIndex.isRun(id) ? SetType.RUN : SetType.GROUP);
+		}
+	}
+
+	private final long aCards;
+	private final SetType aSetType;
+
+	/**
+	 * @param pCards The mask of the cards of the set.
+	 * @param pSetType The type of the set; either Run or Group.
+	 * @pre pSetType != null
+	 */
+	public BitCardSet(long pCards, SetType pSetType)
+	{
+		aCards = pCards;
+		aSetType = pSetType;
+	}
+
+	/**
+	 * @param pId The id of a meld in <b>MeldIndex</b>.
+	 * @return The canonical set of the meld.
+	 * @pre pId >= 0 && pId < MeldIndex.NUMBER_OF_MELDS
+	 */
+	public static BitCardSet meld(int pId)
+	{
+		return MELDS[pId];
+	}
+
+	/**
+	 * @return The mask of the cards, where bit <code>Card.index()</code> is set for each card.
+	 */
+	public long cardsMask()
+	{
+		return aCards;
+	}
+
+	@Override
+	public Iterator<Card> iterator()
+	{
+		return new Iterator<Card>()
+		{
+			private long aRemaining = aCards;
+
+			@Override
+			public boolean hasNext()
+			{
+				return aRemaining != 0;
+			}
+
+			@Override
+			public Card next()
+			{
+				if (aRemaining == 0)
+				{
+					throw new NoSuchElementException();
+				}
+				Card card = Card.of(Long.numberOfTrailingZeros(aRemaining));
+				aRemaining &= aRemaining - 1;
+				return card;
+			}
+		};
+	}
+
+	@Override
+	public void forEach(Consumer<? super Card> pAction)
+	{
+		for (long cards = aCards; cards != 0; cards &= cards - 1)
+		{
+			pAction.accept(Card.of(Long.numberOfTrailingZeros(cards)));
+		}
+	}
+
+	@Override
+	public boolean contains(Card pCard)
+	{
+		return (aCards & 1L << pCard.index()) != 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return Long.bitCount(aCards);
+	}
+
+	@Override
+	public boolean isGroup()
+	{
+		return aSetType == SetType.GROUP;
+	}
+
+	@Override
+	public boolean isRun()
+	{
+		return aSetType == SetType.RUN;
+	}
+
+	/**
+	 * Card sets are equal when they hold the same cards and are of the
+	 * same type, whether they are BitCardSets or CardSets.
+	 * @param pObject The object to compare with.
+	 * @return True if pObject is a card set equal to this one.
+	 */
+	@Override
+	public boolean equals(Object pObject)
+	{
+		if (pObject instanceof BitCardSet)
+		{
+			BitCardSet set = (BitCardSet) pObject;
+			return set.aCards == aCards && set.aSetType == aSetType;
+		}
+		return pObject instanceof CardSet && pObject.equals(this);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(aCards);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder result = new StringBuilder("[");
+		for (long cards = aCards; cards != 0; cards &= cards - 1)
+		{
+			result.append(Card.of(Long.numberOfTrailingZeros(cards)));
+			if ((cards & cards - 1) != 0)
+			{
+				result.append(", ");
+			}
+		}
+		return result.append(']').toString();
+	}
+}
@@ -1,7 +1,10 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
 /**
- * An immutable description of a playing card.
+ * An immutable description of a playing card. There is exactly one
+ * instance of each of the 52 cards: use <b>of(Rank, Suit)</b> or
+ * <b>of(int)</b> to obtain it, so that cards can be compared by identity
+ * and looked up by <b>index()</b>.
  */
 public final class Card implements Comparable<Card>
 {
@@ -18,19 +21,65 @@ public final class Card implements Comparable<Card>
 	public enum Suit 
 	{ CLUBS, DIAMONDS, HEARTS, SPADES }
 	
+	public static final int NUMBER_OF_CARDS = 52;
+	
+	private static final Card[] CARDS = new Card[NUMBER_OF_CARDS];
+	
+	static
+	{
+		for( Suit lSuit : Suit.values() )
+		{
+			for( Rank lRank : Rank.values() )
+			{
+				Card lCard = new Card( lRank, lSuit );
+				CARDS[lCard.index()] = lCard;
+			}
+		}
+	}
+	
 	private final Rank aRank;
 	
 	private final Suit aSuit;
 	
+	private final int aIndex;
+	
+	private Card(Rank pRank, Suit pSuit )
+	{
+		aRank = pRank;
+		aSuit = pSuit;
+		aIndex = pSuit.ordinal()*Rank.values().length + pRank.ordinal();
+	}
+	
 	/**
-	 * Create a new card object. 
+	 * Obtain the card of the given rank and suit.
 	 * @param pRank The rank of the card.
 	 * @param pSuit The suit of the card.
+	 * @return The unique card object for pRank and pSuit.
+	 * @pre pRank != null && pSuit != null
 	 */
-	public Card(Rank pRank, Suit pSuit )
+	public static Card of(Rank pRank, Suit pSuit)
 	{
-		aRank = pRank;
-		aSuit = pSuit;
+		return CARDS[pSuit.ordinal()*Rank.values().length + pRank.ordinal()];
+	}
+	
+	/**
+	 * Obtain the card with the given index.
+	 * @param pIndex The index of the card, as returned by <b>index()</b>.
+	 * @return The unique card object at pIndex.
+	 * @pre pIndex >= 0 && pIndex < NUMBER_OF_CARDS
+	 */
+	public static Card of(int pIndex)
+	{
+		return CARDS[pIndex];
+	}
+	
+	/**
+	 * Obtain the index of the card, suit*13 + rank, between 0 and 51.
+	 * @return The index of the card.
+	 */
+	public int index()
+	{
+		return aIndex;
 	}
 	
 	/**
@@ -81,7 +130,8 @@ public final class Card implements Comparable<Card>
 	}
 
 	/**
-	 * Two cards are equal if they have the same suit and rank.
+	 * Two cards are equal if they have the same suit and rank. Since there
+	 * is a single instance of each card, this is an identity comparison.
 	 * @param pCard The card to test.
 	 * @return true if the two cards are equal
 	 * @see java.lang.Object#equals(java.lang.Object)
@@ -89,8 +139,7 @@ public final class Card implements Comparable<Card>
 	@Override
 	public boolean equals( Object pCard ) 
 	{
-		Card card = (Card) pCard;
-		return (card.getRank().compareTo(this.getRank()) == 0) && (card.getSuit().compareTo(this.getSuit()) == 0);
+		return this == pCard;
 	}
 
 	/** 
@@ -101,7 +150,7 @@ public final class Card implements Comparable<Card>
 	@Override
 	public int hashCode() 
 	{
-		return this.getSuit().ordinal()*Rank.values().length + this.getRank().ordinal();
+		return aIndex;
 	}
 	
 	public int pointValue()
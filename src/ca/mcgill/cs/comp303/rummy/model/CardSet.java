@@ -1,12 +1,16 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Set;
 
 /**
- * An immutable set of Cards.
+ * An immutable set of Cards. The cards are kept in an array sorted by
+ * <code>Card.index()</code>, for iterating, and as a mask of their indices,
+ * for membership and comparisons. Card sets are equal when they hold the
+ * same cards and are of the same type, whether they are CardSets or
+ * <b>BitCardSet</b>s.
  */
 public class CardSet implements ICardSet
 {	
@@ -16,7 +20,17 @@ public class CardSet implements ICardSet
 	public enum SetType
 	{ RUN, GROUP }
 	
-	private final HashSet<Card> aCardSet;
+	private static final Comparator<Card> INDEX_ORDER = new Comparator<Card>()
+	{
+		@Override
+		public int compare(Card pCard1, Card pCard2)
+		{
+			return pCard1.index() - pCard2.index();
+		}
+	};
+	
+	private final Card[] aCardSet;
+	private final long aCards;
 	private final SetType aSetType;
 	
 	/**
@@ -25,26 +39,33 @@ public class CardSet implements ICardSet
 	 */
 	public CardSet(Set<Card> pSet, SetType pSetType)
 	{
-		aCardSet = new HashSet<Card>(pSet);
+		aCardSet = pSet.toArray(new Card[pSet.size()]);
+		Arrays.sort(aCardSet, INDEX_ORDER);
+		long cards = 0;
+		for (Card card : aCardSet)
+		{
+			cards |= 1L << card.index();
+		}
+		aCards = cards;
 		aSetType = pSetType;
 	}
 
 	@Override
 	public Iterator<Card> iterator()
 	{
-		return aCardSet.iterator();
+		return Arrays.asList(aCardSet).iterator();
 	}
 
 	@Override
 	public boolean contains(Card pCard)
 	{
-		return aCardSet.contains(pCard);
+		return (aCards & 1L << pCard.index()) != 0;
 	}
 
 	@Override
 	public int size()
 	{
-		return aCardSet.size();
+		return aCardSet.length;
 	}
 
 	/**
@@ -69,9 +90,31 @@ public class CardSet implements ICardSet
 		return aSetType.compareTo(SetType.RUN) == 0;
 	}
 	
+	@Override
+	public boolean equals(Object pObject)
+	{
+		if (pObject instanceof CardSet)
+		{
+			CardSet set = (CardSet) pObject;
+			return set.aCards == aCards && set.aSetType == aSetType;
+		}
+		if (pObject instanceof BitCardSet)
+		{
+			BitCardSet set = (BitCardSet) pObject;
+			return set.cardsMask() == aCards && set.isRun() == isRun();
+		}
+		return false;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(aCards);
+	}
+	
 	@Override
 	public String toString()
 	{
-		return aCardSet.toString();
+		return Arrays.toString(aCardSet);
 	}
 }
@@ -0,0 +1,421 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * A size-bounded cache from the card mask of a hand to its optimal
+ * arrangement: the deadwood and the <b>MeldIndex</b> ids of the matched sets.
+ * <p>
+ * The cache is split into segments, each guarded by its own lock, so that
+ * a single cache can be shared by all the threads of a JVM. Each segment
+ * stores its entries in primitive arrays and evicts according to the
+ * configured policy once it is full. Lookups and insertions do not allocate.
+ * <p>
+ * An arrangement is packed into a single long: the deadwood in the top bits,
+ * followed by up to <b>MAX_MATCHES</b> meld ids. Hands with more matched sets
+ * than that are not cached.
+ */
+public final class DeadwoodCache
+{
+	/**
+	 * The policy used to choose the entry to evict from a full segment.
+	 */
+	public enum EvictionPolicy
+	{ LRU, CLOCK }
+
+	public static final long MISS = -1;
+	public static final int MAX_MATCHES = 6;
+
+	private static final int ID_BITS = 9;
+	private static final long ID_MASK = (1L << ID_BITS) - 1;
+	private static final int DEADWOOD_SHIFT = ID_BITS * MAX_MATCHES;
+	private static final int MAX_SEGMENTS = 16;
+
+	private final Segment[] aSegments;
+	private final int aSegmentShift;
+	private final EvictionPolicy aPolicy;
+
+	/**
+	 * Creates a new, empty cache.
+	 * @param pCapacity The maximum number of hands kept in the cache.
+	 * @param pPolicy The eviction policy.
+	 * @pre pCapacity > 0 && pPolicy != null
+	 */
+	public DeadwoodCache(int pCapacity, EvictionPolicy pPolicy)
+	{
+		assert pCapacity > 0 && pPolicy != null;
+		int segments = 1;
+		while (segments < MAX_SEGMENTS && segments * 2 <= pCapacity)
+		{
+			segments *= 2;
+		}
+		aSegments = new Segment[segments];
+		aSegmentShift = Long.SIZE - Integer.numberOfTrailingZeros(segments);
+		// the first segments take one more slot each, so that they hold pCapacity hands in all
+		for (int i = 0; i < segments; i++)
+		{
+			int capacity = pCapacity / segments + (i < pCapacity % segments ? 1 : 0);
+			aSegments[i] = new Segment(capacity, pPolicy == EvictionPolicy.LRU);
+		}
+		aPolicy = pPolicy;
+	}
+
+	/**
+	 * Looks up the arrangement of a hand.
+	 * @param pCards The card mask of the hand.
+	 * @return The packed arrangement, or <b>MISS</b> if the hand is not in the cache.
+	 */
+	public long get(long pCards)
+	{
+		long hash = hash(pCards);
+		return segmentFor(hash).get(pCards, (int) hash);
+	}
+
+	/**
+	 * Stores the arrangement last computed by <b>pSolver</b>.
+	 * @param pCards The card mask of the hand the solver was run on.
+	 * @param pSolver The solver.
+	 * @return The packed arrangement, or <b>MISS</b> if it has too many matched sets to be cached.
+	 */
+	public long put(long pCards, MeldSolver pSolver)
+	{
+		if (pSolver.getMatchCount() > MAX_MATCHES)
+		{
+			return MISS;
+		}
+		long value = (long) pSolver.getDeadwood() << DEADWOOD_SHIFT;
+		for (int i = 0; i < pSolver.getMatchCount(); i++)
+		{
+			value |= (pSolver.getMatchId(i) + 1L) << (i * ID_BITS);
+		}
+		long hash = hash(pCards);
+		segmentFor(hash).put(pCards, value, (int) hash);
+		return value;
+	}
+
+	/**
+	 * @param pValue A packed arrangement.
+	 * @return The deadwood of the arrangement.
+	 */
+	public static int deadwood(long pValue)
+	{
+		return (int) (pValue >>> DEADWOOD_SHIFT);
+	}
+
+	/**
+	 * @param pValue A packed arrangement.
+	 * @return The number of matched sets in the arrangement.
+	 */
+	public static int matchCount(long pValue)
+	{
+		int count = 0;
+		while (count < MAX_MATCHES && ((pValue >>> (count * ID_BITS)) & ID_MASK) != 0)
+		{
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param pValue A packed arrangement.
+	 * @param pIndex The index of the matched set, between 0 and <b>matchCount(pValue)</b>.
+	 * @return The <b>MeldIndex</b> id of the matched set.
+	 */
+	public static int matchId(long pValue, int pIndex)
+	{
+		return (int) ((pValue >>> (pIndex * ID_BITS)) & ID_MASK) - 1;
+	}
+
+	/**
+	 * @return The eviction policy of the cache.
+	 */
+	public EvictionPolicy getPolicy()
+	{
+		return aPolicy;
+	}
+
+	/**
+	 * @return The number of hands currently in the cache.
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : aSegments)
+		{
+			synchronized (segment)
+			{
+				size += segment.aSize;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return The number of lookups that found their hand.
+	 */
+	public long getHits()
+	{
+		long hits = 0;
+		for (Segment segment : aSegments)
+		{
+			synchronized (segment)
+			{
+				hits += segment.aHits;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * @return The number of lookups that did not find their hand.
+	 */
+	public long getMisses()
+	{
+		long misses = 0;
+		for (Segment segment : aSegments)
+		{
+			synchronized (segment)
+			{
+				misses += segment.aMisses;
+			}
+		}
+		return misses;
+	}
+
+	/**
+	 * @return The number of hands evicted to make room for new ones.
+	 */
+	public long getEvictions()
+	{
+		long evictions = 0;
+		for (Segment segment : aSegments)
+		{
+			synchronized (segment)
+			{
+				evictions += segment.aEvictions;
+			}
+		}
+		return evictions;
+	}
+
+	@Override
+	public String toString()
+	{
+		return aPolicy + " cache: " + size() + " hands, " + getHits() + " hits, " + getMisses() + " misses, "
+				+ getEvictions() + " evictions";
+	}
+
+	private Segment segmentFor(long pHash)
+	{
+		return aSegments.length == 1 ? aSegments[0] : aSegments[(int) (pHash >>> aSegmentShift)];
+	}
+
+	private static long hash(long pCards)
+	{
+		long hash = pCards * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 29);
+	}
+
+	/*
+	 * A fixed number of entry slots, found through an open-addressing table of
+	 * slot numbers. LRU keeps the slots in a doubly linked list in access
+	 * order; CLOCK sweeps the slots and evicts the first one not referenced
+	 * since the last sweep.
+	 */
+	private static final class Segment
+	{
+		private static final int FREE = 0;
+
+		private final long[] aKeys;
+		private final long[] aValues;
+		private final int[] aTable;
+		private final int aTableMask;
+		private final boolean aLru;
+		private final int[] aPrevious;
+		private final int[] aNext;
+		private final boolean[] aReferenced;
+		private int aHead = -1;
+		private int aTail = -1;
+		private int aClock;
+		private int aSize;
+		private long aHits;
+		private long aMisses;
+		private long aEvictions;
+
+		Segment(int pCapacity, boolean pLru)
+		{
+			aKeys = new long[pCapacity];
+			aValues = new long[pCapacity];
+			int tableSize = Integer.highestOneBit(pCapacity) * 4;
+			aTable = new int[tableSize];
+			aTableMask = tableSize - 1;
+			aLru = pLru;
+			aPrevious = pLru ? new int[pCapacity] : null;
+			aNext = pLru ? new int[pCapacity] : null;
+			aReferenced = pLru ? null : new boolean[pCapacity];
+		}
+
+		synchronized long get(long pKey, int pHash)
+		{
+			int slot = find(pKey, pHash);
+			if (slot < 0)
+			{
+				aMisses++;
+				return MISS;
+			}
+			aHits++;
+			touch(slot);
+			return aValues[slot];
+		}
+
+		synchronized void put(long pKey, long pValue, int pHash)
+		{
+			int slot = find(pKey, pHash);
+			if (slot < 0)
+			{
+				if (aSize < aKeys.length)
+				{
+					slot = aSize++;
+				}
+				else
+				{
+					slot = victim();
+					unlink(slot);
+					removeFromTable(aKeys[slot]);
+					aEvictions++;
+				}
+				aKeys[slot] = pKey;
+				insertInTable(pKey, pHash, slot);
+				link(slot);
+			}
+			else
+			{
+				touch(slot);
+			}
+			aValues[slot] = pValue;
+		}
+
+		private int find(long pKey, int pHash)
+		{
+			for (int i = pHash & aTableMask; aTable[i] != FREE; i = (i + 1) & aTableMask)
+			{
+				int slot = aTable[i] - 1;
+				if (aKeys[slot] == pKey)
+				{
+					return slot;
+				}
+			}
+			return -1;
+		}
+
+		private void insertInTable(long pKey, int pHash, int pSlot)
+		{
+			int i = pHash & aTableMask;
+			while (aTable[i] != FREE)
+			{
+				i = (i + 1) & aTableMask;
+			}
+			aTable[i] = pSlot + 1;
+		}
+
+		/*
+		 * Linear-probing deletion: shift back the entries of the cluster that
+		 * would otherwise become unreachable.
+		 */
+		private void removeFromTable(long pKey)
+		{
+			int i = (int) hash(pKey) & aTableMask;
+			while (aKeys[aTable[i] - 1] != pKey)
+			{
+				i = (i + 1) & aTableMask;
+			}
+			int hole = i;
+			for (i = (hole + 1) & aTableMask; aTable[i] != FREE; i = (i + 1) & aTableMask)
+			{
+				int home = (int) hash(aKeys[aTable[i] - 1]) & aTableMask;
+				if (((i - home) & aTableMask) >= ((i - hole) & aTableMask))
+				{
+					aTable[hole] = aTable[i];
+					hole = i;
+				}
+			}
+			aTable[hole] = FREE;
+		}
+
+		private int victim()
+		{
+			if (aLru)
+			{
+				return aTail;
+			}
+			while (aReferenced[aClock])
+			{
+				aReferenced[aClock] = false;
+				aClock = (aClock + 1) % aKeys.length;
+			}
+			int victim = aClock;
+			aClock = (aClock + 1) % aKeys.length;
+			return victim;
+		}
+
+		private void touch(int pSlot)
+		{
+			if (aLru)
+			{
+				if (aHead != pSlot)
+				{
+					unlink(pSlot);
+					link(pSlot);
+				}
+			}
+			else
+			{
+				aReferenced[pSlot] = true;
+			}
+		}
+
+		private void link(int pSlot)
+		{
+			if (!aLru)
+			{
+				aReferenced[pSlot] = true;
+				return;
+			}
+			aPrevious[pSlot] = -1;
+			aNext[pSlot] = aHead;
+			if (aHead >= 0)
+			{
+				aPrevious[aHead] = pSlot;
+			}
+			aHead = pSlot;
+			if (aTail < 0)
+			{
+				aTail = pSlot;
+			}
+		}
+
+		private void unlink(int pSlot)
+		{
+			if (!aLru)
+			{
+				return;
+			}
+			int previous = aPrevious[pSlot];
+			int next = aNext[pSlot];
+			if (previous >= 0)
+			{
+				aNext[previous] = next;
+			}
+			else
+			{
+				aHead = next;
+			}
+			if (next >= 0)
+			{
+				aPrevious[next] = previous;
+			}
+			else
+			{
+				aTail = previous;
+			}
+		}
+	}
+}
@@ -0,0 +1,319 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Converts hands and deals to and from dense integers, so that they can be
+ * stored compactly, split into ranges of indices and reproduced from a single
+ * number.
+ * <p>
+ * A hand of <i>k</i> cards, given as a card mask, is ranked with the
+ * combinatorial number system: the sum over its cards, in increasing order of
+ * index <i>c<sub>1</sub> &lt; ... &lt; c<sub>k</sub></i>, of
+ * C(<i>c<sub>i</sub></i>, <i>i</i>). Ranks are dense, between 0 and
+ * C(52, <i>k</i>) - 1, and follow the colexicographic order of the hands, so
+ * <b>nextHand</b> moves to the hand of the next rank. A 10-card hand fits in
+ * 34 bits.
+ * <p>
+ * A deal is 52 card indices in a byte array: the first hand, the second hand,
+ * the upcard, then the stock from its top card down. It is ranked as a
+ * mixed-radix number whose digits are the rank of the first hand, the rank of
+ * the second hand among the 42 cards left, the rank of the upcard among the
+ * 32 cards left and the Lehmer code of the order of the stock, which takes
+ * 182 bits, written in <b>DEAL_WORDS</b> longs, least significant first.
+ * The order of the cards within a hand is not part of the deal: unranking
+ * writes them in increasing order.
+ * <p>
+ * <b>toDeckOrder</b> and <b>fromDeckOrder</b> convert between this layout and
+ * the order of a deck, bottom card first, that <b>GameEngine.getDeal</b>
+ * records and <b>GameEngine.deal(int, byte[])</b> deals from, one card at a
+ * time to each player, starting with the player who does not deal. The
+ * first hand of a deal is the hand of that player.
+ * <p>
+ * Ranking and unranking do not allocate.
+ */
+public final class DealCodec
+{
+	public static final int DEAL_WORDS = 3;
+
+	private static final int DECK_SIZE = Card.NUMBER_OF_CARDS;
+	private static final int HAND_SIZE = Hand.HAND_SIZE;
+	private static final int UPCARD = 2 * HAND_SIZE;
+	private static final int HALVES = 2 * DEAL_WORDS;
+	private static final long HALF_MASK = 0xFFFFFFFFL;
+	private static final long[][] BINOMIAL = new long[DECK_SIZE + 1][DECK_SIZE + 1];
+
+	static
+	{
+		for (int n = 0; n <= DECK_SIZE; n++)
+		{
+			BINOMIAL[n][0] = 1;
+			for (int k = 1; k <= n; k++)
+			{
+				BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+			}
+		}
+	}
+
+	private DealCodec()
+	{}
+
+	/**
+	 * @param pN A number of cards.
+	 * @param pK A number of cards to choose.
+	 * @return The number of ways to choose pK cards among pN, 0 if pK > pN.
+	 * @pre pN >= 0 && pN <= 52 && pK >= 0 && pK <= 52
+	 */
+	public static long binomial(int pN, int pK)
+	{
+		return BINOMIAL[pN][pK];
+	}
+
+	/**
+	 * @param pCards The mask of the cards of a hand.
+	 * @return The rank of the hand among the hands of the same size.
+	 */
+	public static long rankHand(long pCards)
+	{
+		long rank = 0;
+		int i = 1;
+		for (long cards = pCards; cards != 0; cards &= cards - 1)
+		{
+			rank += BINOMIAL[Long.numberOfTrailingZeros(cards)][i++];
+		}
+		return rank;
+	}
+
+	/**
+	 * @param pRank The rank of a hand.
+	 * @param pSize The number of cards of the hand.
+	 * @return The mask of the cards of the hand.
+	 * @pre pRank >= 0 && pRank < binomial(52, pSize)
+	 */
+	public static long unrankHand(long pRank, int pSize)
+	{
+		long cards = 0;
+		long rank = pRank;
+		int card = DECK_SIZE;
+		for (int i = pSize; i > 0; i--)
+		{
+			// the highest card left whose binomial still fits in the rank
+			do
+			{
+				card--;
+			}
+			while (BINOMIAL[card][i] > rank);
+			rank -= BINOMIAL[card][i];
+			cards |= 1L << card;
+		}
+		return cards;
+	}
+
+	/**
+	 * @param pCards The mask of the cards of a hand.
+	 * @return The mask of the hand of the same size with the next rank, or 0 after the last one.
+	 * @pre pCards != 0
+	 */
+	public static long nextHand(long pCards)
+	{
+		long lowest = pCards & -pCards;
+		long ripple = pCards + lowest;
+		long next = (((ripple ^ pCards) >>> 2) >>> Long.numberOfTrailingZeros(pCards)) | ripple;
+		return (next >>> DECK_SIZE) == 0 ? next : 0;
+	}
+
+	/**
+	 * Ranks a deal.
+	 * @param pDeal The 52 cards of the deal: the first hand, the second hand, the upcard, then the stock.
+	 * @param pRank The array in which to write the rank, least significant word first.
+	 * @pre pDeal is a permutation of the card indices && pRank.length >= DEAL_WORDS
+	 */
+	public static void rankDeal(byte[] pDeal, long[] pRank)
+	{
+		long first = 0;
+		long second = 0;
+		for (int i = 0; i < HAND_SIZE; i++)
+		{
+			first |= 1L << pDeal[i];
+			second |= 1L << pDeal[HAND_SIZE + i];
+		}
+		pRank[0] = rankHand(first);
+		pRank[1] = 0;
+		pRank[2] = 0;
+		multiplyAdd(pRank, BINOMIAL[DECK_SIZE - HAND_SIZE][HAND_SIZE], rankHand(compress(second, first)));
+		long used = first | second;
+		for (int i = UPCARD; i < DECK_SIZE - 1; i++)
+		{
+			long card = 1L << pDeal[i];
+			multiplyAdd(pRank, DECK_SIZE - i, Long.bitCount(~used & (card - 1)));
+			used |= card;
+		}
+	}
+
+	/**
+	 * Unranks a deal.
+	 * @param pRank The rank of the deal, least significant word first; used as
+	 * scratch space, and restored before returning.
+	 * @param pDeal The array in which to write the 52 cards of the deal, hands in increasing order.
+	 * @pre pRank is the rank of a deal && pDeal.length >= 52
+	 */
+	public static void unrankDeal(long[] pRank, byte[] pDeal)
+	{
+		long low = pRank[0];
+		long middle = pRank[1];
+		long high = pRank[2];
+		// the digits come out least significant first: the stock from its bottom, then the upcard
+		for (int i = DECK_SIZE - 2; i >= UPCARD; i--)
+		{
+			pDeal[i] = (byte) divide(pRank, DECK_SIZE - i);
+		}
+		pDeal[DECK_SIZE - 1] = 0;
+		long second = divide(pRank, BINOMIAL[DECK_SIZE - HAND_SIZE][HAND_SIZE]);
+		long first = unrankHand(pRank[0], HAND_SIZE);
+		pRank[0] = low;
+		pRank[1] = middle;
+		pRank[2] = high;
+		second = expand(unrankHand(second, HAND_SIZE), first);
+		writeHand(first, pDeal, 0);
+		writeHand(second, pDeal, HAND_SIZE);
+		long free = ~(first | second) & ((1L << DECK_SIZE) - 1);
+		for (int i = UPCARD; i < DECK_SIZE; i++)
+		{
+			int card = select(free, pDeal[i]);
+			pDeal[i] = (byte) card;
+			free &= ~(1L << card);
+		}
+	}
+
+	/**
+	 * Converts a deal to the order of the deck it is dealt from.
+	 * @param pDeal The 52 cards of the deal: the first hand, the second hand, the upcard, then the stock.
+	 * @param pOrder The array in which to write the 52 cards of the deck, bottom card first.
+	 * @pre pDeal is a permutation of the card indices && pOrder.length >= 52
+	 */
+	public static void toDeckOrder(byte[] pDeal, byte[] pOrder)
+	{
+		for (int i = 0; i < HAND_SIZE; i++)
+		{
+			pOrder[DECK_SIZE - 1 - 2 * i] = pDeal[i];
+			pOrder[DECK_SIZE - 2 - 2 * i] = pDeal[HAND_SIZE + i];
+		}
+		for (int i = UPCARD; i < DECK_SIZE; i++)
+		{
+			pOrder[DECK_SIZE - 1 - i] = pDeal[i];
+		}
+	}
+
+	/**
+	 * Converts the order of a deck to the deal it gives.
+	 * @param pOrder The 52 cards of the deck, bottom card first.
+	 * @param pDeal The array in which to write the 52 cards of the deal: the
+	 * first hand, the second hand, the upcard, then the stock.
+	 * @pre pOrder is a permutation of the card indices && pDeal.length >= 52
+	 */
+	public static void fromDeckOrder(byte[] pOrder, byte[] pDeal)
+	{
+		for (int i = 0; i < HAND_SIZE; i++)
+		{
+			pDeal[i] = pOrder[DECK_SIZE - 1 - 2 * i];
+			pDeal[HAND_SIZE + i] = pOrder[DECK_SIZE - 2 - 2 * i];
+		}
+		for (int i = UPCARD; i < DECK_SIZE; i++)
+		{
+			pDeal[i] = pOrder[DECK_SIZE - 1 - i];
+		}
+	}
+
+	/*
+	 * Renumbers the cards of pCards as positions among the cards not in pUsed.
+	 */
+	private static long compress(long pCards, long pUsed)
+	{
+		long compressed = 0;
+		for (long cards = pCards; cards != 0; cards &= cards - 1)
+		{
+			long card = cards & -cards;
+			compressed |= card >>> Long.bitCount(pUsed & (card - 1));
+		}
+		return compressed;
+	}
+
+	/*
+	 * The inverse of compress.
+	 */
+	private static long expand(long pCompressed, long pUsed)
+	{
+		long free = ~pUsed & ((1L << DECK_SIZE) - 1);
+		long cards = 0;
+		for (long compressed = pCompressed; compressed != 0; compressed &= compressed - 1)
+		{
+			cards |= 1L << select(free, Long.numberOfTrailingZeros(compressed));
+		}
+		return cards;
+	}
+
+	/*
+	 * The index of the pIndex-th (from 0) lowest card of pCards.
+	 */
+	private static int select(long pCards, int pIndex)
+	{
+		long cards = pCards;
+		for (int i = 0; i < pIndex; i++)
+		{
+			cards &= cards - 1;
+		}
+		return Long.numberOfTrailingZeros(cards);
+	}
+
+	private static void writeHand(long pCards, byte[] pDeal, int pOffset)
+	{
+		int i = pOffset;
+		for (long cards = pCards; cards != 0; cards &= cards - 1)
+		{
+			pDeal[i++] = (byte) Long.numberOfTrailingZeros(cards);
+		}
+	}
+
+	/*
+	 * pValue = pValue * pRadix + pDigit, on 32-bit halves so that no product
+	 * overflows a long.
+	 */
+	private static void multiplyAdd(long[] pValue, long pRadix, long pDigit)
+	{
+		assert pRadix < (1L << 31) && pDigit < pRadix;
+		long carry = pDigit;
+		for (int i = 0; i < HALVES; i++)
+		{
+			long product = half(pValue, i) * pRadix + carry;
+			setHalf(pValue, i, product & HALF_MASK);
+			carry = product >>> 32;
+		}
+		assert carry == 0;
+	}
+
+	/*
+	 * pValue = pValue / pRadix, returning the remainder; long division on
+	 * 32-bit halves.
+	 */
+	private static long divide(long[] pValue, long pRadix)
+	{
+		assert pRadix < (1L << 31);
+		long remainder = 0;
+		for (int i = HALVES - 1; i >= 0; i--)
+		{
+			long dividend = (remainder << 32) | half(pValue, i);
+			setHalf(pValue, i, dividend / pRadix);
+			remainder = dividend % pRadix;
+		}
+		return remainder;
+	}
+
+	private static long half(long[] pValue, int pHalf)
+	{
+		return (pValue[pHalf >> 1] >>> ((pHalf & 1) * 32)) & HALF_MASK;
+	}
+
+	private static void setHalf(long[] pValue, int pHalf, long pBits)
+	{
+		int shift = (pHalf & 1) * 32;
+		pValue[pHalf >> 1] = (pValue[pHalf >> 1] & ~(HALF_MASK << shift)) | (pBits << shift);
+	}
+}
@@ -1,60 +1,287 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
-import java.util.Collections;
-import java.util.Stack;
-
-import ca.mcgill.cs.comp303.rummy.model.Card.Rank;
-import ca.mcgill.cs.comp303.rummy.model.Card.Suit;
+import java.util.EmptyStackException;
 
 /**
- * Models a deck of 52 cards (no joker).
+ * Models a deck of 52 cards (no joker). The deck is a fixed array holding
+ * a permutation of the 52 card indices and a pointer to its top: drawing
+ * moves the pointer down, and shuffling puts every card back and permutes
+ * the array in place, so neither allocates. Not threadsafe.
+ * <p>
+ * A deck created with <b>counterBased</b> does not draw from a stream of
+ * random numbers: deal <i>n</i> of its seed is a pure function of the seed
+ * and <i>n</i>, the SplitMix64 hashes of a counter started from both,
+ * bounded with Lemire's multiply-and-reject method. Any thread on any
+ * machine can then shuffle deal <i>n</i> directly with <b>shuffle(long)</b>,
+ * without replaying the deals before it, and <b>deals</b> fills an array
+ * with consecutive deals for batch simulation.
  */
 public class Deck 
 {
-	private Stack<Card> aCards;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	private static final long LOW_BITS = 0xFFFFFFFFL;
+	// for each bound, the 32-bit draws below which a product is rejected: 2^32 mod bound
+	private static final long[] REJECT = new long[Card.NUMBER_OF_CARDS + 1];
+	
+	static
+	{
+		for( int bound = 1; bound < REJECT.length; bound++ )
+		{
+			REJECT[bound] = (1L << Integer.SIZE) % bound;
+		}
+	}
+	
+	private final byte[] aCards = new byte[Card.NUMBER_OF_CARDS];
+	private int aSize;
+	private final RandomSource aRandom;
+	private final long aSeed;
+	private long aDeal = -1;
 	
 	/**
-	 * Creates a new deck of 52 cards, shuffled.
+	 * Creates a new deck of 52 cards, shuffled with the random generator
+	 * of the current thread.
 	 */
 	public Deck()
 	{
-		aCards = new Stack<Card>();
-		reset();
+		this(RandomSource.threadLocal());
+	}
+	
+	/**
+	 * Creates a new deck of 52 cards, shuffled.
+	 * @param pRandom The source of randomness for all the shuffles of this deck.
+	 * @pre pRandom != null
+	 */
+	public Deck(RandomSource pRandom)
+	{
+		aRandom = pRandom;
+		aSeed = 0;
 		shuffle();
 	}
 	
-	private void reset()
+	/*
+	 * A deck in counter mode.
+	 */
+	private Deck(long pSeed)
 	{
-		aCards.clear();
-		for( Suit lSuit : Suit.values() )
-		{
-            for( Rank lRank : Rank.values() )
-            {
-                aCards.add( new Card( lRank, lSuit ));
-            }
-		}
+		aRandom = null;
+		aSeed = pSeed;
+		shuffle();
+	}
+	
+	/**
+	 * Creates a new deck in counter mode, shuffled as deal 0 of pSeed. Each
+	 * <b>shuffle()</b> moves on to the next deal.
+	 * @param pSeed The seed of the deals.
+	 * @return A new deck holding deal 0 of pSeed.
+	 */
+	public static Deck counterBased(long pSeed)
+	{
+		return new Deck(pSeed);
 	}
 
 	/**
 	 * Shuffle the deck of cards by retrieving all 52 cards and randomizing
-	 * their order.
+	 * their order with a Fisher-Yates shuffle. The cards are put back in
+	 * index order first, so that the order after the shuffle only depends
+	 * on the random source. In counter mode, the deck holds the next deal.
 	 */
 	public void shuffle()
 	{
-		reset();
-		Collections.shuffle( aCards );
+		if( aRandom == null )
+		{
+			shuffle( aDeal + 1 );
+			return;
+		}
+		aSize = Card.NUMBER_OF_CARDS;
+		for( int i = 0; i < Card.NUMBER_OF_CARDS; i++ )
+		{
+			aCards[i] = (byte) i;
+		}
+		for( int i = Card.NUMBER_OF_CARDS - 1; i > 0; i-- )
+		{
+			int j = aRandom.nextInt( i + 1 );
+			byte card = aCards[i];
+			aCards[i] = aCards[j];
+			aCards[j] = card;
+		}
+	}
+	
+	/**
+	 * Puts all 52 cards back in the order of deal pDeal of the seed of this
+	 * deck, which must be in counter mode.
+	 * @param pDeal The number of the deal.
+	 * @pre isCounterBased()
+	 */
+	public void shuffle( long pDeal )
+	{
+		assert isCounterBased();
+		deal( aSeed, pDeal, aCards, 0 );
+		aSize = Card.NUMBER_OF_CARDS;
+		aDeal = pDeal;
+	}
+	
+	/**
+	 * @return True if the deck was created with <b>counterBased</b>.
+	 */
+	public boolean isCounterBased()
+	{
+		return aRandom == null;
+	}
+	
+	/**
+	 * @return The number of the last deal shuffled.
+	 * @pre isCounterBased()
+	 */
+	public long getDeal()
+	{
+		assert isCounterBased();
+		return aDeal;
+	}
+	
+	/**
+	 * Writes the 52 card indices of a deal, in the order <b>stack</b> takes
+	 * them: the bottom card first, the card drawn first last.
+	 * @param pSeed The seed of the deals.
+	 * @param pDeal The number of the deal.
+	 * @param pCards The array to write to.
+	 * @param pOffset The index of pCards to write the bottom card at.
+	 * @pre pOffset >= 0 && pOffset + Card.NUMBER_OF_CARDS <= pCards.length
+	 */
+	public static void deal( long pSeed, long pDeal, byte[] pCards, int pOffset )
+	{
+		for( int i = 0; i < Card.NUMBER_OF_CARDS; i++ )
+		{
+			pCards[pOffset + i] = (byte) i;
+		}
+		long counter = mix( pSeed ^ mix( pDeal + GOLDEN_GAMMA ) );
+		long bits = 0;
+		boolean high = false;
+		for( int i = Card.NUMBER_OF_CARDS - 1; i > 0; i-- )
+		{
+			long bound = i + 1;
+			long product;
+			do
+			{
+				// each hash of the counter gives two 32-bit draws
+				if( !high )
+				{
+					counter += GOLDEN_GAMMA;
+					bits = mix( counter );
+				}
+				product = (high ? bits >>> Integer.SIZE : bits & LOW_BITS) * bound;
+				high = !high;
+			}
+			while( (product & LOW_BITS) < REJECT[i + 1] );
+			int j = pOffset + (int) (product >>> Integer.SIZE);
+			byte card = pCards[pOffset + i];
+			pCards[pOffset + i] = pCards[j];
+			pCards[j] = card;
+		}
+	}
+	
+	/**
+	 * Writes consecutive deals one after the other, each as <b>deal</b> writes it.
+	 * @param pSeed The seed of the deals.
+	 * @param pFirstDeal The number of the first deal.
+	 * @param pCount The number of deals.
+	 * @param pCards The array to write to, of at least <code>pCount * Card.NUMBER_OF_CARDS</code> bytes.
+	 * @pre pCount >= 0
+	 */
+	public static void deals( long pSeed, long pFirstDeal, int pCount, byte[] pCards )
+	{
+		for( int i = 0; i < pCount; i++ )
+		{
+			deal( pSeed, pFirstDeal + i, pCards, i * Card.NUMBER_OF_CARDS );
+		}
+	}
+	
+	/*
+	 * The SplitMix64 finalizer.
+	 */
+	private static long mix( long pValue )
+	{
+		long value = (pValue ^ (pValue >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+	
+	/**
+	 * Replaces the cards of the deck, for instance to set up a position to
+	 * search from. The next shuffle puts all 52 cards back.
+	 * @param pCards The card indices, bottom card first.
+	 * @param pSize The number of cards to put in the deck.
+	 * @pre pSize >= 0 && pSize <= Card.NUMBER_OF_CARDS && pCards holds distinct card indices
+	 */
+	public void stack( byte[] pCards, int pSize )
+	{
+		assert pSize >= 0 && pSize <= Card.NUMBER_OF_CARDS;
+		System.arraycopy( pCards, 0, aCards, 0, pSize );
+		aSize = pSize;
+	}
+	
+	/**
+	 * Writes the order of all 52 cards as last shuffled, bottom card first,
+	 * the cards drawn since included: drawing does not change the order.
+	 * @param pCards The array to write to, of at least <b>Card.NUMBER_OF_CARDS</b> bytes.
+	 * @pre The deck was last shuffled or copied, not stacked with fewer than 52 cards.
+	 */
+	public void getOrder( byte[] pCards )
+	{
+		System.arraycopy( aCards, 0, pCards, 0, Card.NUMBER_OF_CARDS );
+	}
+	
+	/**
+	 * Looks at a card of the deck without drawing it.
+	 * @param pIndex The position of the card in the deck, from the bottom.
+	 * @return The card at pIndex.
+	 * @pre pIndex >= 0 && pIndex < size()
+	 */
+	public Card get( int pIndex )
+	{
+		assert pIndex >= 0 && pIndex < aSize;
+		return Card.of( aCards[pIndex] );
 	}
 	
 	/**
 	 * Draws a card from the deck and removes the card from the deck.
 	 * @return The card drawn.
+	 * @throws EmptyStackException If the deck is empty, which leaves it unchanged.
 	 * @pre initial.size() > 0
 	 * @post final.size() == initial.size() - 1
 	 */
 	public Card draw()
 	{
-		assert size() > 0;
-		return aCards.pop();
+		if( aSize == 0 )
+		{
+			throw new EmptyStackException();
+		}
+		return Card.of( aCards[--aSize] );
+	}
+	
+	/**
+	 * Puts the last card drawn back on top of the deck, to undo a draw
+	 * while searching. Since drawing only moves the pointer to the top, the
+	 * size of the deck is all it takes to go back to an earlier state.
+	 * @return The card put back.
+	 * @pre initial.size() < Card.NUMBER_OF_CARDS
+	 * @post final.size() == initial.size() + 1
+	 */
+	public Card undraw()
+	{
+		assert size() < Card.NUMBER_OF_CARDS;
+		return Card.of( aCards[aSize++] );
+	}
+	
+	/**
+	 * Makes this deck a copy of pDeck, cards and order included. The random
+	 * source or seed of this deck is kept.
+	 * @param pDeck The deck to copy.
+	 * @pre pDeck != null
+	 */
+	public void copy( Deck pDeck )
+	{
+		stack( pDeck.aCards, Card.NUMBER_OF_CARDS );
+		aSize = pDeck.aSize;
 	}
 	
 	/**
@@ -63,6 +290,6 @@ public class Deck
 	 */
 	public int size()
 	{
-		return aCards.size();
+		return aSize;
 	}
 }
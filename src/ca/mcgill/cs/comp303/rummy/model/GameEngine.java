@@ -0,0 +1,702 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs a round of two-player Gin Rummy, from the deal to the score, through
+ * a step API: <b>legalActions</b> lists what the player to move may do and
+ * <b>apply</b> does it. Bots and user interfaces drive the round the same way.
+ * <p>
+ * The rules are those of pagat.com, with the simplified opening where the
+ * first player may simply draw or take the upcard. Each turn, the player
+ * draws from the stock or takes the top of the discard pile, then discards
+ * (not the card just taken from the pile). Instead of discarding, a player
+ * whose deadwood would be at most <b>KNOCK_LIMIT</b> may knock: the
+ * defender lays off its unmatched cards on the knocker's runs and groups
+ * (unless the knocker has gin), and the player with the lower deadwood scores
+ * the difference. A defender with deadwood no higher than the knocker's
+ * undercuts it and scores the <b>UNDERCUT_BONUS</b> on top; gin scores the
+ * <b>GIN_BONUS</b>. The round is drawn if the stock gets down to two cards
+ * and the last player to discard did not knock.
+ * <p>
+ * The state of the round is a handful of card masks and a byte array for the
+ * discard pile, on top of a <b>Deck</b> for the stock, so that playing a turn
+ * does not allocate. Not threadsafe.
+ * <p>
+ * Actions are small integers, a type in the upper bits and a card index in
+ * the lower six bits, so that an action fits in a byte. The engine records
+ * each action it applies, with what it needs to <b>undo</b> it, so that a
+ * search can walk the game tree on a single engine.
+ */
+public class GameEngine
+{
+	/**
+	 * The stage of the round.
+	 */
+	public enum Phase
+	{ DRAW, DISCARD, OVER }
+
+	public static final int DRAW_STOCK = 0;
+	public static final int TAKE_DISCARD = 1 << 6;
+	public static final int DISCARD = 2 << 6;
+	public static final int KNOCK = 3 << 6;
+	public static final int MAX_ACTIONS = 2 * (Hand.HAND_SIZE + 1);
+
+	public static final int KNOCK_LIMIT = 10;
+	public static final int GIN_BONUS = 25;
+	public static final int UNDERCUT_BONUS = 25;
+
+	private static final int CARD_MASK = (1 << 6) - 1;
+	private static final int MIN_STOCK = 2;
+	private static final int INITIAL_HISTORY = 64;
+	private static final int ACTION_BITS = 8;
+	private static final int TAKEN_SHIFT = ACTION_BITS;
+	private static final int KNOWN_SHIFT = TAKEN_SHIFT + 6;
+	private static final int PLAYER_SHIFT = KNOWN_SHIFT + 1;
+
+	private final Deck aStock;
+	private final MeldSolver aSolver = new MeldSolver();
+	private final LayoffSolver aLayoffSolver = new LayoffSolver();
+	private final long[] aHands = new long[2];
+	private final long[] aKnown = new long[2];
+	private final byte[] aDiscards = new byte[Card.NUMBER_OF_CARDS];
+	private int aDiscardCount;
+	private long aDiscardPile;
+	private int aDealer;
+	private int aPlayer;
+	private Phase aPhase = Phase.OVER;
+	private int aTaken;
+	private int aTurns;
+	private int[] aHistory = new int[INITIAL_HISTORY];
+	private int aHistorySize;
+
+	private int aWinner;
+	private int aPoints;
+	private int aKnocker;
+	private int aKnockDeadwood;
+	private int aDefenderDeadwood;
+	private long aLayoffs;
+	private boolean aGin;
+	private boolean aUndercut;
+
+	/**
+	 * Creates an engine whose stock is shuffled with pRandom.
+	 * Call <b>deal</b> to start a round.
+	 * @param pRandom The source of randomness of the deck.
+	 */
+	public GameEngine(RandomSource pRandom)
+	{
+		aStock = new Deck(pRandom);
+	}
+
+	/**
+	 * Shuffles the deck, deals 10 cards to each player and turns the upcard.
+	 * @param pDealer The player who deals (0 or 1); the other player moves first.
+	 */
+	public void deal(int pDealer)
+	{
+		aStock.shuffle();
+		dealStock(pDealer);
+	}
+
+	/**
+	 * Deals a round from a deck in a given order instead of a shuffled one,
+	 * for instance to replay a round recorded with <b>getDeal</b>.
+	 * @param pDealer The player who deals (0 or 1); the other player moves first.
+	 * @param pDeal The order of the 52 cards, bottom card first.
+	 * @pre pDeal holds each of the 52 card indices once
+	 */
+	public void deal(int pDealer, byte[] pDeal)
+	{
+		aStock.stack(pDeal, Card.NUMBER_OF_CARDS);
+		dealStock(pDealer);
+	}
+
+	private void dealStock(int pDealer)
+	{
+		aHands[0] = 0;
+		aHands[1] = 0;
+		aKnown[0] = 0;
+		aKnown[1] = 0;
+		for (int i = 0; i < Hand.HAND_SIZE; i++)
+		{
+			aHands[1 - pDealer] |= 1L << aStock.draw().index();
+			aHands[pDealer] |= 1L << aStock.draw().index();
+		}
+		aDiscardCount = 0;
+		aDiscardPile = 0;
+		pushDiscard(aStock.draw().index());
+		aDealer = pDealer;
+		aPlayer = 1 - pDealer;
+		aPhase = Phase.DRAW;
+		aTaken = -1;
+		aTurns = 0;
+		aHistorySize = 0;
+		resetOutcome();
+	}
+
+	/**
+	 * Sets up a round in progress, as a player who cannot see the stock or the
+	 * opponent's hand imagines it when searching. The turn count restarts
+	 * from 0.
+	 * @param pPlayer The player to move.
+	 * @param pPhase The phase of the turn, <b>DRAW</b> or <b>DISCARD</b>.
+	 * @param pHands The masks of the cards of the two players.
+	 * @param pKnown The masks of the cards each player took from the discard pile and still holds.
+	 * @param pDiscards The card indices of the discard pile, bottom first.
+	 * @param pDiscardCount The number of cards in the discard pile.
+	 * @param pStock The card indices of the stock, bottom first.
+	 * @param pStockSize The number of cards in the stock.
+	 * @param pTaken The card taken from the discard pile this turn, or -1.
+	 * @pre The hands, discard pile and stock hold each of the 52 cards once.
+	 */
+	public void setPosition(int pPlayer, Phase pPhase, long[] pHands, long[] pKnown, byte[] pDiscards,
+			int pDiscardCount, byte[] pStock, int pStockSize, int pTaken)
+	{
+		assert pPhase != Phase.OVER;
+		aPlayer = pPlayer;
+		aPhase = pPhase;
+		aHands[0] = pHands[0];
+		aHands[1] = pHands[1];
+		aKnown[0] = pKnown[0];
+		aKnown[1] = pKnown[1];
+		aDiscardCount = 0;
+		aDiscardPile = 0;
+		for (int i = 0; i < pDiscardCount; i++)
+		{
+			pushDiscard(pDiscards[i]);
+		}
+		aStock.stack(pStock, pStockSize);
+		assert Long.bitCount(aHands[0] | aHands[1] | aDiscardPile) + pStockSize == Card.NUMBER_OF_CARDS;
+		aTaken = pTaken;
+		aTurns = 0;
+		aHistorySize = 0;
+		resetOutcome();
+	}
+
+	/**
+	 * Sets up the position of another engine, stock order included, for
+	 * instance to search it from another thread. The turn count is copied but
+	 * not the actions that led to the position, which cannot be undone.
+	 * @param pEngine The engine to copy.
+	 */
+	public void setPosition(GameEngine pEngine)
+	{
+		aStock.copy(pEngine.aStock);
+		System.arraycopy(pEngine.aHands, 0, aHands, 0, aHands.length);
+		System.arraycopy(pEngine.aKnown, 0, aKnown, 0, aKnown.length);
+		System.arraycopy(pEngine.aDiscards, 0, aDiscards, 0, pEngine.aDiscardCount);
+		aDiscardCount = pEngine.aDiscardCount;
+		aDiscardPile = pEngine.aDiscardPile;
+		aDealer = pEngine.aDealer;
+		aPlayer = pEngine.aPlayer;
+		aPhase = pEngine.aPhase;
+		aTaken = pEngine.aTaken;
+		aTurns = pEngine.aTurns;
+		aHistorySize = 0;
+		aWinner = pEngine.aWinner;
+		aPoints = pEngine.aPoints;
+		aKnocker = pEngine.aKnocker;
+		aKnockDeadwood = pEngine.aKnockDeadwood;
+		aDefenderDeadwood = pEngine.aDefenderDeadwood;
+		aLayoffs = pEngine.aLayoffs;
+		aGin = pEngine.aGin;
+		aUndercut = pEngine.aUndercut;
+	}
+
+	private void resetOutcome()
+	{
+		aWinner = -1;
+		aPoints = 0;
+		aKnocker = -1;
+		aKnockDeadwood = 0;
+		aDefenderDeadwood = 0;
+		aLayoffs = 0;
+		aGin = false;
+		aUndercut = false;
+	}
+
+	/**
+	 * Lists the actions the player to move may take.
+	 * @param pActions The array in which to write the actions, of length at least <b>MAX_ACTIONS</b>.
+	 * @return The number of actions written; 0 when the round is over.
+	 */
+	public int legalActions(int[] pActions)
+	{
+		int count = 0;
+		if (aPhase == Phase.DRAW)
+		{
+			pActions[count++] = DRAW_STOCK;
+			if (aDiscardCount > 0)
+			{
+				pActions[count++] = TAKE_DISCARD | discardTop();
+			}
+		}
+		else if (aPhase == Phase.DISCARD)
+		{
+			long hand = aHands[aPlayer];
+			for (long cards = hand; cards != 0; cards &= cards - 1)
+			{
+				int card = Long.numberOfTrailingZeros(cards);
+				if (card != aTaken)
+				{
+					pActions[count++] = DISCARD | card;
+					if (aSolver.solve(hand & ~(1L << card)) <= KNOCK_LIMIT)
+					{
+						pActions[count++] = KNOCK | card;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param pAction An action.
+	 * @return True if the player to move may take pAction.
+	 */
+	public boolean isLegal(int pAction)
+	{
+		int type = actionType(pAction);
+		int card = actionCard(pAction);
+		if (aPhase == Phase.DRAW)
+		{
+			return pAction == DRAW_STOCK || (aDiscardCount > 0 && pAction == (TAKE_DISCARD | discardTop()));
+		}
+		if (aPhase != Phase.DISCARD || (type != DISCARD && type != KNOCK) || card == aTaken
+				|| (aHands[aPlayer] & (1L << card)) == 0)
+		{
+			return false;
+		}
+		return type == DISCARD || aSolver.solve(aHands[aPlayer] & ~(1L << card)) <= KNOCK_LIMIT;
+	}
+
+	/**
+	 * Takes an action for the player to move.
+	 * @param pAction One of the actions listed by <b>legalActions</b>.
+	 * @throws GameException If the action is not legal.
+	 */
+	public void apply(int pAction)
+	{
+		if (!isLegal(pAction))
+		{
+			throw new GameException("Illegal action " + toString(pAction) + " in phase " + aPhase + ".");
+		}
+		int card = actionCard(pAction);
+		record(pAction | (aTaken + 1) << TAKEN_SHIFT | (int) (aKnown[aPlayer] >>> card & 1) << KNOWN_SHIFT
+				| aPlayer << PLAYER_SHIFT);
+		switch (actionType(pAction))
+		{
+		case DRAW_STOCK:
+			aHands[aPlayer] |= 1L << aStock.draw().index();
+			aTaken = -1;
+			aTurns++;
+			aPhase = Phase.DISCARD;
+			break;
+		case TAKE_DISCARD:
+			aDiscardCount--;
+			aDiscardPile &= ~(1L << card);
+			aHands[aPlayer] |= 1L << card;
+			aKnown[aPlayer] |= 1L << card;
+			aTaken = card;
+			aTurns++;
+			aPhase = Phase.DISCARD;
+			break;
+		default:
+			aHands[aPlayer] &= ~(1L << card);
+			aKnown[aPlayer] &= ~(1L << card);
+			pushDiscard(card);
+			if (actionType(pAction) == KNOCK)
+			{
+				score(aPlayer);
+			}
+			else if (aStock.size() <= MIN_STOCK)
+			{
+				aPhase = Phase.OVER;
+			}
+			else
+			{
+				aPlayer = 1 - aPlayer;
+				aPhase = Phase.DRAW;
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Takes back the last action applied since the round was dealt or set up.
+	 * @pre getHistorySize() > 0
+	 */
+	public void undo()
+	{
+		assert aHistorySize > 0;
+		int entry = aHistory[--aHistorySize];
+		int action = entry & ((1 << ACTION_BITS) - 1);
+		int card = actionCard(action);
+		aPlayer = entry >>> PLAYER_SHIFT;
+		aTaken = (entry >>> TAKEN_SHIFT & CARD_MASK) - 1;
+		switch (actionType(action))
+		{
+		case DRAW_STOCK:
+			aHands[aPlayer] &= ~(1L << aStock.undraw().index());
+			aTurns--;
+			aPhase = Phase.DRAW;
+			break;
+		case TAKE_DISCARD:
+			aHands[aPlayer] &= ~(1L << card);
+			aKnown[aPlayer] &= ~(1L << card);
+			pushDiscard(card);
+			aTurns--;
+			aPhase = Phase.DRAW;
+			break;
+		default:
+			aDiscardCount--;
+			aDiscardPile &= ~(1L << card);
+			aHands[aPlayer] |= 1L << card;
+			aKnown[aPlayer] |= (long) (entry >>> KNOWN_SHIFT & 1) << card;
+			aPhase = Phase.DISCARD;
+			resetOutcome();
+			break;
+		}
+	}
+
+	/**
+	 * @return The number of actions that <b>undo</b> can take back.
+	 */
+	public int getHistorySize()
+	{
+		return aHistorySize;
+	}
+
+	/**
+	 * @param pIndex The number of an action since the round was dealt or set up.
+	 * @return The action.
+	 * @pre pIndex >= 0 && pIndex < getHistorySize()
+	 */
+	public int getAction(int pIndex)
+	{
+		assert pIndex >= 0 && pIndex < aHistorySize;
+		return aHistory[pIndex] & ((1 << ACTION_BITS) - 1);
+	}
+
+	/**
+	 * Writes the order of the deck the round was dealt from, which with the
+	 * actions determines the whole round.
+	 * @param pCards The array to write to, of at least <b>Card.NUMBER_OF_CARDS</b> bytes.
+	 * @pre The round was dealt, not set up with <b>setPosition</b>.
+	 */
+	public void getDeal(byte[] pCards)
+	{
+		aStock.getOrder(pCards);
+	}
+
+	private void record(int pEntry)
+	{
+		if (aHistorySize == aHistory.length)
+		{
+			int[] history = new int[2 * aHistory.length];
+			System.arraycopy(aHistory, 0, history, 0, aHistorySize);
+			aHistory = history;
+		}
+		aHistory[aHistorySize++] = pEntry;
+	}
+
+	private void pushDiscard(int pCard)
+	{
+		aDiscards[aDiscardCount++] = (byte) pCard;
+		aDiscardPile |= 1L << pCard;
+	}
+
+	/*
+	 * Unless the knocker has gin, the defender lays off on the melds of the
+	 * knocker's optimal arrangement, rearranging its own melds as it sees fit.
+	 */
+	private void score(int pKnocker)
+	{
+		int defender = 1 - pKnocker;
+		aPhase = Phase.OVER;
+		aKnocker = pKnocker;
+		aKnockDeadwood = aSolver.solve(aHands[pKnocker]);
+		aGin = aKnockDeadwood == 0;
+		if (aGin)
+		{
+			aDefenderDeadwood = aSolver.solve(aHands[defender]);
+			aWinner = pKnocker;
+			aPoints = aDefenderDeadwood + GIN_BONUS;
+			return;
+		}
+		long runs = 0;
+		long groups = 0;
+		for (int i = 0; i < aSolver.getMatchCount(); i++)
+		{
+			if (MeldIndex.isRun(aSolver.getMatchId(i)))
+			{
+				runs |= aSolver.getMatch(i);
+			}
+			else
+			{
+				groups |= aSolver.getMatch(i);
+			}
+		}
+		aDefenderDeadwood = aLayoffSolver.solve(runs, groups, aHands[defender]);
+		aLayoffs = aLayoffSolver.getLayoffs();
+		if (aDefenderDeadwood <= aKnockDeadwood)
+		{
+			aUndercut = true;
+			aWinner = defender;
+			aPoints = aKnockDeadwood - aDefenderDeadwood + UNDERCUT_BONUS;
+		}
+		else
+		{
+			aWinner = pKnocker;
+			aPoints = aDefenderDeadwood - aKnockDeadwood;
+		}
+	}
+
+	/**
+	 * Arranges the cards of a player into its optimal matched sets.
+	 * @param pPlayer The player.
+	 * @return A new set of the matched sets, as a Hand would compute them with <b>autoMatch()</b>.
+	 */
+	public Set<ICardSet> getMatchedSets(int pPlayer)
+	{
+		Set<ICardSet> matchedSets = new HashSet<ICardSet>();
+		aSolver.solve(aHands[pPlayer]);
+		for (int i = 0; i < aSolver.getMatchCount(); i++)
+		{
+			matchedSets.add(BitCardSet.meld(aSolver.getMatchId(i)));
+		}
+		return matchedSets;
+	}
+
+	/**
+	 * Copies the cards of a player into a Hand, which can only be done when
+	 * the player holds no more than <b>Hand.HAND_SIZE</b> cards.
+	 * @param pPlayer The player.
+	 * @return A new hand holding the cards of pPlayer, not matched.
+	 * @throws HandException If the player holds 11 cards.
+	 */
+	public Hand toHand(int pPlayer)
+	{
+		Hand hand = new Hand();
+		for (long cards = aHands[pPlayer]; cards != 0; cards &= cards - 1)
+		{
+			hand.add(Card.of(Long.numberOfTrailingZeros(cards)));
+		}
+		return hand;
+	}
+
+	/**
+	 * @param pAction An action.
+	 * @return The type of the action: <b>DRAW_STOCK</b>, <b>TAKE_DISCARD</b>, <b>DISCARD</b> or <b>KNOCK</b>.
+	 */
+	public static int actionType(int pAction)
+	{
+		return pAction & ~CARD_MASK;
+	}
+
+	/**
+	 * @param pAction An action.
+	 * @return The index of the card the action is about; 0 for <b>DRAW_STOCK</b>.
+	 */
+	public static int actionCard(int pAction)
+	{
+		return pAction & CARD_MASK;
+	}
+
+	/**
+	 * @param pAction An action.
+	 * @return A description of the action.
+	 */
+	public static String toString(int pAction)
+	{
+		switch (actionType(pAction))
+		{
+		case DRAW_STOCK:
+			return "draw from the stock";
+		case TAKE_DISCARD:
+			return "take " + Card.of(actionCard(pAction));
+		case DISCARD:
+			return "discard " + Card.of(actionCard(pAction));
+		default:
+			return "knock, discarding " + Card.of(actionCard(pAction));
+		}
+	}
+
+	/**
+	 * @return The stage of the round.
+	 */
+	public Phase getPhase()
+	{
+		return aPhase;
+	}
+
+	/**
+	 * @return The player to move, 0 or 1.
+	 */
+	public int getPlayer()
+	{
+		return aPlayer;
+	}
+
+	/**
+	 * @return The player who dealt the round.
+	 */
+	public int getDealer()
+	{
+		return aDealer;
+	}
+
+	/**
+	 * @param pPlayer A player.
+	 * @return The mask of the cards of the player.
+	 */
+	public long getHand(int pPlayer)
+	{
+		return aHands[pPlayer];
+	}
+
+	/**
+	 * @param pPlayer A player.
+	 * @return The cards pPlayer took from the discard pile and still holds,
+	 * which the opponent therefore knows about.
+	 */
+	public long getKnown(int pPlayer)
+	{
+		return aKnown[pPlayer];
+	}
+
+	/**
+	 * @return The index of the card on top of the discard pile, or -1 if it is empty.
+	 */
+	public int discardTop()
+	{
+		return aDiscardCount == 0 ? -1 : aDiscards[aDiscardCount - 1];
+	}
+
+	/**
+	 * @return The number of cards in the discard pile.
+	 */
+	public int getDiscardCount()
+	{
+		return aDiscardCount;
+	}
+
+	/**
+	 * @param pIndex The position of a card in the discard pile, from the bottom.
+	 * @return The index of the card.
+	 * @pre pIndex >= 0 && pIndex < getDiscardCount()
+	 */
+	public int getDiscard(int pIndex)
+	{
+		assert pIndex >= 0 && pIndex < aDiscardCount;
+		return aDiscards[pIndex];
+	}
+
+	/**
+	 * @return The mask of the cards in the discard pile.
+	 */
+	public long getDiscardPile()
+	{
+		return aDiscardPile;
+	}
+
+	/**
+	 * @return The card taken from the discard pile this turn, which may not be discarded, or -1.
+	 */
+	public int getTakenDiscard()
+	{
+		return aTaken;
+	}
+
+	/**
+	 * @return The number of cards left in the stock.
+	 */
+	public int getStockSize()
+	{
+		return aStock.size();
+	}
+
+	/**
+	 * @param pIndex The position of a card in the stock, from the bottom.
+	 * @return The index of the card.
+	 * @pre pIndex >= 0 && pIndex < getStockSize()
+	 */
+	public int getStock(int pIndex)
+	{
+		return aStock.get(pIndex).index();
+	}
+
+	/**
+	 * @return The number of turns played, counting a turn per draw.
+	 */
+	public int getTurns()
+	{
+		return aTurns;
+	}
+
+	/**
+	 * @return The winner of the round, or -1 if it is not over or was drawn.
+	 */
+	public int getWinner()
+	{
+		return aWinner;
+	}
+
+	/**
+	 * @return The points scored by the winner of the round.
+	 */
+	public int getPoints()
+	{
+		return aPoints;
+	}
+
+	/**
+	 * @return The player who knocked, or -1.
+	 */
+	public int getKnocker()
+	{
+		return aKnocker;
+	}
+
+	/**
+	 * @return The deadwood of the knocker.
+	 */
+	public int getKnockDeadwood()
+	{
+		return aKnockDeadwood;
+	}
+
+	/**
+	 * @return The deadwood of the defender, after laying off.
+	 */
+	public int getDefenderDeadwood()
+	{
+		return aDefenderDeadwood;
+	}
+
+	/**
+	 * @return The mask of the cards the defender laid off.
+	 */
+	public long getLayoffs()
+	{
+		return aLayoffs;
+	}
+
+	/**
+	 * @return True if the knocker had gin.
+	 */
+	public boolean isGin()
+	{
+		return aGin;
+	}
+
+	/**
+	 * @return True if the defender undercut the knocker.
+	 */
+	public boolean isUndercut()
+	{
+		return aUndercut;
+	}
+}
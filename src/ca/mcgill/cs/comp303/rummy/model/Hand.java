@@ -1,34 +1,114 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
-import ca.mcgill.cs.comp303.rummy.model.Card.Rank;
-import ca.mcgill.cs.comp303.rummy.model.Card.Suit;
-import ca.mcgill.cs.comp303.rummy.model.CardSet.SetType;
-
 /**
  * Models a hand of 10 cards. The hand is not sorted. Not threadsafe.
  * The hand is a set: adding the same card twice will not add duplicates
  * of the card.
+ * <p>
+ * The cards of the hand and the cards that are part of a matched set are
+ * kept as 52-bit masks indexed by <code>Card.index()</code>, so that
+ * membership, size and score queries do not allocate. Engines that want to
+ * skip the object layer can read the masks directly with <b>cardsMask()</b>
+ * and <b>unmatchedMask()</b>. The matched sets are the canonical
+ * <b>BitCardSet</b> of each meld, kept in a small array rather than a hash
+ * set, so arranging the hand allocates nothing; <b>getMatchedSets()</b>
+ * builds the set it returns.
+ * <p>
+ * In incremental mode, the hand keeps the arrangement of <b>autoMatch()</b>
+ * current as cards are added and removed: only the component of the changed
+ * card (the cards linked to it by overlapping melds) is arranged again.
+ * <p>
+ * A search can <b>mark</b> the hand and later <b>undo</b> the changes made
+ * since: while marked, the hand records each change, so going back does not
+ * need a copy of the matched sets. A search can also <b>fork</b> the hand,
+ * which shares the matched sets of the two hands until one of them changes
+ * its own, or take an immutable <b>snapshot</b> of its cards.
  * @inv size() > 0
  * @inv size() <= HAND_SIZE
  */
 public class Hand
 {
+	/**
+	 * The outcome of an attempt to create a matched set.
+	 */
+	public enum MeldStatus
+	{ CREATED, NOT_IN_HAND, ALREADY_MATCHED, INVALID }
+	
 	public static final int HAND_SIZE = 10;
 	public static final int MIN_MATCHED_SIZE = 3;
-	private HashSet<Card> aHand;
-	private HashSet<ICardSet> aMatchedSets;
+	private long aCards;
+	private long aMatched;
+	// a hand holds at most HAND_SIZE / MIN_MATCHED_SIZE disjoint matched sets
+	private ICardSet[] aMatchedSets;
+	private int aMatchedCount;
+	private boolean aSharedSets;
+	private MeldSolver aSolver;
+	private final DeadwoodCache aCache;
+	private boolean aIncremental;
+	// the changes since the first mark: the matched set added or removed by each
+	// change, or null, and the card and matched masks before it
+	private ICardSet[] aJournalSets;
+	private boolean[] aJournalAdded;
+	private long[] aJournalMasks;
+	private int aJournalSize = -1;
+	private int aMarks;
 	
 	/**
 	 * Creates a new, empty hand.
 	 */
 	public Hand()
 	{
-		aHand = new HashSet<Card>();
-		aMatchedSets = new HashSet<ICardSet>();
+		this((DeadwoodCache) null);
+	}
+	
+	/**
+	 * Creates a new, empty hand whose <b>autoMatch()</b> consults and
+	 * fills <b>pCache</b> before searching for the optimal arrangement.
+	 * @param pCache The cache of optimal arrangements, shared or not; null for no cache.
+	 */
+	public Hand( DeadwoodCache pCache )
+	{
+		aMatchedSets = new ICardSet[HAND_SIZE / MIN_MATCHED_SIZE];
+		aCache = pCache;
+	}
+	
+	/*
+	 * A copy of pHand that shares its matched sets.
+	 */
+	private Hand( Hand pHand )
+	{
+		aCards = pHand.aCards;
+		aMatched = pHand.aMatched;
+		aMatchedSets = pHand.aMatchedSets;
+		aMatchedCount = pHand.aMatchedCount;
+		aSharedSets = true;
+		pHand.aSharedSets = true;
+		aCache = pHand.aCache;
+		aIncremental = pHand.aIncremental;
+	}
+	
+	/**
+	 * Creates a copy of this hand, in incremental mode if this hand is, in
+	 * constant time: the two hands share the matched sets until one of them
+	 * changes its own, which then copies them. Changes to either hand do not
+	 * show in the other, and marks are not copied.
+	 * @return A new hand with the cards and matched sets of this hand.
+	 */
+	public Hand fork()
+	{
+		return new Hand(this);
+	}
+	
+	/**
+	 * @return An immutable value holding the cards of this hand.
+	 */
+	public HandValue snapshot()
+	{
+		return HandValue.of(aCards);
 	}
 	
 	/**
@@ -51,46 +131,93 @@ public class Hand
 		}
 		else
 		{
-			aHand.add(pCard);
+			record(null, false);
+			aCards |= bit(pCard);
+			if (aIncremental)
+			{
+				rematch(solver().component(aCards, pCard.index()));
+			}
 		}
 	}
 	
 	/**
 	 * Remove pCard from the hand and break any matched set
 	 * that the card is part of. Does nothing if
-	 * pCard is not in the hand.
+	 * pCard is not in the hand. In incremental mode, the
+	 * cards of the broken sets are matched again.
 	 * @param pCard The card to remove.
 	 * @pre pCard != null
 	 */
 	public void remove( Card pCard )
 	{
-		if(aHand.remove(pCard))								// if there was a card removed
+		long bit = bit(pCard);
+		if (aIncremental && (aCards & bit) != 0)
+		{
+			long component = solver().component(aCards, pCard.index());
+			record(null, false);
+			aCards &= ~bit;
+			rematch(component & ~bit);
+		}
+		else if ((aCards & bit) != 0)						// if there was a card removed
 		{
-			for (ICardSet aMatchedSet : getMatchedSets())	// check if the card was part of a match set
+			record(null, false);
+			aCards &= ~bit;
+			if ((aMatched & bit) != 0)						// check if the card was part of a match set
 			{
-				if (aMatchedSet.contains(pCard))			// if it was, then remove the match set as it is no longer a match without the card
+				for (int i = 0; i < aMatchedCount; i++)
 				{
-					removeMatchedSet(aMatchedSet);
-					break;
+					if (aMatchedSets[i].contains(pCard))		// if it was, then remove the match set as it is no longer a match without the card
+					{
+						removeMatchedSet(aMatchedSets[i]);
+						break;
+					}
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Switches incremental mode on or off. When switched on, the hand is matched
+	 * with <b>autoMatch()</b>; from then on, every <b>add</b> and <b>remove</b>
+	 * updates the arrangement so that it stays identical to the one a new
+	 * call to <b>autoMatch()</b> would compute, and <b>score()</b> is always
+	 * the minimum deadwood of the hand. Matched sets created by hand are
+	 * replaced as soon as a card linked to them changes.
+	 * @param pIncremental true to keep the hand matched as it changes.
+	 */
+	public void setIncremental( boolean pIncremental )
+	{
+		if (pIncremental && !aIncremental)
+		{
+			autoMatch();
+		}
+		aIncremental = pIncremental;
+	}
+	
+	/**
+	 * @return True if the hand is in incremental mode.
+	 */
+	public boolean isIncremental()
+	{
+		return aIncremental;
+	}
+	
 	/**
 	 * @return True if the hand is complete.
 	 */
 	public boolean isComplete()
 	{
-		return aHand.size() >= HAND_SIZE;
+		return size() >= HAND_SIZE;
 	}
 	
 	/**
-	 * Removes all the cards from the hand.
+	 * Removes all the cards from the hand, along with the matched sets.
 	 */
 	public void clear()
 	{
-		aHand.clear();
+		record(null, false);
+		aCards = 0;
+		clearMatchedSets();
 	}
 	
 	/**
@@ -98,7 +225,12 @@ public class Hand
 	 */
 	public HashSet<ICardSet> getMatchedSets()
 	{
-		return new HashSet<ICardSet>(aMatchedSets);
+		HashSet<ICardSet> matchedSets = new HashSet<ICardSet>();
+		for (int i = 0; i < aMatchedCount; i++)
+		{
+			matchedSets.add(aMatchedSets[i]);
+		}
+		return matchedSets;
 	}
 	
 	/**
@@ -106,19 +238,33 @@ public class Hand
 	 */
 	public HashSet<Card> getUnmatchedCards()
 	{
-		HashSet<Card> hand = new HashSet<Card>(aHand);
+		HashSet<Card> hand = new HashSet<Card>();
 		
-		for (ICardSet matchedSet : getMatchedSets())
+		for (long unmatched = unmatchedMask(); unmatched != 0; unmatched &= unmatched - 1)
 		{
-			for (Card card : matchedSet)
-			{
-				hand.remove(card);
-			}
+			hand.add(Card.of(Long.numberOfTrailingZeros(unmatched)));
 		}
 		
 		return hand;
 	}
 	
+	/**
+	 * @return The mask of the cards in the hand, where bit <code>Card.index()</code>
+	 * is set for each card in the hand.
+	 */
+	public long cardsMask()
+	{
+		return aCards;
+	}
+	
+	/**
+	 * @return The mask of the cards in the hand that are not part of a matched set.
+	 */
+	public long unmatchedMask()
+	{
+		return aCards & ~aMatched;
+	}
+	
 	/**
 	 * Add a matched set to the set of matched sets.
 	 * @param pMatchedSet The matched set to add.
@@ -127,7 +273,14 @@ public class Hand
 	 */
 	public boolean addMatchedSet(ICardSet pMatchedSet)
 	{
-		return aMatchedSets.add(pMatchedSet);
+		if (indexOf(pMatchedSet) >= 0)
+		{
+			return false;
+		}
+		record(pMatchedSet, true);
+		append(pMatchedSet);
+		aMatched |= mask(pMatchedSet);
+		return true;
 	}
 	
 	/**
@@ -138,7 +291,15 @@ public class Hand
 	 */
 	public boolean removeMatchedSet(ICardSet pMatchedSet)
 	{
-		return aMatchedSets.remove(pMatchedSet);
+		int index = indexOf(pMatchedSet);
+		if (index < 0)
+		{
+			return false;
+		}
+		record(aMatchedSets[index], false);
+		removeAt(index);
+		rebuildMatched();
+		return true;
 	}
 	
 	/**
@@ -146,7 +307,7 @@ public class Hand
 	 */
 	public int size()
 	{
-		return aHand.size();
+		return Long.bitCount(aCards);
 	}
 	
 	/**
@@ -158,7 +319,7 @@ public class Hand
 	 */
 	public boolean contains( Card pCard )
 	{
-		return aHand.contains(pCard);
+		return (aCards & bit(pCard)) != 0;
 	}
 	
 	/**
@@ -166,133 +327,57 @@ public class Hand
 	 */
 	public int score()
 	{
-		int score = 0;
-		
-		for (Card card : getUnmatchedCards())
-		{
-			score += card.pointValue(); // +1 since ordinals start at zero
-		}
-		
-		return score;
+		return MeldSolver.deadwood(unmatchedMask());
+	}
+	
+	/**
+	 * Adds a group-set to the hand's set of matched sets if a group can be
+	 * constructed from the given cards. Unlike <b>createGroup</b>, a failure
+	 * is reported by the status returned and allocates nothing, for callers
+	 * that probe many candidate melds.
+	 * @param pCards The mask of the cards to make the group from.
+	 * @return <b>CREATED</b> if the group was added, or why it was not.
+	 */
+	public MeldStatus tryCreateGroup( long pCards )
+	{
+		return tryCreate(pCards, false);
 	}
 	
 	/**
-	 * Verifies that a group of cards of the same rank exists in <b>pCards</b>
-	 * @param pCards The cards to groups
+	 * Adds a group-set to the hand's set of matched sets if a group can be
+	 * constructed from the given cards, without throwing on failure.
+	 * @param pCards The cards to make the group from.
+	 * @return <b>CREATED</b> if the group was added, or why it was not.
 	 * @pre pCards != null
-	 * @return <b>true</b> if <b>pCards</b> makes a group, <b>false</b> otherwise
 	 */
-	private boolean groupExists( Set<Card> pCards )
+	public MeldStatus tryCreateGroup( Set<Card> pCards )
 	{
-		if (pCards.size() < MIN_MATCHED_SIZE)
-		{
-			return false;
-		}
-		
-		Rank groupRank = null;
-		HashSet<Card> unmatched = getUnmatchedCards();
-		
-		for (Card card : pCards)
-		{
-			if (unmatched.contains(card))	// make sure all the cards are still unmatched
-			{
-				if (groupRank == null)
-				{
-					groupRank = card.getRank();
-				}
-				else if (card.getRank().compareTo(groupRank) != 0)
-				{
-					return false;
-				}
-			}
-			else
-			{
-				return false;
-			}
-		}
-		// only a valid group gets this far
-		return true;
+		return tryCreate(mask(pCards), false);
 	}
 	
 	/**
-	 * Verifies that a run of cards of the same suit exists in <b>pCards</b>
-	 * <p>
-	 * The algorithm works by checking:
-	 * <ol>
-	 * <li>That there are enough cards to make a run
-	 * <li>That all cards are of the same suit
-	 * <li>That there exists an ordering of the cards such that all cards are consecutive.
-	 * <br>It does step 3 by:
-	 *     <ul>
-	 *     <li>Finding the lowest rank, then adding the number of cards to get 'nTotal'
-	 *     <li>Using the sum formula (n*(n + 1))/2 to get sums s1 and s2,
-	 *     	   with n1=nTotal and n2=lowest rank
-	 *     <li>Subtracting s2 from s1 to get the sum of the ranks for the theoretical value
-	 *     <li>Checking the theoretical value matches the actual sum of the ranks
-	 *     </ul>
-	 * </ol>
-	 * 
-	 * @param pCards The cards to group into a run
+	 * Adds a run-set to the hand's set of matched sets if a run can be
+	 * constructed from the given cards. Unlike <b>createRun</b>, a failure
+	 * is reported by the status returned and allocates nothing, for callers
+	 * that probe many candidate melds.
+	 * @param pCards The mask of the cards to make the run from.
+	 * @return <b>CREATED</b> if the run was added, or why it was not.
+	 */
+	public MeldStatus tryCreateRun( long pCards )
+	{
+		return tryCreate(pCards, true);
+	}
+	
+	/**
+	 * Adds a run-set to the hand's set of matched sets if a run can be
+	 * constructed from the given cards, without throwing on failure.
+	 * @param pCards The cards to make the run from.
+	 * @return <b>CREATED</b> if the run was added, or why it was not.
 	 * @pre pCards != null
-	 * @return <b>true</b> if <b>pCards</b> makes a run, <b>false</b> otherwise
-	 * 
 	 */
-	private boolean runExists( Set<Card> pCards)
+	public MeldStatus tryCreateRun( Set<Card> pCards )
 	{
-		int numCards = pCards.size();
-		
-		if (numCards < MIN_MATCHED_SIZE)
-		{
-			return false;
-		}
-		
-		Suit runSuit = null;
-		Rank lowestRank = null;
-		int rankSum = 0;
-		HashSet<Card> unmatched = getUnmatchedCards();
-		
-		for (Card card : pCards)
-		{
-			if (unmatched.contains(card))	// make sure all the cards are still unmatched
-			{
-				if (runSuit == null)	// this is the first card being examined in the set
-				{
-					runSuit = card.getSuit();
-					lowestRank = card.getRank();
-				}
-				else if (card.getSuit().compareTo(runSuit) != 0)	// there are two cards that don't have the same suit
-				{
-					return false;
-				}
-				else	// suit is the same as the last card's
-				{
-					if (card.getRank().compareTo(lowestRank) < 0)
-					{
-						lowestRank = card.getRank();
-					}
-				}
-				
-				rankSum += card.getRank().ordinal() + 1;	// +1 since ordinals start at 0
-			}
-			else
-			{
-				throw new HandException("The card (" + card.toString() + ") is already matched.");
-			}
-		}
-		
-		// only a set of cards made up of the same suit gets this far
-		
-		int lowest = lowestRank.ordinal();
-		int n = lowest + numCards;
-		int expectedSum = (n*(n + 1))/2 - (lowest*(lowest + 1))/2;	// use expected sum for consecutive sequence to verify run validity
-		
-		if (expectedSum != rankSum)	// the cards are the same suit, but don't form a sequence
-		{
-			return false;
-		}
-		
-		// only a valid run gets this far
-		return true;
+		return tryCreate(mask(pCards), true);
 	}
 	
 	/**
@@ -302,15 +387,11 @@ public class Hand
 	 */
 	public void createGroup( Set<Card> pCards )
 	{		
-		HandException invalidGroupException = new HandException("The cards don't construct a valid group.");
-		
-		if (groupExists(pCards))
-		{
-			addMatchedSet(new CardSet(pCards, SetType.GROUP));
-		}
-		else
+		long cards = mask(pCards);
+		MeldStatus status = tryCreate(cards, false);
+		if (status != MeldStatus.CREATED)
 		{
-			throw invalidGroupException;
+			throw failure(status, cards, "group");
 		}
 	}
 	
@@ -321,154 +402,310 @@ public class Hand
 	 */
 	public void createRun( HashSet<Card> pCards ) 
 	{
-		HandException invalidRunException = new HandException("The cards don't construct a valid run.");
-				
-		if (runExists(pCards))
+		long cards = mask(pCards);
+		MeldStatus status = tryCreate(cards, true);
+		if (status != MeldStatus.CREATED)
 		{
-			addMatchedSet(new CardSet(pCards, SetType.RUN));
+			throw failure(status, cards, "run");
 		}
-		else
+	}
+	
+	/*
+	 * Adds the canonical set of the meld of pCards if it is a run (pRun) or
+	 * a group of unmatched cards of the hand, by looking up the cards in the
+	 * MeldIndex.
+	 */
+	private MeldStatus tryCreate( long pCards, boolean pRun )
+	{
+		if ((pCards & ~aCards) != 0)
+		{
+			return MeldStatus.NOT_IN_HAND;
+		}
+		if ((pCards & aMatched) != 0)
 		{
-			throw invalidRunException;
+			return MeldStatus.ALREADY_MATCHED;
+		}
+		int id = MeldIndex.find(pCards);
+		if (id < 0 || MeldIndex.isRun(id) != pRun)
+		{
+			return MeldStatus.INVALID;
+		}
+		addMatchedSet(BitCardSet.meld(id));
+		return MeldStatus.CREATED;
+	}
+	
+	/*
+	 * The exception thrown by the throwing API for a failed status: without
+	 * a stack trace, since callers of the older API probe melds with it too.
+	 */
+	private HandException failure( MeldStatus pStatus, long pCards, String pKind )
+	{
+		switch (pStatus)
+		{
+		case NOT_IN_HAND:
+			return new HandException("The card (" + Card.of(Long.numberOfTrailingZeros(pCards & ~aCards))
+					+ ") is not in the hand.", false);
+		case ALREADY_MATCHED:
+			return new HandException("The card (" + Card.of(Long.numberOfTrailingZeros(pCards & aMatched))
+					+ ") is already matched.", false);
+		default:
+			return new HandException("The cards don't construct a valid " + pKind + ".", false);
 		}
 	}
 	
 	/**
 	 * Calculates the matching of cards into groups and runs that
 	 * results in the lowest amount of points for unmatched cards.
+	 * If the hand was created with a cache, the arrangement is looked
+	 * up there first, and stored there after a search.
 	 */
 	public void autoMatch()
 	{
 		// empty the matched sets
-		aMatchedSets.clear();
-
-		// get all the possible matches that can be made by the cards in the hand
-		Set<Set<Card>> allMatches = getAllPossibleMatches(aHand);
+		clearMatchedSets();
 		
-		// find the optimal solution
-		Set<Set<Card>> optimal = optimalMatches(allMatches);		
+		long cached = aCache == null ? DeadwoodCache.MISS : aCache.get(aCards);
+		if (cached != DeadwoodCache.MISS)
+		{
+			for (int i = 0; i < DeadwoodCache.matchCount(cached); i++)
+			{
+				addMatch(DeadwoodCache.matchId(cached, i));
+			}
+			return;
+		}
+		
+		MeldSolver solver = solver();
+		solver.solve(aCards);
+		if (aCache != null)
+		{
+			aCache.put(aCards, solver);
+		}
 		
-		for (Set<Card> match : optimal)
-		{
-			// convert each optimal match to its corresponding CardSet
-			Iterator<Card> iterator = match.iterator();
-			Card first = iterator.next();
-			Card second = iterator.next();
-			// if the ranks of the two cards are the same, the current match must be a group, otherwise a run
-			if (first.getRank() == second.getRank())
+		for (int i = 0; i < solver.getMatchCount(); i++)
+		{
+			addMatch(solver.getMatchId(i));
+		}
+	}
+	
+	/*
+	 * Replaces the matched sets that touch pComponent by the optimal
+	 * arrangement of pComponent, which must be closed under the melds
+	 * of the hand.
+	 */
+	private void rematch( long pComponent )
+	{
+		boolean broken = false;
+		// from the last, so that removing a set moves an already kept one in its place
+		for (int i = aMatchedCount - 1; i >= 0; i--)
+		{
+			if ((mask(aMatchedSets[i]) & pComponent) != 0)
 			{
-				// match is a group
-				aMatchedSets.add(new CardSet(match, SetType.GROUP));
+				record(aMatchedSets[i], false);
+				removeAt(i);
+				broken = true;
 			}
-			else
+		}
+		if (broken)
+		{
+			rebuildMatched();
+		}
+		
+		MeldSolver solver = solver();
+		solver.solve(pComponent);
+		for (int i = 0; i < solver.getMatchCount(); i++)
+		{
+			addMatch(solver.getMatchId(i));
+		}
+	}
+	
+	/*
+	 * The matched sets, ready to be changed: a forked hand copies the matched
+	 * sets it shares before the first change.
+	 */
+	private ICardSet[] matchedSets()
+	{
+		if (aSharedSets)
+		{
+			aMatchedSets = aMatchedSets.clone();
+			aSharedSets = false;
+		}
+		return aMatchedSets;
+	}
+	
+	private int indexOf( ICardSet pMatchedSet )
+	{
+		for (int i = 0; i < aMatchedCount; i++)
+		{
+			if (aMatchedSets[i].equals(pMatchedSet))
 			{
-				// match is a run
-				aMatchedSets.add(new CardSet(match, SetType.RUN));
+				return i;
 			}
 		}
+		return -1;
+	}
+	
+	/*
+	 * Adds a matched set known not to be in the hand; only matched sets added
+	 * by hand, which may overlap, can outgrow the array.
+	 */
+	private void append( ICardSet pMatchedSet )
+	{
+		ICardSet[] matchedSets = matchedSets();
+		if (aMatchedCount == matchedSets.length)
+		{
+			aMatchedSets = Arrays.copyOf(matchedSets, 2 * matchedSets.length);
+		}
+		aMatchedSets[aMatchedCount++] = pMatchedSet;
+	}
+	
+	private void removeAt( int pIndex )
+	{
+		ICardSet[] matchedSets = matchedSets();
+		matchedSets[pIndex] = matchedSets[--aMatchedCount];
+		matchedSets[aMatchedCount] = null;
+	}
+	
+	private void rebuildMatched()
+	{
+		aMatched = 0;
+		for (int i = 0; i < aMatchedCount; i++)
+		{
+			aMatched |= mask(aMatchedSets[i]);
+		}
+	}
+	
+	private MeldSolver solver()
+	{
+		if (aSolver == null)
+		{
+			aSolver = new MeldSolver();
+		}
+		return aSolver;
+	}
+	
+	/*
+	 * Adds the canonical set of a matched set found by autoMatch.
+	 */
+	private void addMatch( int pId )
+	{
+		ICardSet matchedSet = BitCardSet.meld(pId);
+		record(matchedSet, true);
+		append(matchedSet);
+		aMatched |= MeldIndex.mask(pId);
+	}
+	
+	private void clearMatchedSets()
+	{
+		for (int i = 0; i < aMatchedCount; i++)
+		{
+			record(aMatchedSets[i], false);
+		}
+		if (aMatchedCount > 0)
+		{
+			Arrays.fill(matchedSets(), 0, aMatchedCount, null);
+			aMatchedCount = 0;
+		}
+		aMatched = 0;
 	}
 	
 	/**
-	 * Calculates all the possible matches that can be made from the cards in <b>pCards</b>
-	 * @param pCards The cards to make the matches from
-	 * @pre pCards != null
-	 * @return A HashSet of matched Card HashSetState
+	 * Starts recording the changes to the hand, if it is not already, so
+	 * that they can be undone. Marks nest: each mark must be undone once,
+	 * the latest first, and the recording stops when all are.
+	 * @return The mark to pass to <b>undo</b> to go back to the current state.
 	 */
-	private Set<Set<Card>> getAllPossibleMatches(Set<Card> pCards)
+	public int mark()
 	{
-		Set<Set<Card>> matched = new HashSet<Set<Card>>();
-		
-		if (pCards.size() > MIN_MATCHED_SIZE)
+		aMarks++;
+		if (aJournalSize < 0)
 		{
-			for (Card card : pCards)
+			aJournalSets = new ICardSet[HAND_SIZE];
+			aJournalAdded = new boolean[HAND_SIZE];
+			aJournalMasks = new long[2 * HAND_SIZE];
+			aJournalSize = 0;
+		}
+		return aJournalSize;
+	}
+	
+	/**
+	 * Undoes the changes made to the hand since <b>pMark</b> was returned by
+	 * <b>mark()</b>. The incremental mode is not part of the recorded state.
+	 * @param pMark The latest mark of this hand not undone yet.
+	 * @pre pMark <= the number of changes recorded
+	 */
+	public void undo( int pMark )
+	{
+		assert aMarks > 0 && pMark >= 0 && pMark <= aJournalSize;
+		aMarks--;
+		if (pMark < aJournalSize)
+		{
+			for (int i = aJournalSize - 1; i >= pMark; i--)
 			{
-				// make a set from all the cards except the current card being looked at
-				Set<Card> complement = new HashSet<Card>(pCards);
-				complement.remove(card);
-				
-				// recursive call to get all the possible matches of the set without the card
-				Set<Set<Card>> complementMatches = getAllPossibleMatches(complement);
-				
-				for (Set<Card> compMatch : complementMatches)
+				if (aJournalSets[i] != null)
 				{
-					if (runExists(compMatch) || groupExists(compMatch))
+					if (aJournalAdded[i])
 					{
-						matched.add(new HashSet<Card>(compMatch));
+						removeAt(indexOf(aJournalSets[i]));
 					}
-					compMatch.add(card);
-					if (runExists(compMatch) || groupExists(compMatch))
+					else
 					{
-						matched.add(new HashSet<Card>(compMatch));
+						append(aJournalSets[i]);
 					}
+					aJournalSets[i] = null;
 				}
 			}
+			aCards = aJournalMasks[2 * pMark];
+			aMatched = aJournalMasks[2 * pMark + 1];
+			aJournalSize = pMark;
 		}
-		else if (runExists(pCards) || groupExists(pCards))
+		if (aMarks == 0)
 		{
-			matched.add(new HashSet<Card>(pCards));
+			aJournalSets = null;
+			aJournalAdded = null;
+			aJournalMasks = null;
+			aJournalSize = -1;
 		}
-		
-		return matched;
 	}
 	
-	/**
-	 * Calculates the arrangement of cards into groups/runs such that the best score is achieved.
-	 * @param pRemainingMatches The set of card sets to arrange into optimal groups and runs
-	 * @return The set of optimal groups/runs
+	/*
+	 * Records a change about to be made while the hand is marked: the
+	 * matched set it adds or removes, if any, and the masks before it.
 	 */
-	private Set<Set<Card>> optimalMatches(Set<Set<Card>> pRemainingMatches)
+	private void record( ICardSet pMatchedSet, boolean pAdded )
 	{
-		Set<Set<Card>> optimal = new HashSet<Set<Card>>();;
-		int pointValue = 0;
-		
-		// for each match, get its compatible matches
-		for (Set<Card> match : pRemainingMatches)
+		if (aJournalSize < 0)
 		{
-			Set<Set<Card>> compatible = new HashSet<Set<Card>>();
-			
-			// find the compatible matches
-			for (Set<Card> potentialCompatible : pRemainingMatches)
-			{
-				boolean isCompatible = true;
-				
-				for (Card card : match)
-				{
-					if (potentialCompatible.contains(card))
-					{
-						isCompatible = false;
-						break;
-					}
-				}
-				
-				if (isCompatible)
-				{
-					compatible.add(potentialCompatible);
-				}
-			}
-			
-			Set<Set<Card>> optimalCompatible = optimalMatches(compatible);
-			
-			// add the current match to create the full set of matches
-			optimalCompatible.add(match);
-			
-			// calculate the points associated with this setup
-			int currentPoints = 0;					
-			for (Set<Card> matched : optimalCompatible)
-			{
-				for (Card card : matched)
-				{
-					currentPoints += card.pointValue(); // +1 since ordinal has zero start
-				}
-			}
-			
-			// compare to last iteration and keep this arrangement if it results in less points (better), or equal points w/ less sets
-			if ((currentPoints > pointValue) || ((currentPoints == pointValue) && (optimalCompatible.size() < optimal.size())))
-			{
-				optimal = new HashSet<Set<Card>>(optimalCompatible);
-				pointValue = currentPoints;
-			}
+			return;
 		}
-		
-		return optimal;
+		if (aJournalSize == aJournalSets.length)
+		{
+			aJournalSets = Arrays.copyOf(aJournalSets, 2 * aJournalSize);
+			aJournalAdded = Arrays.copyOf(aJournalAdded, 2 * aJournalSize);
+			aJournalMasks = Arrays.copyOf(aJournalMasks, 4 * aJournalSize);
+		}
+		aJournalSets[aJournalSize] = pMatchedSet;
+		aJournalAdded[aJournalSize] = pAdded;
+		aJournalMasks[2 * aJournalSize] = aCards;
+		aJournalMasks[2 * aJournalSize + 1] = aMatched;
+		aJournalSize++;
+	}
+	
+	private static long bit( Card pCard )
+	{
+		return 1L << pCard.index();
+	}
+	
+	private static long mask( Iterable<Card> pCards )
+	{
+		if (pCards instanceof BitCardSet)
+		{
+			return ((BitCardSet) pCards).cardsMask();
+		}
+		long mask = 0;
+		for (Card card : pCards)
+		{
+			mask |= bit(card);
+		}
+		return mask;
 	}
 }
@@ -0,0 +1,285 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Answers the two questions a player asks at every turn, with masks of
+ * cards: which discard leaves the lowest deadwood, and which cards would
+ * lower the deadwood of the hand if drawn (its outs).
+ * <p>
+ * Both build on the components of <b>MeldSolver</b>: removing or adding a
+ * card only changes the arrangement of its own component, so the deadwood
+ * of the rest of the hand is reused instead of solving the whole hand again.
+ * Removing a card left unmatched by the optimal arrangement lowers the
+ * deadwood by exactly its point value, so only the matched cards need a
+ * search, on their component alone. A card can only be an out if it
+ * completes a meld with cards of the hand; such candidates are solved on the
+ * component they join, the cards outside of it lowering the deadwood by as
+ * much as they do in the hand.
+ * <p>
+ * The analyzer keeps the deadwood left by each discard, the reduction of
+ * each card and the components of the last hand analyzed, which the
+ * queries after <b>analyze</b> read. Not threadsafe.
+ */
+public final class HandAnalyzer
+{
+	private static final int NO_MELD = 0;
+	private static final int MELD = 1;
+	private static final int UNMATCHED_MELD = 2;
+	private static final int OUT = 1;
+	private static final int GIN = 2;
+
+	private final MeldSolver aSolver = new MeldSolver();
+	private final int[] aDeadwood = new int[Card.NUMBER_OF_CARDS];
+	private final int[] aReduction = new int[Card.NUMBER_OF_CARDS];
+	private final long[] aComponents = new long[Card.NUMBER_OF_CARDS];
+	private final int[] aComponentDeadwood = new int[Card.NUMBER_OF_CARDS];
+	private long aHand;
+	private long aMatched;
+	private int aMinDeadwood;
+	private long aBestDiscards;
+	private long aOuts;
+	private long aGinOuts;
+
+	/**
+	 * Computes the deadwood left by each discard from pHand.
+	 * @param pHand The mask of the cards of the hand, usually 11 after a draw.
+	 * @return The lowest deadwood that a discard leaves.
+	 * @pre pHand != 0
+	 */
+	public int analyze(long pHand)
+	{
+		assert pHand != 0;
+		aHand = pHand;
+		int deadwood = reductions(pHand);
+		// a hand whose cards are all in melds of three has no discard that lowers its deadwood
+		int best = Integer.MIN_VALUE;
+		for (long cards = pHand; cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			aDeadwood[card] = deadwood - aReduction[card];
+			best = Math.max(best, aReduction[card]);
+		}
+		aMinDeadwood = deadwood - best;
+		aBestDiscards = discards(aMinDeadwood);
+		return aMinDeadwood;
+	}
+
+	/**
+	 * @param pCard The index of a card of the hand last analyzed.
+	 * @return The deadwood of the hand without pCard.
+	 */
+	public int getDeadwood(int pCard)
+	{
+		assert (aHand & (1L << pCard)) != 0;
+		return aDeadwood[pCard];
+	}
+
+	/**
+	 * @return The lowest deadwood a discard leaves in the hand last analyzed.
+	 */
+	public int getMinDeadwood()
+	{
+		return aMinDeadwood;
+	}
+
+	/**
+	 * @return The mask of the discards that leave the lowest deadwood in the hand last analyzed.
+	 */
+	public long getBestDiscards()
+	{
+		return aBestDiscards;
+	}
+
+	/**
+	 * @param pMaxDeadwood A deadwood, for instance <b>GameEngine.KNOCK_LIMIT</b>.
+	 * @return The mask of the discards that leave at most pMaxDeadwood in the hand last analyzed.
+	 */
+	public long discards(int pMaxDeadwood)
+	{
+		long discards = 0;
+		for (long cards = aHand; cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			if (aDeadwood[card] <= pMaxDeadwood)
+			{
+				discards |= 1L << card;
+			}
+		}
+		return discards;
+	}
+
+	/**
+	 * Finds the outs of a hand: the cards that would lower its deadwood by
+	 * completing a meld, that is, with which the best arrangement of the hand
+	 * has less deadwood than without them plus their own points. The outs
+	 * after which a discard leaves no deadwood at all can then be read with
+	 * <b>getGinOuts()</b>.
+	 * @param pHand The mask of the cards of the hand, usually 10.
+	 * @param pCandidates The mask of the cards that could be drawn, for instance the unseen cards.
+	 * @return The mask of the outs among pCandidates.
+	 */
+	public long outs(long pHand, long pCandidates)
+	{
+		int deadwood = reductions(pHand);
+		aOuts = 0;
+		aGinOuts = 0;
+		for (long candidates = pCandidates & ~pHand; candidates != 0; candidates &= candidates - 1)
+		{
+			int card = Long.numberOfTrailingZeros(candidates);
+			int meld = meld(pHand, card);
+			if (meld == NO_MELD)
+			{
+				continue;
+			}
+			int draw = draw(pHand, card, deadwood, meld == UNMATCHED_MELD);
+			if ((draw & OUT) != 0)
+			{
+				aOuts |= 1L << card;
+			}
+			if ((draw & GIN) != 0)
+			{
+				aGinOuts |= 1L << card;
+			}
+		}
+		return aOuts;
+	}
+
+	/**
+	 * @return The mask of the outs found by the last call to <b>outs</b> after which a discard leaves no deadwood.
+	 */
+	public long getGinOuts()
+	{
+		return aGinOuts;
+	}
+
+	/*
+	 * Whether pCard is an out of pHand, whose deadwood is pDeadwood, and
+	 * whether it is a gin out, as OUT and GIN flags. The components of pHand
+	 * must be current. Only the component pCard joins changes: the other
+	 * cards keep their deadwood, rest, and discarding one of them lowers it
+	 * as much as it does in pHand. pOut tells that pCard completes a meld of
+	 * cards left unmatched, which makes it an out without a search.
+	 */
+	private int draw(long pHand, int pCard, int pDeadwood, boolean pOut)
+	{
+		long component = aSolver.component(pHand | (1L << pCard), pCard);
+		int rest = pDeadwood;
+		for (long merged = component & ~(1L << pCard); merged != 0; merged &= ~aComponents[Long
+				.numberOfTrailingZeros(merged)])
+		{
+			rest -= aComponentDeadwood[Long.numberOfTrailingZeros(merged)];
+		}
+		int outside = Integer.MIN_VALUE;
+		for (long others = pHand & ~component; others != 0; others &= others - 1)
+		{
+			outside = Math.max(outside, aReduction[Long.numberOfTrailingZeros(others)]);
+		}
+		// gin needs a discard that leaves the other components without deadwood, or none to leave
+		boolean gin = rest == outside || rest == 0;
+		if (pOut && !gin)
+		{
+			return OUT;
+		}
+		int joined = aSolver.solve(component);
+		if (joined >= pDeadwood - rest + MeldSolver.deadwood(1L << pCard))
+		{
+			return 0;
+		}
+		if (!gin)
+		{
+			return OUT;
+		}
+		if (rest == outside && joined == 0)
+		{
+			return OUT | GIN;
+		}
+		if (rest == 0)
+		{
+			long matched = matched();
+			for (long cards = component; cards != 0; cards &= cards - 1)
+			{
+				long card = Long.lowestOneBit(cards);
+				if ((matched & card) == 0 ? MeldSolver.deadwood(card) == joined
+						: MeldSolver.deadwood(card) >= joined && aSolver.solve(component & ~card) == 0)
+				{
+					return OUT | GIN;
+				}
+			}
+		}
+		return OUT;
+	}
+
+	/*
+	 * Solves pCards and fills in, for each of its cards, by how much
+	 * removing it lowers the deadwood, its component and the deadwood of
+	 * its component. The optimal arrangement of a component is that of the
+	 * whole hand restricted to it.
+	 */
+	private int reductions(long pCards)
+	{
+		int deadwood = aSolver.solve(pCards);
+		long matched = matched();
+		aMatched = matched;
+		for (long unmatched = pCards & ~matched; unmatched != 0; unmatched &= unmatched - 1)
+		{
+			int card = Long.numberOfTrailingZeros(unmatched);
+			aReduction[card] = MeldSolver.deadwood(1L << card);
+			aComponents[card] = 1L << card;
+			aComponentDeadwood[card] = aReduction[card];
+		}
+		for (long remaining = matched; remaining != 0;)
+		{
+			long component = aSolver.component(pCards, Long.numberOfTrailingZeros(remaining));
+			int within = MeldSolver.deadwood(component & ~matched);
+			for (long cards = component; cards != 0; cards &= cards - 1)
+			{
+				int card = Long.numberOfTrailingZeros(cards);
+				aComponents[card] = component;
+				aComponentDeadwood[card] = within;
+				if ((matched & (1L << card)) != 0)
+				{
+					aReduction[card] = within - aSolver.solve(component & ~(1L << card));
+				}
+			}
+			remaining &= ~component;
+		}
+		return deadwood;
+	}
+
+	/*
+	 * Whether pCard completes a meld with cards of pHand, and whether one of
+	 * them holds only cards left unmatched by the arrangement of pHand, which
+	 * must be current: adding such a meld is sure to lower the deadwood.
+	 */
+	private int meld(long pHand, int pCard)
+	{
+		long cards = pHand | (1L << pCard);
+		long unmatched = (pHand & ~aMatched) | (1L << pCard);
+		int meld = NO_MELD;
+		for (int i = 0; i < MeldIndex.countMeldsOf(pCard); i++)
+		{
+			long mask = MeldIndex.mask(MeldIndex.meldOf(pCard, i));
+			if ((mask & ~unmatched) == 0)
+			{
+				return UNMATCHED_MELD;
+			}
+			if ((mask & ~cards) == 0)
+			{
+				meld = MELD;
+			}
+		}
+		return meld;
+	}
+
+	/*
+	 * The cards matched by the last solve.
+	 */
+	private long matched()
+	{
+		long matched = 0;
+		for (int i = 0; i < aSolver.getMatchCount(); i++)
+		{
+			matched |= aSolver.getMatch(i);
+		}
+		return matched;
+	}
+}
@@ -0,0 +1,140 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates the deadwood of batches of hands given as card masks (bit
+ * <code>Card.index()</code> set for each card), without creating any
+ * <b>Hand</b> or <b>Card</b>. The deadwood of each hand is the score its
+ * Hand would have after <b>autoMatch()</b>.
+ * <p>
+ * A batch is evaluated in two passes over primitive arrays: a branch-free
+ * first pass that detects, with shifts and masks, the hands that hold no
+ * meld at all (the majority of random hands) and writes their deadwood, then
+ * a pass that solves the others with a <b>MeldSolver</b>. Batches larger than
+ * <b>LEAF_SIZE</b> are split in halves across the cores of the common
+ * fork/join pool, each leaf with its own solver.
+ */
+public final class HandEvaluator
+{
+	public static final int LEAF_SIZE = 1 << 12;
+
+	private static final int SUIT_SIZE = MeldIndex.SUIT_SIZE;
+	private static final long SUIT_MASK = MeldIndex.SUIT_MASK;
+	private static final long RUN_STARTS;
+
+	static
+	{
+		long starts = 0;
+		for (int suit = 0; suit < MeldIndex.NUMBER_OF_SUITS; suit++)
+		{
+			starts |= (SUIT_MASK >>> (Hand.MIN_MATCHED_SIZE - 1)) << (suit * SUIT_SIZE);
+		}
+		RUN_STARTS = starts;
+	}
+
+	private HandEvaluator()
+	{}
+
+	/**
+	 * Computes the deadwood of each hand.
+	 * @param pHands The masks of the hands.
+	 * @param pOut The array in which to write the deadwood of <b>pHands[i]</b> at index i.
+	 * @pre pOut.length >= pHands.length
+	 */
+	public static void deadwood(long[] pHands, int[] pOut)
+	{
+		deadwood(pHands, 0, pHands.length, pOut);
+	}
+
+	/**
+	 * Computes the deadwood of the hands between <b>pFrom</b> (inclusive) and <b>pTo</b> (exclusive).
+	 * @param pHands The masks of the hands.
+	 * @param pFrom The index of the first hand.
+	 * @param pTo The index after the last hand.
+	 * @param pOut The array in which to write the deadwood of <b>pHands[i]</b> at index i.
+	 * @pre pFrom >= 0 && pFrom <= pTo && pTo <= pHands.length && pOut.length >= pTo
+	 */
+	public static void deadwood(long[] pHands, int pFrom, int pTo, int[] pOut)
+	{
+		assert pFrom >= 0 && pFrom <= pTo && pTo <= pHands.length && pOut.length >= pTo;
+		if (pTo - pFrom <= LEAF_SIZE)
+		{
+			evaluate(pHands, pFrom, pTo, pOut, new MeldSolver());
+		}
+		else
+		{
+			ForkJoinPool.commonPool().invoke(new Batch(pHands, pFrom, pTo, pOut));
+		}
+	}
+
+	/*
+	 * The hands with no meld at all are scored by table lookups; -1 marks the
+	 * others for the solver.
+	 */
+	private static void evaluate(long[] pHands, int pFrom, int pTo, int[] pOut, MeldSolver pSolver)
+	{
+		for (int i = pFrom; i < pTo; i++)
+		{
+			long hand = pHands[i];
+			pOut[i] = hasMeld(hand) ? -1 : MeldSolver.deadwood(hand);
+		}
+		for (int i = pFrom; i < pTo; i++)
+		{
+			if (pOut[i] < 0)
+			{
+				pOut[i] = pSolver.solve(pHands[i]);
+			}
+		}
+	}
+
+	/**
+	 * @param pCards A mask of cards.
+	 * @return True if at least one run or group can be made from the cards.
+	 */
+	public static boolean hasMeld(long pCards)
+	{
+		// a run starts at each card followed by the next two ranks of its suit
+		long runs = pCards & (pCards >>> 1) & (pCards >>> 2) & RUN_STARTS;
+		// a group is a rank held in at least three of the four suits
+		long clubs = pCards & SUIT_MASK;
+		long diamonds = (pCards >>> SUIT_SIZE) & SUIT_MASK;
+		long hearts = (pCards >>> (2 * SUIT_SIZE)) & SUIT_MASK;
+		long spades = (pCards >>> (3 * SUIT_SIZE)) & SUIT_MASK;
+		long groups = (clubs & diamonds & (hearts | spades)) | (hearts & spades & (clubs | diamonds));
+		return (runs | groups) != 0;
+	}
+
+	/*
+	 * Splits its range of hands in halves until it is no larger than LEAF_SIZE.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Batch extends RecursiveAction
+	{
+		private final long[] aHands;
+		private final int aFrom;
+		private final int aTo;
+		private final int[] aOut;
+
+		Batch(long[] pHands, int pFrom, int pTo, int[] pOut)
+		{
+			aHands = pHands;
+			aFrom = pFrom;
+			aTo = pTo;
+			aOut = pOut;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (aTo - aFrom <= LEAF_SIZE)
+			{
+				evaluate(aHands, aFrom, aTo, aOut, new MeldSolver());
+				return;
+			}
+			int middle = (aFrom + aTo) >>> 1;
+			invokeAll(new Batch(aHands, aFrom, middle, aOut), new Batch(aHands, middle, aTo, aOut));
+		}
+	}
+}
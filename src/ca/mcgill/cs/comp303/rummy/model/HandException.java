@@ -23,6 +23,17 @@ public class HandException extends RuntimeException
 		super( pMessage );
 	}
 
+	/**
+	 * @param pMessage The exception message.
+	 * @param pStackTrace False to skip filling in the stack trace, for
+	 * failures that are expected often enough that walking the stack
+	 * would cost more than the message is worth.
+	 */
+	public HandException( String pMessage, boolean pStackTrace )
+	{
+		super( pMessage, null, false, pStackTrace );
+	}
+
 	/**
 	 * @param pException The wrapped exception
 	 */
@@ -0,0 +1,136 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * An immutable set of cards, for searches that branch on what a hand would
+ * become: <b>with</b> and <b>without</b> return new values in constant time
+ * and leave this one as it is, so branches can share their common part
+ * without copying. A value is a single 52-bit mask indexed by
+ * <code>Card.index()</code>, so values are compared by their cards. Unlike
+ * a <b>Hand</b>, a value may hold any number of cards, for instance the 11
+ * of a player who has just drawn.
+ * <p>
+ * Values do not keep an arrangement of their cards into matched sets: the
+ * deadwood is computed on demand with the caller's <b>MeldSolver</b>, which
+ * keeps values threadsafe.
+ */
+public final class HandValue
+{
+	public static final HandValue EMPTY = new HandValue(0);
+
+	private final long aCards;
+
+	private HandValue(long pCards)
+	{
+		aCards = pCards;
+	}
+
+	/**
+	 * @param pCards A mask of cards.
+	 * @return The value holding the cards of pCards.
+	 */
+	public static HandValue of(long pCards)
+	{
+		return pCards == 0 ? EMPTY : new HandValue(pCards);
+	}
+
+	/**
+	 * @param pCard A card.
+	 * @return A value with the cards of this one and pCard.
+	 * @throws HandException If the value already contains pCard.
+	 * @pre pCard != null
+	 */
+	public HandValue with(Card pCard)
+	{
+		if (contains(pCard))
+		{
+			throw new HandException("The hand already contains " + pCard + ".");
+		}
+		return new HandValue(aCards | 1L << pCard.index());
+	}
+
+	/**
+	 * @param pCard A card.
+	 * @return A value with the cards of this one but pCard; this value if it does not contain pCard.
+	 * @pre pCard != null
+	 */
+	public HandValue without(Card pCard)
+	{
+		return contains(pCard) ? of(aCards & ~(1L << pCard.index())) : this;
+	}
+
+	/**
+	 * @param pCard A card.
+	 * @return True if the value contains pCard.
+	 * @pre pCard != null
+	 */
+	public boolean contains(Card pCard)
+	{
+		return (aCards & 1L << pCard.index()) != 0;
+	}
+
+	/**
+	 * @return The number of cards in the value.
+	 */
+	public int size()
+	{
+		return Long.bitCount(aCards);
+	}
+
+	/**
+	 * @return The mask of the cards, where bit <code>Card.index()</code> is set for each card.
+	 */
+	public long cardsMask()
+	{
+		return aCards;
+	}
+
+	/**
+	 * @param pSolver The solver to arrange the cards with, left holding the arrangement.
+	 * @return The lowest deadwood of the cards.
+	 */
+	public int deadwood(MeldSolver pSolver)
+	{
+		return pSolver.solve(aCards);
+	}
+
+	/**
+	 * @return A new, unmatched hand with the cards of this value.
+	 * @throws HandException If the value holds more than <b>Hand.HAND_SIZE</b> cards.
+	 */
+	public Hand toHand()
+	{
+		Hand hand = new Hand();
+		for (long cards = aCards; cards != 0; cards &= cards - 1)
+		{
+			hand.add(Card.of(Long.numberOfTrailingZeros(cards)));
+		}
+		return hand;
+	}
+
+	@Override
+	public boolean equals(Object pObject)
+	{
+		return pObject instanceof HandValue && ((HandValue) pObject).aCards == aCards;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Long.hashCode(aCards);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder result = new StringBuilder("[");
+		for (long cards = aCards; cards != 0; cards &= cards - 1)
+		{
+			result.append(Card.of(Long.numberOfTrailingZeros(cards)));
+			if ((cards & cards - 1) != 0)
+			{
+				result.append(", ");
+			}
+		}
+		return result.append(']').toString();
+	}
+}
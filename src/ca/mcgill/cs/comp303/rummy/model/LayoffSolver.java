@@ -0,0 +1,203 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Set;
+
+/**
+ * Computes the best layoffs of a defender when its opponent knocks: the
+ * arrangement of the defender's cards into its own melds and cards laid off
+ * on the knocker's runs and groups that leaves the lowest deadwood.
+ * <p>
+ * The knocker's melds are reduced to two masks: the cards of its runs and the
+ * cards of its groups. The cards that can be laid off from a set of cards are
+ * then found with mask arithmetic: the runs are smeared over the adjacent
+ * cards of the same suit until they stop growing, which chains layoffs, and
+ * each 3-card group accepts its missing card. The defender may break its own
+ * melds to lay off more, so the solver tries every packing of disjoint melds
+ * of the defender's hand and keeps the one with the lowest deadwood.
+ * <p>
+ * The melds of the defender's hand, and the union of the melds from each one
+ * to the last that bounds the search, fill arrays sized for every meld of
+ * the deck and reused by each call to <b>solve</b>. Not threadsafe.
+ */
+public final class LayoffSolver
+{
+	private static final int SUIT_SIZE = MeldIndex.SUIT_SIZE;
+	private static final long LOWEST_RANKS;
+	private static final long HIGHEST_RANKS;
+
+	static
+	{
+		long lowest = 0;
+		for (int suit = 0; suit < MeldIndex.NUMBER_OF_SUITS; suit++)
+		{
+			lowest |= 1L << (suit * SUIT_SIZE);
+		}
+		LOWEST_RANKS = lowest;
+		HIGHEST_RANKS = lowest << (SUIT_SIZE - 1);
+	}
+
+	private final int[] aIds = new int[MeldIndex.NUMBER_OF_MELDS];
+	private final long[] aMelds = new long[MeldIndex.NUMBER_OF_MELDS];
+	private final long[] aCovers = new long[MeldIndex.NUMBER_OF_MELDS + 1];
+	private int aMeldCount;
+	private long aRuns;
+	private long aGroupGaps;
+
+	private int aDeadwood;
+	private long aLayoffs;
+	private long aMatched;
+
+	/**
+	 * Finds the layoffs that minimize the deadwood of the defender.
+	 * @param pKnockerMelds The matched sets of the knocker, as returned by <b>Hand.getMatchedSets()</b>.
+	 * @param pDefender The mask of the cards of the defender.
+	 * @return The deadwood of the defender after laying off.
+	 */
+	public int solve(Set<ICardSet> pKnockerMelds, long pDefender)
+	{
+		long runs = 0;
+		long groups = 0;
+		for (ICardSet meld : pKnockerMelds)
+		{
+			long mask = 0;
+			if (meld instanceof BitCardSet)
+			{
+				mask = ((BitCardSet) meld).cardsMask();
+			}
+			else
+			{
+				for (Card card : meld)
+				{
+					mask |= 1L << card.index();
+				}
+			}
+			if (meld.isRun())
+			{
+				runs |= mask;
+			}
+			else
+			{
+				groups |= mask;
+			}
+		}
+		return solve(runs, groups, pDefender);
+	}
+
+	/**
+	 * Finds the layoffs that minimize the deadwood of the defender.
+	 * @param pRuns The mask of the cards of the knocker's runs.
+	 * @param pGroups The mask of the cards of the knocker's groups.
+	 * @param pDefender The mask of the cards of the defender.
+	 * @return The deadwood of the defender after laying off.
+	 * @pre (pRuns & pGroups) == 0 && ((pRuns | pGroups) & pDefender) == 0
+	 */
+	public int solve(long pRuns, long pGroups, long pDefender)
+	{
+		aRuns = pRuns;
+		aGroupGaps = groupGaps(pGroups);
+		aMeldCount = MeldIndex.melds(pDefender, aIds);
+		aCovers[aMeldCount] = 0;
+		for (int i = aMeldCount - 1; i >= 0; i--)
+		{
+			aMelds[i] = MeldIndex.mask(aIds[i]);
+			aCovers[i] = aCovers[i + 1] | aMelds[i];
+		}
+		aDeadwood = Integer.MAX_VALUE;
+		search(pDefender, 0, 0);
+		return aDeadwood;
+	}
+
+	/**
+	 * @return The deadwood found by the last call to <b>solve</b>.
+	 */
+	public int getDeadwood()
+	{
+		return aDeadwood;
+	}
+
+	/**
+	 * @return The mask of the cards laid off in the best arrangement.
+	 */
+	public long getLayoffs()
+	{
+		return aLayoffs;
+	}
+
+	/**
+	 * @return The mask of the cards the defender keeps in its own melds in the best arrangement.
+	 */
+	public long getMatched()
+	{
+		return aMatched;
+	}
+
+	/**
+	 * Finds all the cards that can be laid off, directly or after other layoffs.
+	 * @param pRuns The mask of the cards of the knocker's runs.
+	 * @param pGroups The mask of the cards of the knocker's groups.
+	 * @param pCards The mask of the cards available to lay off.
+	 * @return The mask of the cards of <b>pCards</b> that can be laid off.
+	 */
+	public static long layoffs(long pRuns, long pGroups, long pCards)
+	{
+		return extend(pRuns, groupGaps(pGroups), pCards);
+	}
+
+	private static long extend(long pRuns, long pGroupGaps, long pCards)
+	{
+		long runs = pRuns;
+		long previous;
+		do
+		{
+			previous = runs;
+			runs |= (((runs << 1) & ~LOWEST_RANKS) | ((runs >>> 1) & ~HIGHEST_RANKS)) & pCards;
+		}
+		while (runs != previous);
+		return (runs & ~pRuns) | (pGroupGaps & pCards);
+	}
+
+	/*
+	 * The card missing from each 3-card group: the card of a suit whose rank
+	 * is held in the three other suits.
+	 */
+	private static long groupGaps(long pGroups)
+	{
+		long clubs = pGroups & MeldIndex.SUIT_MASK;
+		long diamonds = (pGroups >>> SUIT_SIZE) & MeldIndex.SUIT_MASK;
+		long hearts = (pGroups >>> (2 * SUIT_SIZE)) & MeldIndex.SUIT_MASK;
+		long spades = (pGroups >>> (3 * SUIT_SIZE)) & MeldIndex.SUIT_MASK;
+		return (diamonds & hearts & spades & ~clubs) | (clubs & hearts & spades & ~diamonds) << SUIT_SIZE
+				| (clubs & diamonds & spades & ~hearts) << (2 * SUIT_SIZE)
+				| (clubs & diamonds & hearts & ~spades) << (3 * SUIT_SIZE);
+	}
+
+	/*
+	 * Either the defender keeps meld pNext in its hand, if its cards are still
+	 * free, or it does not; once all melds are decided, the free cards are laid
+	 * off. Keeping melds only shrinks the free cards, and so the layoffs, which
+	 * bounds the deadwood of a branch from below: the free cards that no
+	 * remaining meld covers and that cannot be laid off now never will be.
+	 */
+	private void search(long pFree, long pMatched, int pNext)
+	{
+		long layoffs = extend(aRuns, aGroupGaps, pFree);
+		int bound = MeldSolver.deadwood(pFree & ~layoffs & ~aCovers[pNext]);
+		if (bound >= aDeadwood)
+		{
+			return;
+		}
+		if (pNext == aMeldCount)
+		{
+			aDeadwood = bound;
+			aLayoffs = layoffs;
+			aMatched = pMatched;
+			return;
+		}
+		long meld = aMelds[pNext];
+		if ((meld & ~pFree) == 0)
+		{
+			search(pFree & ~meld, pMatched | meld, pNext + 1);
+		}
+		search(pFree, pMatched, pNext + 1);
+	}
+}
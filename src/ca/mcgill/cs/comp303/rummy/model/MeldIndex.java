@@ -0,0 +1,265 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * The universe of legal runs and groups of a 52-card deck, built once when
+ * the class is loaded. Each meld has an id and is represented as a mask of
+ * card indices (bit <code>Card.index()</code> is set for each of its cards).
+ * <p>
+ * Runs come first: 66 per suit (every sequence of 3 to 13 consecutive ranks),
+ * with ids <code>suit*66 + offset</code> ordered by lowest rank then by length.
+ * Groups follow: 5 per rank (the four 3-card groups, then the 4-card group).
+ * Tables map every 13-bit suit pattern to the runs it contains and every
+ * 4-bit rank pattern to the groups it contains, so validating a meld or
+ * listing the melds of a hand are table lookups.
+ */
+public final class MeldIndex
+{
+	public static final int SUIT_SIZE = 13;
+	public static final int NUMBER_OF_SUITS = 4;
+	public static final long SUIT_MASK = (1L << SUIT_SIZE) - 1;
+	public static final int RUNS_PER_SUIT = (SUIT_SIZE - 1) * (SUIT_SIZE - 2) / 2;
+	public static final int GROUPS_PER_RANK = NUMBER_OF_SUITS + 1;
+	public static final int NUMBER_OF_RUNS = RUNS_PER_SUIT * NUMBER_OF_SUITS;
+	public static final int NUMBER_OF_MELDS = NUMBER_OF_RUNS + GROUPS_PER_RANK * SUIT_SIZE;
+
+	private static final int MIN_MATCHED_SIZE = Hand.MIN_MATCHED_SIZE;
+	private static final int FULL_GROUP = NUMBER_OF_SUITS;
+	private static final long RANK_MASK;
+	private static final int[] EMPTY = new int[0];
+
+	private static final long[] MELDS = new long[NUMBER_OF_MELDS];
+	private static final int[][] MELDS_OF_CARD = new int[Card.NUMBER_OF_CARDS][];
+	private static final int[][] RUNS_OF_PATTERN = new int[1 << SUIT_SIZE][];
+	private static final int[] RUN_OF_PATTERN = new int[1 << SUIT_SIZE];
+	private static final int[][] GROUPS_OF_PATTERN = new int[1 << NUMBER_OF_SUITS][];
+
+	static
+	{
+		long rankMask = 0;
+		for (int suit = 0; suit < NUMBER_OF_SUITS; suit++)
+		{
+			rankMask |= 1L << (suit * SUIT_SIZE);
+		}
+		RANK_MASK = rankMask;
+
+		// runs of the first suit, as 13-bit patterns
+		long[] runs = new long[RUNS_PER_SUIT];
+		int offset = 0;
+		for (int start = 0; start <= SUIT_SIZE - MIN_MATCHED_SIZE; start++)
+		{
+			for (int length = MIN_MATCHED_SIZE; start + length <= SUIT_SIZE; length++)
+			{
+				runs[offset++] = ((1L << length) - 1) << start;
+			}
+		}
+		for (int suit = 0; suit < NUMBER_OF_SUITS; suit++)
+		{
+			for (int run = 0; run < RUNS_PER_SUIT; run++)
+			{
+				MELDS[suit * RUNS_PER_SUIT + run] = runs[run] << (suit * SUIT_SIZE);
+			}
+		}
+		for (int rank = 0; rank < SUIT_SIZE; rank++)
+		{
+			int first = NUMBER_OF_RUNS + rank * GROUPS_PER_RANK;
+			for (int missing = 0; missing < NUMBER_OF_SUITS; missing++)
+			{
+				MELDS[first + missing] = (RANK_MASK & ~(1L << (missing * SUIT_SIZE))) << rank;
+			}
+			MELDS[first + FULL_GROUP] = RANK_MASK << rank;
+		}
+
+		for (int pattern = 0; pattern < RUNS_OF_PATTERN.length; pattern++)
+		{
+			RUN_OF_PATTERN[pattern] = -1;
+			int count = 0;
+			for (int run = 0; run < RUNS_PER_SUIT; run++)
+			{
+				if ((runs[run] & ~pattern) == 0)
+				{
+					count++;
+				}
+				if (runs[run] == pattern)
+				{
+					RUN_OF_PATTERN[pattern] = run;
+				}
+			}
+			RUNS_OF_PATTERN[pattern] = count == 0 ? EMPTY : new int[count];
+			count = 0;
+			for (int run = 0; run < RUNS_PER_SUIT; run++)
+			{
+				if ((runs[run] & ~pattern) == 0)
+				{
+					RUNS_OF_PATTERN[pattern][count++] = run;
+				}
+			}
+		}
+
+		for (int pattern = 0; pattern < GROUPS_OF_PATTERN.length; pattern++)
+		{
+			int size = Integer.bitCount(pattern);
+			if (size < MIN_MATCHED_SIZE)
+			{
+				GROUPS_OF_PATTERN[pattern] = EMPTY;
+			}
+			else if (size == MIN_MATCHED_SIZE)
+			{
+				GROUPS_OF_PATTERN[pattern] = new int[] { Integer.numberOfTrailingZeros(~pattern) };
+			}
+			else
+			{
+				GROUPS_OF_PATTERN[pattern] = new int[] { FULL_GROUP, 0, 1, 2, 3 };
+			}
+		}
+
+		for (int card = 0; card < Card.NUMBER_OF_CARDS; card++)
+		{
+			int count = 0;
+			for (int id = 0; id < NUMBER_OF_MELDS; id++)
+			{
+				if ((MELDS[id] & (1L << card)) != 0)
+				{
+					count++;
+				}
+			}
+			MELDS_OF_CARD[card] = new int[count];
+			count = 0;
+			for (int id = 0; id < NUMBER_OF_MELDS; id++)
+			{
+				if ((MELDS[id] & (1L << card)) != 0)
+				{
+					MELDS_OF_CARD[card][count++] = id;
+				}
+			}
+		}
+	}
+
+	private MeldIndex()
+	{}
+
+	/**
+	 * @param pId The id of a meld.
+	 * @return The mask of the cards of the meld.
+	 * @pre pId >= 0 && pId < NUMBER_OF_MELDS
+	 */
+	public static long mask(int pId)
+	{
+		return MELDS[pId];
+	}
+
+	/**
+	 * @param pId The id of a meld.
+	 * @return true if the meld is a run, false if it is a group.
+	 * @pre pId >= 0 && pId < NUMBER_OF_MELDS
+	 */
+	public static boolean isRun(int pId)
+	{
+		return pId < NUMBER_OF_RUNS;
+	}
+
+	/**
+	 * Looks up the meld made of exactly the cards in <b>pCards</b>.
+	 * @param pCards A mask of cards.
+	 * @return The id of the meld, or -1 if the cards are not a valid run or group.
+	 */
+	public static int find(long pCards)
+	{
+		if (Long.bitCount(pCards) < MIN_MATCHED_SIZE)
+		{
+			return -1;
+		}
+		int lowest = Long.numberOfTrailingZeros(pCards);
+		int suit = lowest / SUIT_SIZE;
+		int rank = lowest % SUIT_SIZE;
+		long pattern = pCards >>> (suit * SUIT_SIZE);
+		if (pattern <= SUIT_MASK)
+		{
+			int run = RUN_OF_PATTERN[(int) pattern];
+			return run < 0 ? -1 : suit * RUNS_PER_SUIT + run;
+		}
+		if ((pCards & ~(RANK_MASK << rank)) != 0)
+		{
+			return -1;
+		}
+		int[] groups = GROUPS_OF_PATTERN[suitPattern(pCards, rank)];
+		return NUMBER_OF_RUNS + rank * GROUPS_PER_RANK + groups[0];
+	}
+
+	/**
+	 * Lists the ids of all the melds that can be made from the cards in <b>pCards</b>:
+	 * the runs of each suit, then the groups of each rank.
+	 * @param pCards A mask of cards.
+	 * @param pIds The array in which to write the ids.
+	 * @return The number of ids written.
+	 * @pre pIds.length >= countMelds(pCards)
+	 */
+	public static int melds(long pCards, int[] pIds)
+	{
+		int count = 0;
+		for (int suit = 0; suit < NUMBER_OF_SUITS; suit++)
+		{
+			int[] runs = RUNS_OF_PATTERN[(int) ((pCards >>> (suit * SUIT_SIZE)) & SUIT_MASK)];
+			for (int run : runs)
+			{
+				pIds[count++] = suit * RUNS_PER_SUIT + run;
+			}
+		}
+		for (int rank = 0; rank < SUIT_SIZE; rank++)
+		{
+			int[] groups = GROUPS_OF_PATTERN[suitPattern(pCards, rank)];
+			for (int group : groups)
+			{
+				pIds[count++] = NUMBER_OF_RUNS + rank * GROUPS_PER_RANK + group;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param pCards A mask of cards.
+	 * @return The number of melds that can be made from the cards in <b>pCards</b>.
+	 */
+	public static int countMelds(long pCards)
+	{
+		int count = 0;
+		for (int suit = 0; suit < NUMBER_OF_SUITS; suit++)
+		{
+			count += RUNS_OF_PATTERN[(int) ((pCards >>> (suit * SUIT_SIZE)) & SUIT_MASK)].length;
+		}
+		for (int rank = 0; rank < SUIT_SIZE; rank++)
+		{
+			count += GROUPS_OF_PATTERN[suitPattern(pCards, rank)].length;
+		}
+		return count;
+	}
+
+	/**
+	 * @param pCard The index of a card.
+	 * @return The number of legal melds that contain the card.
+	 */
+	public static int countMeldsOf(int pCard)
+	{
+		return MELDS_OF_CARD[pCard].length;
+	}
+
+	/**
+	 * @param pCard The index of a card.
+	 * @param pIndex The position of the meld in the list of melds of the card.
+	 * @return The id of the meld, in increasing order of ids.
+	 * @pre pIndex >= 0 && pIndex < countMeldsOf(pCard)
+	 */
+	public static int meldOf(int pCard, int pIndex)
+	{
+		return MELDS_OF_CARD[pCard][pIndex];
+	}
+
+	/*
+	 * Gathers the cards of rank pRank into a 4-bit pattern indexed by suit.
+	 */
+	private static int suitPattern(long pCards, int pRank)
+	{
+		long cards = (pCards >>> pRank) & RANK_MASK;
+		return (int) ((cards | (cards >>> (SUIT_SIZE - 1)) | (cards >>> (2 * SUIT_SIZE - 2))
+				| (cards >>> (3 * SUIT_SIZE - 3))) & ((1 << NUMBER_OF_SUITS) - 1));
+	}
+}
@@ -0,0 +1,213 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+/**
+ * Computes the arrangement of cards into runs and groups that results
+ * in the lowest amount of points for unmatched cards (deadwood).
+ * <p>
+ * Cards are represented as a 52-bit mask where bit <code>suit*13 + rank</code>
+ * is set for every card present, that is bit <code>Card.index()</code>.
+ * The solver looks up the runs and groups available in the cards in the
+ * <b>MeldIndex</b> and splits the cards into components: sets of cards
+ * linked by overlapping melds, which can be arranged independently of each
+ * other. Each component is solved with a depth-first search that always
+ * branches on the lowest card that can still be matched and prunes any branch
+ * whose deadwood already exceeds the best arrangement found. Ties are broken
+ * in favour of the arrangement with the fewest matched sets.
+ * <p>
+ * Since a component is closed (every meld that touches it lies inside it),
+ * solving a component on its own gives the same matched sets as solving the
+ * whole hand, which is what lets <b>Hand</b> update its arrangement
+ * incrementally.
+ * <p>
+ * A solver keeps its scratch arrays between calls so that solving does not
+ * allocate. Not threadsafe: use one solver per thread.
+ */
+public final class MeldSolver
+{
+	private static final int SUIT_SIZE = MeldIndex.SUIT_SIZE;
+	private static final int NUMBER_OF_SUITS = MeldIndex.NUMBER_OF_SUITS;
+	private static final long SUIT_MASK = MeldIndex.SUIT_MASK;
+	private static final int MAX_DEPTH = Card.NUMBER_OF_CARDS / Hand.MIN_MATCHED_SIZE + 1;
+	private static final int FACE_VALUE = 10;
+	private static final int[] SUIT_POINTS = new int[1 << SUIT_SIZE];
+
+	static
+	{
+		for (int pattern = 1; pattern < SUIT_POINTS.length; pattern++)
+		{
+			int lowest = Integer.numberOfTrailingZeros(pattern);
+			SUIT_POINTS[pattern] = SUIT_POINTS[pattern & (pattern - 1)] + Math.min(lowest + 1, FACE_VALUE);
+		}
+	}
+
+	private final int[] aIds = new int[MeldIndex.NUMBER_OF_MELDS];
+	private final long[] aMelds = new long[MeldIndex.NUMBER_OF_MELDS];
+	private int aMeldCount;
+	private long aCover;
+
+	private final int[] aStack = new int[MAX_DEPTH];
+	private final int[] aBest = new int[MAX_DEPTH];
+	private int aBestCount;
+	private int aBestDeadwood;
+
+	private final int[] aMatches = new int[MAX_DEPTH];
+	private int aMatchCount;
+	private int aDeadwood;
+
+	/**
+	 * Finds the optimal arrangement of the cards in <b>pCards</b>.
+	 * The matched sets of the arrangement can then be read with
+	 * <b>getMatchCount()</b> and <b>getMatch(int)</b>.
+	 * @param pCards The mask of the cards to arrange.
+	 * @return The deadwood of the optimal arrangement.
+	 */
+	public int solve(long pCards)
+	{
+		enumerateMelds(pCards);
+		aMatchCount = 0;
+		aDeadwood = deadwood(pCards & ~aCover);
+		long remaining = aCover;
+		while (remaining != 0)
+		{
+			long component = closure(Long.lowestOneBit(remaining));
+			remaining &= ~component;
+			aBestCount = 0;
+			aBestDeadwood = deadwood(component);
+			search(component, 0, 0);
+			System.arraycopy(aBest, 0, aMatches, aMatchCount, aBestCount);
+			aMatchCount += aBestCount;
+			aDeadwood += aBestDeadwood;
+		}
+		return aDeadwood;
+	}
+
+	/**
+	 * Finds the component of <b>pCard</b> in <b>pCards</b>: the cards that can
+	 * be reached from it through melds that fit in <b>pCards</b>. Solving the
+	 * component on its own gives the same matched sets as solving all of
+	 * <b>pCards</b>, restricted to the component.
+	 * @param pCards The mask of the cards.
+	 * @param pCard The index of a card of <b>pCards</b>.
+	 * @return The mask of the component, which contains at least <b>pCard</b>.
+	 */
+	public long component(long pCards, int pCard)
+	{
+		enumerateMelds(pCards);
+		return closure(1L << pCard);
+	}
+
+	/**
+	 * @return The deadwood found by the last call to <b>solve</b>.
+	 */
+	public int getDeadwood()
+	{
+		return aDeadwood;
+	}
+
+	/**
+	 * @return The number of matched sets in the last optimal arrangement.
+	 */
+	public int getMatchCount()
+	{
+		return aMatchCount;
+	}
+
+	/**
+	 * @param pIndex The index of the matched set, between 0 and <b>getMatchCount()</b>.
+	 * @return The mask of the matched set.
+	 */
+	public long getMatch(int pIndex)
+	{
+		return MeldIndex.mask(getMatchId(pIndex));
+	}
+
+	/**
+	 * @param pIndex The index of the matched set, between 0 and <b>getMatchCount()</b>.
+	 * @return The <b>MeldIndex</b> id of the matched set.
+	 */
+	public int getMatchId(int pIndex)
+	{
+		assert pIndex >= 0 && pIndex < aMatchCount;
+		return aMatches[pIndex];
+	}
+
+	/**
+	 * @param pCards A mask of cards.
+	 * @return The total point value of the cards in <b>pCards</b>.
+	 */
+	public static int deadwood(long pCards)
+	{
+		int points = 0;
+		for (int suit = 0; suit < NUMBER_OF_SUITS; suit++)
+		{
+			points += SUIT_POINTS[(int) ((pCards >>> (suit * SUIT_SIZE)) & SUIT_MASK)];
+		}
+		return points;
+	}
+
+	private void enumerateMelds(long pCards)
+	{
+		aMeldCount = MeldIndex.melds(pCards, aIds);
+		aCover = 0;
+		for (int i = 0; i < aMeldCount; i++)
+		{
+			aMelds[i] = MeldIndex.mask(aIds[i]);
+			aCover |= aMelds[i];
+		}
+	}
+
+	/*
+	 * Grows pCards with every enumerated meld that touches it, until no meld
+	 * crosses its boundary.
+	 */
+	private long closure(long pCards)
+	{
+		long closure = pCards;
+		long previous;
+		do
+		{
+			previous = closure;
+			for (int i = 0; i < aMeldCount; i++)
+			{
+				if ((aMelds[i] & closure) != 0)
+				{
+					closure |= aMelds[i];
+				}
+			}
+		}
+		while (closure != previous);
+		return closure;
+	}
+
+	/*
+	 * Either the lowest card that can still be matched is part of one of the
+	 * melds that fit in the remaining cards, or it is deadwood.
+	 */
+	private void search(long pRemaining, int pDeadwood, int pDepth)
+	{
+		long matchable = pRemaining & aCover;
+		int bound = pDeadwood + deadwood(pRemaining & ~aCover);
+		if (bound > aBestDeadwood || (bound == aBestDeadwood && pDepth >= aBestCount))
+		{
+			return;
+		}
+		if (matchable == 0)
+		{
+			aBestDeadwood = bound;
+			aBestCount = pDepth;
+			System.arraycopy(aStack, 0, aBest, 0, pDepth);
+			return;
+		}
+		long card = Long.lowestOneBit(matchable);
+		for (int i = 0; i < aMeldCount; i++)
+		{
+			long meld = aMelds[i];
+			if ((meld & card) != 0 && (meld & ~pRemaining) == 0)
+			{
+				aStack[pDepth] = aIds[i];
+				search(pRemaining & ~meld, pDeadwood, pDepth + 1);
+			}
+		}
+		search(pRemaining & ~card, pDeadwood + deadwood(card), pDepth);
+	}
+}
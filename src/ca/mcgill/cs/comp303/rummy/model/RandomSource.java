@@ -0,0 +1,76 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A source of random numbers for shuffling. Adapts the different random
+ * generators of the JDK so that the Deck does not depend on any one of them.
+ */
+public abstract class RandomSource
+{
+	/**
+	 * @param pBound The upper bound (exclusive).
+	 * @return A uniformly distributed random integer between 0 (inclusive) and pBound.
+	 * @pre pBound > 0
+	 */
+	public abstract int nextInt(int pBound);
+
+	/**
+	 * @param pRandom A random generator, possibly seeded.
+	 * @return A source drawing from pRandom. Threadsafe if pRandom is.
+	 */
+	public static RandomSource of(final Random pRandom)
+	{
+		return new RandomSource()
+		{
+			@Override
+			public int nextInt(int pBound)
+			{
+				return pRandom.nextInt(pBound);
+			}
+		};
+	}
+
+	/**
+	 * @param pRandom A splittable random generator.
+	 * @return A source drawing from pRandom. Not threadsafe.
+	 */
+	public static RandomSource of(final SplittableRandom pRandom)
+	{
+		return new RandomSource()
+		{
+			@Override
+			public int nextInt(int pBound)
+			{
+				return pRandom.nextInt(pBound);
+			}
+		};
+	}
+
+	/**
+	 * @param pSeed The seed.
+	 * @return A new source that always produces the same sequence for the same seed. Not threadsafe.
+	 */
+	public static RandomSource seeded(long pSeed)
+	{
+		return of(new SplittableRandom(pSeed));
+	}
+
+	/**
+	 * @return A source drawing from the random generator of the current thread.
+	 * Threadsafe, and uncontended.
+	 */
+	public static RandomSource threadLocal()
+	{
+		return new RandomSource()
+		{
+			@Override
+			public int nextInt(int pBound)
+			{
+				return ThreadLocalRandom.current().nextInt(pBound);
+			}
+		};
+	}
+}
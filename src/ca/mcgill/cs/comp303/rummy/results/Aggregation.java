@@ -0,0 +1,218 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+import java.util.Arrays;
+
+/**
+ * The result of a <b>ResultsQuery</b>: for each value of the column the
+ * rows were grouped by, the number of rows that passed the filters and the
+ * sum, lowest and highest value of the aggregated column among them. Each
+ * leaf task of a query fills its own instance over a dense range of
+ * groups, and instances are merged as the tasks join.
+ */
+public final class Aggregation
+{
+	private final long aFirstGroup;
+	private final long[] aCounts;
+	private final long[] aSums;
+	private final long[] aMins;
+	private final long[] aMaxes;
+	private long aScannedChunks;
+	private long aSkippedChunks;
+
+	/**
+	 * @param pFirstGroup The lowest group.
+	 * @param pGroups The number of groups, from pFirstGroup on.
+	 */
+	Aggregation(long pFirstGroup, int pGroups)
+	{
+		aFirstGroup = pFirstGroup;
+		aCounts = new long[pGroups];
+		aSums = new long[pGroups];
+		aMins = new long[pGroups];
+		aMaxes = new long[pGroups];
+		Arrays.fill(aMins, Long.MAX_VALUE);
+		Arrays.fill(aMaxes, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Adds a row.
+	 * @param pGroup The index of the group of the row, from the lowest group.
+	 * @param pValue The value of the aggregated column in the row.
+	 */
+	void add(int pGroup, long pValue)
+	{
+		aCounts[pGroup]++;
+		aSums[pGroup] += pValue;
+		aMins[pGroup] = Math.min(aMins[pGroup], pValue);
+		aMaxes[pGroup] = Math.max(aMaxes[pGroup], pValue);
+	}
+
+	/**
+	 * Adds rows that all have a value of 0, when no column is aggregated.
+	 * @param pGroup The index of the group of the rows, from the lowest group.
+	 * @param pRows The number of rows.
+	 */
+	void addRows(int pGroup, long pRows)
+	{
+		if (pRows > 0)
+		{
+			aCounts[pGroup] += pRows;
+			aMins[pGroup] = Math.min(aMins[pGroup], 0);
+			aMaxes[pGroup] = Math.max(aMaxes[pGroup], 0);
+		}
+	}
+
+	/**
+	 * Records that a chunk was scanned, or skipped on its statistics.
+	 * @param pScanned True if the rows of the chunk were read.
+	 */
+	void recordChunk(boolean pScanned)
+	{
+		if (pScanned)
+		{
+			aScannedChunks++;
+		}
+		else
+		{
+			aSkippedChunks++;
+		}
+	}
+
+	/**
+	 * Adds the rows of pOther to these.
+	 * @param pOther The aggregation of other chunks, over the same groups.
+	 * @return This object.
+	 */
+	Aggregation merge(Aggregation pOther)
+	{
+		for (int i = 0; i < aCounts.length; i++)
+		{
+			aCounts[i] += pOther.aCounts[i];
+			aSums[i] += pOther.aSums[i];
+			aMins[i] = Math.min(aMins[i], pOther.aMins[i]);
+			aMaxes[i] = Math.max(aMaxes[i], pOther.aMaxes[i]);
+		}
+		aScannedChunks += pOther.aScannedChunks;
+		aSkippedChunks += pOther.aSkippedChunks;
+		return this;
+	}
+
+	/**
+	 * @return The groups that hold at least one row, in increasing order.
+	 */
+	public long[] getGroups()
+	{
+		int groups = 0;
+		for (long count : aCounts)
+		{
+			groups += count > 0 ? 1 : 0;
+		}
+		long[] result = new long[groups];
+		groups = 0;
+		for (int i = 0; i < aCounts.length; i++)
+		{
+			if (aCounts[i] > 0)
+			{
+				result[groups++] = aFirstGroup + i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param pGroup A group.
+	 * @return The number of rows of the group.
+	 */
+	public long getCount(long pGroup)
+	{
+		int index = index(pGroup);
+		return index < 0 ? 0 : aCounts[index];
+	}
+
+	/**
+	 * @param pGroup A group.
+	 * @return The sum of the aggregated column over the rows of the group.
+	 */
+	public long getSum(long pGroup)
+	{
+		int index = index(pGroup);
+		return index < 0 ? 0 : aSums[index];
+	}
+
+	/**
+	 * @param pGroup A group.
+	 * @return The mean of the aggregated column over the rows of the group, or NaN if it has none.
+	 */
+	public double getMean(long pGroup)
+	{
+		long count = getCount(pGroup);
+		return count == 0 ? Double.NaN : getSum(pGroup) / (double) count;
+	}
+
+	/**
+	 * @param pGroup A group.
+	 * @return The lowest value of the aggregated column in the group, or Long.MAX_VALUE if it has no rows.
+	 */
+	public long getMin(long pGroup)
+	{
+		int index = index(pGroup);
+		return index < 0 ? Long.MAX_VALUE : aMins[index];
+	}
+
+	/**
+	 * @param pGroup A group.
+	 * @return The highest value of the aggregated column in the group, or Long.MIN_VALUE if it has no rows.
+	 */
+	public long getMax(long pGroup)
+	{
+		int index = index(pGroup);
+		return index < 0 ? Long.MIN_VALUE : aMaxes[index];
+	}
+
+	/**
+	 * @return The number of rows of all the groups.
+	 */
+	public long getTotalCount()
+	{
+		long total = 0;
+		for (long count : aCounts)
+		{
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return The number of chunks whose rows were read.
+	 */
+	public long getScannedChunks()
+	{
+		return aScannedChunks;
+	}
+
+	/**
+	 * @return The number of chunks skipped because their statistics excluded them.
+	 */
+	public long getSkippedChunks()
+	{
+		return aSkippedChunks;
+	}
+
+	private int index(long pGroup)
+	{
+		long index = pGroup - aFirstGroup;
+		return index >= 0 && index < aCounts.length ? (int) index : -1;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder result = new StringBuilder();
+		for (long group : getGroups())
+		{
+			result.append(group).append(": ").append(getCount(group)).append(" rows, mean ")
+					.append(String.format("%.3f", getMean(group))).append(System.lineSeparator());
+		}
+		return result.toString();
+	}
+}
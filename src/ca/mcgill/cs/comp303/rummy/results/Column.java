@@ -0,0 +1,33 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+/**
+ * The fields of a row of a results store, one row per round played. Each
+ * field is stored in its own column file, as a signed big-endian integer
+ * of <b>getWidth()</b> bytes.
+ */
+public enum Column
+{
+	SEED(8), GAME(8), DEALER(1), FIRST_STRATEGY(1), SECOND_STRATEGY(1), WINNER(1), KNOCKER(1), KNOCKER_STRATEGY(1),
+	KNOCK_TYPE(1), KNOCKER_DEADWOOD(1), DEFENDER_DEADWOOD(1), TURNS(2), POINTS(2);
+
+	// the values of KNOCK_TYPE
+	public static final int NO_KNOCK = 0;
+	public static final int KNOCK = 1;
+	public static final int GIN = 2;
+	public static final int UNDERCUT = 3;
+
+	private final int aWidth;
+
+	private Column(int pWidth)
+	{
+		aWidth = pWidth;
+	}
+
+	/**
+	 * @return The number of bytes of a value of the column.
+	 */
+	public int getWidth()
+	{
+		return aWidth;
+	}
+}
@@ -0,0 +1,140 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The layout of a results store on disk, shared by the writer and the store.
+ * <p>
+ * A store is a directory holding, for each <b>Column</b>, a file of its
+ * values back to back, <code>seed.column</code> and so on, and a file of
+ * statistics, <code>seed.stats</code>, holding the lowest then the highest
+ * value of each chunk of <b>CHUNK_ROWS</b> rows as two longs. The names of
+ * the strategies, which the strategy columns hold the index of, are the
+ * lines of <code>strategies.txt</code>.
+ */
+final class ResultsFormat
+{
+	// 32 KB of the widest column, so the values a scan decodes stay in cache
+	static final int CHUNK_ROWS = 1 << 12;
+	static final int STATS_ENTRY = 2 * Long.SIZE / Byte.SIZE;
+	// chunks mapped together, at most 1 GB of the widest column
+	static final int REGION_CHUNKS = 1 << 15;
+
+	private static final String COLUMN_SUFFIX = ".column";
+	private static final String STATS_SUFFIX = ".stats";
+	private static final String STRATEGIES = "strategies.txt";
+
+	private ResultsFormat()
+	{}
+
+	/**
+	 * @param pDirectory The directory of a store.
+	 * @param pColumn A column.
+	 * @return The path of the values of the column.
+	 */
+	static Path column(Path pDirectory, Column pColumn)
+	{
+		return pDirectory.resolve(pColumn.name().toLowerCase(Locale.ROOT) + COLUMN_SUFFIX);
+	}
+
+	/**
+	 * @param pDirectory The directory of a store.
+	 * @param pColumn A column.
+	 * @return The path of the statistics of the chunks of the column.
+	 */
+	static Path stats(Path pDirectory, Column pColumn)
+	{
+		return pDirectory.resolve(pColumn.name().toLowerCase(Locale.ROOT) + STATS_SUFFIX);
+	}
+
+	/**
+	 * @param pDirectory The directory of a store.
+	 * @return The path of the names of the strategies.
+	 */
+	static Path strategies(Path pDirectory)
+	{
+		return pDirectory.resolve(STRATEGIES);
+	}
+
+	/**
+	 * @param pDirectory The directory of a store.
+	 * @return The names of the strategies of the store; empty if it has none.
+	 * @throws IOException If the names cannot be read.
+	 */
+	static List<String> readStrategies(Path pDirectory) throws IOException
+	{
+		Path strategies = strategies(pDirectory);
+		if (!Files.exists(strategies))
+		{
+			return new ArrayList<String>();
+		}
+		return new ArrayList<String>(Files.readAllLines(strategies, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param pDirectory The directory of a store.
+	 * @return The number of rows of every column, ignoring the values of a
+	 * row, or of a full chunk, that was not written to all the columns.
+	 * @throws IOException If the size of a column cannot be read.
+	 */
+	static long rows(Path pDirectory) throws IOException
+	{
+		long rows = Long.MAX_VALUE;
+		long chunks = Long.MAX_VALUE;
+		for (Column column : Column.values())
+		{
+			Path path = column(pDirectory, column);
+			rows = Math.min(rows, Files.exists(path) ? Files.size(path) / column.getWidth() : 0);
+			path = stats(pDirectory, column);
+			chunks = Math.min(chunks, Files.exists(path) ? Files.size(path) / STATS_ENTRY : 0);
+		}
+		return chunks < rows / CHUNK_ROWS ? chunks * CHUNK_ROWS : rows;
+	}
+
+	/**
+	 * Appends a value to a buffer.
+	 * @param pBuffer The buffer to put the value to.
+	 * @param pWidth The width of the value, in bytes.
+	 * @param pValue The value.
+	 */
+	static void put(ByteBuffer pBuffer, int pWidth, long pValue)
+	{
+		switch (pWidth)
+		{
+		case 1:
+			pBuffer.put((byte) pValue);
+			break;
+		case 2:
+			pBuffer.putShort((short) pValue);
+			break;
+		default:
+			pBuffer.putLong(pValue);
+		}
+	}
+
+	/**
+	 * @param pBuffer The buffer to get the value from.
+	 * @param pWidth The width of the value, in bytes.
+	 * @param pIndex The index of the value, in values from the start of pBuffer.
+	 * @return The value.
+	 */
+	static long get(ByteBuffer pBuffer, int pWidth, int pIndex)
+	{
+		switch (pWidth)
+		{
+		case 1:
+			return pBuffer.get(pIndex);
+		case 2:
+			return pBuffer.getShort(pIndex * 2);
+		default:
+			return pBuffer.getLong(pIndex * (Long.SIZE / Byte.SIZE));
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A filtered aggregation over the rows of a <b>ResultsStore</b>: the rows
+ * whose values fall in the range of each filter are grouped by the value
+ * of a column, and the values of another column are aggregated per group.
+ * <p>
+ * Chunks are scanned in parallel by the tasks of a fork/join pool. A chunk
+ * whose statistics fall outside a filter is skipped without being read,
+ * and a filter its statistics fall inside is not evaluated. Otherwise
+ * the filters are evaluated one column at a time over the chunk, each
+ * narrowing down a selection of its rows, before the group and aggregated
+ * columns are read for the rows left. Only the columns a query names are
+ * ever read.
+ */
+public final class ResultsQuery
+{
+	private static final int LEAF_CHUNKS = 16;
+	private static final int MAX_GROUPS = 1 << 16;
+
+	private final Column aGroupBy;
+	private final Column aValue;
+	private final List<Filter> aFilters = new ArrayList<Filter>();
+
+	/**
+	 * @param pGroupBy The column to group rows by, or null to aggregate all the rows in group 0.
+	 * @param pValue The column to aggregate, or null to only count the rows.
+	 */
+	public ResultsQuery(Column pGroupBy, Column pValue)
+	{
+		aGroupBy = pGroupBy;
+		aValue = pValue;
+	}
+
+	/**
+	 * Only keeps the rows where a column falls in a range.
+	 * @param pColumn The column.
+	 * @param pMin The lowest value kept.
+	 * @param pMax The highest value kept.
+	 * @return This query.
+	 */
+	public ResultsQuery where(Column pColumn, long pMin, long pMax)
+	{
+		aFilters.add(new Filter(pColumn, pMin, pMax));
+		return this;
+	}
+
+	/**
+	 * Runs the query in the common fork/join pool.
+	 * @param pStore The store to query.
+	 * @return The aggregation of the rows kept.
+	 * @throws IllegalArgumentException If the column the rows are grouped by spans more than 65536 values.
+	 */
+	public Aggregation run(ResultsStore pStore)
+	{
+		return run(pStore, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pStore The store to query.
+	 * @param pPool The pool the chunks are scanned in.
+	 * @return The aggregation of the rows kept.
+	 * @throws IllegalArgumentException If the column the rows are grouped by spans more than 65536 values.
+	 */
+	public Aggregation run(ResultsStore pStore, ForkJoinPool pPool)
+	{
+		long firstGroup = 0;
+		long lastGroup = 0;
+		if (aGroupBy != null && pStore.getChunkCount() > 0)
+		{
+			firstGroup = Long.MAX_VALUE;
+			lastGroup = Long.MIN_VALUE;
+			for (int chunk = 0; chunk < pStore.getChunkCount(); chunk++)
+			{
+				firstGroup = Math.min(firstGroup, pStore.getMin(aGroupBy, chunk));
+				lastGroup = Math.max(lastGroup, pStore.getMax(aGroupBy, chunk));
+			}
+			if (lastGroup - firstGroup >= MAX_GROUPS)
+			{
+				throw new IllegalArgumentException("Too many groups in column " + aGroupBy + ".");
+			}
+		}
+		return pPool.invoke(new Chunks(pStore, firstGroup, (int) (lastGroup - firstGroup + 1), 0,
+				pStore.getChunkCount()));
+	}
+
+	/*
+	 * A range a column must fall in.
+	 */
+	private static final class Filter
+	{
+		private final Column aColumn;
+		private final long aMin;
+		private final long aMax;
+
+		Filter(Column pColumn, long pMin, long pMax)
+		{
+			aColumn = pColumn;
+			aMin = pMin;
+			aMax = pMax;
+		}
+
+		boolean excludes(ResultsStore pStore, int pChunk)
+		{
+			return pStore.getMax(aColumn, pChunk) < aMin || pStore.getMin(aColumn, pChunk) > aMax;
+		}
+
+		boolean includes(ResultsStore pStore, int pChunk)
+		{
+			return pStore.getMin(aColumn, pChunk) >= aMin && pStore.getMax(aColumn, pChunk) <= aMax;
+		}
+	}
+
+	/*
+	 * Splits its range of chunks in halves until it is small enough to be scanned by one thread.
+	 */
+	@SuppressWarnings("serial")
+	private final class Chunks extends RecursiveTask<Aggregation>
+	{
+		private final ResultsStore aStore;
+		private final long aFirstGroup;
+		private final int aGroups;
+		private final int aFrom;
+		private final int aTo;
+
+		Chunks(ResultsStore pStore, long pFirstGroup, int pGroups, int pFrom, int pTo)
+		{
+			aStore = pStore;
+			aFirstGroup = pFirstGroup;
+			aGroups = pGroups;
+			aFrom = pFrom;
+			aTo = pTo;
+		}
+
+		@Override
+		protected Aggregation compute()
+		{
+			if (aTo - aFrom > LEAF_CHUNKS)
+			{
+				int middle = (aFrom + aTo) >>> 1;
+				Chunks second = new Chunks(aStore, aFirstGroup, aGroups, middle, aTo);
+				second.fork();
+				Aggregation aggregation = new Chunks(aStore, aFirstGroup, aGroups, aFrom, middle).compute();
+				return aggregation.merge(second.join());
+			}
+			Aggregation aggregation = new Aggregation(aFirstGroup, aGroups);
+			int[] selection = new int[ResultsFormat.CHUNK_ROWS];
+			long[] filtered = new long[ResultsFormat.CHUNK_ROWS];
+			long[] groups = new long[ResultsFormat.CHUNK_ROWS];
+			long[] values = new long[ResultsFormat.CHUNK_ROWS];
+			for (int chunk = aFrom; chunk < aTo; chunk++)
+			{
+				int selected = select(chunk, selection, filtered);
+				aggregation.recordChunk(selected >= 0);
+				if (selected <= 0)
+				{
+					continue;
+				}
+				if (aGroupBy == null && aValue == null)
+				{
+					aggregation.addRows(0, selected);
+					continue;
+				}
+				if (aGroupBy != null)
+				{
+					aStore.read(aGroupBy, chunk, groups);
+				}
+				if (aValue != null)
+				{
+					aStore.read(aValue, chunk, values);
+				}
+				for (int i = 0; i < selected; i++)
+				{
+					int row = selection[i];
+					aggregation.add((int) (groups[row] - aFirstGroup), values[row]);
+				}
+			}
+			return aggregation;
+		}
+
+		/*
+		 * Selects the rows of a chunk that pass the filters, and returns their
+		 * number, or -1 if the statistics of the chunk exclude all its rows.
+		 */
+		private int select(int pChunk, int[] pSelection, long[] pFiltered)
+		{
+			for (Filter filter : aFilters)
+			{
+				if (filter.excludes(aStore, pChunk))
+				{
+					return -1;
+				}
+			}
+			int selected = aStore.getChunkRows(pChunk);
+			for (int i = 0; i < selected; i++)
+			{
+				pSelection[i] = i;
+			}
+			for (Filter filter : aFilters)
+			{
+				if (filter.includes(aStore, pChunk))
+				{
+					continue;
+				}
+				aStore.read(filter.aColumn, pChunk, pFiltered);
+				int kept = 0;
+				for (int i = 0; i < selected; i++)
+				{
+					int row = pSelection[i];
+					long value = pFiltered[row];
+					pSelection[kept] = row;
+					kept += value >= filter.aMin & value <= filter.aMax ? 1 : 0;
+				}
+				selected = kept;
+			}
+			return selected;
+		}
+	}
+
+	/**
+	 * Prints the mean deadwood of knockers by strategy and the gin rate by
+	 * number of turns of the rounds of a store.
+	 * @param pArgs The directory of the store.
+	 * @throws IOException If the store cannot be read.
+	 */
+	public static void main(String[] pArgs) throws IOException
+	{
+		ResultsStore store = new ResultsStore(Paths.get(pArgs[0]));
+		long start = System.nanoTime();
+		Aggregation deadwood = new ResultsQuery(Column.KNOCKER_STRATEGY, Column.KNOCKER_DEADWOOD)
+				.where(Column.KNOCKER_STRATEGY, 0, Byte.MAX_VALUE).run(store);
+		Aggregation rounds = new ResultsQuery(Column.TURNS, null).run(store);
+		Aggregation gins = new ResultsQuery(Column.TURNS, null).where(Column.KNOCK_TYPE, Column.GIN, Column.GIN)
+				.run(store);
+		long nanos = System.nanoTime() - start;
+		System.out.println(store.getRows() + " rounds, 3 queries in " + nanos / 1000000 + " ms");
+		System.out.println("Mean knocker deadwood by strategy:");
+		for (long strategy : deadwood.getGroups())
+		{
+			System.out.println(String.format("  %-20s %8.3f", store.getStrategies().get((int) strategy),
+					deadwood.getMean(strategy)));
+		}
+		System.out.println("Gin rate by turns:");
+		for (long turns : rounds.getGroups())
+		{
+			System.out.println(String.format("  %4d %8.4f", turns, gins.getCount(turns) / (double) rounds.getCount(turns)));
+		}
+		store.close();
+	}
+}
@@ -0,0 +1,221 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows of a results store written by <b>ResultsWriter</b>, as they
+ * were when the store was opened. The columns are memory-mapped in regions
+ * of <b>REGION_CHUNKS</b> chunks, so a store can exceed what a single
+ * buffer maps, and the statistics of every chunk are loaded, so a query can
+ * skip the chunks that its filters exclude without reading them.
+ * <p>
+ * A store is immutable once opened, and can be queried by many threads.
+ */
+public final class ResultsStore implements Closeable
+{
+	private static final Column[] COLUMNS = Column.values();
+
+	private final long aRows;
+	private final int aChunks;
+	private final List<String> aStrategies;
+	private final ByteBuffer[][] aRegions = new ByteBuffer[COLUMNS.length][];
+	private final long[][] aMin = new long[COLUMNS.length][];
+	private final long[][] aMax = new long[COLUMNS.length][];
+
+	/**
+	 * @param pDirectory The directory of the store.
+	 * @throws IOException If a column cannot be mapped.
+	 */
+	public ResultsStore(Path pDirectory) throws IOException
+	{
+		aRows = ResultsFormat.rows(pDirectory);
+		aChunks = (int) ((aRows + ResultsFormat.CHUNK_ROWS - 1) / ResultsFormat.CHUNK_ROWS);
+		aStrategies = Collections.unmodifiableList(ResultsFormat.readStrategies(pDirectory));
+		for (Column column : COLUMNS)
+		{
+			map(column, ResultsFormat.column(pDirectory, column));
+			readStats(column, ResultsFormat.stats(pDirectory, column));
+		}
+	}
+
+	private void map(Column pColumn, Path pPath) throws IOException
+	{
+		int width = pColumn.getWidth();
+		long regionBytes = (long) ResultsFormat.REGION_CHUNKS * ResultsFormat.CHUNK_ROWS * width;
+		ByteBuffer[] regions = new ByteBuffer[(aChunks + ResultsFormat.REGION_CHUNKS - 1) / ResultsFormat.REGION_CHUNKS];
+		if (regions.length > 0)
+		{
+			FileChannel channel = FileChannel.open(pPath, StandardOpenOption.READ);
+			try
+			{
+				for (int i = 0; i < regions.length; i++)
+				{
+					long start = i * regionBytes;
+					regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+							Math.min(regionBytes, aRows * width - start));
+				}
+			}
+			finally
+			{
+				channel.close();
+			}
+		}
+		aRegions[pColumn.ordinal()] = regions;
+	}
+
+	/*
+	 * Loads the statistics of the chunks of a column, and computes those of
+	 * a last chunk that was not closed.
+	 */
+	private void readStats(Column pColumn, Path pPath) throws IOException
+	{
+		long[] min = new long[aChunks];
+		long[] max = new long[aChunks];
+		ByteBuffer stats = ByteBuffer.wrap(aChunks == 0 ? new byte[0] : Files.readAllBytes(pPath));
+		for (int chunk = 0; chunk < aChunks; chunk++)
+		{
+			if (stats.remaining() >= ResultsFormat.STATS_ENTRY)
+			{
+				min[chunk] = stats.getLong();
+				max[chunk] = stats.getLong();
+				continue;
+			}
+			long[] values = new long[ResultsFormat.CHUNK_ROWS];
+			read(pColumn, chunk, values);
+			min[chunk] = Long.MAX_VALUE;
+			max[chunk] = Long.MIN_VALUE;
+			for (int i = 0; i < getChunkRows(chunk); i++)
+			{
+				min[chunk] = Math.min(min[chunk], values[i]);
+				max[chunk] = Math.max(max[chunk], values[i]);
+			}
+		}
+		aMin[pColumn.ordinal()] = min;
+		aMax[pColumn.ordinal()] = max;
+	}
+
+	/**
+	 * @return The number of rows of the store.
+	 */
+	public long getRows()
+	{
+		return aRows;
+	}
+
+	/**
+	 * @return The number of chunks of the store.
+	 */
+	public int getChunkCount()
+	{
+		return aChunks;
+	}
+
+	/**
+	 * @param pChunk A chunk.
+	 * @return The number of rows of the chunk, the same for all but the last one.
+	 * @pre pChunk >= 0 && pChunk < getChunkCount()
+	 */
+	public int getChunkRows(int pChunk)
+	{
+		return (int) Math.min(ResultsFormat.CHUNK_ROWS, aRows - (long) pChunk * ResultsFormat.CHUNK_ROWS);
+	}
+
+	/**
+	 * @return The names of the strategies, by their index in the strategy columns.
+	 */
+	public List<String> getStrategies()
+	{
+		return aStrategies;
+	}
+
+	/**
+	 * @param pColumn A column.
+	 * @param pChunk A chunk.
+	 * @return The lowest value of the column in the chunk.
+	 * @pre pChunk >= 0 && pChunk < getChunkCount()
+	 */
+	public long getMin(Column pColumn, int pChunk)
+	{
+		return aMin[pColumn.ordinal()][pChunk];
+	}
+
+	/**
+	 * @param pColumn A column.
+	 * @param pChunk A chunk.
+	 * @return The highest value of the column in the chunk.
+	 * @pre pChunk >= 0 && pChunk < getChunkCount()
+	 */
+	public long getMax(Column pColumn, int pChunk)
+	{
+		return aMax[pColumn.ordinal()][pChunk];
+	}
+
+	/**
+	 * @param pColumn A column.
+	 * @param pRow A row.
+	 * @return The value of the column in the row.
+	 * @pre pRow >= 0 && pRow < getRows()
+	 */
+	public long get(Column pColumn, long pRow)
+	{
+		int chunk = (int) (pRow / ResultsFormat.CHUNK_ROWS);
+		ByteBuffer region = aRegions[pColumn.ordinal()][chunk / ResultsFormat.REGION_CHUNKS];
+		long regionRows = (long) ResultsFormat.REGION_CHUNKS * ResultsFormat.CHUNK_ROWS;
+		return ResultsFormat.get(region, pColumn.getWidth(), (int) (pRow % regionRows));
+	}
+
+	/**
+	 * Decodes the values of a column in a chunk, with a loop specialized
+	 * for the width of the column.
+	 * @param pColumn A column.
+	 * @param pChunk A chunk.
+	 * @param pValues The array to write the <b>getChunkRows(pChunk)</b> values to.
+	 * @pre pChunk >= 0 && pChunk < getChunkCount()
+	 */
+	public void read(Column pColumn, int pChunk, long[] pValues)
+	{
+		ByteBuffer region = aRegions[pColumn.ordinal()][pChunk / ResultsFormat.REGION_CHUNKS];
+		int rows = getChunkRows(pChunk);
+		int first = pChunk % ResultsFormat.REGION_CHUNKS * ResultsFormat.CHUNK_ROWS;
+		switch (pColumn.getWidth())
+		{
+		case 1:
+			for (int i = 0; i < rows; i++)
+			{
+				pValues[i] = region.get(first + i);
+			}
+			break;
+		case 2:
+			for (int i = 0; i < rows; i++)
+			{
+				pValues[i] = region.getShort((first + i) * 2);
+			}
+			break;
+		default:
+			for (int i = 0; i < rows; i++)
+			{
+				pValues[i] = region.getLong((first + i) * (Long.SIZE / Byte.SIZE));
+			}
+		}
+	}
+
+	/**
+	 * Releases the columns. They stay mapped until the store is garbage collected.
+	 */
+	@Override
+	public void close()
+	{
+		for (int column = 0; column < COLUMNS.length; column++)
+		{
+			aRegions[column] = new ByteBuffer[0];
+		}
+	}
+}
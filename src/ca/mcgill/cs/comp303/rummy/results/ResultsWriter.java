@@ -0,0 +1,255 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+
+/**
+ * Appends the results of rounds to a store, in the format of
+ * <b>ResultsFormat</b>. Rows are gathered into a <b>Batch</b> by each
+ * thread that plays rounds, then copied into a chunk of each column; a full
+ * chunk is written to the column files along with its statistics.
+ * <p>
+ * A writer opened on an existing store appends to it: the last chunk, if
+ * it is not full, is read back and completed. The files are not forced to
+ * the disk, and a row not written to every column before a crash is
+ * dropped. Threadsafe: writes are serialized.
+ */
+public final class ResultsWriter implements Closeable
+{
+	private static final Column[] COLUMNS = Column.values();
+
+	private final Path aDirectory;
+	private final FileChannel[] aColumns = new FileChannel[COLUMNS.length];
+	private final FileChannel[] aStats = new FileChannel[COLUMNS.length];
+	private final ByteBuffer[] aChunks = new ByteBuffer[COLUMNS.length];
+	private final ByteBuffer aStatsEntry = ByteBuffer.allocate(ResultsFormat.STATS_ENTRY);
+	private final List<String> aStrategies;
+	private long aRows;
+
+	/**
+	 * @param pDirectory The directory of the store, created if needed.
+	 * @throws IOException If the store cannot be opened.
+	 */
+	public ResultsWriter(Path pDirectory) throws IOException
+	{
+		aDirectory = pDirectory;
+		Files.createDirectories(pDirectory);
+		aStrategies = ResultsFormat.readStrategies(pDirectory);
+		aRows = ResultsFormat.rows(pDirectory);
+		long chunks = aRows / ResultsFormat.CHUNK_ROWS;
+		for (Column column : COLUMNS)
+		{
+			int width = column.getWidth();
+			FileChannel channel = FileChannel.open(ResultsFormat.column(pDirectory, column), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			ByteBuffer chunk = ByteBuffer.allocateDirect(ResultsFormat.CHUNK_ROWS * width);
+			long full = chunks * ResultsFormat.CHUNK_ROWS * width;
+			chunk.limit((int) (aRows * width - full));
+			while (chunk.hasRemaining())
+			{
+				channel.read(chunk, full + chunk.position());
+			}
+			chunk.limit(chunk.capacity());
+			channel.truncate(full);
+			channel.position(full);
+			FileChannel stats = FileChannel.open(ResultsFormat.stats(pDirectory, column), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			stats.truncate(Math.min(stats.size(), chunks * ResultsFormat.STATS_ENTRY));
+			stats.position(stats.size());
+			aColumns[column.ordinal()] = channel;
+			aStats[column.ordinal()] = stats;
+			aChunks[column.ordinal()] = chunk;
+		}
+	}
+
+	/**
+	 * @param pName The name of a strategy.
+	 * @return The index of the strategy in the store, added if it was not there.
+	 * @throws IOException If the strategy cannot be added.
+	 * @throws IllegalStateException If the store already holds as many strategies as a column can index.
+	 */
+	public synchronized int strategy(String pName) throws IOException
+	{
+		int index = aStrategies.indexOf(pName);
+		if (index >= 0)
+		{
+			return index;
+		}
+		if (aStrategies.size() > Byte.MAX_VALUE)
+		{
+			throw new IllegalStateException("The store has too many strategies.");
+		}
+		Files.write(ResultsFormat.strategies(aDirectory), Collections.singletonList(pName), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		aStrategies.add(pName);
+		return aStrategies.size() - 1;
+	}
+
+	/**
+	 * Appends the rows of a batch, then clears it.
+	 * @param pBatch The rows to append.
+	 * @throws IOException If a chunk cannot be written.
+	 */
+	public synchronized void write(Batch pBatch) throws IOException
+	{
+		int value = 0;
+		for (int row = 0; row < pBatch.aSize; row++)
+		{
+			for (int column = 0; column < COLUMNS.length; column++)
+			{
+				ResultsFormat.put(aChunks[column], COLUMNS[column].getWidth(), pBatch.aValues[value++]);
+			}
+			aRows++;
+			if (aRows % ResultsFormat.CHUNK_ROWS == 0)
+			{
+				writeChunk();
+			}
+		}
+		pBatch.aSize = 0;
+	}
+
+	/**
+	 * @return The number of rows of the store, written or not.
+	 */
+	public synchronized long getRows()
+	{
+		return aRows;
+	}
+
+	/**
+	 * Writes the last chunk, even if it is not full, and closes the store.
+	 * @throws IOException If the chunk cannot be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if (aColumns[0] == null)
+		{
+			return;
+		}
+		if (aChunks[0].position() > 0)
+		{
+			writeChunk();
+		}
+		for (int column = 0; column < COLUMNS.length; column++)
+		{
+			aColumns[column].close();
+			aStats[column].close();
+			aColumns[column] = null;
+		}
+	}
+
+	/*
+	 * Writes the chunk of each column with its lowest and highest value.
+	 */
+	private void writeChunk() throws IOException
+	{
+		for (int column = 0; column < COLUMNS.length; column++)
+		{
+			ByteBuffer chunk = aChunks[column];
+			chunk.flip();
+			int width = COLUMNS[column].getWidth();
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for (int i = 0; i < chunk.limit() / width; i++)
+			{
+				long value = ResultsFormat.get(chunk, width, i);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+			}
+			while (chunk.hasRemaining())
+			{
+				aColumns[column].write(chunk);
+			}
+			chunk.clear();
+			aStatsEntry.clear();
+			aStatsEntry.putLong(min).putLong(max).flip();
+			while (aStatsEntry.hasRemaining())
+			{
+				aStats[column].write(aStatsEntry);
+			}
+		}
+	}
+
+	/**
+	 * Rows gathered by one thread before they are written to the store, so
+	 * that the threads playing rounds only lock the writer once per batch.
+	 * Not threadsafe.
+	 */
+	public static final class Batch
+	{
+		private final long[] aValues;
+		private int aSize;
+
+		/**
+		 * @param pCapacity The number of rows the batch holds.
+		 */
+		public Batch(int pCapacity)
+		{
+			aValues = new long[pCapacity * COLUMNS.length];
+		}
+
+		/**
+		 * Adds the row of a round that is over.
+		 * @param pSeed The seed of the simulation the round was played in.
+		 * @param pGame The number of the game of the round.
+		 * @param pFirstStrategy The index of the strategy of the first player.
+		 * @param pSecondStrategy The index of the strategy of the second player.
+		 * @param pEngine The engine the round was played on.
+		 * @pre !isFull() && pEngine.getPhase() == GameEngine.Phase.OVER
+		 */
+		public void add(long pSeed, long pGame, int pFirstStrategy, int pSecondStrategy, GameEngine pEngine)
+		{
+			int knocker = pEngine.getKnocker();
+			int row = aSize++ * COLUMNS.length;
+			aValues[row + Column.SEED.ordinal()] = pSeed;
+			aValues[row + Column.GAME.ordinal()] = pGame;
+			aValues[row + Column.DEALER.ordinal()] = pEngine.getDealer();
+			aValues[row + Column.FIRST_STRATEGY.ordinal()] = pFirstStrategy;
+			aValues[row + Column.SECOND_STRATEGY.ordinal()] = pSecondStrategy;
+			aValues[row + Column.WINNER.ordinal()] = pEngine.getWinner();
+			aValues[row + Column.KNOCKER.ordinal()] = knocker;
+			aValues[row + Column.TURNS.ordinal()] = pEngine.getTurns();
+			aValues[row + Column.POINTS.ordinal()] = pEngine.getPoints();
+			if (knocker < 0)
+			{
+				aValues[row + Column.KNOCKER_STRATEGY.ordinal()] = -1;
+				aValues[row + Column.KNOCK_TYPE.ordinal()] = Column.NO_KNOCK;
+				aValues[row + Column.KNOCKER_DEADWOOD.ordinal()] = -1;
+				aValues[row + Column.DEFENDER_DEADWOOD.ordinal()] = -1;
+				return;
+			}
+			aValues[row + Column.KNOCKER_STRATEGY.ordinal()] = knocker == 0 ? pFirstStrategy : pSecondStrategy;
+			aValues[row + Column.KNOCK_TYPE.ordinal()] = pEngine.isGin() ? Column.GIN
+					: pEngine.isUndercut() ? Column.UNDERCUT : Column.KNOCK;
+			aValues[row + Column.KNOCKER_DEADWOOD.ordinal()] = pEngine.getKnockDeadwood();
+			aValues[row + Column.DEFENDER_DEADWOOD.ordinal()] = pEngine.getDefenderDeadwood();
+		}
+
+		/**
+		 * @return True if the batch holds as many rows as it can.
+		 */
+		public boolean isFull()
+		{
+			return aSize * COLUMNS.length == aValues.length;
+		}
+
+		/**
+		 * @return The number of rows of the batch.
+		 */
+		public int size()
+		{
+			return aSize;
+		}
+	}
+}
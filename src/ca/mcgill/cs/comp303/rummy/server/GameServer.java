@@ -0,0 +1,226 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import ca.mcgill.cs.comp303.rummy.sim.GameSimulator;
+
+/**
+ * Hosts Gin Rummy tables for clients over TCP, headless, each client
+ * playing at its own <b>Table</b> against a bot. Each connection is served
+ * by its own thread, virtual when the JVM has them, which blocks on the
+ * socket and owns the table: tables share nothing, so no lock is held while
+ * a thread waits for its client, and thousands of tables are played at once.
+ * <p>
+ * The protocol is line-based, a command of the client answered by one line:
+ * <ul>
+ * <li><code>DEAL</code> deals a round, dealt by the bot and the client in
+ * turn, and answers as a discard does;</li>
+ * <li><code>DRAW</code> or <code>TAKE</code> draws from the stock or takes
+ * the top of the discard pile, and answers <code>DREW card</code>;</li>
+ * <li><code>DISCARD card</code> or <code>KNOCK card</code> ends the turn of
+ * the client; the bot plays, then the server answers <code>TURN hand
+ * top</code> when the client is to draw, or <code>OVER winner points</code>,
+ * where the client is player 0, the bot player 1, and -1 a drawn round;</li>
+ * <li><code>QUIT</code> answers <code>BYE</code> and closes the connection.</li>
+ * </ul>
+ * Cards are <code>Card.index()</code> values, and a hand is the hexadecimal
+ * mask of the indices of its cards. A command that is not legal answers
+ * <code>ERROR reason</code> and changes nothing. The server listens on the
+ * loopback interface by default.
+ */
+public final class GameServer implements Closeable
+{
+	private static final int BACKLOG = 4096;
+
+	private final ServerSocket aServer;
+	private final long aSeed;
+	private final ExecutorService aExecutor = VirtualThreads.newThreadPerTaskExecutor("table");
+	private final Set<Socket> aSockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+	private final AtomicLong aTables = new AtomicLong();
+	private final LongAdder aMoves = new LongAdder();
+
+	/**
+	 * Listens for clients on an ephemeral port of the loopback interface.
+	 * @param pSeed The seed the decks of the tables are derived from.
+	 * @throws IOException If the server socket cannot be opened.
+	 */
+	public GameServer(long pSeed) throws IOException
+	{
+		this(pSeed, InetAddress.getLoopbackAddress(), 0);
+	}
+
+	/**
+	 * @param pSeed The seed the decks of the tables are derived from.
+	 * @param pAddress The address to listen on.
+	 * @param pPort The port to listen on, or 0 for an ephemeral port.
+	 * @throws IOException If the server socket cannot be opened.
+	 */
+	public GameServer(long pSeed, InetAddress pAddress, int pPort) throws IOException
+	{
+		aSeed = pSeed;
+		aServer = new ServerSocket(pPort, BACKLOG, pAddress);
+		Thread acceptor = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				accept();
+			}
+		}, "server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * @return The port the server listens on.
+	 */
+	public int getPort()
+	{
+		return aServer.getLocalPort();
+	}
+
+	/**
+	 * @return The number of commands answered, over all the tables.
+	 */
+	public long getMoves()
+	{
+		return aMoves.sum();
+	}
+
+	/**
+	 * @return The number of tables opened, one per connection.
+	 */
+	public long getTables()
+	{
+		return aTables.get();
+	}
+
+	/**
+	 * @return The number of clients connected.
+	 */
+	public int getConnections()
+	{
+		return aSockets.size();
+	}
+
+	/**
+	 * Stops listening and disconnects every client.
+	 * @throws IOException If the server socket cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		aServer.close();
+		for (Socket socket : aSockets)
+		{
+			close(socket);
+		}
+		aExecutor.shutdown();
+	}
+
+	private void accept()
+	{
+		while (true)
+		{
+			final Socket socket;
+			try
+			{
+				socket = aServer.accept();
+			}
+			catch (IOException e)
+			{
+				// the server socket was closed
+				return;
+			}
+			aSockets.add(socket);
+			aExecutor.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					serve(socket);
+				}
+			});
+		}
+	}
+
+	/*
+	 * Plays the commands of one client at its table until it quits or disconnects.
+	 */
+	private void serve(Socket pSocket)
+	{
+		Table table = new Table(GameSimulator.gameSeed(aSeed, aTables.getAndIncrement()));
+		try
+		{
+			pSocket.setTcpNoDelay(true);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(pSocket.getInputStream(),
+					StandardCharsets.UTF_8));
+			Writer writer = new BufferedWriter(new OutputStreamWriter(pSocket.getOutputStream(), StandardCharsets.UTF_8));
+			for (String line = reader.readLine(); line != null; line = reader.readLine())
+			{
+				String answer = table.handle(line);
+				writer.write(answer);
+				writer.write('\n');
+				writer.flush();
+				aMoves.increment();
+				if (answer.equals(Table.BYE))
+				{
+					return;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			// the client is gone, and its table with it
+		}
+		finally
+		{
+			aSockets.remove(pSocket);
+			close(pSocket);
+		}
+	}
+
+	private static void close(Socket pSocket)
+	{
+		try
+		{
+			pSocket.close();
+		}
+		catch (IOException e)
+		{
+			// nothing left to release
+		}
+	}
+
+	/**
+	 * Runs a server until the process is killed.
+	 * @param pArgs The port to listen on, then the seed of the tables; both optional.
+	 * @throws IOException If the server socket cannot be opened.
+	 * @throws InterruptedException If the main thread is interrupted.
+	 */
+	public static void main(String[] pArgs) throws IOException, InterruptedException
+	{
+		int port = pArgs.length > 0 ? Integer.parseInt(pArgs[0]) : 0;
+		long seed = pArgs.length > 1 ? Long.parseLong(pArgs[1]) : System.nanoTime();
+		GameServer server = new GameServer(seed, InetAddress.getLoopbackAddress(), port);
+		System.out.println("Listening on port " + server.getPort() + " with "
+				+ (VirtualThreads.isAvailable() ? "virtual" : "platform") + " threads");
+		Thread.sleep(Long.MAX_VALUE);
+	}
+}
@@ -0,0 +1,125 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+/**
+ * Counts latencies in buckets that grow with the latency, each within 1/16
+ * of its lower bound, so that percentiles from a nanosecond to hours are
+ * read from a thousand counters. Each client of a load test fills its own
+ * histogram, and histograms are merged when the clients are done. Not
+ * threadsafe.
+ */
+public final class LatencyHistogram
+{
+	// latencies below 2^EXACT_BITS nanoseconds have a bucket each
+	private static final int EXACT_BITS = 5;
+	private static final int SUB_BITS = EXACT_BITS - 1;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	private final long[] aCounts = new long[BUCKETS];
+	private long aCount;
+	private long aSum;
+	private long aMax;
+
+	/**
+	 * @param pNanos A latency, in nanoseconds.
+	 * @pre pNanos >= 0
+	 */
+	public void record(long pNanos)
+	{
+		aCounts[bucket(pNanos)]++;
+		aCount++;
+		aSum += pNanos;
+		aMax = Math.max(aMax, pNanos);
+	}
+
+	/**
+	 * Adds the latencies of pOther to these.
+	 * @param pOther Other latencies.
+	 * @return This object.
+	 */
+	public LatencyHistogram merge(LatencyHistogram pOther)
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			aCounts[i] += pOther.aCounts[i];
+		}
+		aCount += pOther.aCount;
+		aSum += pOther.aSum;
+		aMax = Math.max(aMax, pOther.aMax);
+		return this;
+	}
+
+	/**
+	 * @return The number of latencies recorded.
+	 */
+	public long getCount()
+	{
+		return aCount;
+	}
+
+	/**
+	 * @return The mean latency, in nanoseconds, or 0 if none was recorded.
+	 */
+	public double getMean()
+	{
+		return aCount == 0 ? 0 : aSum / (double) aCount;
+	}
+
+	/**
+	 * @return The highest latency, in nanoseconds.
+	 */
+	public long getMax()
+	{
+		return aMax;
+	}
+
+	/**
+	 * @param pFraction A fraction of the latencies, such as 0.99.
+	 * @return A latency, in nanoseconds, at least as high as pFraction of
+	 * the latencies and within 1/16 of the lowest such; 0 if none was recorded.
+	 * @pre pFraction >= 0 && pFraction <= 1
+	 */
+	public long getPercentile(double pFraction)
+	{
+		long rank = (long) Math.ceil(pFraction * aCount);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			seen += aCounts[i];
+			if (seen >= rank && aCounts[i] > 0)
+			{
+				return i + 1 < BUCKETS ? Math.min(aMax, lowest(i + 1) - 1) : aMax;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Latencies below 2^EXACT_BITS have a bucket each; above, a latency with
+	 * its highest bit at 2^(shift + SUB_BITS) falls in one of the SUB_BUCKETS
+	 * buckets of that power of two, by its next SUB_BITS bits.
+	 */
+	private static int bucket(long pNanos)
+	{
+		int shift = Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(pNanos) - SUB_BITS);
+		return shift * SUB_BUCKETS + (int) (pNanos >>> shift);
+	}
+
+	private static long lowest(int pBucket)
+	{
+		if (pBucket < 2 * SUB_BUCKETS)
+		{
+			return pBucket;
+		}
+		int shift = pBucket / SUB_BUCKETS - 1;
+		return (long) (pBucket - shift * SUB_BUCKETS) << shift;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d moves, mean %.1f us, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us", aCount,
+				getMean() / 1000, getPercentile(0.5) / 1000.0, getPercentile(0.99) / 1000.0,
+				getPercentile(0.999) / 1000.0, aMax / 1000.0);
+	}
+}
@@ -0,0 +1,254 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+
+/**
+ * Loads a <b>GameServer</b> with clients that each play rounds at their own
+ * table as fast as the server answers, and measures the latency of every
+ * command, from the write of the command to the read of its answer. A
+ * client draws from the stock, then discards the card that leaves it the
+ * least deadwood, and knocks whenever it can.
+ */
+public final class LoadGenerator
+{
+	private static final int DEFAULT_CLIENTS = 1000;
+	private static final int DEFAULT_SECONDS = 10;
+	private static final long NANOS_PER_MILLI = 1000000;
+
+	private final String aHost;
+	private final int aPort;
+	private final int aClients;
+	private long aRounds;
+	private long aErrors;
+
+	/**
+	 * @param pHost The host of the server.
+	 * @param pPort The port of the server.
+	 * @param pClients The number of clients, each with its own connection.
+	 */
+	public LoadGenerator(String pHost, int pPort, int pClients)
+	{
+		aHost = pHost;
+		aPort = pPort;
+		aClients = pClients;
+	}
+
+	/**
+	 * Connects the clients and has them play for a while.
+	 * @param pWarmupMillis The time the clients play before latencies are recorded.
+	 * @param pMillis The time latencies are recorded for, after the warmup.
+	 * @return The latencies of the commands, in nanoseconds.
+	 * @throws IOException If a client fails.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the clients.
+	 */
+	public LatencyHistogram run(long pWarmupMillis, long pMillis) throws IOException, InterruptedException
+	{
+		long start = System.nanoTime() + pWarmupMillis * NANOS_PER_MILLI;
+		long end = start + pMillis * NANOS_PER_MILLI;
+		ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("client");
+		List<Future<Client>> clients = new ArrayList<Future<Client>>();
+		for (int i = 0; i < aClients; i++)
+		{
+			clients.add(executor.submit(new Client(aHost, aPort, start, end)));
+		}
+		LatencyHistogram latencies = new LatencyHistogram();
+		try
+		{
+			for (Future<Client> future : clients)
+			{
+				Client client = future.get();
+				latencies.merge(client.aLatencies);
+				aRounds += client.aRounds;
+				aErrors += client.aErrors;
+			}
+		}
+		catch (ExecutionException e)
+		{
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		return latencies;
+	}
+
+	/**
+	 * @return The number of rounds the clients played to the end, warmup included.
+	 */
+	public long getRounds()
+	{
+		return aRounds;
+	}
+
+	/**
+	 * @return The number of commands the server answered with an error.
+	 */
+	public long getErrors()
+	{
+		return aErrors;
+	}
+
+	/*
+	 * One connection, playing rounds until the end of the test.
+	 */
+	private static final class Client implements Callable<Client>
+	{
+		private final String aHost;
+		private final int aPort;
+		private final long aStart;
+		private final long aEnd;
+		private final LatencyHistogram aLatencies = new LatencyHistogram();
+		private final MeldSolver aSolver = new MeldSolver();
+		private BufferedReader aReader;
+		private Writer aWriter;
+		private long aRounds;
+		private long aErrors;
+
+		Client(String pHost, int pPort, long pStart, long pEnd)
+		{
+			aHost = pHost;
+			aPort = pPort;
+			aStart = pStart;
+			aEnd = pEnd;
+		}
+
+		@Override
+		public Client call() throws IOException
+		{
+			Socket socket = new Socket(aHost, aPort);
+			try
+			{
+				socket.setTcpNoDelay(true);
+				aReader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				aWriter = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+				String answer = request(Table.DEAL);
+				while (System.nanoTime() < aEnd)
+				{
+					if (answer.startsWith(Table.TURN + " "))
+					{
+						answer = play(Long.parseLong(answer.split(" ")[1], 16));
+					}
+					else
+					{
+						if (answer.startsWith(Table.OVER + " "))
+						{
+							aRounds++;
+						}
+						else
+						{
+							aErrors++;
+						}
+						answer = request(Table.DEAL);
+					}
+				}
+				request(Table.QUIT);
+			}
+			finally
+			{
+				socket.close();
+			}
+			return this;
+		}
+
+		/*
+		 * Draws from the stock, then discards the card that leaves the least deadwood.
+		 */
+		private String play(long pHand) throws IOException
+		{
+			String drew = request(Table.DRAW);
+			if (!drew.startsWith(Table.DREW + " "))
+			{
+				return drew;
+			}
+			long hand = pHand | 1L << Integer.parseInt(drew.substring(Table.DREW.length() + 1));
+			int discard = -1;
+			int deadwood = Integer.MAX_VALUE;
+			for (long cards = hand; cards != 0; cards &= cards - 1)
+			{
+				int card = Long.numberOfTrailingZeros(cards);
+				int left = aSolver.solve(hand & ~(1L << card));
+				if (left < deadwood)
+				{
+					discard = card;
+					deadwood = left;
+				}
+			}
+			return request((deadwood <= GameEngine.KNOCK_LIMIT ? Table.KNOCK : Table.DISCARD) + " " + discard);
+		}
+
+		private String request(String pCommand) throws IOException
+		{
+			long start = System.nanoTime();
+			aWriter.write(pCommand);
+			aWriter.write('\n');
+			aWriter.flush();
+			String answer = aReader.readLine();
+			long end = System.nanoTime();
+			if (answer == null)
+			{
+				throw new IOException("The server closed the connection");
+			}
+			if (start >= aStart && end <= aEnd)
+			{
+				aLatencies.record(end - start);
+			}
+			return answer;
+		}
+	}
+
+	/**
+	 * Runs clients against a server, or against a server started in this
+	 * JVM if no host is given, and prints the moves per second and the
+	 * percentiles of the latency of a move.
+	 * @param pArgs The number of clients, the number of seconds to measure,
+	 * then the host and port of the server; all optional.
+	 * @throws IOException If a client fails.
+	 * @throws InterruptedException If the thread is interrupted while waiting for the clients.
+	 */
+	public static void main(String[] pArgs) throws IOException, InterruptedException
+	{
+		int clients = pArgs.length > 0 ? Integer.parseInt(pArgs[0]) : DEFAULT_CLIENTS;
+		long seconds = pArgs.length > 1 ? Long.parseLong(pArgs[1]) : DEFAULT_SECONDS;
+		GameServer server = null;
+		String host = "127.0.0.1";
+		int port;
+		if (pArgs.length > 3)
+		{
+			host = pArgs[2];
+			port = Integer.parseInt(pArgs[3]);
+		}
+		else
+		{
+			server = new GameServer(System.nanoTime());
+			port = server.getPort();
+		}
+		LoadGenerator generator = new LoadGenerator(host, port, clients);
+		// a fifth of the time again to warm up the JIT of both ends
+		LatencyHistogram latencies = generator.run(seconds * 200, seconds * 1000);
+		System.out.println(clients + " clients on " + (VirtualThreads.isAvailable() ? "virtual" : "platform")
+				+ " threads: " + latencies.getCount() / seconds + " moves/s, " + generator.getRounds() + " rounds, "
+				+ generator.getErrors() + " errors");
+		System.out.println(latencies);
+		if (server != null)
+		{
+			server.close();
+		}
+	}
+}
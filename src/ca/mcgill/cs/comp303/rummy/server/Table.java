@@ -0,0 +1,138 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+import ca.mcgill.cs.comp303.rummy.sim.GreedyStrategy;
+import ca.mcgill.cs.comp303.rummy.sim.Round;
+import ca.mcgill.cs.comp303.rummy.sim.Strategy;
+
+/**
+ * A table where a client plays rounds against a greedy bot, in the protocol
+ * of <b>GameServer</b>. The table owns its round, and with it a deck and
+ * the hands of both players, and the bot plays its turns as soon as the
+ * client has played, so each command gets a single answer.
+ * <p>
+ * Not threadsafe: a table is confined to the thread of its connection.
+ */
+final class Table
+{
+	static final String DEAL = "DEAL";
+	static final String DRAW = "DRAW";
+	static final String TAKE = "TAKE";
+	static final String DISCARD = "DISCARD";
+	static final String KNOCK = "KNOCK";
+	static final String QUIT = "QUIT";
+
+	static final String TURN = "TURN";
+	static final String DREW = "DREW";
+	static final String OVER = "OVER";
+	static final String ERROR = "ERROR";
+	static final String BYE = "BYE";
+
+	static final int CLIENT = 0;
+	static final int BOT = 1;
+
+	private final Round aRound;
+	private final GameEngine aEngine;
+	private final Strategy aBot = GreedyStrategy.factory(GameEngine.KNOCK_LIMIT).create();
+	// the bot deals the first round, so the client plays first
+	private int aDealer = BOT;
+
+	/**
+	 * @param pSeed The seed of the deck of the table.
+	 */
+	Table(long pSeed)
+	{
+		aRound = new Round(RandomSource.seeded(pSeed));
+		aEngine = aRound.getEngine();
+	}
+
+	/**
+	 * @return The engine the rounds of the table are played on.
+	 */
+	GameEngine getEngine()
+	{
+		return aEngine;
+	}
+
+	/**
+	 * Plays a command of the client.
+	 * @param pCommand A line of the client, without its line terminator.
+	 * @return The answer to the client.
+	 */
+	String handle(String pCommand)
+	{
+		int space = pCommand.indexOf(' ');
+		String command = space < 0 ? pCommand : pCommand.substring(0, space);
+		if (DEAL.equals(command))
+		{
+			if (aEngine.getPhase() != GameEngine.Phase.OVER)
+			{
+				return ERROR + " the round is not over";
+			}
+			aEngine.deal(aDealer);
+			aDealer = 1 - aDealer;
+			return answer();
+		}
+		if (DRAW.equals(command) || TAKE.equals(command))
+		{
+			int action = DRAW.equals(command) ? GameEngine.DRAW_STOCK : GameEngine.TAKE_DISCARD | aEngine.discardTop();
+			if (!aEngine.isLegal(action))
+			{
+				return ERROR + " cannot draw now";
+			}
+			long hand = aEngine.getHand(CLIENT);
+			aEngine.apply(action);
+			return DREW + " " + Long.numberOfTrailingZeros(aEngine.getHand(CLIENT) & ~hand);
+		}
+		if (DISCARD.equals(command) || KNOCK.equals(command))
+		{
+			int card = parseCard(space < 0 ? "" : pCommand.substring(space + 1));
+			int action = (DISCARD.equals(command) ? GameEngine.DISCARD : GameEngine.KNOCK) | card;
+			if (card < 0 || !aEngine.isLegal(action))
+			{
+				return ERROR + " illegal " + pCommand;
+			}
+			aEngine.apply(action);
+			return answer();
+		}
+		if (QUIT.equals(command))
+		{
+			return BYE;
+		}
+		return ERROR + " unknown command " + pCommand;
+	}
+
+	/*
+	 * Plays the turns of the bot until the client is to move, then answers
+	 * TURN hand top, with the hand of the client as a hexadecimal mask of
+	 * card indices and the card on top of the discard pile, or OVER winner
+	 * points once the round is over.
+	 */
+	private String answer()
+	{
+		while (aEngine.getPhase() != GameEngine.Phase.OVER && aEngine.getPlayer() == BOT)
+		{
+			aRound.playTurn(aBot);
+		}
+		if (aEngine.getPhase() == GameEngine.Phase.OVER)
+		{
+			return OVER + " " + aEngine.getWinner() + " " + aEngine.getPoints();
+		}
+		return TURN + " " + Long.toHexString(aEngine.getHand(CLIENT)) + " " + aEngine.discardTop();
+	}
+
+	private static int parseCard(String pCard)
+	{
+		try
+		{
+			int card = Integer.parseInt(pCard);
+			return card >= 0 && card < Card.NUMBER_OF_CARDS ? card : -1;
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+}
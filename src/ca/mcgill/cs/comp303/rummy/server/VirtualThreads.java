@@ -0,0 +1,85 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts a thread per task: a virtual thread when the JVM has them, found
+ * through reflection so that the code still builds for Java 8, otherwise a
+ * daemon platform thread with a small stack.
+ */
+final class VirtualThreads
+{
+	// enough for a blocking read, a table and the meld solver of a bot
+	private static final long STACK_BYTES = 256 << 10;
+	// Executors.newVirtualThreadPerTaskExecutor, or null before Java 21
+	private static final Method VIRTUAL_EXECUTOR = virtualExecutorMethod();
+
+	private VirtualThreads()
+	{}
+
+	/**
+	 * @return True if the JVM runs tasks on virtual threads.
+	 */
+	static boolean isAvailable()
+	{
+		return VIRTUAL_EXECUTOR != null;
+	}
+
+	/**
+	 * @param pName The prefix of the names of the platform threads, if virtual threads are not available.
+	 * @return An executor that starts a new thread for each task.
+	 */
+	static ExecutorService newThreadPerTaskExecutor(final String pName)
+	{
+		ExecutorService executor = virtualExecutor();
+		if (executor != null)
+		{
+			return executor;
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory()
+		{
+			private final AtomicInteger aThreads = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable pTask)
+			{
+				Thread thread = new Thread(null, pTask, pName + " " + aThreads.incrementAndGet(), STACK_BYTES);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static Method virtualExecutorMethod()
+	{
+		try
+		{
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		}
+		catch (NoSuchMethodException e)
+		{
+			return null;
+		}
+	}
+
+	private static ExecutorService virtualExecutor()
+	{
+		if (VIRTUAL_EXECUTOR == null)
+		{
+			return null;
+		}
+		try
+		{
+			return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			// a preview feature that is not enabled
+			return null;
+		}
+	}
+}
@@ -0,0 +1,431 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Splits a <b>Job</b> into shards and hands them to worker processes over
+ * TCP, one shard at a time per worker, merging the results as they come
+ * back. A worker that disconnects, whose process dies, or that does not
+ * answer its shard within the shard deadline is dropped and gives its shard
+ * back to the queue, to be reassigned to another worker. If the workers
+ * launched by the coordinator have all died, or none has been connected for
+ * a shard deadline, with shards left, it launches new ones, up to
+ * <b>MAX_RESTARTS</b> times.
+ * <p>
+ * The protocol is line-based. The worker sends <code>HELLO name</code>, the
+ * coordinator answers <code>JOB spec</code>, then repeatedly sends
+ * <code>SHARD n</code> and the worker answers <code>RESULT n length result</code>,
+ * until the coordinator sends <code>DONE</code>. A result whose length does
+ * not match, as when a worker drops in the middle of the line, or that the
+ * job cannot parse, drops the worker like a disconnection. The coordinator listens on
+ * the loopback interface by default; workers on other machines can connect
+ * when it is bound to another address.
+ */
+public final class Coordinator
+{
+	static final String HELLO = "HELLO";
+	static final String JOB = "JOB";
+	static final String SHARD = "SHARD";
+	static final String RESULT = "RESULT";
+	static final String DONE = "DONE";
+
+	public static final int MAX_RESTARTS = 3;
+	public static final int DEFAULT_SHARD_MILLIS = 5 * 60 * 1000;
+
+	private static final int POLL_MILLIS = 200;
+	private static final int EXIT_MILLIS = 5000;
+	private static final long NANOS_PER_MILLI = 1000000;
+
+	private final Job aJob;
+	private final ServerSocket aServer;
+	private final int aShardMillis;
+	private final Object aLock = new Object();
+	private final Deque<Integer> aPending = new ArrayDeque<Integer>();
+	private final boolean[] aDone;
+	private int aRemaining;
+	private int aConnections;
+	// when the last worker disconnected, or the workers were launched
+	private long aIdleSince = System.nanoTime();
+	private final List<Process> aProcesses = new ArrayList<Process>();
+	private int aWorkers;
+	private int aRestarts;
+	private int aReassigned;
+
+	/**
+	 * Listens for workers on an ephemeral port of the loopback interface,
+	 * with the default shard deadline.
+	 * @param pJob The job to split.
+	 * @throws IOException If the server socket cannot be opened.
+	 */
+	public Coordinator(Job pJob) throws IOException
+	{
+		this(pJob, InetAddress.getLoopbackAddress(), 0, DEFAULT_SHARD_MILLIS);
+	}
+
+	/**
+	 * @param pJob The job to split.
+	 * @param pAddress The address to listen on.
+	 * @param pPort The port to listen on, or 0 for an ephemeral port.
+	 * @param pShardMillis The time a worker has to answer a shard before it is
+	 * dropped, which should be well above the time a shard takes.
+	 * @throws IOException If the server socket cannot be opened.
+	 * @pre pShardMillis > 0
+	 */
+	public Coordinator(Job pJob, InetAddress pAddress, int pPort, int pShardMillis) throws IOException
+	{
+		assert pShardMillis > 0;
+		aJob = pJob;
+		aServer = new ServerSocket(pPort, 0, pAddress);
+		aShardMillis = pShardMillis;
+		aDone = new boolean[pJob.getShardCount()];
+		aRemaining = aDone.length;
+		for (int shard = 0; shard < aDone.length; shard++)
+		{
+			aPending.add(shard);
+		}
+		Thread acceptor = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				accept();
+			}
+		}, "coordinator");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * @return The port the coordinator listens on.
+	 */
+	public int getPort()
+	{
+		return aServer.getLocalPort();
+	}
+
+	/**
+	 * Launches worker JVMs on this machine, with the classpath of this JVM.
+	 * @param pWorkers The number of workers to launch.
+	 * @throws IOException If a process cannot be launched.
+	 */
+	public void launchWorkers(int pWorkers) throws IOException
+	{
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		synchronized (aLock)
+		{
+			aWorkers = Math.max(aWorkers, pWorkers);
+			aIdleSince = System.nanoTime();
+			for (int i = 0; i < pWorkers; i++)
+			{
+				ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						Worker.class.getName(), aServer.getInetAddress().getHostAddress(), Integer.toString(getPort()));
+				aProcesses.add(builder.inheritIO().start());
+			}
+		}
+	}
+
+	/**
+	 * Waits until every shard has been merged into the job, then tells the
+	 * workers to stop and closes the server socket. If it gives up, the
+	 * workers it launched are killed.
+	 * @return The job, with all its shards merged.
+	 * @throws IOException If every worker died or hung more than <b>MAX_RESTARTS</b> times.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public Job await() throws IOException, InterruptedException
+	{
+		try
+		{
+			synchronized (aLock)
+			{
+				while (aRemaining > 0)
+				{
+					aLock.wait(POLL_MILLIS);
+					// workers that are alive but were dropped, or never connected, are hung
+					if (aRemaining > 0 && aConnections == 0 && !aProcesses.isEmpty()
+							&& (!anyAlive() || System.nanoTime() - aIdleSince > aShardMillis * NANOS_PER_MILLI))
+					{
+						if (aRestarts == MAX_RESTARTS)
+						{
+							throw new IOException("All the workers died or hung with " + aRemaining + " shards left");
+						}
+						aRestarts++;
+						for (Process process : aProcesses)
+						{
+							process.destroyForcibly();
+						}
+						aProcesses.clear();
+						launchWorkers(aWorkers);
+					}
+				}
+			}
+		}
+		finally
+		{
+			aServer.close();
+			synchronized (aLock)
+			{
+				if (aRemaining > 0)
+				{
+					for (Process process : aProcesses)
+					{
+						process.destroyForcibly();
+					}
+				}
+			}
+		}
+		for (Process process : aProcesses)
+		{
+			waitFor(process);
+		}
+		return aJob;
+	}
+
+	/**
+	 * @return The number of shards not merged yet.
+	 */
+	public int getRemaining()
+	{
+		synchronized (aLock)
+		{
+			return aRemaining;
+		}
+	}
+
+	/**
+	 * @return The number of shards given back by workers that disconnected or timed out.
+	 */
+	public int getReassigned()
+	{
+		synchronized (aLock)
+		{
+			return aReassigned;
+		}
+	}
+
+	private boolean anyAlive()
+	{
+		for (Process process : aProcesses)
+		{
+			if (process.isAlive())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void waitFor(Process pProcess) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + EXIT_MILLIS;
+		while (pProcess.isAlive() && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(POLL_MILLIS / 10);
+		}
+		pProcess.destroy();
+	}
+
+	private void accept()
+	{
+		while (true)
+		{
+			final Socket socket;
+			try
+			{
+				socket = aServer.accept();
+			}
+			catch (IOException e)
+			{
+				// the server socket was closed
+				return;
+			}
+			Thread handler = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					serve(socket);
+				}
+			}, "coordinator " + socket.getRemoteSocketAddress());
+			handler.setDaemon(true);
+			handler.start();
+		}
+	}
+
+	/*
+	 * Feeds shards to one worker until there are none left, it disconnects,
+	 * or a read passes the shard deadline.
+	 */
+	private void serve(Socket pSocket)
+	{
+		synchronized (aLock)
+		{
+			aConnections++;
+		}
+		int shard = -1;
+		try
+		{
+			// a worker that hangs, or a host that drops off without closing the connection, times out
+			pSocket.setSoTimeout(aShardMillis);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(pSocket.getInputStream(),
+					StandardCharsets.UTF_8));
+			Writer writer = new OutputStreamWriter(pSocket.getOutputStream(), StandardCharsets.UTF_8);
+			String hello = reader.readLine();
+			if (hello == null || !hello.startsWith(HELLO))
+			{
+				return;
+			}
+			send(writer, JOB + " " + aJob.getSpec());
+			while ((shard = takeShard()) >= 0)
+			{
+				send(writer, SHARD + " " + shard);
+				complete(shard, parseResult(shard, reader.readLine()));
+				shard = -1;
+			}
+			send(writer, DONE);
+		}
+		catch (IOException e)
+		{
+			// the worker is gone or timed out; its shard goes back to the queue below
+		}
+		finally
+		{
+			synchronized (aLock)
+			{
+				if (--aConnections == 0)
+				{
+					aIdleSince = System.nanoTime();
+				}
+				if (shard >= 0 && !aDone[shard])
+				{
+					aPending.addFirst(shard);
+					aReassigned++;
+				}
+				aLock.notifyAll();
+			}
+			close(pSocket);
+		}
+	}
+
+	/*
+	 * Blocks until a shard is pending, or returns -1 once all are done.
+	 */
+	private int takeShard()
+	{
+		synchronized (aLock)
+		{
+			while (aPending.isEmpty() && aRemaining > 0)
+			{
+				try
+				{
+					aLock.wait();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return -1;
+				}
+			}
+			return aRemaining == 0 ? -1 : aPending.poll();
+		}
+	}
+
+	/*
+	 * Parses the answer of a worker to a shard, before anything is merged.
+	 */
+	private Object parseResult(int pShard, String pLine) throws IOException
+	{
+		String prefix = RESULT + " " + pShard + " ";
+		if (pLine == null || !pLine.startsWith(prefix))
+		{
+			throw new IOException("Worker failed on shard " + pShard + ": " + pLine);
+		}
+		int separator = pLine.indexOf(' ', prefix.length());
+		try
+		{
+			if (separator < 0 || Integer.parseInt(pLine.substring(prefix.length(), separator)) != pLine.length()
+					- separator - 1)
+			{
+				throw new IOException("Truncated result for shard " + pShard + ": " + pLine);
+			}
+			return aJob.parseShard(pLine.substring(separator + 1));
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new IOException("Malformed result for shard " + pShard + ": " + pLine, e);
+		}
+	}
+
+	private void complete(int pShard, Object pResult)
+	{
+		synchronized (aLock)
+		{
+			if (!aDone[pShard])
+			{
+				aJob.mergeShard(pResult);
+				aDone[pShard] = true;
+				aRemaining--;
+			}
+			aLock.notifyAll();
+		}
+	}
+
+	private static void send(Writer pWriter, String pLine) throws IOException
+	{
+		pWriter.write(pLine);
+		pWriter.write('\n');
+		pWriter.flush();
+	}
+
+	private static void close(Socket pSocket)
+	{
+		try
+		{
+			pSocket.close();
+		}
+		catch (IOException e)
+		{
+			// nothing left to do with this worker
+		}
+	}
+
+	/**
+	 * Runs a job on worker processes and prints its result.
+	 * @param pArgs The number of workers, then the spec of the job, for instance
+	 * <code>4 deadwood 10</code> or <code>4 games seed count threshold threshold</code>.
+	 * @throws Exception If the job fails.
+	 */
+	public static void main(String[] pArgs) throws Exception
+	{
+		int workers = Integer.parseInt(pArgs[0]);
+		StringBuilder spec = new StringBuilder();
+		for (int i = 1; i < pArgs.length; i++)
+		{
+			spec.append(pArgs[i]).append(' ');
+		}
+		long start = System.nanoTime();
+		Coordinator coordinator = new Coordinator(Job.parse(spec.toString()));
+		coordinator.launchWorkers(workers);
+		Job job = coordinator.await();
+		if (job instanceof SimulationJob)
+		{
+			((SimulationJob) job).getStats().setElapsedNanos(System.nanoTime() - start);
+		}
+		System.out.println(job);
+		System.out.printf("%.1f s, %d shards reassigned%n", (System.nanoTime() - start) / 1e9,
+				coordinator.getReassigned());
+	}
+}
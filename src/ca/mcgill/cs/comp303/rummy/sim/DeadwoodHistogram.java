@@ -0,0 +1,183 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.util.Arrays;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+
+/**
+ * Counts of hands by deadwood. Counts are weighted, so that a hand can stand
+ * for all the hands it is equivalent to. Each enumeration worker fills its
+ * own histogram, and histograms are merged when the workers join.
+ * <p>
+ * A histogram has a one-line text form, <code>deadwood=count</code> pairs
+ * separated by spaces for the non-zero counts, used to checkpoint and to
+ * ship results between processes.
+ */
+public final class DeadwoodHistogram
+{
+	private static final int FACE_VALUE = 10;
+
+	private final long[] aCounts;
+
+	/**
+	 * Creates an empty histogram for hands of pHandSize cards.
+	 * @param pHandSize The number of cards of the hands.
+	 */
+	public DeadwoodHistogram(int pHandSize)
+	{
+		aCounts = new long[pHandSize * FACE_VALUE + 1];
+	}
+
+	/**
+	 * Adds hands to the histogram.
+	 * @param pDeadwood The deadwood of the hands.
+	 * @param pWeight The number of hands.
+	 */
+	public void add(int pDeadwood, long pWeight)
+	{
+		aCounts[pDeadwood] += pWeight;
+	}
+
+	/**
+	 * Adds the counts of pOther to these.
+	 * @param pOther A histogram for hands of the same size.
+	 * @return This object.
+	 */
+	public DeadwoodHistogram merge(DeadwoodHistogram pOther)
+	{
+		for (int i = 0; i < aCounts.length; i++)
+		{
+			aCounts[i] += pOther.aCounts[i];
+		}
+		return this;
+	}
+
+	/**
+	 * @return The highest deadwood the histogram can count.
+	 */
+	public int getMaxDeadwood()
+	{
+		return aCounts.length - 1;
+	}
+
+	/**
+	 * @param pDeadwood A deadwood.
+	 * @return The number of hands with that deadwood.
+	 */
+	public long getCount(int pDeadwood)
+	{
+		return aCounts[pDeadwood];
+	}
+
+	/**
+	 * @return The number of hands counted.
+	 */
+	public long getTotal()
+	{
+		long total = 0;
+		for (long count : aCounts)
+		{
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return The number of hands with no deadwood.
+	 */
+	public long getGins()
+	{
+		return aCounts[0];
+	}
+
+	/**
+	 * @return The number of hands whose deadwood is low enough to knock.
+	 */
+	public long getKnockable()
+	{
+		long knockable = 0;
+		for (int i = 0; i <= Math.min(GameEngine.KNOCK_LIMIT, aCounts.length - 1); i++)
+		{
+			knockable += aCounts[i];
+		}
+		return knockable;
+	}
+
+	/**
+	 * @return The text form of the histogram.
+	 */
+	public String toLine()
+	{
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < aCounts.length; i++)
+		{
+			if (aCounts[i] != 0)
+			{
+				if (line.length() > 0)
+				{
+					line.append(' ');
+				}
+				line.append(i).append('=').append(aCounts[i]);
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Adds the counts of a histogram in text form to these.
+	 * @param pLine The text form of a histogram, as returned by <b>toLine()</b>.
+	 * @return This object.
+	 * @throws IllegalArgumentException If the line is not a histogram that fits in this one.
+	 */
+	public DeadwoodHistogram mergeLine(String pLine)
+	{
+		if (pLine.isEmpty())
+		{
+			return this;
+		}
+		for (String pair : pLine.split(" "))
+		{
+			int separator = pair.indexOf('=');
+			if (separator < 0)
+			{
+				throw new IllegalArgumentException("Malformed histogram entry " + pair);
+			}
+			int deadwood = Integer.parseInt(pair.substring(0, separator));
+			if (deadwood < 0 || deadwood >= aCounts.length)
+			{
+				throw new IllegalArgumentException("Deadwood out of range: " + deadwood);
+			}
+			aCounts[deadwood] += Long.parseLong(pair.substring(separator + 1));
+		}
+		return this;
+	}
+
+	@Override
+	public boolean equals(Object pObject)
+	{
+		return pObject instanceof DeadwoodHistogram && Arrays.equals(aCounts, ((DeadwoodHistogram) pObject).aCounts);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(aCounts);
+	}
+
+	@Override
+	public String toString()
+	{
+		long total = getTotal();
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("%d hands, %d gin (%.6f%%), %d knockable (%.4f%%)%n", total, getGins(),
+				100.0 * getGins() / total, getKnockable(), 100.0 * getKnockable() / total));
+		for (int i = 0; i < aCounts.length; i++)
+		{
+			if (aCounts[i] != 0)
+			{
+				result.append(String.format("%3d %15d %9.6f%%%n", i, aCounts[i], 100.0 * aCounts[i] / total));
+			}
+		}
+		return result.toString();
+	}
+}
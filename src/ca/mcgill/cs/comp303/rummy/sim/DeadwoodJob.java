@@ -0,0 +1,85 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import ca.mcgill.cs.comp303.rummy.model.MeldIndex;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+
+/**
+ * The exhaustive deadwood distribution of <b>ExhaustiveDeadwood</b> as a
+ * sharded job: shard <i>n</i> evaluates the suit-canonical hands whose first
+ * suit pattern is between <i>n</i>*<b>PATTERNS_PER_SHARD</b> and the next
+ * shard's.
+ */
+public final class DeadwoodJob extends Job
+{
+	static final String NAME = "deadwood";
+	public static final int PATTERNS_PER_SHARD = 64;
+
+	private static final int SUIT_PATTERNS = 1 << MeldIndex.SUIT_SIZE;
+
+	private final int aHandSize;
+	private final ExhaustiveDeadwood aEnumeration;
+	private final DeadwoodHistogram aHistogram;
+
+	/**
+	 * @param pHandSize The number of cards of the hands.
+	 */
+	public DeadwoodJob(int pHandSize)
+	{
+		aHandSize = pHandSize;
+		aEnumeration = new ExhaustiveDeadwood(pHandSize, null, null);
+		aHistogram = new DeadwoodHistogram(pHandSize);
+	}
+
+	@Override
+	public String getSpec()
+	{
+		return NAME + " " + aHandSize;
+	}
+
+	@Override
+	public int getShardCount()
+	{
+		return SUIT_PATTERNS / PATTERNS_PER_SHARD;
+	}
+
+	@Override
+	public String runShard(int pShard)
+	{
+		DeadwoodHistogram histogram = new DeadwoodHistogram(aHandSize);
+		MeldSolver solver = new MeldSolver();
+		for (int pattern = pShard * PATTERNS_PER_SHARD; pattern < (pShard + 1) * PATTERNS_PER_SHARD; pattern++)
+		{
+			if (Integer.bitCount(pattern) <= aHandSize)
+			{
+				histogram.merge(aEnumeration.shard(pattern, solver));
+			}
+		}
+		return histogram.toLine();
+	}
+
+	@Override
+	public Object parseShard(String pResult)
+	{
+		return new DeadwoodHistogram(aHandSize).mergeLine(pResult);
+	}
+
+	@Override
+	public void mergeShard(Object pResult)
+	{
+		aHistogram.merge((DeadwoodHistogram) pResult);
+	}
+
+	/**
+	 * @return The histogram of the shards merged so far.
+	 */
+	public DeadwoodHistogram getHistogram()
+	{
+		return aHistogram;
+	}
+
+	@Override
+	public String toString()
+	{
+		return aHistogram.toString();
+	}
+}
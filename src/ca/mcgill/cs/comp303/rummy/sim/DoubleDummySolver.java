@@ -0,0 +1,457 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+
+/**
+ * Solves a round with all the cards face up: both hands, the discard pile
+ * and the order of the stock. The value of a position is the points the
+ * player to move scores with best play from both sides, negative if it
+ * loses, found by alpha-beta search on a <b>GameEngine</b> that applies and
+ * undoes actions. Since players could take each other's discards forever, a
+ * round is also drawn once it has lasted the number of turns given to
+ * <b>solve</b>; rounds that end sooner are solved exactly.
+ * <p>
+ * Positions are keyed by a Zobrist hash over the location of each of the 52
+ * cards (a hand, a depth in the stock, or a depth in the discard pile),
+ * updated incrementally as actions are applied, and their results kept in a
+ * lock-free <b>TranspositionTable</b> shared by all the threads and by
+ * successive calls to <b>solve</b>. Threads use lazy SMP: each searches the
+ * whole tree, the helpers in a shuffled order, and they only cooperate
+ * through the table. The solver reports the nodes searched per second and
+ * the hit rate of the table.
+ */
+public final class DoubleDummySolver
+{
+	public static final int MAX_TURNS = 255;
+	public static final int DEFAULT_TABLE_BITS = 22;
+
+	// the locations of a card: the hands of the players, a depth in the discard pile or in the stock
+	private static final int PILE = 2;
+	private static final int STOCK = PILE + Card.NUMBER_OF_CARDS;
+	private static final long[][] CARD_KEYS = new long[Card.NUMBER_OF_CARDS][STOCK + Card.NUMBER_OF_CARDS];
+	private static final long[] TAKEN_KEYS = new long[Card.NUMBER_OF_CARDS];
+	private static final long[] TURN_KEYS = new long[MAX_TURNS + 1];
+	private static final long DISCARD_PHASE_KEY;
+	private static final long PLAYER_KEY;
+	private static final long ZOBRIST_SEED = 0x5EED303L;
+	private static final Abort ABORT = new Abort();
+
+	static
+	{
+		SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+		for (long[] keys : CARD_KEYS)
+		{
+			for (int location = 0; location < keys.length; location++)
+			{
+				keys[location] = random.nextLong();
+			}
+		}
+		for (int card = 0; card < Card.NUMBER_OF_CARDS; card++)
+		{
+			TAKEN_KEYS[card] = random.nextLong();
+		}
+		for (int turns = 0; turns <= MAX_TURNS; turns++)
+		{
+			TURN_KEYS[turns] = random.nextLong();
+		}
+		DISCARD_PHASE_KEY = random.nextLong();
+		PLAYER_KEY = random.nextLong();
+	}
+
+	private final TranspositionTable aTable;
+	private final int aThreads;
+	private final ForkJoinPool aPool;
+	private volatile boolean aStop;
+	private int aBestAction = -1;
+	private long aNodes;
+	private long aProbes;
+	private long aHits;
+	private long aNanos;
+
+	/**
+	 * @param pTableBits The base 2 logarithm of the number of entries of the transposition table.
+	 * @param pThreads The number of threads that search each position.
+	 * @param pPool The pool the helper threads run in, when there are several threads.
+	 * @pre pThreads > 0
+	 */
+	public DoubleDummySolver(int pTableBits, int pThreads, ForkJoinPool pPool)
+	{
+		assert pThreads > 0;
+		aTable = new TranspositionTable(pTableBits);
+		aThreads = pThreads;
+		aPool = pPool;
+	}
+
+	/**
+	 * Solves the position of pEngine, which is left as it was.
+	 * @param pEngine A round in progress.
+	 * @param pMaxTurns The number of turns after which the round is drawn,
+	 * counted as <b>pEngine.getTurns()</b> counts them.
+	 * @return The points of player 0 with best play, negative if player 1 wins.
+	 * @pre pEngine.getPhase() != GameEngine.Phase.OVER && pMaxTurns <= MAX_TURNS
+	 */
+	public int solve(GameEngine pEngine, int pMaxTurns)
+	{
+		assert pEngine.getPhase() != GameEngine.Phase.OVER && pMaxTurns <= MAX_TURNS;
+		long start = System.nanoTime();
+		aStop = false;
+		List<Search> searches = new ArrayList<Search>();
+		for (int i = 0; i < aThreads; i++)
+		{
+			searches.add(new Search(i, pEngine, pMaxTurns));
+		}
+		List<Future<Integer>> helpers = new ArrayList<Future<Integer>>();
+		for (Search helper : searches.subList(1, aThreads))
+		{
+			helpers.add(aPool.submit(helper));
+		}
+		int value = searches.get(0).call();
+		aStop = true;
+		for (Future<Integer> helper : helpers)
+		{
+			try
+			{
+				helper.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+			catch (ExecutionException e)
+			{
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		for (Search search : searches)
+		{
+			aNodes += search.aNodes;
+			aProbes += search.aProbes;
+			aHits += search.aHits;
+		}
+		aBestAction = searches.get(0).aBestAction;
+		aNanos += System.nanoTime() - start;
+		return pEngine.getPlayer() == 0 ? value : -value;
+	}
+
+	/**
+	 * @return The best action in the position last solved.
+	 */
+	public int getBestAction()
+	{
+		return aBestAction;
+	}
+
+	/**
+	 * @return The number of positions searched, by all the threads.
+	 */
+	public long getNodes()
+	{
+		return aNodes;
+	}
+
+	/**
+	 * @return The number of positions searched per second, by all the threads.
+	 */
+	public double getNodesPerSecond()
+	{
+		return aNanos == 0 ? 0 : aNodes * 1e9 / aNanos;
+	}
+
+	/**
+	 * @return The proportion of the probes of the transposition table that found the position.
+	 */
+	public double getHitRate()
+	{
+		return aProbes == 0 ? 0 : (double) aHits / aProbes;
+	}
+
+	/**
+	 * Forgets the positions solved so far and resets the counters.
+	 */
+	public void clear()
+	{
+		aTable.clear();
+		aNodes = 0;
+		aProbes = 0;
+		aHits = 0;
+		aNanos = 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d nodes, %.0f nodes/s, %.1f%% table hits", aNodes, getNodesPerSecond(),
+				100 * getHitRate());
+	}
+
+	/**
+	 * @param pEngine A round in progress.
+	 * @return The Zobrist key of the position, not counting the turns left.
+	 */
+	static long key(GameEngine pEngine)
+	{
+		long key = 0;
+		for (int player = 0; player < 2; player++)
+		{
+			for (long cards = pEngine.getHand(player); cards != 0; cards &= cards - 1)
+			{
+				key ^= CARD_KEYS[Long.numberOfTrailingZeros(cards)][player];
+			}
+		}
+		for (int i = 0; i < pEngine.getDiscardCount(); i++)
+		{
+			key ^= CARD_KEYS[pEngine.getDiscard(i)][PILE + i];
+		}
+		// the order of the stock is part of the position, since positions are shared between rounds
+		for (int i = 0; i < pEngine.getStockSize(); i++)
+		{
+			key ^= CARD_KEYS[pEngine.getStock(i)][STOCK + i];
+		}
+		if (pEngine.getPlayer() == 1)
+		{
+			key ^= PLAYER_KEY;
+		}
+		// the card taken only matters until it is the opponent's turn
+		if (pEngine.getPhase() == GameEngine.Phase.DISCARD)
+		{
+			key ^= DISCARD_PHASE_KEY;
+			if (pEngine.getTakenDiscard() >= 0)
+			{
+				key ^= TAKEN_KEYS[pEngine.getTakenDiscard()];
+			}
+		}
+		return key;
+	}
+
+	/*
+	 * Thrown through the search of a helper thread when the main thread is done.
+	 */
+	private static final class Abort extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		Abort()
+		{
+			super(null, null, false, false);
+		}
+	}
+
+	/*
+	 * The search of one thread, on its own copy of the round.
+	 */
+	private final class Search implements Callable<Integer>
+	{
+		private final int aIndex;
+		private final int aMaxTurns;
+		private final GameEngine aEngine = new GameEngine(RandomSource.seeded(0));
+		private final int[][] aActions = new int[2 * MAX_TURNS + 2][GameEngine.MAX_ACTIONS];
+		private final SplittableRandom aRandom;
+		private int aBestAction = -1;
+		private long aNodes;
+		private long aProbes;
+		private long aHits;
+
+		Search(int pIndex, GameEngine pEngine, int pMaxTurns)
+		{
+			aIndex = pIndex;
+			aMaxTurns = pMaxTurns;
+			aEngine.setPosition(pEngine);
+			aRandom = new SplittableRandom(pIndex);
+		}
+
+		@Override
+		public Integer call()
+		{
+			try
+			{
+				return search(key(aEngine), -Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+			}
+			catch (Abort e)
+			{
+				return 0;
+			}
+		}
+
+		/*
+		 * Returns the value of the position for the player to move, or a bound
+		 * on it if it is outside of the window.
+		 */
+		private int search(long pKey, int pAlpha, int pBeta, int pPly)
+		{
+			assert pKey == key(aEngine);
+			int left = aMaxTurns - aEngine.getTurns();
+			if (aEngine.getPhase() == GameEngine.Phase.DRAW && left <= 0)
+			{
+				return 0;
+			}
+			if (aIndex > 0 && aStop)
+			{
+				throw ABORT;
+			}
+			aNodes++;
+			long key = pKey ^ TURN_KEYS[left];
+			long data = aTable.probe(key);
+			aProbes++;
+			int first = -1;
+			if (data != TranspositionTable.MISS)
+			{
+				aHits++;
+				int value = TranspositionTable.value(data);
+				int bound = TranspositionTable.bound(data);
+				if (pPly > 0 && (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER
+						&& value >= pBeta || bound == TranspositionTable.UPPER && value <= pAlpha))
+				{
+					return value;
+				}
+				first = TranspositionTable.action(data);
+			}
+			int[] actions = aActions[pPly];
+			int count = order(actions, aEngine.legalActions(actions), first);
+			int player = aEngine.getPlayer();
+			int alpha = pAlpha;
+			int best = -Integer.MAX_VALUE;
+			int bestAction = actions[0];
+			for (int i = 0; i < count && alpha < pBeta; i++)
+			{
+				long before = aEngine.getHand(player);
+				int taken = aEngine.getTakenDiscard();
+				aEngine.apply(actions[i]);
+				int value;
+				if (aEngine.getPhase() == GameEngine.Phase.OVER)
+				{
+					value = outcome();
+				}
+				else
+				{
+					long child = childKey(pKey, actions[i], player, before, taken);
+					value = aEngine.getPlayer() == player ? search(child, alpha, pBeta, pPly + 1) : -search(child,
+							-pBeta, -alpha, pPly + 1);
+				}
+				aEngine.undo();
+				if (value > best)
+				{
+					best = value;
+					bestAction = actions[i];
+					alpha = Math.max(alpha, value);
+				}
+			}
+			int bound = best <= pAlpha ? TranspositionTable.UPPER : best >= pBeta ? TranspositionTable.LOWER
+					: TranspositionTable.EXACT;
+			aTable.store(key, best, bound, bestAction);
+			if (pPly == 0)
+			{
+				aBestAction = bestAction;
+			}
+			return best;
+		}
+
+		/*
+		 * The points of the round just over, for the player who ended it.
+		 */
+		private int outcome()
+		{
+			int winner = aEngine.getWinner();
+			return winner < 0 ? 0 : winner == aEngine.getPlayer() ? aEngine.getPoints() : -aEngine.getPoints();
+		}
+
+		/*
+		 * The key of the position after pAction, applied by pPlayer whose hand
+		 * was pHand and who had taken pTaken from the discard pile.
+		 */
+		private long childKey(long pKey, int pAction, int pPlayer, long pHand, int pTaken)
+		{
+			int card = GameEngine.actionCard(pAction);
+			switch (GameEngine.actionType(pAction))
+			{
+			case GameEngine.DRAW_STOCK:
+				card = Long.numberOfTrailingZeros(aEngine.getHand(pPlayer) & ~pHand);
+				return pKey ^ CARD_KEYS[card][STOCK + aEngine.getStockSize()] ^ CARD_KEYS[card][pPlayer]
+						^ DISCARD_PHASE_KEY;
+			case GameEngine.TAKE_DISCARD:
+				return pKey ^ CARD_KEYS[card][PILE + aEngine.getDiscardCount()] ^ CARD_KEYS[card][pPlayer]
+						^ DISCARD_PHASE_KEY ^ TAKEN_KEYS[card];
+			default:
+				return pKey ^ CARD_KEYS[card][pPlayer] ^ CARD_KEYS[card][PILE + aEngine.getDiscardCount() - 1]
+						^ DISCARD_PHASE_KEY ^ PLAYER_KEY ^ (pTaken < 0 ? 0 : TAKEN_KEYS[pTaken]);
+			}
+		}
+
+		/*
+		 * Moves the best action of the table first, then the knocks, which end
+		 * the round and so are cheap to search and often good. Helpers shuffle
+		 * the other actions so that the threads search different subtrees first.
+		 */
+		private int order(int[] pActions, int pCount, int pFirst)
+		{
+			int front = 0;
+			for (int i = 0; i < pCount; i++)
+			{
+				if (pActions[i] == pFirst)
+				{
+					swap(pActions, front++, i);
+					break;
+				}
+			}
+			for (int i = front; i < pCount; i++)
+			{
+				if (GameEngine.actionType(pActions[i]) == GameEngine.KNOCK)
+				{
+					swap(pActions, front++, i);
+				}
+			}
+			if (aIndex > 0)
+			{
+				for (int i = front; i < pCount - 1; i++)
+				{
+					swap(pActions, i, i + aRandom.nextInt(pCount - i));
+				}
+			}
+			return pCount;
+		}
+	}
+
+	private static void swap(int[] pActions, int pFirst, int pSecond)
+	{
+		int action = pActions[pFirst];
+		pActions[pFirst] = pActions[pSecond];
+		pActions[pSecond] = action;
+	}
+
+	/**
+	 * Deals a round, plays it by drawing from the stock and discarding the
+	 * highest card until the stock is small, then solves the rest.
+	 * @param pArgs The seed, the stock size at which to solve, the number of
+	 * turns to solve for and the number of threads.
+	 */
+	public static void main(String[] pArgs)
+	{
+		long seed = pArgs.length > 0 ? Long.parseLong(pArgs[0]) : System.nanoTime();
+		int stock = pArgs.length > 1 ? Integer.parseInt(pArgs[1]) : 8;
+		int turns = pArgs.length > 2 ? Integer.parseInt(pArgs[2]) : 6;
+		int threads = pArgs.length > 3 ? Integer.parseInt(pArgs[3]) : 1;
+		GameEngine engine = new GameEngine(RandomSource.seeded(seed));
+		engine.deal(0);
+		while (engine.getStockSize() > stock)
+		{
+			engine.apply(GameEngine.DRAW_STOCK);
+			int card = Long.numberOfTrailingZeros(Long.highestOneBit(engine.getHand(engine.getPlayer())));
+			engine.apply(GameEngine.DISCARD | card);
+		}
+		DoubleDummySolver solver = new DoubleDummySolver(DEFAULT_TABLE_BITS, threads, ForkJoinPool.commonPool());
+		int value = solver.solve(engine, engine.getTurns() + turns);
+		System.out.println("Seed " + seed + ", player " + engine.getPlayer() + " to move: " + value
+				+ " points for player 0, " + GameEngine.toString(solver.getBestAction()));
+		System.out.println(solver);
+	}
+}
@@ -0,0 +1,311 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+import ca.mcgill.cs.comp303.rummy.model.HandEvaluator;
+import ca.mcgill.cs.comp303.rummy.model.MeldIndex;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+
+/**
+ * Computes the exact distribution of the minimum deadwood over all the hands
+ * of a given size, C(52,10) = 15,820,024,220 hands for starting hands.
+ * <p>
+ * Permuting the suits of a hand does not change its deadwood, so only one
+ * hand per class of suit permutations is evaluated: a hand is split into its
+ * four 13-bit suit patterns, and only hands whose patterns are in
+ * non-increasing order are enumerated, each weighted by the number of
+ * distinct hands its permutations give (24 divided by the factorials of the
+ * multiplicities of equal patterns). That cuts the work about 24 times. The
+ * patterns of each suit are walked in colexicographic order of their cards,
+ * one popcount at a time, with Gosper's hack.
+ * <p>
+ * The work is split into shards by the pattern of the first suit, which are
+ * spread across the cores of a fork/join pool. When a checkpoint file is
+ * given, the histogram of each completed shard is appended to it, and shards
+ * already in the file are skipped, so that an interrupted run can resume.
+ */
+public final class ExhaustiveDeadwood
+{
+	private static final int SUIT_SIZE = MeldIndex.SUIT_SIZE;
+	private static final int SUIT_PATTERNS = 1 << SUIT_SIZE;
+	private static final int PERMUTATIONS = 24;
+	private static final String HEADER = "hand size ";
+	private static final String SEPARATOR = ":";
+
+	private final int aHandSize;
+	private final File aCheckpoint;
+	private final ForkJoinPool aPool;
+	private BufferedWriter aWriter;
+
+	/**
+	 * @param pHandSize The number of cards of the hands.
+	 * @param pCheckpoint The file in which to record the completed shards, or null.
+	 * @param pPool The pool the shards are evaluated in.
+	 * @pre pHandSize > 0 && pHandSize <= 4 * MeldIndex.SUIT_SIZE
+	 */
+	public ExhaustiveDeadwood(int pHandSize, File pCheckpoint, ForkJoinPool pPool)
+	{
+		assert pHandSize > 0 && pHandSize <= MeldIndex.NUMBER_OF_SUITS * SUIT_SIZE;
+		aHandSize = pHandSize;
+		aCheckpoint = pCheckpoint;
+		aPool = pPool;
+	}
+
+	/**
+	 * Evaluates all the shards not yet in the checkpoint file.
+	 * @return The histogram of the deadwood of all the hands.
+	 * @throws IOException If the checkpoint file cannot be read or written, or is for another hand size.
+	 */
+	public DeadwoodHistogram run() throws IOException
+	{
+		DeadwoodHistogram histogram = new DeadwoodHistogram(aHandSize);
+		boolean[] done = new boolean[SUIT_PATTERNS];
+		if (aCheckpoint != null)
+		{
+			resume(histogram, done);
+		}
+		int[] shards = new int[SUIT_PATTERNS];
+		int count = 0;
+		for (int pattern = 0; pattern < SUIT_PATTERNS; pattern++)
+		{
+			if (!done[pattern] && Integer.bitCount(pattern) <= aHandSize)
+			{
+				shards[count++] = pattern;
+			}
+		}
+		try
+		{
+			histogram.merge(aPool.invoke(new Shards(shards, 0, count)));
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		finally
+		{
+			if (aWriter != null)
+			{
+				aWriter.close();
+				aWriter = null;
+			}
+		}
+		return histogram;
+	}
+
+	/*
+	 * Reads the completed shards. A line cut short by a crash does not end
+	 * with its separator-terminated histogram and is ignored: its shard is
+	 * evaluated again.
+	 */
+	private void resume(DeadwoodHistogram pHistogram, boolean[] pDone) throws IOException
+	{
+		if (!aCheckpoint.exists())
+		{
+			aWriter = Files.newBufferedWriter(aCheckpoint.toPath(), StandardCharsets.UTF_8);
+			aWriter.write(HEADER + aHandSize);
+			aWriter.newLine();
+			aWriter.flush();
+			return;
+		}
+		BufferedReader reader = Files.newBufferedReader(aCheckpoint.toPath(), StandardCharsets.UTF_8);
+		try
+		{
+			String header = reader.readLine();
+			if (!(HEADER + aHandSize).equals(header))
+			{
+				throw new IOException(aCheckpoint + " is not a checkpoint for hands of " + aHandSize + " cards");
+			}
+			for (String line = reader.readLine(); line != null; line = reader.readLine())
+			{
+				int first = line.indexOf(SEPARATOR);
+				if (first < 0 || !line.endsWith(SEPARATOR) || first == line.length() - 1)
+				{
+					continue;
+				}
+				try
+				{
+					int shard = Integer.parseInt(line.substring(0, first));
+					DeadwoodHistogram histogram = new DeadwoodHistogram(aHandSize);
+					histogram.mergeLine(line.substring(first + 1, line.length() - 1));
+					if (shard >= 0 && shard < SUIT_PATTERNS && !pDone[shard])
+					{
+						pDone[shard] = true;
+						pHistogram.merge(histogram);
+					}
+				}
+				catch (IllegalArgumentException e)
+				{
+					continue;
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		aWriter = Files.newBufferedWriter(aCheckpoint.toPath(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		// start on a new line in case the last one was cut short
+		aWriter.newLine();
+		aWriter.flush();
+	}
+
+	private synchronized void checkpoint(int pShard, DeadwoodHistogram pHistogram)
+	{
+		if (aWriter == null)
+		{
+			return;
+		}
+		try
+		{
+			aWriter.write(pShard + SEPARATOR + pHistogram.toLine() + SEPARATOR);
+			aWriter.newLine();
+			aWriter.flush();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Evaluates the hands whose first suit has pattern pFirst and whose other
+	 * suits have patterns no greater than the previous suit's.
+	 * @param pFirst The 13-bit pattern of the first suit.
+	 * @param pSolver The solver used for the hands that hold melds.
+	 * @return The histogram of the hands of the shard, weighted by their permutations.
+	 */
+	DeadwoodHistogram shard(int pFirst, MeldSolver pSolver)
+	{
+		DeadwoodHistogram histogram = new DeadwoodHistogram(aHandSize);
+		int left1 = aHandSize - Integer.bitCount(pFirst);
+		for (int count1 = 0; count1 <= Math.min(left1, SUIT_SIZE); count1++)
+		{
+			int left2 = left1 - count1;
+			if (left2 > 2 * SUIT_SIZE)
+			{
+				continue;
+			}
+			for (int second = first(count1); second <= pFirst; second = next(second))
+			{
+				for (int count2 = Math.max(0, left2 - SUIT_SIZE); count2 <= Math.min(left2, SUIT_SIZE); count2++)
+				{
+					int count3 = left2 - count2;
+					for (int third = first(count2); third <= second; third = next(third))
+					{
+						long cards = pFirst | ((long) second << SUIT_SIZE) | ((long) third << (2 * SUIT_SIZE));
+						for (int fourth = first(count3); fourth <= third; fourth = next(fourth))
+						{
+							long hand = cards | ((long) fourth << (3 * SUIT_SIZE));
+							int deadwood = HandEvaluator.hasMeld(hand) ? pSolver.solve(hand) : MeldSolver.deadwood(hand);
+							histogram.add(deadwood, weight(pFirst, second, third, fourth));
+						}
+					}
+				}
+			}
+		}
+		return histogram;
+	}
+
+	/*
+	 * The smallest pattern of pCount cards.
+	 */
+	private static int first(int pCount)
+	{
+		return (1 << pCount) - 1;
+	}
+
+	/*
+	 * Gosper's hack: the next larger pattern with as many cards, or a value
+	 * past the last 13-bit pattern once they are exhausted.
+	 */
+	private static int next(int pPattern)
+	{
+		if (pPattern == 0)
+		{
+			return SUIT_PATTERNS;
+		}
+		int lowest = pPattern & -pPattern;
+		int ripple = pPattern + lowest;
+		return (((ripple ^ pPattern) >>> 2) / lowest) | ripple;
+	}
+
+	/*
+	 * The number of distinct hands obtained by permuting the suits of a hand
+	 * whose suit patterns are in non-increasing order.
+	 */
+	private static int weight(int pFirst, int pSecond, int pThird, int pFourth)
+	{
+		int divisor = 1;
+		int equal = 1;
+		equal = pFirst == pSecond ? equal + 1 : 1;
+		divisor *= equal;
+		equal = pSecond == pThird ? equal + 1 : 1;
+		divisor *= equal;
+		equal = pThird == pFourth ? equal + 1 : 1;
+		divisor *= equal;
+		return PERMUTATIONS / divisor;
+	}
+
+	/*
+	 * Splits its shards in halves down to single shards, each checkpointed as it completes.
+	 */
+	@SuppressWarnings("serial")
+	private final class Shards extends RecursiveTask<DeadwoodHistogram>
+	{
+		private final int[] aShards;
+		private final int aFrom;
+		private final int aTo;
+
+		Shards(int[] pShards, int pFrom, int pTo)
+		{
+			aShards = pShards;
+			aFrom = pFrom;
+			aTo = pTo;
+		}
+
+		@Override
+		protected DeadwoodHistogram compute()
+		{
+			if (aTo - aFrom > 1)
+			{
+				int middle = (aFrom + aTo) >>> 1;
+				Shards second = new Shards(aShards, middle, aTo);
+				second.fork();
+				DeadwoodHistogram histogram = new Shards(aShards, aFrom, middle).compute();
+				return histogram.merge(second.join());
+			}
+			DeadwoodHistogram histogram = new DeadwoodHistogram(aHandSize);
+			if (aTo > aFrom)
+			{
+				histogram = shard(aShards[aFrom], new MeldSolver());
+				checkpoint(aShards[aFrom], histogram);
+			}
+			return histogram;
+		}
+	}
+
+	/**
+	 * Computes the distribution of deadwood over all the hands and prints it.
+	 * @param pArgs The hand size (10 by default), then an optional checkpoint file.
+	 * @throws IOException If the checkpoint file cannot be used.
+	 */
+	public static void main(String[] pArgs) throws IOException
+	{
+		int handSize = pArgs.length > 0 ? Integer.parseInt(pArgs[0]) : Hand.HAND_SIZE;
+		File checkpoint = pArgs.length > 1 ? new File(pArgs[1]) : null;
+		long start = System.nanoTime();
+		DeadwoodHistogram histogram = new ExhaustiveDeadwood(handSize, checkpoint, ForkJoinPool.commonPool()).run();
+		System.out.print(histogram);
+		System.out.printf("%.1f s%n", (System.nanoTime() - start) / 1e9);
+	}
+}
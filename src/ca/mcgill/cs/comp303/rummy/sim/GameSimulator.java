@@ -0,0 +1,245 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+import ca.mcgill.cs.comp303.rummy.results.ResultsWriter;
+
+/**
+ * Plays complete games of Gin Rummy between two strategies, headless, across
+ * all the cores of a fork/join pool. A game is a series of rounds, dealt
+ * alternately by each player, until a player reaches <b>GAME_POINTS</b>.
+ * <p>
+ * Game <i>n</i> of a simulation is dealt from a deck reseeded with a mix of
+ * the simulation seed and <i>n</i>, so results do not depend on how the
+ * games were split between threads. Each leaf task owns its deck, round
+ * and strategies, and returns its own statistics, merged as tasks join.
+ * Given a <b>ResultsWriter</b>, each leaf task also gathers a row per round
+ * in its own batch and writes it to the store when it is full.
+ */
+public final class GameSimulator
+{
+	public static final int GAME_POINTS = 100;
+	private static final int MAX_ROUNDS = 500;
+	private static final int LEAF_GAMES = 64;
+	private static final long DEFAULT_GAMES = 100000;
+	private static final int BATCH_ROWS = 1024;
+
+	private final Strategy.Factory[] aFactories;
+	private final ForkJoinPool aPool;
+
+	/**
+	 * @param pFirst The strategy of the first player.
+	 * @param pSecond The strategy of the second player.
+	 * @param pPool The pool the games are played in.
+	 */
+	public GameSimulator(Strategy.Factory pFirst, Strategy.Factory pSecond, ForkJoinPool pPool)
+	{
+		aFactories = new Strategy.Factory[] { pFirst, pSecond };
+		aPool = pPool;
+	}
+
+	/**
+	 * @param pFirst The strategy of the first player.
+	 * @param pSecond The strategy of the second player.
+	 */
+	public GameSimulator(Strategy.Factory pFirst, Strategy.Factory pSecond)
+	{
+		this(pFirst, pSecond, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Plays games <b>pFirstGame</b> to <b>pFirstGame + pGames - 1</b> of the simulation seeded with <b>pSeed</b>.
+	 * @param pSeed The seed of the simulation.
+	 * @param pFirstGame The number of the first game to play.
+	 * @param pGames The number of games to play.
+	 * @return The statistics of the games.
+	 */
+	public SimulationStats run(long pSeed, long pFirstGame, long pGames)
+	{
+		long start = System.nanoTime();
+		SimulationStats stats = aPool.invoke(new Games(pSeed, pFirstGame, pFirstGame + pGames, null, null));
+		stats.setElapsedNanos(System.nanoTime() - start);
+		return stats;
+	}
+
+	/**
+	 * Plays games <b>pFirstGame</b> to <b>pFirstGame + pGames - 1</b> of the
+	 * simulation seeded with <b>pSeed</b>, and appends a row per round to a
+	 * results store. The strategies are named in the store after their factories.
+	 * @param pSeed The seed of the simulation.
+	 * @param pFirstGame The number of the first game to play.
+	 * @param pGames The number of games to play.
+	 * @param pResults The store to append the rounds to.
+	 * @return The statistics of the games.
+	 * @throws IOException If the rounds cannot be written.
+	 */
+	public SimulationStats run(long pSeed, long pFirstGame, long pGames, ResultsWriter pResults) throws IOException
+	{
+		long start = System.nanoTime();
+		int[] strategies = { pResults.strategy(aFactories[0].toString()), pResults.strategy(aFactories[1].toString()) };
+		SimulationStats stats;
+		try
+		{
+			stats = aPool.invoke(new Games(pSeed, pFirstGame, pFirstGame + pGames, pResults, strategies));
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		stats.setElapsedNanos(System.nanoTime() - start);
+		return stats;
+	}
+
+	/**
+	 * Plays the first <b>pGames</b> games of the simulation seeded with <b>pSeed</b>.
+	 * @param pSeed The seed of the simulation.
+	 * @param pGames The number of games to play.
+	 * @return The statistics of the games.
+	 */
+	public SimulationStats run(long pSeed, long pGames)
+	{
+		return run(pSeed, 0, pGames);
+	}
+
+	/**
+	 * @param pSeed The seed of a simulation.
+	 * @param pGame The number of a game.
+	 * @return The seed of the deck of the game.
+	 */
+	public static long gameSeed(long pSeed, long pGame)
+	{
+		// SplitMix64 finalizer over the game number, offset by the simulation seed
+		long seed = pSeed + (pGame + 1) * 0x9E3779B97F4A7C15L;
+		seed = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		seed = (seed ^ (seed >>> 27)) * 0x94D049BB133111EBL;
+		return seed ^ (seed >>> 31);
+	}
+
+	/*
+	 * Splits its range of games in halves until it is small enough to be played by one thread.
+	 */
+	@SuppressWarnings("serial")
+	private final class Games extends RecursiveTask<SimulationStats>
+	{
+		private final long aSeed;
+		private final long aFrom;
+		private final long aTo;
+		private final ResultsWriter aResults;
+		private final int[] aStrategies;
+
+		Games(long pSeed, long pFrom, long pTo, ResultsWriter pResults, int[] pStrategies)
+		{
+			aSeed = pSeed;
+			aFrom = pFrom;
+			aTo = pTo;
+			aResults = pResults;
+			aStrategies = pStrategies;
+		}
+
+		@Override
+		protected SimulationStats compute()
+		{
+			if (aTo - aFrom > LEAF_GAMES)
+			{
+				long middle = (aFrom + aTo) >>> 1;
+				Games second = new Games(aSeed, middle, aTo, aResults, aStrategies);
+				second.fork();
+				SimulationStats stats = new Games(aSeed, aFrom, middle, aResults, aStrategies).compute();
+				return stats.merge(second.join());
+			}
+			Strategy[] strategies = { aFactories[0].create(), aFactories[1].create() };
+			Random random = new Random();
+			Round round = new Round(RandomSource.of(random));
+			SimulationStats stats = new SimulationStats();
+			ResultsWriter.Batch batch = aResults == null ? null : new ResultsWriter.Batch(BATCH_ROWS);
+			try
+			{
+				for (long game = aFrom; game < aTo; game++)
+				{
+					random.setSeed(gameSeed(aSeed, game));
+					stats.recordGame(play(round, strategies, game, stats, batch));
+				}
+				if (batch != null)
+				{
+					aResults.write(batch);
+				}
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			return stats;
+		}
+
+		/*
+		 * Plays rounds until a player reaches GAME_POINTS and returns that player, or -1.
+		 * Each round is added to pBatch, if it is not null, and the batch written when full.
+		 */
+		private int play(Round pRound, Strategy[] pStrategies, long pGame, SimulationStats pStats,
+				ResultsWriter.Batch pBatch) throws IOException
+		{
+			int[] scores = new int[2];
+			int dealer = (int) (pGame & 1);
+			for (int rounds = 0; rounds < MAX_ROUNDS; rounds++)
+			{
+				pRound.play(dealer, pStrategies);
+				GameEngine engine = pRound.getEngine();
+				int winner = engine.getWinner();
+				pStats.recordRound(engine.getTurns(), winner, engine.getKnockDeadwood(), engine.isGin(),
+						engine.isUndercut());
+				if (pBatch != null)
+				{
+					pBatch.add(aSeed, pGame, aStrategies[0], aStrategies[1], engine);
+					if (pBatch.isFull())
+					{
+						aResults.write(pBatch);
+					}
+				}
+				if (winner >= 0)
+				{
+					scores[winner] += engine.getPoints();
+					if (scores[winner] >= GAME_POINTS)
+					{
+						return winner;
+					}
+				}
+				dealer = 1 - dealer;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Simulates games between two greedy strategies and prints the statistics.
+	 * @param pArgs The number of games, the seed, and the directory of a
+	 * results store to append the rounds to; all optional.
+	 * @throws IOException If the rounds cannot be written.
+	 */
+	public static void main(String[] pArgs) throws IOException
+	{
+		long games = pArgs.length > 0 ? Long.parseLong(pArgs[0]) : DEFAULT_GAMES;
+		long seed = pArgs.length > 1 ? Long.parseLong(pArgs[1]) : System.nanoTime();
+		GameSimulator simulator = new GameSimulator(GreedyStrategy.factory(GameEngine.KNOCK_LIMIT), GreedyStrategy.factory(0));
+		if (pArgs.length < 3)
+		{
+			System.out.println("Seed " + seed + ": " + simulator.run(seed, games));
+			return;
+		}
+		ResultsWriter results = new ResultsWriter(Paths.get(pArgs[2]));
+		try
+		{
+			System.out.println("Seed " + seed + ": " + simulator.run(seed, 0, games, results));
+		}
+		finally
+		{
+			results.close();
+		}
+	}
+}
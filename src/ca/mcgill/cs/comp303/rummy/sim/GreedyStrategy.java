@@ -0,0 +1,109 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+
+/**
+ * Plays for the lowest deadwood at every turn: takes the discard if it lowers
+ * the deadwood, discards the card that leaves the lowest deadwood (the highest
+ * such card on ties), and knocks as soon as its deadwood is at most the
+ * knock threshold.
+ */
+public class GreedyStrategy implements Strategy
+{
+	private final MeldSolver aSolver = new MeldSolver();
+	private final int aKnockThreshold;
+
+	/**
+	 * @param pKnockThreshold The highest deadwood at which this strategy knocks; 0 only knocks for gin.
+	 */
+	public GreedyStrategy(int pKnockThreshold)
+	{
+		aKnockThreshold = pKnockThreshold;
+	}
+
+	/**
+	 * @param pKnockThreshold The highest deadwood at which the strategies knock.
+	 * @return A factory of greedy strategies.
+	 */
+	public static Strategy.Factory factory(final int pKnockThreshold)
+	{
+		return new Strategy.Factory()
+		{
+			@Override
+			public Strategy create()
+			{
+				return new GreedyStrategy(pKnockThreshold);
+			}
+
+			@Override
+			public String toString()
+			{
+				return "Greedy(" + pKnockThreshold + ")";
+			}
+		};
+	}
+
+	@Override
+	public boolean takeDiscard(PlayerView pView)
+	{
+		int top = pView.discardTop();
+		if (top < 0)
+		{
+			return false;
+		}
+		long hand = pView.hand();
+		int current = aSolver.solve(hand);
+		return bestDiscardDeadwood(hand | (1L << top), top) < current;
+	}
+
+	@Override
+	public int discard(PlayerView pView)
+	{
+		long hand = pView.hand();
+		int taken = pView.takenDiscard();
+		int best = -1;
+		int bestDeadwood = Integer.MAX_VALUE;
+		for (long cards = hand; cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			if (card != taken)
+			{
+				int deadwood = aSolver.solve(hand & ~(1L << card));
+				if (deadwood < bestDeadwood || (deadwood == bestDeadwood && points(card) >= points(best)))
+				{
+					best = card;
+					bestDeadwood = deadwood;
+				}
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public boolean knock(PlayerView pView, int pDeadwood)
+	{
+		return pDeadwood <= aKnockThreshold;
+	}
+
+	/*
+	 * The lowest deadwood reachable from an 11-card hand by discarding a card other than pKept.
+	 */
+	private int bestDiscardDeadwood(long pHand, int pKept)
+	{
+		int best = Integer.MAX_VALUE;
+		for (long cards = pHand; cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			if (card != pKept)
+			{
+				best = Math.min(best, aSolver.solve(pHand & ~(1L << card)));
+			}
+		}
+		return best;
+	}
+
+	private static int points(int pCard)
+	{
+		return pCard < 0 ? -1 : MeldSolver.deadwood(1L << pCard);
+	}
+}
@@ -0,0 +1,72 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+/**
+ * A computation split into numbered shards that can be evaluated
+ * independently, possibly in other processes, and whose results are merged.
+ * A job is described by a one-line spec, from which a worker rebuilds it, and
+ * the result of each shard travels as a line of text. Merging does not depend
+ * on the order in which shards complete.
+ */
+public abstract class Job
+{
+	/**
+	 * @return The line from which <b>parse</b> rebuilds this job.
+	 */
+	public abstract String getSpec();
+
+	/**
+	 * @return The number of shards, numbered from 0.
+	 */
+	public abstract int getShardCount();
+
+	/**
+	 * Evaluates a shard.
+	 * @param pShard The number of the shard.
+	 * @return The result of the shard, on a single line.
+	 */
+	public abstract String runShard(int pShard);
+
+	/**
+	 * Parses the result of a shard without merging it, so that a malformed
+	 * result leaves the job unchanged.
+	 * @param pResult The result of a shard, as returned by <b>runShard</b>.
+	 * @return The parsed result, to pass to <b>mergeShard</b>.
+	 * @throws IllegalArgumentException If the result is malformed.
+	 */
+	public abstract Object parseShard(String pResult);
+
+	/**
+	 * Adds the result of a shard to the result of the job.
+	 * Called once per shard, by one thread at a time.
+	 * @param pResult The result of a shard, as returned by <b>parseShard</b>.
+	 */
+	public abstract void mergeShard(Object pResult);
+
+	/**
+	 * Rebuilds a job from its spec.
+	 * @param pSpec A spec returned by <b>getSpec()</b>.
+	 * @return A new job, with no shard merged.
+	 * @throws IllegalArgumentException If the spec does not describe a known job.
+	 */
+	public static Job parse(String pSpec)
+	{
+		String[] fields = pSpec.trim().split(" ");
+		try
+		{
+			if (fields[0].equals(DeadwoodJob.NAME) && fields.length == 2)
+			{
+				return new DeadwoodJob(Integer.parseInt(fields[1]));
+			}
+			if (fields[0].equals(SimulationJob.NAME) && fields.length == 5)
+			{
+				return new SimulationJob(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+						Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Malformed job: " + pSpec, e);
+		}
+		throw new IllegalArgumentException("Unknown job: " + pSpec);
+	}
+}
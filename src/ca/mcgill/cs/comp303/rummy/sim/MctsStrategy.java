@@ -0,0 +1,541 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.Hand;
+import ca.mcgill.cs.comp303.rummy.model.MeldIndex;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+
+/**
+ * Chooses its moves with information-set Monte Carlo tree search. Each
+ * iteration of a search deals a determinization of the round, a version of
+ * it consistent with what the player has seen: the cards the opponent is
+ * known to hold, the rest of its hand and the stock drawn at random from the
+ * unseen cards. The iteration then walks down a tree of engine actions
+ * shared by all the determinizations, choosing among the actions legal in
+ * this one with UCB1 weighted by how often each was available, adds a node,
+ * and plays the round out with a cheap policy: take the discard only if it
+ * completes a meld, discard the highest unmatched card, knock as soon as
+ * possible. The reward is the points of the round, from the point of view of
+ * each mover, scaled to [0, 1].
+ * <p>
+ * Searches use root parallelism: each thread grows its own tree on its own
+ * engine until the time budget or the playout limit of the move is reached,
+ * then the visits of the root actions are summed over the trees and the most
+ * visited action is played. The strategy counts its playouts, to report
+ * playouts per second.
+ * <p>
+ * The cards below the top of the discard pile are put back in an arbitrary
+ * order in the determinizations, since the view only gives the top card.
+ */
+public class MctsStrategy implements Strategy
+{
+	public static final double EXPLORATION = 0.7;
+
+	private static final int MAX_POINTS = 50;
+	private static final int MAX_TAKING_TURNS = 64;
+	private static final long DEFAULT_GAMES = 20;
+	private static final long DEFAULT_BUDGET_MILLIS = 20;
+	private static final long ALL_CARDS = (1L << Card.NUMBER_OF_CARDS) - 1;
+	private static final int ME = 0;
+
+	private final long aBudgetNanos;
+	private final int aMaxPlayouts;
+	private final ForkJoinPool aPool;
+	private final List<Search> aSearches = new ArrayList<Search>();
+	private boolean aKnock;
+	private long aPlayouts;
+	private long aSearchNanos;
+
+	// the position of the move being searched, as seen by this player
+	private GameEngine.Phase aPhase;
+	private long aHand;
+	private long aOpponentKnown;
+	private long aDiscardPile;
+	private int aDiscardTop;
+	private int aStockSize;
+	private int aTaken;
+
+	/**
+	 * @param pBudgetNanos The time budget of each move, in nanoseconds, or 0 for no time limit.
+	 * @param pMaxPlayouts The maximum number of playouts of each thread per move, or 0 for no limit.
+	 * @param pThreads The number of trees searched in parallel.
+	 * @param pSeed The seed of the random determinizations and playouts.
+	 * @param pPool The pool the searches run in, when there are several threads.
+	 * @pre (pBudgetNanos > 0 || pMaxPlayouts > 0) && pThreads > 0
+	 */
+	public MctsStrategy(long pBudgetNanos, int pMaxPlayouts, int pThreads, long pSeed, ForkJoinPool pPool)
+	{
+		assert (pBudgetNanos > 0 || pMaxPlayouts > 0) && pThreads > 0;
+		aBudgetNanos = pBudgetNanos;
+		aMaxPlayouts = pMaxPlayouts;
+		aPool = pPool;
+		SplittableRandom seeds = new SplittableRandom(pSeed);
+		for (int i = 0; i < pThreads; i++)
+		{
+			aSearches.add(new Search(seeds.split()));
+		}
+	}
+
+	/**
+	 * @param pBudgetNanos The time budget of each move, in nanoseconds.
+	 * @param pThreads The number of trees searched in parallel in the common pool.
+	 * @return A factory of strategies with these settings and different seeds.
+	 */
+	public static Strategy.Factory factory(final long pBudgetNanos, final int pThreads)
+	{
+		return new Strategy.Factory()
+		{
+			private final SplittableRandom aSeeds = new SplittableRandom();
+
+			@Override
+			public Strategy create()
+			{
+				long seed;
+				synchronized (aSeeds)
+				{
+					seed = aSeeds.nextLong();
+				}
+				return new MctsStrategy(pBudgetNanos, 0, pThreads, seed, ForkJoinPool.commonPool());
+			}
+
+			@Override
+			public String toString()
+			{
+				return "Mcts(" + pBudgetNanos / 1000000 + " ms, " + pThreads + " threads)";
+			}
+		};
+	}
+
+	@Override
+	public boolean takeDiscard(PlayerView pView)
+	{
+		if (pView.discardTop() < 0)
+		{
+			return false;
+		}
+		return GameEngine.actionType(search(pView, GameEngine.Phase.DRAW)) == GameEngine.TAKE_DISCARD;
+	}
+
+	@Override
+	public int discard(PlayerView pView)
+	{
+		int action = search(pView, GameEngine.Phase.DISCARD);
+		aKnock = GameEngine.actionType(action) == GameEngine.KNOCK;
+		return GameEngine.actionCard(action);
+	}
+
+	@Override
+	public boolean knock(PlayerView pView, int pDeadwood)
+	{
+		return aKnock;
+	}
+
+	/**
+	 * @return The number of playouts run by all the searches of this strategy.
+	 */
+	public long getPlayouts()
+	{
+		return aPlayouts;
+	}
+
+	/**
+	 * @return The wall-clock time spent searching, in nanoseconds.
+	 */
+	public long getSearchNanos()
+	{
+		return aSearchNanos;
+	}
+
+	/**
+	 * @return The number of playouts per second of search, over all the threads.
+	 */
+	public double getPlayoutsPerSecond()
+	{
+		return aSearchNanos == 0 ? 0 : aPlayouts * 1e9 / aSearchNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Mcts: %d playouts, %.0f playouts/s", aPlayouts, getPlayoutsPerSecond());
+	}
+
+	/**
+	 * Plays games of the search against the greedy strategy and reports the
+	 * results and the playout rate.
+	 * @param pArgs The number of games, the budget of a move in
+	 * milliseconds, and the number of search threads of each move.
+	 */
+	public static void main(String[] pArgs)
+	{
+		long games = pArgs.length > 0 ? Long.parseLong(pArgs[0]) : DEFAULT_GAMES;
+		long budget = (pArgs.length > 1 ? Long.parseLong(pArgs[1]) : DEFAULT_BUDGET_MILLIS) * 1000000;
+		final int threads = pArgs.length > 2 ? Integer.parseInt(pArgs[2]) : 1;
+		final Strategy.Factory factory = factory(budget, threads);
+		final List<MctsStrategy> created = new ArrayList<MctsStrategy>();
+		Strategy.Factory recording = new Strategy.Factory()
+		{
+			@Override
+			public Strategy create()
+			{
+				MctsStrategy strategy = (MctsStrategy) factory.create();
+				synchronized (created)
+				{
+					created.add(strategy);
+				}
+				return strategy;
+			}
+		};
+		// with several search threads, games are played one at a time so the threads search in parallel
+		GameSimulator simulator = new GameSimulator(recording, GreedyStrategy.factory(GameEngine.KNOCK_LIMIT),
+				threads > 1 ? new ForkJoinPool(1) : ForkJoinPool.commonPool());
+		System.out.println(factory + " vs Greedy: " + simulator.run(System.nanoTime(), games));
+		long playouts = 0;
+		long nanos = 0;
+		for (MctsStrategy strategy : created)
+		{
+			playouts += strategy.getPlayouts();
+			nanos += strategy.getSearchNanos();
+		}
+		System.out.println(String.format("%d playouts, %.0f playouts/s per searching game", playouts, playouts * 1e9
+				/ nanos));
+	}
+
+	/*
+	 * Searches the position from all the threads and returns the root action
+	 * with the most visits over all the trees.
+	 */
+	private int search(PlayerView pView, GameEngine.Phase pPhase)
+	{
+		aPhase = pPhase;
+		aHand = pView.hand();
+		aOpponentKnown = pView.opponentKnown();
+		aDiscardPile = pView.discardPile();
+		aDiscardTop = pView.discardTop();
+		aStockSize = pView.stockSize();
+		aTaken = pView.takenDiscard();
+		long start = System.nanoTime();
+		long deadline = aBudgetNanos > 0 ? start + aBudgetNanos : Long.MAX_VALUE;
+		for (Search search : aSearches)
+		{
+			search.aDeadline = deadline;
+		}
+		List<Node> roots = new ArrayList<Node>();
+		if (aSearches.size() == 1)
+		{
+			roots.add(aSearches.get(0).call());
+		}
+		else
+		{
+			for (Future<Node> root : aPool.invokeAll(aSearches))
+			{
+				try
+				{
+					roots.add(root.get());
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException(e);
+				}
+				catch (ExecutionException e)
+				{
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		}
+		aSearchNanos += System.nanoTime() - start;
+		int best = -1;
+		int bestVisits = -1;
+		for (Node child : roots.get(0).aChildren)
+		{
+			int visits = 0;
+			for (Node root : roots)
+			{
+				Node other = root.child(child.aAction);
+				visits += other == null ? 0 : other.aVisits;
+			}
+			if (visits > bestVisits)
+			{
+				best = child.aAction;
+				bestVisits = visits;
+			}
+		}
+		for (Node root : roots)
+		{
+			aPlayouts += root.aVisits;
+		}
+		return best;
+	}
+
+	/*
+	 * A node of a search tree: the action that leads to it, the player who
+	 * took that action, and the statistics of the iterations through it.
+	 */
+	private static final class Node
+	{
+		private final int aAction;
+		private final int aMover;
+		private final List<Node> aChildren = new ArrayList<Node>();
+		private int aVisits;
+		private int aAvailability = 1;
+		private double aReward;
+
+		Node(int pAction, int pMover)
+		{
+			aAction = pAction;
+			aMover = pMover;
+		}
+
+		Node child(int pAction)
+		{
+			for (Node child : aChildren)
+			{
+				if (child.aAction == pAction)
+				{
+					return child;
+				}
+			}
+			return null;
+		}
+
+		double ucb()
+		{
+			return aReward / aVisits + EXPLORATION * Math.sqrt(Math.log(aAvailability) / aVisits);
+		}
+	}
+
+	/*
+	 * The state of the search of one thread, kept from move to move so that
+	 * iterations do not allocate beyond the nodes they add.
+	 */
+	private final class Search implements Callable<Node>
+	{
+		private final SplittableRandom aRandom;
+		private final GameEngine aEngine;
+		private final MeldSolver aSolver = new MeldSolver();
+		private final int[] aActions = new int[GameEngine.MAX_ACTIONS];
+		private final int[] aUntried = new int[GameEngine.MAX_ACTIONS];
+		private final List<Node> aPath = new ArrayList<Node>();
+		private final long[] aHands = new long[2];
+		private final long[] aKnown = new long[2];
+		private final byte[] aUnseen = new byte[Card.NUMBER_OF_CARDS];
+		private final byte[] aDiscards = new byte[Card.NUMBER_OF_CARDS];
+		private long aDeadline;
+
+		Search(SplittableRandom pRandom)
+		{
+			aRandom = pRandom;
+			aEngine = new GameEngine(RandomSource.of(pRandom.split()));
+		}
+
+		@Override
+		public Node call()
+		{
+			Node root = new Node(-1, 1 - ME);
+			int playouts = 0;
+			do
+			{
+				determinize();
+				iterate(root);
+				playouts++;
+			}
+			while ((aMaxPlayouts == 0 || playouts < aMaxPlayouts) && System.nanoTime() < aDeadline);
+			return root;
+		}
+
+		/*
+		 * Deals the unseen cards at random between the opponent's hand and the stock.
+		 */
+		private void determinize()
+		{
+			long unseen = ALL_CARDS & ~aHand & ~aDiscardPile & ~aOpponentKnown;
+			int count = 0;
+			for (long cards = unseen; cards != 0; cards &= cards - 1)
+			{
+				aUnseen[count++] = (byte) Long.numberOfTrailingZeros(cards);
+			}
+			int dealt = Hand.HAND_SIZE - Long.bitCount(aOpponentKnown);
+			long opponent = aOpponentKnown;
+			for (int i = 0; i < count; i++)
+			{
+				int j = i + aRandom.nextInt(count - i);
+				byte card = aUnseen[j];
+				aUnseen[j] = aUnseen[i];
+				aUnseen[i] = card;
+				if (i < dealt)
+				{
+					opponent |= 1L << card;
+				}
+			}
+			aHands[ME] = aHand;
+			aHands[1 - ME] = opponent;
+			aKnown[1 - ME] = aOpponentKnown;
+			int discards = 0;
+			for (long cards = aDiscardPile & ~(aDiscardTop < 0 ? 0 : 1L << aDiscardTop); cards != 0; cards &= cards - 1)
+			{
+				aDiscards[discards++] = (byte) Long.numberOfTrailingZeros(cards);
+			}
+			if (aDiscardTop >= 0)
+			{
+				aDiscards[discards++] = (byte) aDiscardTop;
+			}
+			System.arraycopy(aUnseen, dealt, aUnseen, 0, count - dealt);
+			aEngine.setPosition(ME, aPhase, aHands, aKnown, aDiscards, discards, aUnseen,
+					Math.min(aStockSize, count - dealt), aTaken);
+		}
+
+		/*
+		 * Selects down the tree through the actions legal in this
+		 * determinization, expands one untried action, plays out and backs up.
+		 */
+		private void iterate(Node pRoot)
+		{
+			aPath.clear();
+			aPath.add(pRoot);
+			Node node = pRoot;
+			while (aEngine.getPhase() != GameEngine.Phase.OVER)
+			{
+				int count = aEngine.legalActions(aActions);
+				int untried = 0;
+				Node best = null;
+				double bestValue = Double.NEGATIVE_INFINITY;
+				for (int i = 0; i < count; i++)
+				{
+					Node child = node.child(aActions[i]);
+					if (child == null)
+					{
+						aUntried[untried++] = aActions[i];
+					}
+					else
+					{
+						child.aAvailability++;
+						double value = child.ucb();
+						if (value > bestValue)
+						{
+							best = child;
+							bestValue = value;
+						}
+					}
+				}
+				if (untried > 0)
+				{
+					Node child = new Node(aUntried[aRandom.nextInt(untried)], aEngine.getPlayer());
+					node.aChildren.add(child);
+					aEngine.apply(child.aAction);
+					aPath.add(child);
+					break;
+				}
+				aEngine.apply(best.aAction);
+				node = best;
+				aPath.add(node);
+			}
+			playOut();
+			double reward = reward();
+			for (Node visited : aPath)
+			{
+				visited.aVisits++;
+				visited.aReward += visited.aMover == ME ? reward : 1 - reward;
+			}
+		}
+
+		private void playOut()
+		{
+			while (aEngine.getPhase() != GameEngine.Phase.OVER)
+			{
+				long hand = aEngine.getHand(aEngine.getPlayer());
+				if (aEngine.getPhase() == GameEngine.Phase.DRAW)
+				{
+					int top = aEngine.discardTop();
+					// players can pass melds back and forth forever, so late playouts draw until the stock runs out
+					boolean take = top >= 0 && aEngine.getTurns() < MAX_TAKING_TURNS && completesMeld(hand, top);
+					aEngine.apply(take ? GameEngine.TAKE_DISCARD | top : GameEngine.DRAW_STOCK);
+				}
+				else
+				{
+					aEngine.apply(policyDiscard(hand, aEngine.getTakenDiscard()));
+				}
+			}
+		}
+
+		/*
+		 * Discards the highest unmatched card, and knocks if the deadwood left allows it.
+		 */
+		private int policyDiscard(long pHand, int pTaken)
+		{
+			int deadwood = aSolver.solve(pHand);
+			long unmatched = pHand;
+			for (int i = 0; i < aSolver.getMatchCount(); i++)
+			{
+				unmatched &= ~aSolver.getMatch(i);
+			}
+			long taken = pTaken < 0 ? 0 : 1L << pTaken;
+			long candidates = unmatched & ~taken;
+			if (candidates == 0)
+			{
+				candidates = pHand & ~taken;
+			}
+			int card = highest(candidates);
+			int left = (unmatched & (1L << card)) != 0 ? deadwood - MeldSolver.deadwood(1L << card) : aSolver
+					.solve(pHand & ~(1L << card));
+			return (left <= GameEngine.KNOCK_LIMIT ? GameEngine.KNOCK : GameEngine.DISCARD) | card;
+		}
+
+		private double reward()
+		{
+			int winner = aEngine.getWinner();
+			if (winner < 0)
+			{
+				return 0.5;
+			}
+			double margin = 0.5 * Math.min(aEngine.getPoints(), MAX_POINTS) / MAX_POINTS;
+			return winner == ME ? 0.5 + margin : 0.5 - margin;
+		}
+	}
+
+	/*
+	 * The card of highest point value, the highest rank among face cards.
+	 */
+	private static int highest(long pCards)
+	{
+		int best = -1;
+		int bestValue = -1;
+		for (long cards = pCards; cards != 0; cards &= cards - 1)
+		{
+			int card = Long.numberOfTrailingZeros(cards);
+			int value = card % MeldIndex.SUIT_SIZE;
+			if (value > bestValue)
+			{
+				best = card;
+				bestValue = value;
+			}
+		}
+		return best;
+	}
+
+	/*
+	 * Whether pCard forms a meld with cards of pHand.
+	 */
+	private static boolean completesMeld(long pHand, int pCard)
+	{
+		long cards = pHand | (1L << pCard);
+		for (int i = 0; i < MeldIndex.countMeldsOf(pCard); i++)
+		{
+			if ((MeldIndex.mask(MeldIndex.meldOf(pCard, i)) & ~cards) == 0)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
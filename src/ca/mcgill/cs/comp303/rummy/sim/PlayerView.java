@@ -0,0 +1,40 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+/**
+ * What a player can see of a round when it has a decision to make.
+ * Cards are card indices (<code>Card.index()</code>) and sets of cards are
+ * masks of card indices.
+ */
+public interface PlayerView
+{
+	/**
+	 * @return The cards of the player: 10 cards before drawing, 11 after.
+	 */
+	long hand();
+
+	/**
+	 * @return The card on top of the discard pile, or -1 if the pile is empty.
+	 */
+	int discardTop();
+
+	/**
+	 * @return All the cards in the discard pile.
+	 */
+	long discardPile();
+
+	/**
+	 * @return The cards the opponent is known to hold, because it took them from the discard pile.
+	 */
+	long opponentKnown();
+
+	/**
+	 * @return The card the player took from the discard pile this turn, which
+	 * it may not discard, or -1 if it drew from the stock.
+	 */
+	int takenDiscard();
+
+	/**
+	 * @return The number of cards left in the stock.
+	 */
+	int stockSize();
+}
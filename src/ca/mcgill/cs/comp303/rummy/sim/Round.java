@@ -0,0 +1,109 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+
+/**
+ * Plays rounds between two strategies on a <b>GameEngine</b>, translating
+ * the decisions of the strategies into engine actions. Acts as the view of
+ * the player whose turn it is. Not threadsafe: each simulator worker, or
+ * server table, owns its round.
+ */
+public final class Round implements PlayerView
+{
+	private final GameEngine aEngine;
+	private final MeldSolver aSolver = new MeldSolver();
+	private int aPendingDiscard = -1;
+
+	/**
+	 * @param pRandom The source of randomness of the deck the rounds are dealt from.
+	 */
+	public Round(RandomSource pRandom)
+	{
+		aEngine = new GameEngine(pRandom);
+	}
+
+	/**
+	 * Deals and plays a round to the end.
+	 * @param pDealer The player who deals; the other player plays first.
+	 * @param pStrategies The strategies of the two players.
+	 */
+	void play(int pDealer, Strategy[] pStrategies)
+	{
+		aEngine.deal(pDealer);
+		while (aEngine.getPhase() != GameEngine.Phase.OVER)
+		{
+			playTurn(pStrategies[aEngine.getPlayer()]);
+		}
+	}
+
+	/**
+	 * Plays the turn of the player to move: draws, then discards or knocks.
+	 * @param pStrategy The strategy of the player to move.
+	 * @pre getEngine().getPhase() == GameEngine.Phase.DRAW
+	 */
+	public void playTurn(Strategy pStrategy)
+	{
+		if (pStrategy.takeDiscard(this))
+		{
+			aEngine.apply(GameEngine.TAKE_DISCARD | aEngine.discardTop());
+		}
+		else
+		{
+			aEngine.apply(GameEngine.DRAW_STOCK);
+		}
+		int discard = pStrategy.discard(this);
+		// the strategy decides to knock on the hand left after its discard
+		aPendingDiscard = discard;
+		int deadwood = aSolver.solve(hand());
+		boolean knock = deadwood <= GameEngine.KNOCK_LIMIT && pStrategy.knock(this, deadwood);
+		aPendingDiscard = -1;
+		aEngine.apply((knock ? GameEngine.KNOCK : GameEngine.DISCARD) | discard);
+	}
+
+	/**
+	 * @return The engine the rounds are played on.
+	 */
+	public GameEngine getEngine()
+	{
+		return aEngine;
+	}
+
+	@Override
+	public long hand()
+	{
+		long hand = aEngine.getHand(aEngine.getPlayer());
+		return aPendingDiscard < 0 ? hand : hand & ~(1L << aPendingDiscard);
+	}
+
+	@Override
+	public int discardTop()
+	{
+		return aEngine.discardTop();
+	}
+
+	@Override
+	public long discardPile()
+	{
+		return aEngine.getDiscardPile();
+	}
+
+	@Override
+	public long opponentKnown()
+	{
+		return aEngine.getKnown(1 - aEngine.getPlayer());
+	}
+
+	@Override
+	public int takenDiscard()
+	{
+		return aEngine.getTakenDiscard();
+	}
+
+	@Override
+	public int stockSize()
+	{
+		return aEngine.getStockSize();
+	}
+}
@@ -0,0 +1,80 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A tournament between two greedy strategies as a sharded job: shard
+ * <i>n</i> plays games <i>n</i>*<b>GAMES_PER_SHARD</b> onwards of the
+ * simulation. Since each game is seeded from its number, the result does not
+ * depend on which worker plays which shard.
+ */
+public final class SimulationJob extends Job
+{
+	static final String NAME = "games";
+	public static final int GAMES_PER_SHARD = 1000;
+
+	private final long aSeed;
+	private final long aGames;
+	private final int[] aKnockThresholds;
+	private final SimulationStats aStats = new SimulationStats();
+
+	/**
+	 * @param pSeed The seed of the simulation.
+	 * @param pGames The number of games to play.
+	 * @param pFirstThreshold The knock threshold of the first greedy strategy.
+	 * @param pSecondThreshold The knock threshold of the second greedy strategy.
+	 */
+	public SimulationJob(long pSeed, long pGames, int pFirstThreshold, int pSecondThreshold)
+	{
+		aSeed = pSeed;
+		aGames = pGames;
+		aKnockThresholds = new int[] { pFirstThreshold, pSecondThreshold };
+	}
+
+	@Override
+	public String getSpec()
+	{
+		return NAME + " " + aSeed + " " + aGames + " " + aKnockThresholds[0] + " " + aKnockThresholds[1];
+	}
+
+	@Override
+	public int getShardCount()
+	{
+		return (int) ((aGames + GAMES_PER_SHARD - 1) / GAMES_PER_SHARD);
+	}
+
+	@Override
+	public String runShard(int pShard)
+	{
+		long first = (long) pShard * GAMES_PER_SHARD;
+		GameSimulator simulator = new GameSimulator(GreedyStrategy.factory(aKnockThresholds[0]),
+				GreedyStrategy.factory(aKnockThresholds[1]), ForkJoinPool.commonPool());
+		return simulator.run(aSeed, first, Math.min(GAMES_PER_SHARD, aGames - first)).toLine();
+	}
+
+	@Override
+	public Object parseShard(String pResult)
+	{
+		return new SimulationStats().mergeLine(pResult);
+	}
+
+	@Override
+	public void mergeShard(Object pResult)
+	{
+		aStats.merge((SimulationStats) pResult);
+	}
+
+	/**
+	 * @return The statistics of the shards merged so far.
+	 */
+	public SimulationStats getStats()
+	{
+		return aStats;
+	}
+
+	@Override
+	public String toString()
+	{
+		return aStats.toString();
+	}
+}
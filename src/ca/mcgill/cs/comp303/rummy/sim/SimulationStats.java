@@ -0,0 +1,240 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+/**
+ * Statistics of a batch of simulated games, between a first and a second
+ * strategy. Each simulator worker fills its own instance, and instances are
+ * merged when the workers join, so no lock is taken while playing.
+ * <p>
+ * The statistics have a one-line text form, the counters separated by
+ * spaces, used to ship them between processes.
+ */
+public final class SimulationStats
+{
+	private long aGames;
+	private final long[] aWins = new long[2];
+	private long aRounds;
+	private long aDrawnRounds;
+	private long aTurns;
+	private long aKnocks;
+	private long aKnockDeadwood;
+	private long aGins;
+	private long aUndercuts;
+	private long aElapsedNanos;
+
+	/**
+	 * Records the outcome of a round.
+	 * @param pTurns The number of turns played.
+	 * @param pWinner The winner, or -1 if the round was drawn.
+	 * @param pKnockDeadwood The deadwood of the knocker, when the round was not drawn.
+	 * @param pGin True if the round ended with gin.
+	 * @param pUndercut True if the knocker was undercut.
+	 */
+	void recordRound(int pTurns, int pWinner, int pKnockDeadwood, boolean pGin, boolean pUndercut)
+	{
+		aRounds++;
+		aTurns += pTurns;
+		if (pWinner < 0)
+		{
+			aDrawnRounds++;
+			return;
+		}
+		aKnocks++;
+		aKnockDeadwood += pKnockDeadwood;
+		if (pGin)
+		{
+			aGins++;
+		}
+		if (pUndercut)
+		{
+			aUndercuts++;
+		}
+	}
+
+	/**
+	 * Records the outcome of a game.
+	 * @param pWinner The player who won the game, or -1 if it was abandoned.
+	 */
+	void recordGame(int pWinner)
+	{
+		aGames++;
+		if (pWinner >= 0)
+		{
+			aWins[pWinner]++;
+		}
+	}
+
+	/**
+	 * Adds the statistics of pOther to these.
+	 * @param pOther Statistics of other games.
+	 * @return This object.
+	 */
+	public SimulationStats merge(SimulationStats pOther)
+	{
+		aGames += pOther.aGames;
+		aWins[0] += pOther.aWins[0];
+		aWins[1] += pOther.aWins[1];
+		aRounds += pOther.aRounds;
+		aDrawnRounds += pOther.aDrawnRounds;
+		aTurns += pOther.aTurns;
+		aKnocks += pOther.aKnocks;
+		aKnockDeadwood += pOther.aKnockDeadwood;
+		aGins += pOther.aGins;
+		aUndercuts += pOther.aUndercuts;
+		aElapsedNanos = Math.max(aElapsedNanos, pOther.aElapsedNanos);
+		return this;
+	}
+
+	/**
+	 * @return The text form of the statistics.
+	 */
+	public String toLine()
+	{
+		return aGames + " " + aWins[0] + " " + aWins[1] + " " + aRounds + " " + aDrawnRounds + " " + aTurns + " "
+				+ aKnocks + " " + aKnockDeadwood + " " + aGins + " " + aUndercuts + " " + aElapsedNanos;
+	}
+
+	/**
+	 * Adds statistics in text form to these.
+	 * @param pLine The text form of statistics, as returned by <b>toLine()</b>.
+	 * @return This object.
+	 * @throws IllegalArgumentException If the line is not statistics in text form.
+	 */
+	public SimulationStats mergeLine(String pLine)
+	{
+		String[] fields = pLine.trim().split(" ");
+		if (fields.length != 11)
+		{
+			throw new IllegalArgumentException("Malformed statistics: " + pLine);
+		}
+		SimulationStats other = new SimulationStats();
+		other.aGames = Long.parseLong(fields[0]);
+		other.aWins[0] = Long.parseLong(fields[1]);
+		other.aWins[1] = Long.parseLong(fields[2]);
+		other.aRounds = Long.parseLong(fields[3]);
+		other.aDrawnRounds = Long.parseLong(fields[4]);
+		other.aTurns = Long.parseLong(fields[5]);
+		other.aKnocks = Long.parseLong(fields[6]);
+		other.aKnockDeadwood = Long.parseLong(fields[7]);
+		other.aGins = Long.parseLong(fields[8]);
+		other.aUndercuts = Long.parseLong(fields[9]);
+		other.aElapsedNanos = Long.parseLong(fields[10]);
+		return merge(other);
+	}
+
+	void setElapsedNanos(long pElapsedNanos)
+	{
+		aElapsedNanos = pElapsedNanos;
+	}
+
+	/**
+	 * @return The number of games played.
+	 */
+	public long getGames()
+	{
+		return aGames;
+	}
+
+	/**
+	 * @param pPlayer 0 for the first strategy, 1 for the second.
+	 * @return The number of games won by the strategy.
+	 */
+	public long getWins(int pPlayer)
+	{
+		return aWins[pPlayer];
+	}
+
+	/**
+	 * @param pPlayer 0 for the first strategy, 1 for the second.
+	 * @return The fraction of the games won by the strategy.
+	 */
+	public double getWinRate(int pPlayer)
+	{
+		return ratio(aWins[pPlayer], aGames);
+	}
+
+	/**
+	 * @return The number of rounds played.
+	 */
+	public long getRounds()
+	{
+		return aRounds;
+	}
+
+	/**
+	 * @return The average deadwood of the knocker when knocking, gin included.
+	 */
+	public double getAverageKnockDeadwood()
+	{
+		return ratio(aKnockDeadwood, aKnocks);
+	}
+
+	/**
+	 * @return The fraction of the rounds that ended with gin.
+	 */
+	public double getGinRate()
+	{
+		return ratio(aGins, aRounds);
+	}
+
+	/**
+	 * @return The fraction of the rounds in which the knocker was undercut.
+	 */
+	public double getUndercutRate()
+	{
+		return ratio(aUndercuts, aRounds);
+	}
+
+	/**
+	 * @return The fraction of the rounds that ended with the stock exhausted.
+	 */
+	public double getDrawRate()
+	{
+		return ratio(aDrawnRounds, aRounds);
+	}
+
+	/**
+	 * @return The average number of rounds per game.
+	 */
+	public double getRoundsPerGame()
+	{
+		return ratio(aRounds, aGames);
+	}
+
+	/**
+	 * @return The average number of turns per round.
+	 */
+	public double getTurnsPerRound()
+	{
+		return ratio(aTurns, aRounds);
+	}
+
+	/**
+	 * @return The number of games played per second of wall-clock time.
+	 */
+	public double getGamesPerSecond()
+	{
+		return aElapsedNanos == 0 ? 0 : aGames * 1e9 / aElapsedNanos;
+	}
+
+	/**
+	 * @return The wall-clock time of the simulation, in nanoseconds.
+	 */
+	public long getElapsedNanos()
+	{
+		return aElapsedNanos;
+	}
+
+	private static double ratio(long pNumerator, long pDenominator)
+	{
+		return pDenominator == 0 ? 0 : (double) pNumerator / pDenominator;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("%d games (%.0f games/s): win rate %.3f / %.3f, %.2f rounds/game, %.1f turns/round, "
+				+ "knock deadwood %.2f, gin %.3f, undercut %.3f, drawn %.3f", aGames, getGamesPerSecond(),
+				getWinRate(0), getWinRate(1), getRoundsPerGame(), getTurnsPerRound(), getAverageKnockDeadwood(),
+				getGinRate(), getUndercutRate(), getDrawRate());
+	}
+}
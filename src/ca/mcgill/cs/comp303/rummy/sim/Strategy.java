@@ -0,0 +1,42 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+/**
+ * The decisions of a player during a round. A strategy is used by a single
+ * thread: the simulator creates one per worker through a <b>Factory</b>.
+ */
+public interface Strategy
+{
+	/**
+	 * Creates the strategy instances used by the simulator workers.
+	 */
+	interface Factory
+	{
+		/**
+		 * @return A new strategy, confined to the calling thread.
+		 */
+		Strategy create();
+	}
+
+	/**
+	 * Chooses where to draw from, at the start of the turn.
+	 * @param pView The round, as seen by the player, who holds 10 cards.
+	 * @return true to take the top of the discard pile, false to draw from the stock.
+	 */
+	boolean takeDiscard(PlayerView pView);
+
+	/**
+	 * Chooses the card to discard, after drawing.
+	 * @param pView The round, as seen by the player, who holds 11 cards.
+	 * @return The index of a card of the hand, other than <b>pView.takenDiscard()</b>.
+	 */
+	int discard(PlayerView pView);
+
+	/**
+	 * Chooses whether to knock. Only asked when the deadwood of the player,
+	 * after discarding, allows it.
+	 * @param pView The round, as seen by the player, who holds 10 cards.
+	 * @param pDeadwood The deadwood of the player; 0 means gin.
+	 * @return true to knock.
+	 */
+	boolean knock(PlayerView pView, int pDeadwood);
+}
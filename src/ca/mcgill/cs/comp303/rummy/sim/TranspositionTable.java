@@ -0,0 +1,88 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.util.Arrays;
+
+/**
+ * A table of search results shared by the threads of a search without any
+ * lock. Each slot is a pair of longs, the data and the key xor the data: a
+ * slot written by two threads at once mixes the words of two entries, whose
+ * xor then does not give back the key probed, so a torn entry reads as a
+ * miss instead of as a wrong result. Entries are replaced unconditionally.
+ * <p>
+ * The data of an entry packs the value of the position, the kind of bound
+ * the value is and the best action found, with a flag so that data is never 0.
+ */
+final class TranspositionTable
+{
+	static final int EXACT = 0;
+	static final int LOWER = 1;
+	static final int UPPER = 2;
+	static final long MISS = 0;
+
+	private static final int VALUE_BITS = 16;
+	private static final int VALUE_OFFSET = 1 << (VALUE_BITS - 1);
+	private static final int BOUND_SHIFT = VALUE_BITS;
+	private static final int ACTION_SHIFT = BOUND_SHIFT + 2;
+	private static final long USED = 1L << 32;
+
+	private final long[] aSlots;
+	private final int aMask;
+
+	/**
+	 * @param pBits The base 2 logarithm of the number of entries.
+	 */
+	TranspositionTable(int pBits)
+	{
+		aSlots = new long[2 << pBits];
+		aMask = (1 << pBits) - 1;
+	}
+
+	/**
+	 * @param pKey The hash key of a position.
+	 * @return The data stored for the position, or <b>MISS</b>.
+	 */
+	long probe(long pKey)
+	{
+		int slot = 2 * ((int) pKey & aMask);
+		long data = aSlots[slot + 1];
+		return (aSlots[slot] ^ data) == pKey ? data : MISS;
+	}
+
+	/**
+	 * Stores the result of a search.
+	 * @param pKey The hash key of the position.
+	 * @param pValue The value of the position, for the player to move.
+	 * @param pBound <b>EXACT</b>, <b>LOWER</b> or <b>UPPER</b>.
+	 * @param pAction The best action found, as a <b>GameEngine</b> action.
+	 */
+	void store(long pKey, int pValue, int pBound, int pAction)
+	{
+		int slot = 2 * ((int) pKey & aMask);
+		long data = USED | (long) pAction << ACTION_SHIFT | (long) pBound << BOUND_SHIFT | (pValue + VALUE_OFFSET);
+		aSlots[slot] = pKey ^ data;
+		aSlots[slot + 1] = data;
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	void clear()
+	{
+		Arrays.fill(aSlots, 0);
+	}
+
+	static int value(long pData)
+	{
+		return (int) (pData & ((1 << VALUE_BITS) - 1)) - VALUE_OFFSET;
+	}
+
+	static int bound(long pData)
+	{
+		return (int) (pData >>> BOUND_SHIFT) & 3;
+	}
+
+	static int action(long pData)
+	{
+		return (int) (pData >>> ACTION_SHIFT) & 0xFF;
+	}
+}
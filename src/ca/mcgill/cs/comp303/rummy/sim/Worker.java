@@ -0,0 +1,101 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Connects to a <b>Coordinator</b>, rebuilds its job from the spec and
+ * evaluates the shards it is sent until the coordinator says it is done.
+ * A worker can also run in a thread of the coordinator's JVM.
+ */
+public final class Worker implements Runnable
+{
+	private final String aHost;
+	private final int aPort;
+	private int aShards;
+
+	/**
+	 * @param pHost The host of the coordinator.
+	 * @param pPort The port of the coordinator.
+	 */
+	public Worker(String pHost, int pPort)
+	{
+		aHost = pHost;
+		aPort = pPort;
+	}
+
+	/**
+	 * @return The number of shards this worker answered.
+	 */
+	public int getShards()
+	{
+		return aShards;
+	}
+
+	/**
+	 * Serves the coordinator until it is done.
+	 * @return True if the coordinator said it was done, false if it closed the connection first.
+	 * @throws IOException If the connection to the coordinator fails.
+	 */
+	public boolean serve() throws IOException
+	{
+		Socket socket = new Socket(aHost, aPort);
+		try
+		{
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					StandardCharsets.UTF_8));
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			writer.write(Coordinator.HELLO + " " + ManagementFactory.getRuntimeMXBean().getName() + "\n");
+			writer.flush();
+			String line = reader.readLine();
+			if (line == null || !line.startsWith(Coordinator.JOB + " "))
+			{
+				throw new IOException("Expected a job, got " + line);
+			}
+			Job job = Job.parse(line.substring(Coordinator.JOB.length() + 1));
+			for (line = reader.readLine(); line != null && line.startsWith(Coordinator.SHARD + " "); line = reader
+					.readLine())
+			{
+				int shard = Integer.parseInt(line.substring(Coordinator.SHARD.length() + 1));
+				String result = job.runShard(shard);
+				writer.write(Coordinator.RESULT + " " + shard + " " + result.length() + " " + result + "\n");
+				writer.flush();
+				aShards++;
+			}
+			return Coordinator.DONE.equals(line);
+		}
+		finally
+		{
+			socket.close();
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		try
+		{
+			serve();
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Runs a worker process.
+	 * @param pArgs The host and port of the coordinator.
+	 * @throws IOException If the connection to the coordinator fails.
+	 */
+	public static void main(String[] pArgs) throws IOException
+	{
+		new Worker(pArgs[0], Integer.parseInt(pArgs[1])).serve();
+	}
+}
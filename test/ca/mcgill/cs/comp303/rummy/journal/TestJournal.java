@@ -0,0 +1,229 @@
+package ca.mcgill.cs.comp303.rummy.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+
+/**
+ * Test class for the JournalWriter and JournalReader classes.
+ */
+public class TestJournal
+{
+	private static final int ROUNDS = 500;
+	private static final long SEGMENT_BYTES = 16 << 10;
+
+	private Path aDirectory;
+	private final long[][] aHands = new long[ROUNDS][2];
+	private final int[] aWinners = new int[ROUNDS];
+	private final int[] aPoints = new int[ROUNDS];
+	private final byte[][] aDeals = new byte[ROUNDS][Card.NUMBER_OF_CARDS];
+
+	/**
+	 * Plays rounds with random legal actions into a new journal.
+	 * @throws IOException If the journal cannot be written.
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		aDirectory = Files.createTempDirectory("journal");
+		Random random = new Random(303);
+		GameEngine engine = new GameEngine(RandomSource.of(random));
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		JournalWriter writer = new JournalWriter(aDirectory, SEGMENT_BYTES, JournalFormat.MAX_RECORD);
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			engine.deal(round & 1);
+			for (int count = engine.legalActions(actions); count > 0; count = engine.legalActions(actions))
+			{
+				engine.apply(actions[random.nextInt(count)]);
+			}
+			aHands[round][0] = engine.getHand(0);
+			aHands[round][1] = engine.getHand(1);
+			aWinners[round] = engine.getWinner();
+			aPoints[round] = engine.getPoints();
+			engine.getDeal(aDeals[round]);
+			assertEquals(round, writer.append(engine));
+		}
+		writer.close();
+	}
+
+	/**
+	 * Deletes the journal.
+	 * @throws IOException If the journal cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException
+	{
+		for (Path segment : JournalFormat.segments(aDirectory))
+		{
+			Files.deleteIfExists(JournalFormat.index(segment));
+			Files.delete(segment);
+		}
+		Files.delete(aDirectory);
+	}
+
+	/**
+	 * Verify every round is read back in order and replays to the same end.
+	 * @throws IOException If the journal cannot be read.
+	 */
+	@Test
+	public void testReplay() throws IOException
+	{
+		JournalReader reader = new JournalReader(aDirectory);
+		assertTrue(reader.getSegmentCount() > 1);
+		GameEngine engine = new GameEngine(RandomSource.seeded(0));
+		byte[] deal = new byte[Card.NUMBER_OF_CARDS];
+		int round = 0;
+		while (reader.next())
+		{
+			assertEquals(round, reader.getGameId());
+			assertEquals(round & 1, reader.getDealer());
+			reader.getDeal(deal);
+			assertArrayEquals(aDeals[round], deal);
+			reader.replay(engine, deal);
+			assertEquals(GameEngine.Phase.OVER, engine.getPhase());
+			assertEquals(aHands[round][0], engine.getHand(0));
+			assertEquals(aHands[round][1], engine.getHand(1));
+			assertEquals(aWinners[round], reader.getWinner());
+			assertEquals(aWinners[round], engine.getWinner());
+			assertEquals(aPoints[round], reader.getPoints());
+			assertEquals(engine.isGin(), reader.isGin());
+			assertEquals(engine.isUndercut(), reader.isUndercut());
+			round++;
+		}
+		assertEquals(ROUNDS, round);
+		assertEquals(ROUNDS - 1, reader.getLastGameId());
+		reader.close();
+	}
+
+	/**
+	 * Verify seeking lands on the record of the game, in any segment.
+	 * @throws IOException If the journal cannot be read.
+	 */
+	@Test
+	public void testSeek() throws IOException
+	{
+		JournalReader reader = new JournalReader(aDirectory);
+		assertEquals(ROUNDS - 1, reader.getLastGameId());
+		assertTrue(reader.next());
+		assertEquals(0, reader.getGameId());
+		for (long gameId : new long[] { 0, 1, 63, 64, 65, 200, 377, ROUNDS - 1, 128, 2 })
+		{
+			assertTrue(reader.seek(gameId));
+			assertEquals(gameId, reader.getGameId());
+			assertEquals(aPoints[(int) gameId], reader.getPoints());
+		}
+		assertTrue(reader.seek(ROUNDS - 2));
+		// the scan for the last game leaves the reader where it was
+		assertEquals(ROUNDS - 1, reader.getLastGameId());
+		assertEquals(ROUNDS - 2, reader.getGameId());
+		assertTrue(reader.next());
+		assertEquals(ROUNDS - 1, reader.getGameId());
+		assertFalse(reader.next());
+		assertFalse(reader.seek(ROUNDS));
+		reader.close();
+	}
+
+	/**
+	 * Verify a journal without segments, in a missing or an empty directory,
+	 * has no record to seek to or move to.
+	 * @throws IOException If the journal cannot be read.
+	 */
+	@Test
+	public void testEmptyJournal() throws IOException
+	{
+		Path empty = Files.createTempDirectory("journal");
+		try
+		{
+			for (Path directory : new Path[] { aDirectory.resolve("missing"), empty })
+			{
+				JournalReader reader = new JournalReader(directory);
+				assertEquals(0, reader.getSegmentCount());
+				assertFalse(reader.seek(0));
+				assertFalse(reader.next());
+				assertEquals(-1, reader.getLastGameId());
+				assertFalse(reader.next());
+				reader.close();
+			}
+		}
+		finally
+		{
+			Files.delete(empty);
+		}
+	}
+
+	/**
+	 * Verify a torn record at the end of the journal and segments torn before
+	 * their header are skipped, and that a writer reopened on the journal
+	 * numbers its games after the last whole one.
+	 * @throws IOException If the journal cannot be read or written.
+	 */
+	@Test
+	public void testTornRecord() throws IOException
+	{
+		List<Path> segments = JournalFormat.segments(aDirectory);
+		FileChannel channel = FileChannel.open(segments.get(segments.size() - 1), StandardOpenOption.WRITE);
+		channel.truncate(channel.size() - 3);
+		channel.close();
+		// a crash as a segment was created, before or while its header was written
+		Files.createFile(JournalFormat.segment(aDirectory, segments.size()));
+		Files.write(JournalFormat.segment(aDirectory, segments.size() + 1), new byte[] { 0x52, 0x4D, 0x59 });
+		JournalReader reader = new JournalReader(aDirectory);
+		assertEquals(segments.size() + 2, reader.getSegmentCount());
+		assertEquals(ROUNDS - 2, reader.getLastGameId());
+		assertFalse(reader.seek(ROUNDS - 1));
+		reader.close();
+
+		JournalWriter writer = new JournalWriter(aDirectory);
+		assertEquals(ROUNDS - 1, writer.getNextGameId());
+		// the header of the new segment is on the disk before any record is appended
+		assertEquals(JournalFormat.SEGMENT_HEADER, Files.size(JournalFormat.segment(aDirectory, segments.size() + 2)));
+		GameEngine engine = new GameEngine(RandomSource.seeded(0));
+		engine.deal(0, aDeals[0]);
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		while (engine.legalActions(actions) > 0)
+		{
+			engine.apply(actions[0]);
+		}
+		assertEquals(ROUNDS - 1, writer.append(engine));
+		writer.close();
+		assertEquals(1, writer.getCommits());
+
+		reader = new JournalReader(aDirectory);
+		assertEquals(segments.size() + 3, reader.getSegmentCount());
+		assertTrue(reader.seek(ROUNDS - 1));
+		assertArrayEquals(aDeals[0], deal(reader));
+		int count = 0;
+		reader.rewind();
+		while (reader.next())
+		{
+			count++;
+		}
+		assertEquals(ROUNDS, count);
+		reader.close();
+	}
+
+	private static byte[] deal(JournalReader pReader)
+	{
+		byte[] deal = new byte[Card.NUMBER_OF_CARDS];
+		pReader.getDeal(deal);
+		return deal;
+	}
+}
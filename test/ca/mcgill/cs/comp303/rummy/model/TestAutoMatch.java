@@ -54,4 +54,24 @@ public class TestAutoMatch
         assertEquals( 3, lMatched.size());
         assertEquals( 10, lHand.score() );
     }
+    
+    @Test
+    public void testSplitOverlappingGroup()
+    {
+        Hand lHand = new Hand();
+        lHand.add( AllCards.C5H );
+        lHand.add( AllCards.C6H );
+        lHand.add( AllCards.C7H );
+        lHand.add( AllCards.C7S );
+        lHand.add( AllCards.C7C );
+        lHand.add( AllCards.C7D );
+        lHand.add( AllCards.C8D );
+        lHand.add( AllCards.C9D );
+        lHand.autoMatch();
+        Set<Card> lUnmatched = lHand.getUnmatchedCards();
+        assertEquals( 2, lUnmatched.size());
+        Set<ICardSet> lMatched = lHand.getMatchedSets();
+        assertEquals( 2, lMatched.size());
+        assertEquals( 11, lHand.score() );
+    }
 }
@@ -0,0 +1,111 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.mask;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.CardSet.SetType;
+import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
+
+/**
+ * Test class for the BitCardSet class.
+ */
+public class TestBitCardSet
+{
+	/**
+	 * Verify membership, size and iteration in index order.
+	 */
+	@Test
+	public void testContents()
+	{
+		BitCardSet run = new BitCardSet(mask(AllCards.C9D, AllCards.CTD, AllCards.CJD), SetType.RUN);
+		assertEquals(3, run.size());
+		assertTrue(run.contains(AllCards.CTD));
+		assertFalse(run.contains(AllCards.CTH));
+		assertTrue(run.isRun());
+		assertFalse(run.isGroup());
+		Iterator<Card> iterator = run.iterator();
+		assertSame(AllCards.C9D, iterator.next());
+		assertSame(AllCards.CTD, iterator.next());
+		assertSame(AllCards.CJD, iterator.next());
+		assertFalse(iterator.hasNext());
+		try
+		{
+			iterator.next();
+			fail();
+		}
+		catch (NoSuchElementException e)
+		{
+			assertFalse(iterator.hasNext());
+		}
+		Set<Card> visited = new HashSet<Card>();
+		for (Card card : run)
+		{
+			visited.add(card);
+		}
+		assertEquals(new CardSet(visited, SetType.RUN).toString(), run.toString());
+	}
+
+	/**
+	 * Verify sets are equal by cards and type, whatever their class.
+	 */
+	@Test
+	public void testEquals()
+	{
+		Set<Card> cards = new HashSet<Card>();
+		cards.add(AllCards.CQC);
+		cards.add(AllCards.CQH);
+		cards.add(AllCards.CQS);
+		CardSet group = new CardSet(cards, SetType.GROUP);
+		BitCardSet bits = new BitCardSet(mask(AllCards.CQC, AllCards.CQH, AllCards.CQS), SetType.GROUP);
+		assertEquals(group, bits);
+		assertEquals(bits, group);
+		assertEquals(group, new CardSet(cards, SetType.GROUP));
+		assertEquals(group.hashCode(), bits.hashCode());
+		assertNotEquals(bits, new BitCardSet(bits.cardsMask(), SetType.RUN));
+		assertNotEquals(group, new CardSet(cards, SetType.RUN));
+		Set<ICardSet> sets = new HashSet<ICardSet>();
+		sets.add(group);
+		assertFalse(sets.add(bits));
+		assertTrue(sets.remove(bits));
+	}
+
+	/**
+	 * Verify each meld has one canonical set, which the matched sets of a hand reuse.
+	 */
+	@Test
+	public void testMelds()
+	{
+		for (int id = 0; id < MeldIndex.NUMBER_OF_MELDS; id++)
+		{
+			assertSame(BitCardSet.meld(id), BitCardSet.meld(id));
+			assertEquals(MeldIndex.mask(id), BitCardSet.meld(id).cardsMask());
+			assertEquals(MeldIndex.isRun(id), BitCardSet.meld(id).isRun());
+		}
+		Hand hand = new Hand();
+		for (Card card : new Card[] { AllCards.C9D, AllCards.CTD, AllCards.CJD, AllCards.CQD, AllCards.CKC,
+				AllCards.CKH, AllCards.CKS })
+		{
+			hand.add(card);
+		}
+		hand.autoMatch();
+		for (ICardSet matchedSet : hand.getMatchedSets())
+		{
+			int id = MeldIndex.find(((BitCardSet) matchedSet).cardsMask());
+			assertSame(BitCardSet.meld(id), matchedSet);
+		}
+		assertEquals(2, hand.getMatchedSets().size());
+		assertEquals(0, hand.score());
+	}
+}
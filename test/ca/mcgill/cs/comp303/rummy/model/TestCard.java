@@ -1,5 +1,7 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -28,4 +30,19 @@ public class TestCard
 	{
 		assertTrue(AllCards.CAC.compareTo(AllCards.C2C) < 0);
 	}
+	
+	/**
+	 * Tests the card factory methods return the unique instance of each card.
+	 */
+	@Test
+	public void testFlyweights()
+	{
+		for (int i = 0; i < Card.NUMBER_OF_CARDS; i++)
+		{
+			Card card = Card.of(i);
+			assertEquals(i, card.index());
+			assertSame(card, Card.of(card.getRank(), card.getSuit()));
+		}
+		assertSame(AllCards.CQH, Card.of(Card.Rank.QUEEN, Card.Suit.HEARTS));
+	}
 }
@@ -0,0 +1,88 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.DeadwoodCache.EvictionPolicy;
+import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
+
+/**
+ * Test class for the DeadwoodCache class.
+ */
+public class TestDeadwoodCache
+{
+	/**
+	 * Verify a cached arrangement gives the same result as a search.
+	 */
+	@Test
+	public void testCachedAutoMatch()
+	{
+		DeadwoodCache cache = new DeadwoodCache(16, EvictionPolicy.LRU);
+		for (int i = 0; i < 2; i++)
+		{
+			Hand lHand = new Hand(cache);
+			lHand.add( AllCards.C9D );
+			lHand.add( AllCards.CTD );
+			lHand.add( AllCards.CJD );
+			lHand.add( AllCards.CQD );
+			lHand.add( AllCards.CQS );
+			lHand.add( AllCards.CQC );
+			lHand.add( AllCards.CJH );
+			lHand.add( AllCards.CQH );
+			lHand.add( AllCards.CKH );
+			lHand.add( AllCards.CJC );
+			lHand.autoMatch();
+			assertEquals( 3, lHand.getMatchedSets().size());
+			assertEquals( 10, lHand.score() );
+		}
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Verify the least recently used hand is evicted first.
+	 */
+	@Test
+	public void testLruEviction()
+	{
+		DeadwoodCache cache = new DeadwoodCache(1, EvictionPolicy.LRU);
+		MeldSolver solver = new MeldSolver();
+		solver.solve(7);
+		cache.put(7, solver);
+		solver.solve(1);
+		cache.put(1, solver);
+		assertEquals(DeadwoodCache.MISS, cache.get(7));
+		assertEquals(1, DeadwoodCache.deadwood(cache.get(1)));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	/**
+	 * Verify the cache stays bounded and consistent under churn, for both
+	 * policies, and fills up to exactly its capacity when it does not
+	 * divide evenly among the segments.
+	 */
+	@Test
+	public void testBounded()
+	{
+		for (int capacity : new int[] { 64, 100 })
+		{
+			for (EvictionPolicy policy : EvictionPolicy.values())
+			{
+				DeadwoodCache cache = new DeadwoodCache(capacity, policy);
+				MeldSolver solver = new MeldSolver();
+				for (long cards = 1; cards < 1000; cards++)
+				{
+					solver.solve(cards);
+					long value = cache.put(cards, solver);
+					assertEquals(value, cache.get(cards));
+					assertEquals(solver.getDeadwood(), DeadwoodCache.deadwood(value));
+					assertEquals(solver.getMatchCount(), DeadwoodCache.matchCount(value));
+				}
+				assertEquals(capacity, cache.size());
+				assertEquals(999 - capacity, cache.getEvictions());
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for the DealCodec class.
+ */
+public class TestDealCodec
+{
+	private static final long ALL_CARDS = (1L << Card.NUMBER_OF_CARDS) - 1;
+
+	/**
+	 * Verify hand ranks are dense, in the order of nextHand, and round-trip.
+	 */
+	@Test
+	public void testHands()
+	{
+		long lowest = (1L << Hand.HAND_SIZE) - 1;
+		long highest = lowest << (Card.NUMBER_OF_CARDS - Hand.HAND_SIZE);
+		assertEquals(0, DealCodec.rankHand(lowest));
+		assertEquals(15820024220L, DealCodec.binomial(Card.NUMBER_OF_CARDS, Hand.HAND_SIZE));
+		assertEquals(DealCodec.binomial(Card.NUMBER_OF_CARDS, Hand.HAND_SIZE) - 1, DealCodec.rankHand(highest));
+		assertEquals(0, DealCodec.nextHand(highest));
+		long hand = lowest;
+		for (long rank = 0; rank < 10000; rank++)
+		{
+			assertEquals(rank, DealCodec.rankHand(hand));
+			assertEquals(hand, DealCodec.unrankHand(rank, Hand.HAND_SIZE));
+			hand = DealCodec.nextHand(hand);
+		}
+		Random random = new Random(303);
+		for (int i = 0; i < 1000; i++)
+		{
+			long rank = (random.nextLong() >>> 1) % DealCodec.binomial(Card.NUMBER_OF_CARDS, Hand.HAND_SIZE);
+			hand = DealCodec.unrankHand(rank, Hand.HAND_SIZE);
+			assertEquals(Hand.HAND_SIZE, Long.bitCount(hand));
+			assertEquals(0, hand & ~ALL_CARDS);
+			assertEquals(rank, DealCodec.rankHand(hand));
+		}
+	}
+
+	/**
+	 * Verify deals round-trip, and that the first deal in index order has rank 0.
+	 */
+	@Test
+	public void testDeals()
+	{
+		byte[] deal = new byte[Card.NUMBER_OF_CARDS];
+		for (int i = 0; i < deal.length; i++)
+		{
+			deal[i] = (byte) i;
+		}
+		long[] rank = new long[DealCodec.DEAL_WORDS];
+		DealCodec.rankDeal(deal, rank);
+		assertArrayEquals(new long[DealCodec.DEAL_WORDS], rank);
+
+		Random random = new Random(42);
+		byte[] decoded = new byte[Card.NUMBER_OF_CARDS];
+		for (int n = 0; n < 1000; n++)
+		{
+			for (int i = deal.length - 1; i > 0; i--)
+			{
+				int j = random.nextInt(i + 1);
+				byte card = deal[i];
+				deal[i] = deal[j];
+				deal[j] = card;
+			}
+			Arrays.sort(deal, 0, Hand.HAND_SIZE);
+			Arrays.sort(deal, Hand.HAND_SIZE, 2 * Hand.HAND_SIZE);
+			DealCodec.rankDeal(deal, rank);
+			assertTrue(rank[2] >>> (182 - 2 * Long.SIZE) == 0);
+			long[] copy = rank.clone();
+			DealCodec.unrankDeal(rank, decoded);
+			assertArrayEquals(deal, decoded);
+			assertArrayEquals(copy, rank);
+		}
+	}
+
+	/**
+	 * Verify a round played on an engine is reproduced from the rank of its
+	 * deal: the same hands, upcard and draws, and the same outcome.
+	 */
+	@Test
+	public void testEngineRounds()
+	{
+		Random random = new Random(303);
+		GameEngine engine = new GameEngine(RandomSource.of(random));
+		GameEngine replay = new GameEngine(RandomSource.seeded(0));
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		byte[] order = new byte[Card.NUMBER_OF_CARDS];
+		byte[] deal = new byte[Card.NUMBER_OF_CARDS];
+		long[] rank = new long[DealCodec.DEAL_WORDS];
+		for (int round = 0; round < 200; round++)
+		{
+			int dealer = round & 1;
+			engine.deal(dealer);
+			long first = engine.getHand(1 - dealer);
+			long second = engine.getHand(dealer);
+			int upcard = engine.discardTop();
+			for (int count = engine.legalActions(actions); count > 0; count = engine.legalActions(actions))
+			{
+				engine.apply(actions[random.nextInt(count)]);
+			}
+			engine.getDeal(order);
+			DealCodec.fromDeckOrder(order, deal);
+			DealCodec.rankDeal(deal, rank);
+			Arrays.fill(deal, (byte) 0);
+			Arrays.fill(order, (byte) 0);
+
+			DealCodec.unrankDeal(rank, deal);
+			DealCodec.toDeckOrder(deal, order);
+			replay.deal(dealer, order);
+			assertEquals(first, replay.getHand(1 - dealer));
+			assertEquals(second, replay.getHand(dealer));
+			assertEquals(upcard, replay.discardTop());
+			for (int i = 0; i < engine.getHistorySize(); i++)
+			{
+				replay.apply(engine.getAction(i));
+			}
+			assertEquals(engine.getHand(0), replay.getHand(0));
+			assertEquals(engine.getHand(1), replay.getHand(1));
+			assertEquals(engine.getStockSize(), replay.getStockSize());
+			assertEquals(engine.getWinner(), replay.getWinner());
+			assertEquals(engine.getPoints(), replay.getPoints());
+			long[] again = new long[DealCodec.DEAL_WORDS];
+			replay.getDeal(order);
+			DealCodec.fromDeckOrder(order, deal);
+			DealCodec.rankDeal(deal, again);
+			assertArrayEquals(rank, again);
+		}
+	}
+}
@@ -1,6 +1,13 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.EmptyStackException;
+import java.util.SplittableRandom;
 
 import org.junit.Test;
 
@@ -20,4 +27,115 @@ public class TestDeck
 		Deck deck = new Deck();
 		assertTrue("New deck size should be 52.", deck.size() == DECK_SIZE);
 	}
+	
+	/**
+	 * Test that a deck deals every card once, and that shuffling puts them all back.
+	 */
+	@Test
+	public void drawEveryCardOnce()
+	{
+		Deck deck = new Deck();
+		for (int round = 0; round < 2; round++)
+		{
+			long drawn = 0;
+			while (deck.size() > 0)
+			{
+				drawn |= 1L << deck.draw().index();
+			}
+			assertEquals((1L << DECK_SIZE) - 1, drawn);
+			deck.shuffle();
+			assertEquals(DECK_SIZE, deck.size());
+		}
+	}
+	
+	/**
+	 * Test that drawing from an empty deck fails and leaves it empty.
+	 */
+	@Test
+	public void drawFromEmptyDeck()
+	{
+		Deck deck = new Deck();
+		while (deck.size() > 0)
+		{
+			deck.draw();
+		}
+		try
+		{
+			deck.draw();
+			fail();
+		}
+		catch (EmptyStackException e)
+		{
+			assertEquals(0, deck.size());
+		}
+		deck.shuffle();
+		assertEquals(DECK_SIZE, deck.size());
+	}
+	
+	/**
+	 * Test that decks with the same seed deal the same cards.
+	 */
+	@Test
+	public void seededDecksMatch()
+	{
+		Deck deck1 = new Deck(RandomSource.seeded(303));
+		Deck deck2 = new Deck(RandomSource.of(new SplittableRandom(303)));
+		while (deck1.size() > 0)
+		{
+			assertSame(deck1.draw(), deck2.draw());
+		}
+	}
+	
+	/**
+	 * Test that a counter-based deck can jump to any deal, that the deals
+	 * are those written in bulk, and that they do not change across versions.
+	 */
+	@Test
+	public void counterBasedDeals()
+	{
+		Deck deck = Deck.counterBased(303);
+		assertTrue(deck.isCounterBased());
+		assertEquals(0, deck.getDeal());
+		for (int i = 0; i < 5; i++)
+		{
+			deck.shuffle();
+		}
+		assertEquals(5, deck.getDeal());
+		byte[] deals = new byte[8 * DECK_SIZE];
+		Deck.deals(303, 3, 8, deals);
+		Deck jumped = Deck.counterBased(303);
+		jumped.shuffle(5);
+		for (int i = DECK_SIZE - 1; i >= 0; i--)
+		{
+			Card card = deck.draw();
+			assertSame(card, jumped.draw());
+			assertEquals(card.index(), deals[2 * DECK_SIZE + i]);
+		}
+		
+		byte[] cards = new byte[DECK_SIZE];
+		Deck.deal(303, 1000000, cards, 0);
+		assertArrayEquals(new byte[] { 47, 49, 15, 6, 45, 23, 39, 51, 3, 37, 22, 7, 32, 41, 18, 48, 35, 25, 9, 31, 34,
+				11, 17, 13, 27, 0, 38, 30, 19, 46, 14, 21, 36, 42, 1, 10, 8, 4, 5, 43, 20, 26, 44, 40, 50, 24, 12, 16, 33,
+				29, 2, 28 }, cards);
+	}
+	
+	/**
+	 * Test that every card is as likely to be on top of a counter-based deal.
+	 */
+	@Test
+	public void counterBasedTopCard()
+	{
+		int deals = 1000 * DECK_SIZE;
+		byte[] cards = new byte[deals * DECK_SIZE];
+		Deck.deals(7, 0, deals, cards);
+		int[] counts = new int[DECK_SIZE];
+		for (int i = 0; i < deals; i++)
+		{
+			counts[cards[i * DECK_SIZE + DECK_SIZE - 1]]++;
+		}
+		for (int count : counts)
+		{
+			assertTrue(count > 850 && count < 1150);
+		}
+	}
 }
@@ -0,0 +1,299 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.mask;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
+
+/**
+ * Test class for the GameEngine class.
+ */
+public class TestGameEngine
+{
+	/**
+	 * Play random legal actions and verify that no card is lost and every round ends.
+	 */
+	@Test
+	public void testRandomRounds()
+	{
+		Random random = new Random(303);
+		GameEngine engine = new GameEngine(RandomSource.of(random));
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		for (int round = 0; round < 200; round++)
+		{
+			engine.deal(round & 1);
+			assertEquals(1 - (round & 1), engine.getPlayer());
+			int count = engine.legalActions(actions);
+			while (count > 0)
+			{
+				// prefer knocking, so that rounds get scored
+				int action = actions[random.nextInt(count)];
+				for (int i = 0; i < count; i++)
+				{
+					if (GameEngine.actionType(actions[i]) == GameEngine.KNOCK)
+					{
+						action = actions[i];
+					}
+				}
+				assertTrue(engine.isLegal(action));
+				engine.apply(action);
+				assertEquals(0, engine.getHand(0) & engine.getHand(1));
+				assertEquals(0, engine.getDiscardPile() & (engine.getHand(0) | engine.getHand(1)));
+				assertEquals(Card.NUMBER_OF_CARDS, Long.bitCount(engine.getHand(0)) + Long.bitCount(engine.getHand(1))
+						+ Long.bitCount(engine.getDiscardPile()) + engine.getStockSize());
+				count = engine.legalActions(actions);
+			}
+			assertEquals(GameEngine.Phase.OVER, engine.getPhase());
+			if (engine.getKnocker() >= 0)
+			{
+				assertTrue(engine.getWinner() >= 0 && engine.getPoints() > 0);
+				assertTrue(engine.getKnockDeadwood() <= GameEngine.KNOCK_LIMIT);
+				assertEquals(0, engine.getLayoffs() & ~engine.getHand(1 - engine.getKnocker()));
+			}
+			else
+			{
+				assertEquals(-1, engine.getWinner());
+			}
+		}
+	}
+
+	/**
+	 * Verify illegal actions are rejected and leave the round unchanged.
+	 */
+	@Test
+	public void testIllegalActions()
+	{
+		GameEngine engine = new GameEngine(RandomSource.seeded(42));
+		engine.deal(0);
+		int upcard = engine.discardTop();
+		long hand = engine.getHand(1);
+		int card = Long.numberOfTrailingZeros(hand);
+		assertFalse(engine.isLegal(GameEngine.DISCARD | card));
+		try
+		{
+			engine.apply(GameEngine.DISCARD | card);
+			fail();
+		}
+		catch (GameException e)
+		{
+			assertEquals(hand, engine.getHand(1));
+		}
+		engine.apply(GameEngine.TAKE_DISCARD | upcard);
+		assertEquals(GameEngine.Phase.DISCARD, engine.getPhase());
+		assertEquals(upcard, engine.getTakenDiscard());
+		assertTrue((engine.getKnown(1) & (1L << upcard)) != 0);
+		assertFalse(engine.isLegal(GameEngine.DISCARD | upcard));
+		assertFalse(engine.isLegal(GameEngine.DISCARD | Long.numberOfTrailingZeros(engine.getHand(0))));
+		assertFalse(engine.isLegal(GameEngine.DRAW_STOCK));
+		assertTrue(engine.isLegal(GameEngine.DISCARD | card));
+	}
+
+	/**
+	 * Play random rounds to the end, then verify undoing every action goes
+	 * back through the same positions to the deal.
+	 */
+	@Test
+	public void testUndo()
+	{
+		Random random = new Random(303);
+		GameEngine engine = new GameEngine(RandomSource.of(random));
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		for (int round = 0; round < 50; round++)
+		{
+			engine.deal(round & 1);
+			List<String> positions = new ArrayList<String>();
+			for (int count = engine.legalActions(actions); count > 0; count = engine.legalActions(actions))
+			{
+				positions.add(position(engine));
+				engine.apply(actions[random.nextInt(count)]);
+			}
+			assertEquals(positions.size(), engine.getHistorySize());
+			String over = position(engine);
+			GameEngine copy = new GameEngine(RandomSource.seeded(0));
+			copy.setPosition(engine);
+			assertEquals(over, position(copy));
+			for (int i = positions.size() - 1; i >= 0; i--)
+			{
+				engine.undo();
+				assertEquals(positions.get(i), position(engine));
+			}
+		}
+	}
+
+	/**
+	 * Verify a knock without gin scores the difference of deadwood after the
+	 * defender lays off on the runs of the knocker.
+	 */
+	@Test
+	public void testKnock()
+	{
+		// the knocker keeps A-2-3 and 9-10-J of clubs, three fives, and 2 of deadwood
+		long knocker = mask(AllCards.CAC, AllCards.C2C, AllCards.C3C, AllCards.C9C, AllCards.CTC, AllCards.CJC,
+				AllCards.C5D, AllCards.C5H, AllCards.C5S, AllCards.C2H, AllCards.CKS);
+		// no meld, 67 points, of which the four and queen of clubs lay off
+		long defender = mask(AllCards.C4C, AllCards.CQC, AllCards.CKH, AllCards.CQH, AllCards.C8H, AllCards.C7S,
+				AllCards.C6S, AllCards.C6D, AllCards.C2S, AllCards.C4H);
+		GameEngine engine = knock(knocker, defender, AllCards.CKS);
+		assertEquals(GameEngine.Phase.OVER, engine.getPhase());
+		assertEquals(0, engine.getKnocker());
+		assertEquals(2, engine.getKnockDeadwood());
+		assertEquals(mask(AllCards.C4C, AllCards.CQC), engine.getLayoffs());
+		assertEquals(53, engine.getDefenderDeadwood());
+		assertEquals(0, engine.getWinner());
+		assertEquals(53 - 2, engine.getPoints());
+		assertFalse(engine.isGin());
+		assertFalse(engine.isUndercut());
+	}
+
+	/**
+	 * Verify gin scores the whole deadwood of the defender plus the bonus,
+	 * without layoffs.
+	 */
+	@Test
+	public void testGin()
+	{
+		long knocker = mask(AllCards.CAC, AllCards.C2C, AllCards.C3C, AllCards.C9C, AllCards.CTC, AllCards.CJC,
+				AllCards.CQC, AllCards.C5D, AllCards.C5H, AllCards.C5S, AllCards.CKS);
+		// the four of clubs would lay off on A-2-3 of clubs if the knocker did not have gin
+		long defender = mask(AllCards.C4C, AllCards.CKD, AllCards.CKH, AllCards.CQH, AllCards.C8H, AllCards.C7S,
+				AllCards.C6S, AllCards.C6D, AllCards.C2S, AllCards.C4H);
+		GameEngine engine = knock(knocker, defender, AllCards.CKS);
+		assertEquals(0, engine.getKnockDeadwood());
+		assertEquals(0, engine.getLayoffs());
+		assertEquals(67, engine.getDefenderDeadwood());
+		assertEquals(0, engine.getWinner());
+		assertEquals(67 + GameEngine.GIN_BONUS, engine.getPoints());
+		assertTrue(engine.isGin());
+		assertFalse(engine.isUndercut());
+	}
+
+	/**
+	 * Verify the defender wins the difference plus the bonus when it has
+	 * less deadwood than the knocker.
+	 */
+	@Test
+	public void testUndercut()
+	{
+		// 7 of deadwood
+		long knocker = mask(AllCards.CAC, AllCards.C2C, AllCards.C3C, AllCards.C9C, AllCards.CTC, AllCards.CJC,
+				AllCards.C5D, AllCards.C5H, AllCards.C5S, AllCards.C7D, AllCards.CKS);
+		// three melds and an ace
+		long defender = mask(AllCards.C6S, AllCards.C7S, AllCards.C8S, AllCards.CQH, AllCards.CQD, AllCards.CQS,
+				AllCards.C2D, AllCards.C3D, AllCards.C4D, AllCards.CAH);
+		GameEngine engine = knock(knocker, defender, AllCards.CKS);
+		assertEquals(7, engine.getKnockDeadwood());
+		assertEquals(1, engine.getDefenderDeadwood());
+		assertEquals(1, engine.getWinner());
+		assertEquals(7 - 1 + GameEngine.UNDERCUT_BONUS, engine.getPoints());
+		assertFalse(engine.isGin());
+		assertTrue(engine.isUndercut());
+	}
+
+	/**
+	 * Verify the defender undercuts when its deadwood ties that of the knocker.
+	 */
+	@Test
+	public void testTiedDeadwood()
+	{
+		long knocker = mask(AllCards.CAC, AllCards.C2C, AllCards.C3C, AllCards.C9C, AllCards.CTC, AllCards.CJC,
+				AllCards.C5D, AllCards.C5H, AllCards.C5S, AllCards.C2H, AllCards.CKS);
+		// two melds and 1 + 1 of deadwood, none of which lays off
+		long defender = mask(AllCards.C6S, AllCards.C7S, AllCards.C8S, AllCards.C9S, AllCards.CTS, AllCards.CQH,
+				AllCards.CQD, AllCards.CQS, AllCards.CAH, AllCards.CAD);
+		GameEngine engine = knock(knocker, defender, AllCards.CKS);
+		assertEquals(2, engine.getKnockDeadwood());
+		assertEquals(0, engine.getLayoffs());
+		assertEquals(2, engine.getDefenderDeadwood());
+		assertEquals(1, engine.getWinner());
+		assertEquals(GameEngine.UNDERCUT_BONUS, engine.getPoints());
+		assertTrue(engine.isUndercut());
+	}
+
+	/**
+	 * Verify a round ends drawn, with no winner and no points, once a discard
+	 * leaves two cards or fewer in the stock.
+	 */
+	@Test
+	public void testDrawnRound()
+	{
+		long hand0 = mask(AllCards.CAC, AllCards.C3C, AllCards.C5C, AllCards.C7C, AllCards.C9C, AllCards.CJC,
+				AllCards.CKC, AllCards.C2D, AllCards.C4D, AllCards.C6D);
+		long hand1 = mask(AllCards.C8D, AllCards.CTD, AllCards.CQD, AllCards.CAH, AllCards.C3H, AllCards.C5H,
+				AllCards.C7H, AllCards.C9H, AllCards.CJH, AllCards.CKH);
+		GameEngine engine = new GameEngine(RandomSource.seeded(0));
+		setPosition(engine, GameEngine.Phase.DRAW, hand0, hand1, 4);
+		engine.apply(GameEngine.DRAW_STOCK);
+		engine.apply(GameEngine.DISCARD | Long.numberOfTrailingZeros(hand0));
+		assertEquals(GameEngine.Phase.DRAW, engine.getPhase());
+		assertEquals(3, engine.getStockSize());
+		engine.apply(GameEngine.DRAW_STOCK);
+		engine.apply(GameEngine.DISCARD | Long.numberOfTrailingZeros(hand1));
+		assertEquals(GameEngine.Phase.OVER, engine.getPhase());
+		assertEquals(2, engine.getStockSize());
+		assertEquals(-1, engine.getKnocker());
+		assertEquals(-1, engine.getWinner());
+		assertEquals(0, engine.getPoints());
+		assertFalse(engine.isGin());
+		assertFalse(engine.isUndercut());
+	}
+
+	/*
+	 * Has player 0 knock with pDiscard from the 11 cards pKnocker.
+	 */
+	private static GameEngine knock(long pKnocker, long pDefender, Card pDiscard)
+	{
+		assert Long.bitCount(pKnocker) == Hand.HAND_SIZE + 1 && Long.bitCount(pDefender) == Hand.HAND_SIZE;
+		GameEngine engine = new GameEngine(RandomSource.seeded(0));
+		setPosition(engine, GameEngine.Phase.DISCARD, pKnocker, pDefender, 20);
+		engine.apply(GameEngine.KNOCK | pDiscard.index());
+		return engine;
+	}
+
+	/*
+	 * Sets up player 0 to move, with the cards of neither hand in the stock,
+	 * lowest first, then in the discard pile.
+	 */
+	private static void setPosition(GameEngine pEngine, GameEngine.Phase pPhase, long pHand0, long pHand1,
+			int pStockSize)
+	{
+		byte[] stock = new byte[Card.NUMBER_OF_CARDS];
+		byte[] discards = new byte[Card.NUMBER_OF_CARDS];
+		int stockSize = 0;
+		int discardCount = 0;
+		for (long cards = ~(pHand0 | pHand1) & (1L << Card.NUMBER_OF_CARDS) - 1; cards != 0; cards &= cards - 1)
+		{
+			if (stockSize < pStockSize)
+			{
+				stock[stockSize++] = (byte) Long.numberOfTrailingZeros(cards);
+			}
+			else
+			{
+				discards[discardCount++] = (byte) Long.numberOfTrailingZeros(cards);
+			}
+		}
+		pEngine.setPosition(0, pPhase, new long[] { pHand0, pHand1 }, new long[2], discards, discardCount, stock,
+				stockSize, -1);
+	}
+
+	private static String position(GameEngine pEngine)
+	{
+		StringBuilder pile = new StringBuilder();
+		for (int i = 0; i < pEngine.getDiscardCount(); i++)
+		{
+			pile.append(pEngine.getDiscard(i)).append(' ');
+		}
+		return pEngine.getPhase() + " " + pEngine.getPlayer() + " " + pEngine.getHand(0) + " " + pEngine.getHand(1)
+				+ " " + pEngine.getKnown(0) + " " + pEngine.getKnown(1) + " " + pile + pEngine.getStockSize() + " "
+				+ pEngine.getTakenDiscard() + " " + pEngine.getTurns() + " " + pEngine.getWinner() + " "
+				+ pEngine.getPoints() + " " + pEngine.getLayoffs();
+	}
+}
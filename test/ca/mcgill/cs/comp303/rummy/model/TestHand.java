@@ -1,10 +1,16 @@
 package ca.mcgill.cs.comp303.rummy.model;
 
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.mask;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.junit.Test;
 
@@ -16,6 +22,203 @@ import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
  */
 public class TestHand
 {
+	/**
+	 * Verify an incremental hand keeps the same arrangement as autoMatch()
+	 * through a random sequence of draws and discards.
+	 */
+	@Test
+	public void testIncremental()
+	{
+		Random random = new Random(303);
+		Hand incremental = new Hand();
+		incremental.setIncremental(true);
+		for (int i = 0; i < 2000; i++)
+		{
+			// few ranks, so that the hand is full of overlapping melds
+			Card card = Card.of(random.nextInt(4) * 13 + random.nextInt(6));
+			if (incremental.contains(card))
+			{
+				incremental.remove(card);
+			}
+			else if (!incremental.isComplete())
+			{
+				incremental.add(card);
+			}
+			
+			Hand full = new Hand();
+			for (long cards = incremental.cardsMask(); cards != 0; cards &= cards - 1)
+			{
+				full.add(Card.of(Long.numberOfTrailingZeros(cards)));
+			}
+			full.autoMatch();
+			assertEquals(full.score(), incremental.score());
+			assertEquals(masks(full.getMatchedSets()), masks(incremental.getMatchedSets()));
+		}
+	}
+	
+	private static Set<Long> masks(Set<ICardSet> pMatchedSets)
+	{
+		Set<Long> masks = new HashSet<Long>();
+		for (ICardSet matchedSet : pMatchedSets)
+		{
+			long mask = 0;
+			for (Card card : matchedSet)
+			{
+				mask |= 1L << card.index();
+			}
+			masks.add(mask);
+		}
+		return masks;
+	}
+	
+	/**
+	 * Verify the masks track the cards added to and removed from the hand.
+	 */
+	@Test
+	public void testMasks()
+	{
+		Hand aHand = new Hand();
+		aHand.add(AllCards.CAC);
+		aHand.add(AllCards.C2C);
+		aHand.add(AllCards.C3C);
+		aHand.add(AllCards.CKS);
+		
+		long cards = (1L << AllCards.CAC.hashCode()) | (1L << AllCards.C2C.hashCode())
+				| (1L << AllCards.C3C.hashCode()) | (1L << AllCards.CKS.hashCode());
+		assertEquals(cards, aHand.cardsMask());
+		assertEquals(cards, aHand.unmatchedMask());
+		assertEquals(4, aHand.size());
+		
+		aHand.autoMatch();
+		assertEquals(1L << AllCards.CKS.hashCode(), aHand.unmatchedMask());
+		assertEquals(10, aHand.score());
+		
+		aHand.remove(AllCards.C2C);
+		assertTrue(aHand.getMatchedSets().isEmpty());
+		assertEquals(3, aHand.getUnmatchedCards().size());
+		assertEquals(14, aHand.score());
+	}
+	
+	/**
+	 * Verify undoing to nested marks restores the cards and matched sets of
+	 * an incremental hand as they were when marked.
+	 */
+	@Test
+	public void testUndo()
+	{
+		Random random = new Random(303);
+		Hand hand = new Hand();
+		hand.setIncremental(true);
+		Deque<Integer> marks = new ArrayDeque<Integer>();
+		Deque<String> states = new ArrayDeque<String>();
+		for (int i = 0; i < 2000; i++)
+		{
+			int choice = random.nextInt(10);
+			if (choice == 0)
+			{
+				marks.push(hand.mark());
+				states.push(state(hand));
+			}
+			else if (choice == 1 && !marks.isEmpty())
+			{
+				hand.undo(marks.pop());
+				assertEquals(states.pop(), state(hand));
+			}
+			else
+			{
+				Card card = Card.of(random.nextInt(4) * 13 + random.nextInt(6));
+				if (hand.contains(card))
+				{
+					hand.remove(card);
+				}
+				else if (!hand.isComplete())
+				{
+					hand.add(card);
+				}
+			}
+		}
+		while (!marks.isEmpty())
+		{
+			hand.undo(marks.pop());
+			assertEquals(states.pop(), state(hand));
+		}
+	}
+	
+	/**
+	 * Verify a forked hand and its original change independently.
+	 */
+	@Test
+	public void testFork()
+	{
+		Hand hand = new Hand();
+		hand.setIncremental(true);
+		hand.add(AllCards.CAC);
+		hand.add(AllCards.C2C);
+		hand.add(AllCards.C3C);
+		hand.add(AllCards.CKS);
+		String before = state(hand);
+		Hand fork = hand.fork();
+		assertEquals(before, state(fork));
+		assertTrue(fork.isIncremental());
+		
+		fork.remove(AllCards.C2C);
+		fork.add(AllCards.C4C);
+		assertEquals(before, state(hand));
+		assertEquals(18, fork.score());
+		assertTrue(fork.getMatchedSets().isEmpty());
+		
+		hand.add(AllCards.C4C);
+		assertEquals(10, hand.score());
+		assertEquals(18, fork.score());
+		assertEquals(hand.snapshot().without(AllCards.C2C), fork.snapshot());
+	}
+	
+	/**
+	 * Verify the statuses of tryCreateRun() and tryCreateGroup(), and that
+	 * the throwing API reports the same failures without a stack trace.
+	 */
+	@Test
+	public void testTryCreate()
+	{
+		Hand hand = new Hand();
+		for (Card card : new Card[] { AllCards.C2C, AllCards.C3C, AllCards.C4C, AllCards.C4D, AllCards.C4H })
+		{
+			hand.add(card);
+		}
+		long run = mask(AllCards.C2C, AllCards.C3C, AllCards.C4C);
+		long group = mask(AllCards.C4C, AllCards.C4D, AllCards.C4H);
+		assertEquals(Hand.MeldStatus.INVALID, hand.tryCreateGroup(run));
+		assertEquals(Hand.MeldStatus.NOT_IN_HAND, hand.tryCreateRun(run | mask(AllCards.C5C)));
+		assertEquals(Hand.MeldStatus.CREATED, hand.tryCreateRun(run));
+		assertEquals(Hand.MeldStatus.ALREADY_MATCHED, hand.tryCreateGroup(group));
+		assertEquals(8, hand.score());
+		
+		Set<Card> cards = new HashSet<Card>();
+		cards.add(AllCards.C4C);
+		cards.add(AllCards.C4D);
+		cards.add(AllCards.C4H);
+		try
+		{
+			hand.createGroup(cards);
+			fail();
+		}
+		catch (HandException e)
+		{
+			assertEquals("The card (" + AllCards.C4C + ") is already matched.", e.getMessage());
+			assertEquals(0, e.getStackTrace().length);
+		}
+		hand.remove(AllCards.C2C);
+		hand.createGroup(cards);
+		assertEquals(3, hand.score());
+		assertEquals(1, hand.getMatchedSets().size());
+	}
+	
+	private static String state(Hand pHand)
+	{
+		Set<Long> masks = new TreeSet<Long>(masks(pHand.getMatchedSets()));
+		return pHand.cardsMask() + " " + pHand.unmatchedMask() + " " + masks;
+	}
+	
 //	
 //	/**
 //	 * Verify createGroup() is functioning as expected.
@@ -0,0 +1,154 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for the HandAnalyzer class.
+ */
+public class TestHandAnalyzer
+{
+	private static final int HANDS = 2000;
+	private static final long ALL_CARDS = (1L << Card.NUMBER_OF_CARDS) - 1;
+
+	/*
+	 * A random hand of pSize cards, drawn among the cards of few ranks half
+	 * of the time so that melds overlap.
+	 */
+	private static long hand(Random pRandom, int pSize)
+	{
+		int ranks = pRandom.nextBoolean() ? Card.Rank.values().length : 4 + pRandom.nextInt(3);
+		int low = pRandom.nextInt(Card.Rank.values().length - ranks + 1);
+		long hand = 0;
+		while (Long.bitCount(hand) < pSize)
+		{
+			int rank = low + pRandom.nextInt(ranks);
+			hand |= 1L << (pRandom.nextInt(Card.Suit.values().length) * MeldIndex.SUIT_SIZE + rank);
+		}
+		return hand;
+	}
+
+	/**
+	 * Verify the deadwood after each discard of an 11-card hand is that of the remaining 10 cards.
+	 */
+	@Test
+	public void testAnalyze()
+	{
+		Random random = new Random(303);
+		HandAnalyzer analyzer = new HandAnalyzer();
+		MeldSolver solver = new MeldSolver();
+		for (int i = 0; i < HANDS; i++)
+		{
+			long hand = hand(random, Hand.HAND_SIZE + 1);
+			int min = analyzer.analyze(hand);
+			int expected = Integer.MAX_VALUE;
+			long best = 0;
+			long knocks = 0;
+			for (long cards = hand; cards != 0; cards &= cards - 1)
+			{
+				int card = Long.numberOfTrailingZeros(cards);
+				int deadwood = solver.solve(hand & ~(1L << card));
+				assertEquals(deadwood, analyzer.getDeadwood(card));
+				if (deadwood < expected)
+				{
+					expected = deadwood;
+					best = 0;
+				}
+				if (deadwood == expected)
+				{
+					best |= 1L << card;
+				}
+				if (deadwood <= GameEngine.KNOCK_LIMIT)
+				{
+					knocks |= 1L << card;
+				}
+			}
+			assertEquals(expected, min);
+			assertEquals(expected, analyzer.getMinDeadwood());
+			assertEquals(best, analyzer.getBestDiscards());
+			assertEquals(knocks, analyzer.discards(GameEngine.KNOCK_LIMIT));
+		}
+	}
+
+	/**
+	 * Verify that a hand whose cards are all in melds of three, where every
+	 * discard raises the deadwood, keeps the discards that raise it least.
+	 */
+	@Test
+	public void testFullyMelded()
+	{
+		HandAnalyzer analyzer = new HandAnalyzer();
+		MeldSolver solver = new MeldSolver();
+		long clubs = 0x7L;
+		long diamonds = clubs << MeldIndex.SUIT_SIZE;
+		long kings = 0;
+		for (int suit = 0; suit < Card.Suit.values().length - 1; suit++)
+		{
+			kings |= 1L << (suit * MeldIndex.SUIT_SIZE + Card.Rank.KING.ordinal());
+		}
+		// A, 2 and 3 of clubs: discarding the 3 leaves 3 points
+		assertEquals(3, analyzer.analyze(clubs));
+		assertEquals(1L << 2, analyzer.getBestDiscards());
+		for (long hand : new long[] { clubs, clubs | diamonds, clubs | diamonds | kings })
+		{
+			int expected = Integer.MAX_VALUE;
+			long best = 0;
+			for (long cards = hand; cards != 0; cards &= cards - 1)
+			{
+				int deadwood = solver.solve(hand & ~Long.lowestOneBit(cards));
+				if (deadwood < expected)
+				{
+					expected = deadwood;
+					best = 0;
+				}
+				if (deadwood == expected)
+				{
+					best |= Long.lowestOneBit(cards);
+				}
+			}
+			assertEquals(expected, analyzer.analyze(hand));
+			assertEquals(expected, analyzer.getMinDeadwood());
+			assertEquals(best, analyzer.getBestDiscards());
+		}
+	}
+
+	/**
+	 * Verify the outs of 10-card hands are the cards matched in the best arrangement of the hand with them.
+	 */
+	@Test
+	public void testOuts()
+	{
+		Random random = new Random(303);
+		HandAnalyzer analyzer = new HandAnalyzer();
+		MeldSolver solver = new MeldSolver();
+		for (int i = 0; i < HANDS; i++)
+		{
+			long hand = hand(random, Hand.HAND_SIZE);
+			long candidates = random.nextBoolean() ? ALL_CARDS : random.nextLong() & ALL_CARDS;
+			int deadwood = solver.solve(hand);
+			long outs = 0;
+			long gin = 0;
+			for (long cards = candidates & ~hand; cards != 0; cards &= cards - 1)
+			{
+				long drawn = hand | Long.lowestOneBit(cards);
+				if (solver.solve(drawn) >= deadwood + MeldSolver.deadwood(Long.lowestOneBit(cards)))
+				{
+					continue;
+				}
+				outs |= Long.lowestOneBit(cards);
+				for (long discards = drawn; discards != 0; discards &= discards - 1)
+				{
+					if (solver.solve(drawn & ~Long.lowestOneBit(discards)) == 0)
+					{
+						gin |= Long.lowestOneBit(cards);
+					}
+				}
+			}
+			assertEquals(outs, analyzer.outs(hand, candidates));
+			assertEquals(gin, analyzer.getGinOuts());
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for the HandEvaluator class.
+ */
+public class TestHandEvaluator
+{
+	/**
+	 * Verify the deadwood of each hand is the score of its Hand after autoMatch().
+	 */
+	@Test
+	public void testMatchesHandScore()
+	{
+		long[] hands = randomHands(new Random(303), 2000);
+		int[] deadwood = new int[hands.length];
+		HandEvaluator.deadwood(hands, deadwood);
+		for (int i = 0; i < hands.length; i++)
+		{
+			Hand hand = new Hand();
+			for (long cards = hands[i]; cards != 0; cards &= cards - 1)
+			{
+				hand.add(Card.of(Long.numberOfTrailingZeros(cards)));
+			}
+			hand.autoMatch();
+			assertEquals(hand.score(), deadwood[i]);
+			assertEquals(MeldIndex.countMelds(hands[i]) > 0, HandEvaluator.hasMeld(hands[i]));
+		}
+	}
+
+	/**
+	 * Verify a batch split across tasks gives the same results as the solver.
+	 */
+	@Test
+	public void testLargeBatch()
+	{
+		long[] hands = randomHands(new Random(42), 5 * HandEvaluator.LEAF_SIZE + 17);
+		int[] deadwood = new int[hands.length];
+		HandEvaluator.deadwood(hands, deadwood);
+		MeldSolver solver = new MeldSolver();
+		for (int i = 0; i < hands.length; i++)
+		{
+			assertEquals(solver.solve(hands[i]), deadwood[i]);
+		}
+	}
+
+	private static long[] randomHands(Random pRandom, int pCount)
+	{
+		Deck deck = new Deck(RandomSource.of(pRandom));
+		long[] hands = new long[pCount];
+		for (int i = 0; i < pCount; i++)
+		{
+			deck.shuffle();
+			for (int j = 0; j < Hand.HAND_SIZE; j++)
+			{
+				hands[i] |= 1L << deck.draw().index();
+			}
+		}
+		return hands;
+	}
+}
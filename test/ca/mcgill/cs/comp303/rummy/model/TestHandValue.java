@@ -0,0 +1,73 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
+
+/**
+ * Test class for the HandValue class.
+ */
+public class TestHandValue
+{
+	/**
+	 * Verify with and without return new values and leave the original unchanged.
+	 */
+	@Test
+	public void testWithWithout()
+	{
+		HandValue value = HandValue.EMPTY.with(AllCards.CAC).with(AllCards.C2C).with(AllCards.C3C);
+		HandValue eleven = value.with(AllCards.CKS);
+		assertEquals(3, value.size());
+		assertEquals(4, eleven.size());
+		assertFalse(value.contains(AllCards.CKS));
+		assertTrue(eleven.contains(AllCards.CKS));
+		assertEquals(value, eleven.without(AllCards.CKS));
+		assertEquals(value.hashCode(), eleven.without(AllCards.CKS).hashCode());
+		assertSame(value, value.without(AllCards.CKS));
+		assertSame(HandValue.EMPTY, HandValue.of(1L << AllCards.CAC.index()).without(AllCards.CAC));
+		try
+		{
+			value.with(AllCards.CAC);
+			fail();
+		}
+		catch (HandException e)
+		{
+			assertEquals(3, value.size());
+		}
+	}
+
+	/**
+	 * Verify the deadwood of random values is the score of the same hand after autoMatch().
+	 */
+	@Test
+	public void testDeadwood()
+	{
+		Random random = new Random(303);
+		MeldSolver solver = new MeldSolver();
+		HandValue value = HandValue.EMPTY;
+		for (int i = 0; i < 1000; i++)
+		{
+			Card card = Card.of(random.nextInt(Card.NUMBER_OF_CARDS));
+			if (value.contains(card))
+			{
+				value = value.without(card);
+			}
+			else if (value.size() < Hand.HAND_SIZE)
+			{
+				value = value.with(card);
+			}
+			Hand hand = value.toHand();
+			hand.autoMatch();
+			assertEquals(hand.score(), value.deadwood(solver));
+			assertEquals(value, hand.snapshot());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.mask;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
+
+/**
+ * Test class for the LayoffSolver class.
+ */
+public class TestLayoffSolver
+{
+	/**
+	 * Verify layoffs extend runs on both ends, chain, and complete groups.
+	 */
+	@Test
+	public void testLayoffs()
+	{
+		long runs = mask(AllCards.C5H, AllCards.C6H, AllCards.C7H);
+		long groups = mask(AllCards.CKC, AllCards.CKD, AllCards.CKH);
+		long defender = mask(AllCards.C3H, AllCards.C4H, AllCards.C8H, AllCards.CKS, AllCards.C9S, AllCards.CQH);
+		assertEquals(mask(AllCards.C3H, AllCards.C4H, AllCards.C8H, AllCards.CKS),
+				LayoffSolver.layoffs(runs, groups, defender));
+		assertEquals(0, LayoffSolver.layoffs(runs, groups, mask(AllCards.C9H, AllCards.CQS)));
+		assertEquals(0, LayoffSolver.layoffs(runs, groups | mask(AllCards.CKS), mask(AllCards.CKS)));
+		// runs do not wrap around from the king of a suit to the ace of the next one
+		assertEquals(0, LayoffSolver.layoffs(mask(AllCards.CJC, AllCards.CQC, AllCards.CKC), 0, mask(AllCards.CAD)));
+	}
+
+	/**
+	 * Verify the defender breaks its own melds when that lays off more.
+	 */
+	@Test
+	public void testRearrange()
+	{
+		Set<ICardSet> melds = new HashSet<ICardSet>();
+		melds.add(set(CardSet.SetType.RUN, AllCards.C4H, AllCards.C5H, AllCards.C6H));
+		long defender = mask(AllCards.C7C, AllCards.C7D, AllCards.C7H, AllCards.C7S, AllCards.C8H);
+		// on its own, the defender would keep the four sevens and have 8 points of deadwood
+		assertEquals(8, new MeldSolver().solve(defender));
+		LayoffSolver solver = new LayoffSolver();
+		assertEquals(0, solver.solve(melds, defender));
+		assertEquals(mask(AllCards.C7H, AllCards.C8H), solver.getLayoffs());
+		assertEquals(mask(AllCards.C7C, AllCards.C7D, AllCards.C7S), solver.getMatched());
+	}
+
+	/**
+	 * Verify the deadwood left after laying off is never higher than without layoffs.
+	 */
+	@Test
+	public void testNeverWorse()
+	{
+		Random random = new Random(303);
+		MeldSolver meldSolver = new MeldSolver();
+		LayoffSolver solver = new LayoffSolver();
+		for (int i = 0; i < 500; i++)
+		{
+			Deck deck = new Deck(RandomSource.of(random));
+			long knocker = 0;
+			long defender = 0;
+			for (int j = 0; j < Hand.HAND_SIZE; j++)
+			{
+				knocker |= 1L << deck.draw().index();
+				defender |= 1L << deck.draw().index();
+			}
+			meldSolver.solve(knocker);
+			long runs = 0;
+			long groups = 0;
+			for (int j = 0; j < meldSolver.getMatchCount(); j++)
+			{
+				if (MeldIndex.isRun(meldSolver.getMatchId(j)))
+				{
+					runs |= meldSolver.getMatch(j);
+				}
+				else
+				{
+					groups |= meldSolver.getMatch(j);
+				}
+			}
+			int deadwood = solver.solve(runs, groups, defender);
+			assertEquals(0, (solver.getLayoffs() | solver.getMatched()) & ~defender);
+			assertEquals(0, solver.getLayoffs() & solver.getMatched());
+			assertEquals(deadwood, MeldSolver.deadwood(defender & ~solver.getLayoffs() & ~solver.getMatched()));
+			assertTrue(deadwood <= meldSolver.solve(defender));
+		}
+	}
+
+	private static ICardSet set(CardSet.SetType pType, Card... pCards)
+	{
+		Set<Card> cards = new HashSet<Card>();
+		for (Card card : pCards)
+		{
+			cards.add(card);
+		}
+		return new CardSet(cards, pType);
+	}
+}
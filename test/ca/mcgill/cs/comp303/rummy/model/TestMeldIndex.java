@@ -0,0 +1,68 @@
+package ca.mcgill.cs.comp303.rummy.model;
+
+import static ca.mcgill.cs.comp303.rummy.testutils.AllCards.mask;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.testutils.AllCards;
+
+/**
+ * Test class for the MeldIndex class.
+ */
+public class TestMeldIndex
+{
+	/**
+	 * Verify the size of the meld universe.
+	 */
+	@Test
+	public void testUniverse()
+	{
+		assertEquals(264, MeldIndex.NUMBER_OF_RUNS);
+		assertEquals(329, MeldIndex.NUMBER_OF_MELDS);
+		assertEquals(MeldIndex.NUMBER_OF_MELDS, MeldIndex.countMelds((1L << Card.NUMBER_OF_CARDS) - 1));
+		for (int id = 0; id < MeldIndex.NUMBER_OF_MELDS; id++)
+		{
+			assertEquals(id, MeldIndex.find(MeldIndex.mask(id)));
+		}
+	}
+
+	/**
+	 * Verify find() accepts runs and groups and rejects everything else.
+	 */
+	@Test
+	public void testFind()
+	{
+		int run = MeldIndex.find(mask(AllCards.CJH, AllCards.CQH, AllCards.CKH));
+		assertTrue(run >= 0 && MeldIndex.isRun(run));
+		int group = MeldIndex.find(mask(AllCards.C7C, AllCards.C7H, AllCards.C7S));
+		assertTrue(group >= 0 && !MeldIndex.isRun(group));
+		assertEquals(-1, MeldIndex.find(mask(AllCards.CJH, AllCards.CQH)));
+		assertEquals(-1, MeldIndex.find(mask(AllCards.CJH, AllCards.CQH, AllCards.CAH)));
+		assertEquals(-1, MeldIndex.find(mask(AllCards.CKD, AllCards.CAH, AllCards.C2H)));
+		assertEquals(-1, MeldIndex.find(mask(AllCards.C7C, AllCards.C7H, AllCards.C8S)));
+	}
+
+	/**
+	 * Verify the melds listed for a hand are exactly the melds contained in it.
+	 */
+	@Test
+	public void testMelds()
+	{
+		long cards = mask(AllCards.C4C, AllCards.C4D, AllCards.C4H, AllCards.C4S, AllCards.C5S, AllCards.C6S, AllCards.C7S);
+		int[] ids = new int[MeldIndex.NUMBER_OF_MELDS];
+		int count = MeldIndex.melds(cards, ids);
+		// 4-5-6, 5-6-7, 4-5-6-7 of spades, and the 4-card group with its four 3-card groups
+		assertEquals(8, count);
+		for (int i = 0; i < count; i++)
+		{
+			assertEquals(0, MeldIndex.mask(ids[i]) & ~cards);
+		}
+		for (int i = 0; i < MeldIndex.countMeldsOf(AllCards.C4S.index()); i++)
+		{
+			assertFalse(0 == (MeldIndex.mask(MeldIndex.meldOf(AllCards.C4S.index(), i)) & (1L << AllCards.C4S.index())));
+		}
+	}
+}
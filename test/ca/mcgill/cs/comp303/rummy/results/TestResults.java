@@ -0,0 +1,190 @@
+package ca.mcgill.cs.comp303.rummy.results;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.sim.GameSimulator;
+import ca.mcgill.cs.comp303.rummy.sim.GreedyStrategy;
+import ca.mcgill.cs.comp303.rummy.sim.SimulationStats;
+
+/**
+ * Test class for the ResultsWriter, ResultsStore and ResultsQuery classes.
+ */
+public class TestResults
+{
+	private static final int GAMES = 1500;
+
+	private Path aDirectory;
+	private final GameSimulator aSimulator = new GameSimulator(GreedyStrategy.factory(GameEngine.KNOCK_LIMIT),
+			GreedyStrategy.factory(0));
+
+	/**
+	 * Creates an empty store.
+	 * @throws IOException If the store cannot be created.
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		aDirectory = Files.createTempDirectory("results");
+	}
+
+	/**
+	 * Deletes the store.
+	 * @throws IOException If the store cannot be deleted.
+	 */
+	@After
+	public void tearDown() throws IOException
+	{
+		DirectoryStream<Path> files = Files.newDirectoryStream(aDirectory);
+		try
+		{
+			for (Path file : files)
+			{
+				Files.delete(file);
+			}
+		}
+		finally
+		{
+			files.close();
+		}
+		Files.delete(aDirectory);
+	}
+
+	/**
+	 * Verify the store holds a row per round simulated, and that queries
+	 * agree with the statistics of the simulation and with a scan of the rows.
+	 * @throws IOException If the store cannot be written or read.
+	 */
+	@Test
+	public void testSimulation() throws IOException
+	{
+		ResultsWriter writer = new ResultsWriter(aDirectory);
+		SimulationStats stats = aSimulator.run(303, 0, GAMES, writer);
+		writer.close();
+		ResultsStore store = new ResultsStore(aDirectory);
+		assertEquals(stats.getRounds(), store.getRows());
+		assertTrue(store.getChunkCount() > 1);
+		assertEquals("Greedy(10)", store.getStrategies().get(0));
+		assertEquals("Greedy(0)", store.getStrategies().get(1));
+
+		Aggregation gins = new ResultsQuery(null, null).where(Column.KNOCK_TYPE, Column.GIN, Column.GIN).run(store);
+		assertEquals(stats.getGinRate(), gins.getCount(0) / (double) store.getRows(), 1e-12);
+		Aggregation drawn = new ResultsQuery(null, null).where(Column.KNOCKER, -1, -1).run(store);
+		assertEquals(stats.getDrawRate(), drawn.getCount(0) / (double) store.getRows(), 1e-12);
+
+		long[] counts = new long[2];
+		long[] sums = new long[2];
+		long[] maxes = { Long.MIN_VALUE, Long.MIN_VALUE };
+		for (long row = 0; row < store.getRows(); row++)
+		{
+			int strategy = (int) store.get(Column.KNOCKER_STRATEGY, row);
+			if (strategy >= 0 && store.get(Column.TURNS, row) <= 20)
+			{
+				long deadwood = store.get(Column.KNOCKER_DEADWOOD, row);
+				counts[strategy]++;
+				sums[strategy] += deadwood;
+				maxes[strategy] = Math.max(maxes[strategy], deadwood);
+			}
+		}
+		Aggregation deadwood = new ResultsQuery(Column.KNOCKER_STRATEGY, Column.KNOCKER_DEADWOOD)
+				.where(Column.KNOCKER_STRATEGY, 0, 1).where(Column.TURNS, 0, 20).run(store, new ForkJoinPool(2));
+		assertEquals(2, deadwood.getGroups().length);
+		for (int strategy = 0; strategy < 2; strategy++)
+		{
+			assertEquals(counts[strategy], deadwood.getCount(strategy));
+			assertEquals(sums[strategy], deadwood.getSum(strategy));
+			assertEquals(maxes[strategy], deadwood.getMax(strategy));
+		}
+		assertEquals(0, deadwood.getCount(-1));
+		// the second strategy only knocks with gin
+		assertEquals(0, deadwood.getMax(1));
+		store.close();
+	}
+
+	/**
+	 * Verify a reopened writer completes the last chunk, and that the
+	 * statistics of the chunks let a filter on the seed skip the other runs.
+	 * @throws IOException If the store cannot be written or read.
+	 */
+	@Test
+	public void testAppend() throws IOException
+	{
+		long[] rounds = new long[3];
+		for (int run = 0; run < rounds.length; run++)
+		{
+			ResultsWriter writer = new ResultsWriter(aDirectory);
+			rounds[run] = aSimulator.run(run, 0, GAMES / 2, writer).getRounds();
+			writer.close();
+		}
+		ResultsStore store = new ResultsStore(aDirectory);
+		assertEquals(rounds[0] + rounds[1] + rounds[2], store.getRows());
+		assertEquals(2, store.getStrategies().size());
+		Aggregation bySeed = new ResultsQuery(Column.SEED, null).run(store);
+		for (int run = 0; run < rounds.length; run++)
+		{
+			assertEquals(rounds[run], bySeed.getCount(run));
+		}
+		Aggregation last = new ResultsQuery(null, Column.POINTS).where(Column.SEED, 2, 2).run(store);
+		assertEquals(rounds[2], last.getCount(0));
+		assertTrue(last.getSkippedChunks() > 0);
+		assertEquals(store.getChunkCount(), last.getScannedChunks() + last.getSkippedChunks());
+		assertEquals(bySeed.getTotalCount(), new ResultsQuery(null, null).run(store).getCount(0));
+		store.close();
+	}
+
+	/**
+	 * Verify the values of the 8-byte columns can be read past 2^25 rows,
+	 * where their byte offset no longer fits an int times 64, in a sparse
+	 * store of zeros but for the last row.
+	 * @throws IOException If the store cannot be written or read.
+	 */
+	@Test
+	public void testLargeStore() throws IOException
+	{
+		long rows = (1L << 25) + ResultsFormat.CHUNK_ROWS;
+		int chunks = (int) (rows / ResultsFormat.CHUNK_ROWS);
+		for (Column column : Column.values())
+		{
+			long last = column == Column.SEED ? 7 : column == Column.GAME ? 42 : 0;
+			FileChannel channel = FileChannel.open(ResultsFormat.column(aDirectory, column), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			ByteBuffer value = ByteBuffer.allocate(column.getWidth());
+			ResultsFormat.put(value, column.getWidth(), last);
+			value.flip();
+			channel.write(value, (rows - 1) * column.getWidth());
+			channel.close();
+			channel = FileChannel.open(ResultsFormat.stats(aDirectory, column), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			ByteBuffer stats = ByteBuffer.allocate(ResultsFormat.STATS_ENTRY);
+			stats.putLong(0).putLong(last).flip();
+			channel.write(stats, (long) (chunks - 1) * ResultsFormat.STATS_ENTRY);
+			channel.close();
+		}
+		ResultsStore store = new ResultsStore(aDirectory);
+		assertEquals(rows, store.getRows());
+		assertEquals(7, store.get(Column.SEED, rows - 1));
+		assertEquals(0, store.get(Column.SEED, 1L << 25));
+		long[] values = new long[ResultsFormat.CHUNK_ROWS];
+		store.read(Column.GAME, chunks - 1, values);
+		assertEquals(42, values[ResultsFormat.CHUNK_ROWS - 1]);
+		Aggregation games = new ResultsQuery(Column.SEED, Column.GAME).where(Column.SEED, 7, 7).run(store);
+		assertEquals(1, games.getCount(7));
+		assertEquals(42, games.getSum(7));
+		assertEquals(chunks - 1, games.getSkippedChunks());
+		store.close();
+	}
+}
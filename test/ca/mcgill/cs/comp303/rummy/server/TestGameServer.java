@@ -0,0 +1,105 @@
+package ca.mcgill.cs.comp303.rummy.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+
+/**
+ * Test class for the GameServer, Table, LoadGenerator and LatencyHistogram classes.
+ */
+public class TestGameServer
+{
+	/**
+	 * Verify a table answers each command, rejects illegal ones without
+	 * changing the round, and lets the bot play until the client is to move.
+	 */
+	@Test
+	public void testTable()
+	{
+		Table table = new Table(303);
+		assertTrue(table.handle(Table.DRAW).startsWith(Table.ERROR + " "));
+		assertTrue(table.handle("SHUFFLE").startsWith(Table.ERROR + " "));
+		for (int round = 0; round < 20; round++)
+		{
+			String answer = table.handle(Table.DEAL);
+			// the client deals every other round, and the bot then draws and discards first
+			assertEquals(round % 2 == 0 ? 0 : 2, table.getEngine().getHistorySize());
+			while (answer.startsWith(Table.TURN + " "))
+			{
+				String[] turn = answer.split(" ");
+				long hand = Long.parseLong(turn[1], 16);
+				assertEquals(table.getEngine().getHand(Table.CLIENT), hand);
+				assertEquals(table.getEngine().discardTop(), Integer.parseInt(turn[2]));
+				assertTrue(table.handle(Table.DEAL).startsWith(Table.ERROR + " "));
+				assertTrue(table.handle(Table.DISCARD + " " + Long.numberOfTrailingZeros(hand)).startsWith(Table.ERROR));
+				String drew = table.handle(round % 2 == 0 ? Table.DRAW : Table.TAKE);
+				int card = Integer.parseInt(drew.substring(Table.DREW.length() + 1));
+				assertEquals(hand | 1L << card, table.getEngine().getHand(Table.CLIENT));
+				assertTrue(table.handle(Table.DRAW).startsWith(Table.ERROR + " "));
+				assertTrue(table.handle(Table.DISCARD + " 52").startsWith(Table.ERROR + " "));
+				assertTrue(table.handle(Table.DISCARD + " x").startsWith(Table.ERROR + " "));
+				// the taken discard cannot be discarded, so discard the highest other card
+				long others = (hand | 1L << card) & ~(round % 2 == 0 ? 0 : 1L << card);
+				answer = table.handle(Table.DISCARD + " " + (Long.SIZE - 1 - Long.numberOfLeadingZeros(others)));
+			}
+			assertTrue(answer, answer.startsWith(Table.OVER + " "));
+			assertEquals(GameEngine.Phase.OVER, table.getEngine().getPhase());
+			assertEquals(Table.OVER + " " + table.getEngine().getWinner() + " " + table.getEngine().getPoints(), answer);
+		}
+		assertEquals(Table.BYE, table.handle(Table.QUIT));
+	}
+
+	/**
+	 * Verify clients play rounds concurrently against a server without errors.
+	 * @throws Exception If the server or a client fails.
+	 */
+	@Test
+	public void testLoad() throws Exception
+	{
+		GameServer server = new GameServer(303);
+		LoadGenerator generator = new LoadGenerator("127.0.0.1", server.getPort(), 50);
+		LatencyHistogram latencies = generator.run(100, 500);
+		assertEquals(0, generator.getErrors());
+		assertTrue(generator.getRounds() > 0);
+		assertTrue(latencies.getCount() > 0);
+		assertTrue(server.getMoves() > latencies.getCount());
+		assertEquals(50, server.getTables());
+		assertTrue(latencies.getPercentile(0.5) <= latencies.getPercentile(0.99));
+		assertTrue(latencies.getPercentile(0.99) <= latencies.getMax());
+		server.close();
+	}
+
+	/**
+	 * Verify percentiles are within 1/16 of the exact ones.
+	 */
+	@Test
+	public void testHistogram()
+	{
+		LatencyHistogram low = new LatencyHistogram();
+		LatencyHistogram high = new LatencyHistogram();
+		for (long nanos = 1; nanos <= 100000; nanos++)
+		{
+			(nanos <= 50000 ? low : high).record(nanos);
+		}
+		LatencyHistogram latencies = low.merge(high);
+		assertEquals(100000, latencies.getCount());
+		assertEquals(50000.5, latencies.getMean(), 1e-9);
+		assertEquals(100000, latencies.getMax());
+		for (double fraction : new double[] { 0.01, 0.5, 0.9, 0.99, 0.999 })
+		{
+			long exact = (long) Math.ceil(fraction * 100000);
+			long percentile = latencies.getPercentile(fraction);
+			assertTrue(percentile >= exact && percentile <= exact + exact / 16);
+		}
+		assertEquals(100000, latencies.getPercentile(1));
+		assertEquals(0, new LatencyHistogram().getPercentile(0.99));
+		LatencyHistogram small = new LatencyHistogram();
+		small.record(0);
+		small.record(7);
+		assertEquals(7, small.getPercentile(1));
+		assertEquals(0, small.getPercentile(0.5));
+	}
+}
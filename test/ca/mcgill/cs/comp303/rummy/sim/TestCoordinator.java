@@ -0,0 +1,141 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Test class for the Coordinator and Worker classes.
+ */
+public class TestCoordinator
+{
+	private static final String SPEC = "games 303 4000 10 0";
+
+	/**
+	 * Verify the shard of a worker process that is killed is reassigned and the merged result is complete.
+	 * @throws Exception If the job fails.
+	 */
+	@Test
+	public void testReassign() throws Exception
+	{
+		Coordinator coordinator = new Coordinator(Job.parse(SPEC));
+		int shards = coordinator.getRemaining();
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				Worker.class.getName(), "127.0.0.1", Integer.toString(coordinator.getPort())).inheritIO().start();
+		// once a result is back, the worker always holds the next shard
+		while (coordinator.getRemaining() == shards)
+		{
+			Thread.sleep(1);
+		}
+		process.destroyForcibly().waitFor();
+		assertTrue(coordinator.getRemaining() > 0);
+		Thread worker = new Thread(new Worker("127.0.0.1", coordinator.getPort()));
+		worker.start();
+		SimulationStats stats = ((SimulationJob) coordinator.await()).getStats();
+		worker.join();
+		assertEquals(1, coordinator.getReassigned());
+		SimulationStats expected = expected();
+		assertEquals(expected.getRounds(), stats.getRounds());
+		assertEquals(expected.getWins(0), stats.getWins(0));
+	}
+
+	/**
+	 * Verify a worker that does not answer its shard within the deadline is
+	 * dropped and its shard reassigned.
+	 * @throws Exception If the job fails.
+	 */
+	@Test
+	public void testDeadline() throws Exception
+	{
+		Coordinator coordinator = new Coordinator(new DeadwoodJob(4), InetAddress.getLoopbackAddress(), 0, 200);
+		Socket hung = new Socket("127.0.0.1", coordinator.getPort());
+		BufferedReader reader = new BufferedReader(new InputStreamReader(hung.getInputStream(),
+				StandardCharsets.UTF_8));
+		Writer writer = new OutputStreamWriter(hung.getOutputStream(), StandardCharsets.UTF_8);
+		writer.write(Coordinator.HELLO + " hung\n");
+		writer.flush();
+		assertTrue(reader.readLine().startsWith(Coordinator.JOB + " "));
+		assertTrue(reader.readLine().startsWith(Coordinator.SHARD + " "));
+		// never answer: the coordinator closes the connection
+		assertNull(reader.readLine());
+		hung.close();
+		assertEquals(1, coordinator.getReassigned());
+		Thread worker = new Thread(new Worker("127.0.0.1", coordinator.getPort()));
+		worker.start();
+		DeadwoodJob job = (DeadwoodJob) coordinator.await();
+		worker.join();
+		assertEquals(new ExhaustiveDeadwood(4, null, new ForkJoinPool(1)).run(), job.getHistogram());
+	}
+
+	/**
+	 * Verify a worker that drops in the middle of a result, or answers one
+	 * the job cannot parse, is dropped without merging anything and its
+	 * shard reassigned.
+	 * @throws Exception If the job fails.
+	 */
+	@Test
+	public void testTruncatedResult() throws Exception
+	{
+		Coordinator coordinator = new Coordinator(new DeadwoodJob(4));
+		// a result cut short, then a complete one with no count
+		String[] answers = { "5 3=1", "2 3=" };
+		for (String answer : answers)
+		{
+			Socket broken = new Socket("127.0.0.1", coordinator.getPort());
+			BufferedReader reader = new BufferedReader(new InputStreamReader(broken.getInputStream(),
+					StandardCharsets.UTF_8));
+			Writer writer = new OutputStreamWriter(broken.getOutputStream(), StandardCharsets.UTF_8);
+			writer.write(Coordinator.HELLO + " broken\n");
+			writer.flush();
+			assertTrue(reader.readLine().startsWith(Coordinator.JOB + " "));
+			String shard = reader.readLine().substring(Coordinator.SHARD.length() + 1);
+			// no end of line: the connection closes in the middle of the result
+			writer.write(Coordinator.RESULT + " " + shard + " " + answer);
+			writer.flush();
+			broken.shutdownOutput();
+			assertNull(reader.readLine());
+			broken.close();
+		}
+		assertEquals(answers.length, coordinator.getReassigned());
+		Thread worker = new Thread(new Worker("127.0.0.1", coordinator.getPort()));
+		worker.start();
+		DeadwoodJob job = (DeadwoodJob) coordinator.await();
+		worker.join();
+		assertEquals(new ExhaustiveDeadwood(4, null, new ForkJoinPool(1)).run(), job.getHistogram());
+	}
+
+	/**
+	 * Verify worker processes give the same statistics as a simulation in this JVM.
+	 * @throws Exception If the job fails.
+	 */
+	@Test
+	public void testProcesses() throws Exception
+	{
+		Coordinator coordinator = new Coordinator(Job.parse(SPEC));
+		coordinator.launchWorkers(2);
+		SimulationStats stats = ((SimulationJob) coordinator.await()).getStats();
+		SimulationStats expected = expected();
+		assertEquals(expected.getGames(), stats.getGames());
+		assertEquals(expected.getWins(0), stats.getWins(0));
+		assertEquals(expected.getRounds(), stats.getRounds());
+		assertTrue(stats.getGinRate() > 0);
+	}
+
+	private static SimulationStats expected()
+	{
+		return new GameSimulator(GreedyStrategy.factory(10), GreedyStrategy.factory(0)).run(303, 4000);
+	}
+}
@@ -0,0 +1,155 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.GameEngine;
+import ca.mcgill.cs.comp303.rummy.model.RandomSource;
+
+/**
+ * Test class for the DoubleDummySolver class.
+ */
+public class TestDoubleDummySolver
+{
+	private static final int TABLE_BITS = 16;
+	private static final int STOCK = 6;
+	private static final int TURNS = 3;
+
+	/*
+	 * Deals a round and plays it, drawing from the stock and discarding the
+	 * lowest card, until the stock is down to pStock cards.
+	 */
+	private static GameEngine position(long pSeed, int pStock)
+	{
+		GameEngine engine = new GameEngine(RandomSource.seeded(pSeed));
+		engine.deal(0);
+		while (engine.getStockSize() > pStock)
+		{
+			engine.apply(GameEngine.DRAW_STOCK);
+			engine.apply(GameEngine.DISCARD | Long.numberOfTrailingZeros(engine.getHand(engine.getPlayer())));
+		}
+		return engine;
+	}
+
+	/*
+	 * Plain minimax, without pruning or table, for player 0.
+	 */
+	private static int minimax(GameEngine pEngine, int pMaxTurns)
+	{
+		if (pEngine.getPhase() == GameEngine.Phase.OVER)
+		{
+			int winner = pEngine.getWinner();
+			return winner < 0 ? 0 : winner == 0 ? pEngine.getPoints() : -pEngine.getPoints();
+		}
+		if (pEngine.getPhase() == GameEngine.Phase.DRAW && pEngine.getTurns() >= pMaxTurns)
+		{
+			return 0;
+		}
+		int[] actions = new int[GameEngine.MAX_ACTIONS];
+		int count = pEngine.legalActions(actions);
+		int best = pEngine.getPlayer() == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++)
+		{
+			int player = pEngine.getPlayer();
+			pEngine.apply(actions[i]);
+			int value = minimax(pEngine, pMaxTurns);
+			pEngine.undo();
+			best = player == 0 ? Math.max(best, value) : Math.min(best, value);
+		}
+		return best;
+	}
+
+	/**
+	 * Verify the solver finds the minimax value of endgames, and its best action achieves it.
+	 */
+	@Test
+	public void testMinimax()
+	{
+		DoubleDummySolver solver = new DoubleDummySolver(TABLE_BITS, 1, null);
+		for (long seed = 0; seed < 10; seed++)
+		{
+			GameEngine engine = position(seed, STOCK);
+			int maxTurns = engine.getTurns() + TURNS;
+			int value = solver.solve(engine, maxTurns);
+			assertEquals(minimax(engine, maxTurns), value);
+			assertEquals(0, engine.getHistorySize() - position(seed, STOCK).getHistorySize());
+			engine.apply(solver.getBestAction());
+			assertEquals(value, minimax(engine, maxTurns));
+		}
+		// solving a position again starts from the table
+		long nodes = solver.getNodes();
+		GameEngine engine = position(0, STOCK);
+		solver.solve(engine, engine.getTurns() + TURNS);
+		assertTrue(solver.getNodes() - nodes < nodes / 10 && solver.getHitRate() > 0);
+	}
+
+	/**
+	 * Verify a solver does not reuse the values of a position for one that
+	 * only differs in the order of its stock.
+	 */
+	@Test
+	public void testStockOrder()
+	{
+		DoubleDummySolver solver = new DoubleDummySolver(TABLE_BITS, 1, null);
+		boolean differ = false;
+		for (long seed = 0; seed < 20; seed++)
+		{
+			// every discard leads to the same position but for the stock
+			GameEngine dealt = position(seed, STOCK - 2);
+			dealt.apply(GameEngine.DRAW_STOCK);
+			GameEngine engine = restack(dealt, false);
+			GameEngine reversed = restack(dealt, true);
+			int value = solver.solve(engine, TURNS);
+			int reversedValue = solver.solve(reversed, TURNS);
+			assertEquals(minimax(engine, TURNS), value);
+			assertEquals(minimax(reversed, TURNS), reversedValue);
+			differ |= value != reversedValue;
+		}
+		assertTrue(differ);
+	}
+
+	/*
+	 * Sets up the position of pEngine on a new engine, with its stock in the
+	 * same order or reversed.
+	 */
+	private static GameEngine restack(GameEngine pEngine, boolean pReverse)
+	{
+		byte[] discards = new byte[Card.NUMBER_OF_CARDS];
+		for (int i = 0; i < pEngine.getDiscardCount(); i++)
+		{
+			discards[i] = (byte) pEngine.getDiscard(i);
+		}
+		int size = pEngine.getStockSize();
+		byte[] stock = new byte[Card.NUMBER_OF_CARDS];
+		for (int i = 0; i < size; i++)
+		{
+			stock[i] = (byte) pEngine.getStock(pReverse ? size - 1 - i : i);
+		}
+		GameEngine engine = new GameEngine(RandomSource.seeded(0));
+		engine.setPosition(pEngine.getPlayer(), pEngine.getPhase(), new long[] { pEngine.getHand(0),
+				pEngine.getHand(1) }, new long[] { pEngine.getKnown(0), pEngine.getKnown(1) }, discards,
+				pEngine.getDiscardCount(), stock, size, pEngine.getTakenDiscard());
+		return engine;
+	}
+
+	/**
+	 * Verify helper threads sharing the table do not change the values found.
+	 */
+	@Test
+	public void testParallel()
+	{
+		DoubleDummySolver single = new DoubleDummySolver(TABLE_BITS, 1, null);
+		DoubleDummySolver parallel = new DoubleDummySolver(TABLE_BITS, 3, new ForkJoinPool(2));
+		for (long seed = 0; seed < 10; seed++)
+		{
+			GameEngine engine = position(seed, STOCK + 2);
+			int maxTurns = engine.getTurns() + TURNS + 1;
+			assertEquals(single.solve(engine, maxTurns), parallel.solve(engine, maxTurns));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ca.mcgill.cs.comp303.rummy.model.Card;
+import ca.mcgill.cs.comp303.rummy.model.MeldSolver;
+
+/**
+ * Test class for the ExhaustiveDeadwood class.
+ */
+public class TestExhaustiveDeadwood
+{
+	private static final int HAND_SIZE = 4;
+
+	/**
+	 * Verify the enumeration of suit-canonical hands matches a brute force enumeration of all hands.
+	 * @throws IOException Never: no checkpoint file is used.
+	 */
+	@Test
+	public void testMatchesBruteForce() throws IOException
+	{
+		DeadwoodHistogram histogram = new ExhaustiveDeadwood(HAND_SIZE, null, new ForkJoinPool(2)).run();
+		assertEquals(270725, histogram.getTotal());
+		assertEquals(bruteForce(HAND_SIZE), histogram);
+		assertEquals(22100, new ExhaustiveDeadwood(3, null, new ForkJoinPool(1)).run().getTotal());
+	}
+
+	/**
+	 * Verify a run resumed from a partial checkpoint gives the same histogram.
+	 * @throws IOException If the temporary file cannot be used.
+	 */
+	@Test
+	public void testResume() throws IOException
+	{
+		File file = File.createTempFile("deadwood", ".txt");
+		file.delete();
+		try
+		{
+			ForkJoinPool pool = new ForkJoinPool(1);
+			DeadwoodHistogram whole = new ExhaustiveDeadwood(HAND_SIZE, file, pool).run();
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			// keep half of the shards, and the beginning of a line cut short
+			StringBuilder partial = new StringBuilder();
+			for (int i = 0; i < lines.size() / 2; i++)
+			{
+				partial.append(lines.get(i)).append('\n');
+			}
+			String cut = lines.get(lines.size() / 2);
+			partial.append(cut.substring(0, cut.length() - 2));
+			Files.write(file.toPath(), partial.toString().getBytes(StandardCharsets.UTF_8));
+			assertEquals(whole, new ExhaustiveDeadwood(HAND_SIZE, file, pool).run());
+			assertEquals(whole, new ExhaustiveDeadwood(HAND_SIZE, file, pool).run());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	private static DeadwoodHistogram bruteForce(int pHandSize)
+	{
+		DeadwoodHistogram histogram = new DeadwoodHistogram(pHandSize);
+		MeldSolver solver = new MeldSolver();
+		int[] cards = new int[pHandSize];
+		for (int i = 0; i < pHandSize; i++)
+		{
+			cards[i] = i;
+		}
+		while (true)
+		{
+			long hand = 0;
+			for (int card : cards)
+			{
+				hand |= 1L << card;
+			}
+			histogram.add(solver.solve(hand), 1);
+			int i = pHandSize - 1;
+			while (i >= 0 && cards[i] == Card.NUMBER_OF_CARDS - pHandSize + i)
+			{
+				i--;
+			}
+			if (i < 0)
+			{
+				return histogram;
+			}
+			cards[i]++;
+			for (int j = i + 1; j < pHandSize; j++)
+			{
+				cards[j] = cards[j - 1] + 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Test class for the GameSimulator class.
+ */
+public class TestGameSimulator
+{
+	private static final long SEED = 303;
+	private static final int GAMES = 200;
+
+	/**
+	 * Verify the results of a simulation do not depend on the number of threads.
+	 */
+	@Test
+	public void testDeterministic()
+	{
+		SimulationStats single = new GameSimulator(GreedyStrategy.factory(10), GreedyStrategy.factory(0),
+				new ForkJoinPool(1)).run(SEED, GAMES);
+		SimulationStats parallel = new GameSimulator(GreedyStrategy.factory(10), GreedyStrategy.factory(0),
+				new ForkJoinPool(4)).run(SEED, GAMES);
+		assertEquals(GAMES, single.getGames());
+		assertEquals(single.getWins(0), parallel.getWins(0));
+		assertEquals(single.getWins(1), parallel.getWins(1));
+		assertEquals(single.getRounds(), parallel.getRounds());
+		assertEquals(single.getGinRate(), parallel.getGinRate(), 0);
+	}
+
+	/**
+	 * Verify a simulation split in two ranges of games gives the same results as in one run.
+	 */
+	@Test
+	public void testRanges()
+	{
+		GameSimulator simulator = new GameSimulator(GreedyStrategy.factory(10), GreedyStrategy.factory(10));
+		SimulationStats whole = simulator.run(SEED, GAMES);
+		SimulationStats split = simulator.run(SEED, 0, GAMES / 2).merge(simulator.run(SEED, GAMES / 2, GAMES / 2));
+		assertEquals(whole.getWins(0), split.getWins(0));
+		assertEquals(whole.getRounds(), split.getRounds());
+		assertTrue(whole.getAverageKnockDeadwood() <= 10);
+	}
+}
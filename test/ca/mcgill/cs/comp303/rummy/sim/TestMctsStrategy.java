@@ -0,0 +1,105 @@
+package ca.mcgill.cs.comp303.rummy.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Test class for the MctsStrategy class.
+ */
+public class TestMctsStrategy
+{
+	private static final long SEED = 303;
+	private static final int PLAYOUTS = 300;
+
+	// A, 2, 3 of clubs, 4, 5, 6 of diamonds, 7, 8, 9 of hearts and king of spades
+	private static final long HAND = 0x7L | 0x7L << 16 | 0x7L << 32 | 1L << 51;
+	private static final int TEN_OF_HEARTS = 35;
+	private static final int KING_OF_SPADES = 51;
+
+	private static PlayerView view(final long pHand, final int pTop, final long pPile, final int pTaken)
+	{
+		return new PlayerView()
+		{
+			@Override
+			public long hand()
+			{
+				return pHand;
+			}
+
+			@Override
+			public int discardTop()
+			{
+				return pTop;
+			}
+
+			@Override
+			public long discardPile()
+			{
+				return pPile;
+			}
+
+			@Override
+			public long opponentKnown()
+			{
+				return 0;
+			}
+
+			@Override
+			public int takenDiscard()
+			{
+				return pTaken;
+			}
+
+			@Override
+			public int stockSize()
+			{
+				return 52 - 10 - Long.bitCount(pHand) - Long.bitCount(pPile);
+			}
+		};
+	}
+
+	/**
+	 * Verify the search takes a discard that makes gin, then discards for gin and knocks.
+	 */
+	@Test
+	public void testGin()
+	{
+		MctsStrategy strategy = new MctsStrategy(0, PLAYOUTS, 1, SEED, null);
+		assertTrue(strategy.takeDiscard(view(HAND, TEN_OF_HEARTS, 1L << TEN_OF_HEARTS, -1)));
+		long hand = HAND | 1L << TEN_OF_HEARTS;
+		assertEquals(KING_OF_SPADES, strategy.discard(view(hand, -1, 0, TEN_OF_HEARTS)));
+		assertTrue(strategy.knock(view(hand & ~(1L << KING_OF_SPADES), KING_OF_SPADES, 1L << KING_OF_SPADES, -1), 0));
+		assertEquals(2 * PLAYOUTS, strategy.getPlayouts());
+	}
+
+	/**
+	 * Verify parallel searches merge their trees and count the playouts of all threads.
+	 */
+	@Test
+	public void testParallel()
+	{
+		MctsStrategy strategy = new MctsStrategy(0, PLAYOUTS, 2, SEED, new ForkJoinPool(2));
+		long hand = HAND | 1L << 40;
+		int card = strategy.discard(view(hand, -1, 1L << 4, -1));
+		assertTrue((hand & 1L << card) != 0);
+		assertEquals(2 * PLAYOUTS, strategy.getPlayouts());
+		assertTrue(strategy.getPlayoutsPerSecond() > 0);
+	}
+
+	/**
+	 * Verify a search with a time budget plays complete games.
+	 */
+	@Test
+	public void testGames()
+	{
+		SimulationStats stats = new GameSimulator(MctsStrategy.factory(2000000, 1), GreedyStrategy.factory(10),
+				new ForkJoinPool(1)).run(SEED, 2);
+		assertEquals(2, stats.getGames());
+		assertFalse(stats.getRounds() == 0);
+	}
+}